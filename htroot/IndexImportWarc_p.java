@@ -42,6 +42,7 @@ public class IndexImportWarc_p {
             prop.put("import_warcfile", WarcImporter.job.source());
             prop.put("import_count", WarcImporter.job.count());
             prop.put("import_speed", WarcImporter.job.speed());
+            prop.put("import_status", WarcImporter.job.status());
             prop.put("import_runningHours", (WarcImporter.job.runningTime() / 60) / 60);
             prop.put("import_runningMinutes", (WarcImporter.job.runningTime() / 60) % 60);
             prop.put("import_remainingHours", (WarcImporter.job.remainingTime() / 60) / 60);
@@ -90,6 +91,7 @@ public class IndexImportWarc_p {
 
                     prop.put("import_count", 0);
                     prop.put("import_speed", 0);
+                    prop.put("import_status", "");
                     prop.put("import_runningHours", 0);
                     prop.put("import_runningMinutes", 0);
                     prop.put("import_remainingHours", 0);
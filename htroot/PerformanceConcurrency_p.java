@@ -23,6 +23,7 @@ import java.util.Iterator;
 
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.kelondro.workflow.WorkflowProcessor;
+import net.yacy.search.schema.PostprocessingScheduler;
 import net.yacy.server.serverObjects;
 import net.yacy.server.serverSwitch;
 
@@ -88,6 +89,19 @@ public class PerformanceConcurrency_p {
             c++;
         }
         prop.put("table", c);
+
+        // the tasks of the latest postprocessing
+        c = 0;
+        for (final PostprocessingScheduler.Task task: PostprocessingScheduler.getTasks()) {
+            prop.putHTML("postprocessing_" + c + "_name", task.getName());
+            prop.put("postprocessing_" + c + "_state", task.getState().name());
+            prop.putNum("postprocessing_" + c + "_count", task.getCount());
+            prop.putNum("postprocessing_" + c + "_waittime", task.getWaitTime());
+            prop.putNum("postprocessing_" + c + "_exectime", task.getExecTime());
+            prop.put("postprocessing_" + c + "_class", task.getState() == PostprocessingScheduler.State.failed ? 2 : task.getState() == PostprocessingScheduler.State.running ? 1 : 0);
+            c++;
+        }
+        prop.put("postprocessing", c);
         // return rewrite values for templates
         return prop;
     }
@@ -27,15 +27,18 @@
 //import java.util.Iterator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import org.apache.solr.core.SolrInfoMBean;
 import org.apache.solr.search.SolrCache;
 
+import net.yacy.cora.federate.solr.connector.CachingSolrConnector;
 import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.blob.ArrayStack;
 import net.yacy.kelondro.index.RAMIndex;
 import net.yacy.kelondro.table.Table;
 import net.yacy.kelondro.table.Table.TableStatistics;
@@ -121,6 +124,23 @@ public class PerformanceMemory_p {
         }
         prop.put("SolrList", c);
         prop.put("SolrCacheCount", scc);
+
+        // write table for the result caches of the solr connectors
+        c = 0;
+        for (CachingSolrConnector csc: CachingSolrConnector.getInstances()) {
+            final long hits = csc.getHits(), misses = csc.getMisses();
+            prop.put("SolrResultCacheList_" + c + "_name", csc.getName());
+            prop.putNum("SolrResultCacheList_" + c + "_entries", csc.getEntries());
+            prop.put("SolrResultCacheList_" + c + "_size", Formatter.bytesToString(csc.getWeight()));
+            prop.put("SolrResultCacheList_" + c + "_maxsize", Formatter.bytesToString(csc.getMaxBytes()));
+            prop.putNum("SolrResultCacheList_" + c + "_hits", hits);
+            prop.putNum("SolrResultCacheList_" + c + "_misses", misses);
+            prop.putNum("SolrResultCacheList_" + c + "_hitrate", hits + misses == 0 ? 0 : 100 * hits / (hits + misses));
+            prop.putNum("SolrResultCacheList_" + c + "_evictions", csc.getEvictions());
+            prop.putNum("SolrResultCacheList_" + c + "_invalidations", csc.getInvalidations());
+            c++;
+        }
+        prop.put("SolrResultCacheList", c);
         
         // write table for Table index sizes
         Iterator<String> i = Table.filenames();
@@ -178,6 +198,12 @@ public class PerformanceMemory_p {
         prop.put("indexcache", c);
         prop.putNum("indexcacheTotalMem", totalhitmem / (1024d * 1024d));
 
+        // write lookup statistics of the RWI and citation index files
+        c = 0;
+        if (sb.index.connectedRWI()) c = putSegmentStatistics(prop, c, sb.index.termIndex().getSegmentStatistics());
+        if (sb.index.connectedCitation()) c = putSegmentStatistics(prop, c, sb.index.urlCitation().getSegmentStatistics());
+        prop.put("indexfiles", c);
+
 //        this cache table wasn't used for years
 //        // write object cache table
 //        i = Cache.filenames();
@@ -242,4 +268,20 @@ public class PerformanceMemory_p {
         // return rewrite values for templates
         return prop;
     }
+
+    private static int putSegmentStatistics(final serverObjects prop, int c, final List<ArrayStack.GenerationStatistics> stats) {
+        for (final ArrayStack.GenerationStatistics stat: stats) {
+            prop.put("indexfiles_" + c + "_Name", stat.getName());
+            prop.putNum("indexfiles_" + c + "_Count", stat.getSize());
+            prop.putNum("indexfiles_" + c + "_Lookups", stat.getLookups());
+            prop.putNum("indexfiles_" + c + "_AvgTime", stat.getAverageLookupTime());
+            prop.putNum("indexfiles_" + c + "_MaxTime", stat.getMaxLookupTime());
+            prop.putNum("indexfiles_" + c + "_Timeouts", stat.getLookupTimeouts());
+            prop.put("indexfiles_" + c + "_Filter", stat.hasFilter() ? 1 : 0);
+            prop.putNum("indexfiles_" + c + "_Filter_FilterHits", stat.getFilterHits());
+            prop.putNum("indexfiles_" + c + "_Filter_FilterFalsePositives", stat.getFilterFalsePositives());
+            c++;
+        }
+        return c;
+    }
 }
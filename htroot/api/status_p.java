@@ -31,6 +31,7 @@ import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.util.Memory;
 import net.yacy.crawler.CrawlSwitchboard;
 import net.yacy.crawler.data.CrawlProfile;
+import net.yacy.kelondro.index.PooledOpenFileIndex;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.io.ByteCount;
 import net.yacy.kelondro.util.MemoryControl;
@@ -39,6 +40,7 @@ import net.yacy.search.Switchboard;
 import net.yacy.search.SwitchboardConstants;
 import net.yacy.search.index.Fulltext;
 import net.yacy.search.index.Segment;
+import net.yacy.search.query.SearchExecutor;
 import net.yacy.search.schema.CollectionConfiguration;
 import net.yacy.search.schema.CollectionSchema;
 import net.yacy.search.schema.WebgraphSchema;
@@ -112,6 +114,24 @@ public class status_p {
         prop.putNum("noloadCrawlSize", sb.crawlQueues.noloadCrawlJobSize());
         prop.put("noloadCrawlState", STATE_RUNNING);
 
+        // open files of the crawl depth stacks
+        prop.putNum("stackFilesOpen", PooledOpenFileIndex.openFiles());
+        prop.putNum("stackFilesMax", PooledOpenFileIndex.getMaxOpen());
+        prop.putNum("stackFilesOpened", PooledOpenFileIndex.openedFiles());
+        prop.putNum("stackFilesClosed", PooledOpenFileIndex.closedFiles());
+        prop.putNum("stackFilesReused", PooledOpenFileIndex.reusedFiles());
+
+        // tasks of the search
+        final SearchExecutor searchExecutor = SearchExecutor.getExecutor();
+        prop.put("searchTasksVirtual", searchExecutor.isVirtual() ? 1 : 0);
+        prop.putNum("searchTasksThreads", searchExecutor.getThreads());
+        prop.putNum("searchTasksRunning", searchExecutor.getRunning());
+        prop.putNum("searchTasksPeak", searchExecutor.getPeakRunning());
+        prop.putNum("searchTasksQueued", searchExecutor.getQueued());
+        prop.putNum("searchTasksSubmitted", searchExecutor.getSubmitted());
+        prop.putNum("searchTasksCompleted", searchExecutor.getCompleted());
+        prop.putNum("searchTasksCancelled", searchExecutor.getCancelled());
+
         // generate crawl profile table
         int count = 0;
         final int domlistlength = (post == null) ? 160 : post.getInt("domlistlength", 160);
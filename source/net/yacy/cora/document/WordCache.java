@@ -222,6 +222,24 @@ public class WordCache {
         }
     }
 
+    /**
+     * add a word to the generic dictionary
+     * @param word
+     * @param count the number of occurrences of the word
+     */
+    public static void learn(final StringBuilder word, final int count) {
+        if (word == null) {
+            return;
+        }
+        if (word.length() < commonWordsMinLength) {
+            return;
+        }
+        commonWords.inc(word, count);
+        if (!(commonWords.sizeSmaller(commonWordsMaxSize))) {
+            commonWords.shrinkToMaxSize(commonWordsMaxSize / 2);
+        }
+    }
+
     public static void learn(Collection<String> wordset) {
         for (String s: wordset) {
             learn(new StringBuilder(s));
@@ -0,0 +1,549 @@
+/**
+ *  CachingSolrConnector
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.federate.solr.connector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import net.yacy.cora.storage.WeightedARC;
+
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+/**
+ * A connector which caches the results of queries to another connector. Query responses, document lists
+ * and counts are stored in a WeightedARC which is limited by the estimated size of the results in bytes.
+ * The key of a result is the canonical form of the query parameters, which does not depend on the order
+ * of the parameters and the filter queries.
+ * Each result is stored with the version of the searcher which computed it and is dropped when a commit
+ * opens a new searcher; written documents are visible only with a new searcher, so writes do not change
+ * the cache. If the searcher version is not known, i.e. for a remote index, every write operation increases
+ * a generation counter which outdates all results, and because the index reader of solr sees the written
+ * documents only after the next (soft) commit, no results are stored within the visibility delay after a write.
+ * Outdated results are removed without clearing the ghost entries of the cache, so the adaption of the
+ * cache to the query load is kept. Queries with the local parameter cache=false are never cached.
+ */
+public class CachingSolrConnector extends AbstractSolrConnector implements SolrConnector {
+
+    /** the time after a write operation until the written documents are visible in search results; this is the autoSoftCommit time of the solrconfig */
+    public final static long VISIBILITY_DELAY = 5000;
+
+    private final static List<CachingSolrConnector> instances = new CopyOnWriteArrayList<CachingSolrConnector>();
+
+    private static class Result {
+        private final Object value;
+        private final long version;
+        private final long time;
+        private Result(final Object value, final long version) {
+            this.value = value;
+            this.version = version;
+            this.time = System.currentTimeMillis();
+        }
+    }
+
+    private final String name;
+    private final SolrConnector solr;
+    private final WeightedARC<String, Result> cache;
+    private final long maxAge;
+    private final LongSupplier searcherVersion;
+    private final AtomicLong generation, hits, misses, invalidations;
+    private volatile long stableTime;
+
+    /**
+     * create a cache which is outdated by each write operation
+     * @param name the name of the cache in statistics
+     * @param solr the connector which is cached
+     * @param maxBytes the maximum estimated size of all cached results in bytes
+     * @param maxAge the maximum age of a result in milliseconds; this limits the staleness of results if the index is changed with another connector
+     */
+    public CachingSolrConnector(final String name, final SolrConnector solr, final long maxBytes, final long maxAge) {
+        this(name, solr, maxBytes, maxAge, null);
+    }
+
+    /**
+     * @param name the name of the cache in statistics
+     * @param solr the connector which is cached
+     * @param maxBytes the maximum estimated size of all cached results in bytes
+     * @param maxAge the maximum age of a result in milliseconds; this limits the staleness of results if the index is changed with another connector
+     * @param searcherVersion the version of the searcher of the cached index, which changes when a commit opens a new searcher;
+     *   null if it is not known, then each write operation outdates the cache
+     */
+    public CachingSolrConnector(final String name, final SolrConnector solr, final long maxBytes, final long maxAge, final LongSupplier searcherVersion) {
+        this.name = name;
+        this.solr = solr;
+        this.cache = new WeightedARC<String, Result>(maxBytes);
+        this.maxAge = maxAge;
+        this.searcherVersion = searcherVersion;
+        this.generation = new AtomicLong(0);
+        this.hits = new AtomicLong(0);
+        this.misses = new AtomicLong(0);
+        this.invalidations = new AtomicLong(0);
+        this.stableTime = 0;
+        instances.add(this);
+    }
+
+    /**
+     * @return all connectors which are currently open, for statistics
+     */
+    public static List<CachingSolrConnector> getInstances() {
+        return instances;
+    }
+
+    public SolrConnector getSolr() {
+        return this.solr;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.solr.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CachingSolrConnector && this.solr.equals(((CachingSolrConnector) o).solr);
+    }
+
+    /**
+     * mark the results as outdated if the searcher version is not known; this must be called before and after
+     * each write operation so that no result of a query which was concurrent to the write is stored
+     */
+    private void invalidate() {
+        if (this.searcherVersion != null) return;
+        this.generation.incrementAndGet();
+        this.stableTime = System.currentTimeMillis() + VISIBILITY_DELAY;
+    }
+
+    /**
+     * @return the version of the results which can be used now
+     */
+    private long version() {
+        return this.searcherVersion == null ? this.generation.get() : this.searcherVersion.getAsLong();
+    }
+
+    /**
+     * remove the outdated results, i.e. after a commit
+     */
+    private void removeOutdated() {
+        final long version = version();
+        this.invalidations.addAndGet(this.cache.removeIf(result -> result.version != version));
+    }
+
+    private Object get(final String key) {
+        final Result result = this.cache.get(key);
+        if (result != null) {
+            if (result.version == version() && result.time + this.maxAge > System.currentTimeMillis()) {
+                this.hits.incrementAndGet();
+                return result.value;
+            }
+            this.cache.remove(key);
+            this.invalidations.incrementAndGet();
+        }
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    private void put(final String key, final Object value, final long version) {
+        // the result is not stored if the index was changed during the query or may still change because of a commit
+        if (version != version() || System.currentTimeMillis() < this.stableTime) return;
+        final long weight = key.length() * 2 + sizeOf(value) + 64;
+        if (weight > this.cache.capacity() / 8) return; // a single large result must not replace many small ones
+        this.cache.put(key, new Result(value, version), weight);
+    }
+
+    /**
+     * compute the canonical form of query parameters: the parameters are sorted by name and the
+     * filter queries by value; the order of the other values is kept because it is significant.
+     * @param type a prefix for the kind of the result
+     * @param params
+     * @return the cache key or null if the query must not be cached
+     */
+    protected static String key(final char type, final ModifiableSolrParams params) {
+        final StringBuilder sb = new StringBuilder(256);
+        sb.append(type);
+        final Set<String> names = new TreeSet<String>();
+        final Iterator<String> i = params.getParameterNamesIterator();
+        while (i.hasNext()) names.add(i.next());
+        for (final String name: names) {
+            String[] values = params.getParams(name);
+            if (values == null) continue;
+            if (CommonParams.FQ.equals(name) && values.length > 1) {
+                values = values.clone();
+                Arrays.sort(values);
+            }
+            for (final String value: values) {
+                if (value == null) continue;
+                if (value.contains("cache=false")) return null;
+                sb.append(name).append('=').append(value.length()).append(':').append(value).append('&');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * estimate the heap size of a cached result
+     * @param o a result object
+     * @return the estimated size in bytes
+     */
+    protected static long sizeOf(final Object o) {
+        if (o == null) return 8;
+        if (o instanceof String) return 40 + 2 * ((String) o).length();
+        if (o instanceof Number || o instanceof Boolean) return 16;
+        if (o instanceof Date) return 24;
+        if (o instanceof byte[]) return 16 + ((byte[]) o).length;
+        if (o instanceof SolrDocument) {
+            long s = 64;
+            for (final Map.Entry<String, Object> entry: ((SolrDocument) o).entrySet()) {
+                s += 32 + sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+            }
+            return s;
+        }
+        if (o instanceof NamedList) {
+            final NamedList<?> nl = (NamedList<?>) o;
+            long s = 64;
+            for (int i = 0; i < nl.size(); i++) s += 16 + sizeOf(nl.getName(i)) + sizeOf(nl.getVal(i));
+            return s;
+        }
+        if (o instanceof Collection) {
+            long s = 64;
+            for (final Object e: (Collection<?>) o) s += 8 + sizeOf(e);
+            return s;
+        }
+        if (o instanceof Map) {
+            long s = 64;
+            for (final Map.Entry<?, ?> entry: ((Map<?, ?>) o).entrySet()) s += 32 + sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+            return s;
+        }
+        return 32;
+    }
+
+    /**
+     * copy a document so that changes of the caller do not change the cache
+     */
+    private static SolrDocument copy(final SolrDocument doc) {
+        final SolrDocument c = new SolrDocument();
+        for (final Map.Entry<String, Object> entry: doc.entrySet()) {
+            final Object value = entry.getValue();
+            c.setField(entry.getKey(), value instanceof Collection ? new ArrayList<Object>((Collection<?>) value) : value);
+        }
+        return c;
+    }
+
+    private static SolrDocumentList copy(final SolrDocumentList list) {
+        final SolrDocumentList c = new SolrDocumentList();
+        c.setNumFound(list.getNumFound());
+        c.setStart(list.getStart());
+        c.setMaxScore(list.getMaxScore());
+        for (final SolrDocument doc: list) c.add(copy(doc));
+        return c;
+    }
+
+    private static NamedList<Object> copy(final NamedList<?> nl) {
+        final NamedList<Object> c = nl instanceof SimpleOrderedMap ? new SimpleOrderedMap<Object>() : new NamedList<Object>();
+        for (int i = 0; i < nl.size(); i++) {
+            final Object value = nl.getVal(i);
+            c.add(nl.getName(i), value instanceof SolrDocumentList ? copy((SolrDocumentList) value) : value instanceof NamedList ? copy((NamedList<?>) value) : value);
+        }
+        return c;
+    }
+
+    @Override
+    public QueryResponse getResponseByParams(final ModifiableSolrParams params) throws IOException {
+        final String key = key('r', params);
+        if (key != null) {
+            final Object cached = get(key);
+            if (cached != null) return new QueryResponse(copy((NamedList<?>) cached), null);
+        }
+        final long v = version();
+        final QueryResponse rsp = this.solr.getResponseByParams(params);
+        if (key != null && rsp != null && rsp.getResponse() != null) put(key, copy(rsp.getResponse()), v);
+        return rsp;
+    }
+
+    @Override
+    public SolrDocumentList getDocumentListByParams(final ModifiableSolrParams params) throws IOException, SolrException {
+        final String key = key('l', params);
+        if (key != null) {
+            final Object cached = get(key);
+            if (cached != null) return copy((SolrDocumentList) cached);
+        }
+        final long v = version();
+        final SolrDocumentList list = this.solr.getDocumentListByParams(params);
+        if (key != null && list != null) put(key, copy(list), v);
+        return list;
+    }
+
+    @Override
+    public long getCountByQuery(final String querystring) throws IOException {
+        if (querystring.contains("cache=false")) return this.solr.getCountByQuery(querystring);
+        final String key = "c" + querystring;
+        final Object cached = get(key);
+        if (cached != null) return ((Long) cached).longValue();
+        final long v = version();
+        final long count = this.solr.getCountByQuery(querystring);
+        put(key, Long.valueOf(count), v);
+        return count;
+    }
+
+    @Override
+    public SolrDocument getDocumentById(final String key, final String ... fields) throws IOException {
+        return this.solr.getDocumentById(key, fields);
+    }
+
+    @Override
+    public LoadTimeURL getLoadTimeURL(final String id) throws IOException {
+        return this.solr.getLoadTimeURL(id);
+    }
+
+    @Override
+    public void add(final SolrInputDocument solrdoc) throws IOException, SolrException {
+        invalidate();
+        try {
+            this.solr.add(solrdoc);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void add(final Collection<SolrInputDocument> solrdocs) throws IOException, SolrException {
+        invalidate();
+        try {
+            this.solr.add(solrdocs);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void update(final SolrInputDocument solrdoc) throws IOException, SolrException {
+        invalidate();
+        try {
+            this.solr.update(solrdoc);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void update(final Collection<SolrInputDocument> solrdocs) throws IOException, SolrException {
+        invalidate();
+        try {
+            this.solr.update(solrdocs);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void deleteById(final String id) throws IOException {
+        invalidate();
+        try {
+            this.solr.deleteById(id);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void deleteByIds(final Collection<String> ids) throws IOException {
+        invalidate();
+        try {
+            this.solr.deleteByIds(ids);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void deleteByQuery(final String querystring) throws IOException {
+        invalidate();
+        try {
+            this.solr.deleteByQuery(querystring);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void clear() throws IOException {
+        invalidate();
+        try {
+            this.solr.clear();
+        } finally {
+            invalidate();
+            removeOutdated();
+        }
+    }
+
+    @Override
+    public void commit(final boolean softCommit) {
+        invalidate();
+        try {
+            this.solr.commit(softCommit);
+        } finally {
+            invalidate();
+            removeOutdated();
+        }
+    }
+
+    @Override
+    public void optimize(final int maxSegments) {
+        invalidate();
+        try {
+            this.solr.optimize(maxSegments);
+        } finally {
+            invalidate();
+            removeOutdated();
+        }
+    }
+
+    @Override
+    public void clearCaches() {
+        this.generation.incrementAndGet();
+        this.cache.clear();
+        this.solr.clearCaches();
+    }
+
+    @Override
+    public int bufferSize() {
+        return this.solr.bufferSize();
+    }
+
+    @Override
+    public long getSize() {
+        return this.solr.getSize();
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return this.solr.getSegmentCount();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.solr.isClosed();
+    }
+
+    /**
+     * clear the cache and remove it from the statistics without closing the cached connector
+     */
+    public void release() {
+        instances.remove(this);
+        this.cache.clear();
+    }
+
+    @Override
+    public synchronized void close() {
+        release();
+        this.solr.close();
+    }
+
+    // the streaming methods read large result sets once: they are not cached
+
+    @Override
+    public BlockingQueue<SolrDocument> concurrentDocumentsByQuery(final String querystring, final String sort, final int offset, final int maxcount,
+            final long maxtime, final int buffersize, final int concurrency, final boolean prefetchIDs, final String ... fields) {
+        return this.solr.concurrentDocumentsByQuery(querystring, sort, offset, maxcount, maxtime, buffersize, concurrency, prefetchIDs, fields);
+    }
+
+    @Override
+    public BlockingQueue<SolrDocument> concurrentDocumentsByQueries(final List<String> querystrings, final String sort, final int offset, final int maxcount,
+            final long maxtime, final int buffersize, final int concurrency, final boolean prefetchIDs, final String ... fields) {
+        return this.solr.concurrentDocumentsByQueries(querystrings, sort, offset, maxcount, maxtime, buffersize, concurrency, prefetchIDs, fields);
+    }
+
+    @Override
+    public Runnable newDocumentsByQueriesTask(final BlockingQueue<SolrDocument> queue, final List<String> querystrings, final String sort, final int offset,
+            final int maxcount, final long maxtime, final int buffersize, final int concurrency, final String ... fields) {
+        return this.solr.newDocumentsByQueriesTask(queue, querystrings, sort, offset, maxcount, maxtime, buffersize, concurrency, fields);
+    }
+
+    @Override
+    public BlockingQueue<String> concurrentIDsByQuery(final String querystring, final String sort, final int offset, final int maxcount,
+            final long maxtime, final int buffersize, final int concurrency) {
+        return this.solr.concurrentIDsByQuery(querystring, sort, offset, maxcount, maxtime, buffersize, concurrency);
+    }
+
+    @Override
+    public BlockingQueue<String> concurrentIDsByQueries(final List<String> querystrings, final String sort, final int offset, final int maxcount,
+            final long maxtime, final int buffersize, final int concurrency) {
+        return this.solr.concurrentIDsByQueries(querystrings, sort, offset, maxcount, maxtime, buffersize, concurrency);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return this.solr.iterator();
+    }
+
+    // statistics
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public int getEntries() {
+        return this.cache.size();
+    }
+
+    public long getWeight() {
+        return this.cache.weight();
+    }
+
+    public long getMaxBytes() {
+        return this.cache.capacity();
+    }
+
+    public long getEvictions() {
+        return this.cache.evictions();
+    }
+
+    public long getInvalidations() {
+        return this.invalidations.get();
+    }
+
+}
@@ -0,0 +1,548 @@
+/**
+ *  ConcurrentUpdateSolrConnector
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.federate.solr.connector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.search.schema.CollectionSchema;
+
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.params.ModifiableSolrParams;
+
+/**
+ * A connector which writes documents to another connector in the background.
+ * Added and updated documents are collected in a buffer and written in batches with add(Collection) and
+ * update(Collection) by a flush thread. A batch is written when it reaches the batch size or when the oldest
+ * document in the buffer is older than the maximum delay. Repeated writes of the same id are coalesced in the
+ * buffer: an added document replaces the buffered document and a partial update is merged into it.
+ * The documents in the buffer are visible to getDocumentById and getLoadTimeURL. Queries are not answered
+ * from the buffer, they see the documents like written documents after the next soft commit of solr.
+ * If the buffer is full, the writing threads wait until the flush thread has written a batch.
+ */
+public class ConcurrentUpdateSolrConnector extends AbstractSolrConnector implements SolrConnector {
+
+    private final static String LOGNAME = "ConcurrentUpdateSolrConnector";
+
+    private static class Pending {
+        private final SolrInputDocument doc;
+        private final boolean partial; // true if the document is a partial update
+        private final long seq; // the sequence number of the first write of the id; the buffer is ordered by it
+        private Pending(final SolrInputDocument doc, final boolean partial, final long seq) {
+            this.doc = doc;
+            this.partial = partial;
+            this.seq = seq;
+        }
+    }
+
+    private final SolrConnector solr;
+    private final int batchSize, maxPending;
+    private final long maxDelay;
+    private final ReentrantLock lock;
+    private final Condition notEmpty, notFull, flushed;
+    private final LinkedHashMap<String, Pending> pending; // the documents which are not yet written
+    private final Map<String, Pending> inflight; // the documents which are written by the flush thread
+    private final AtomicLong written, coalesced, batches;
+    private final Thread flushThread;
+    private long firstPendingTime; // the time when the oldest document in the buffer was added
+    private long seq; // the sequence number of the last document which was put into the buffer
+    private int flushRequests;
+    private volatile boolean running;
+
+    /**
+     * @param name the name of the flush thread
+     * @param solr the connector which receives the documents
+     * @param batchSize the maximum number of documents in one batch
+     * @param maxDelay the maximum time in milliseconds a document stays in the buffer
+     * @param maxPending the maximum number of documents in the buffer
+     */
+    public ConcurrentUpdateSolrConnector(final String name, final SolrConnector solr, final int batchSize, final long maxDelay, final int maxPending) {
+        this.solr = solr;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDelay = Math.max(0, maxDelay);
+        this.maxPending = Math.max(this.batchSize, maxPending);
+        this.lock = new ReentrantLock();
+        this.notEmpty = this.lock.newCondition();
+        this.notFull = this.lock.newCondition();
+        this.flushed = this.lock.newCondition();
+        this.pending = new LinkedHashMap<String, Pending>();
+        this.inflight = new LinkedHashMap<String, Pending>();
+        this.written = new AtomicLong(0);
+        this.coalesced = new AtomicLong(0);
+        this.batches = new AtomicLong(0);
+        this.firstPendingTime = 0;
+        this.seq = 0;
+        this.flushRequests = 0;
+        this.running = true;
+        this.flushThread = new Thread(LOGNAME + ".flush: " + name) {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        };
+        this.flushThread.setDaemon(true);
+        this.flushThread.start();
+    }
+
+    public SolrConnector getSolr() {
+        return this.solr;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.solr.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ConcurrentUpdateSolrConnector && this.solr.equals(((ConcurrentUpdateSolrConnector) o).solr);
+    }
+
+    private void flushLoop() {
+        final List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+        final List<SolrInputDocument> updates = new ArrayList<SolrInputDocument>();
+        while (true) {
+            this.lock.lock();
+            try {
+                // wait for a full batch, the timeout of the oldest document or a flush request
+                while (this.running && this.pending.isEmpty()) this.notEmpty.await();
+                while (this.running && this.flushRequests == 0 && this.pending.size() < this.batchSize) {
+                    final long wait = this.firstPendingTime + this.maxDelay - System.currentTimeMillis();
+                    if (wait <= 0) break;
+                    this.notEmpty.await(wait, TimeUnit.MILLISECONDS);
+                }
+                if (this.pending.isEmpty()) {
+                    if (!this.running) return;
+                    continue;
+                }
+                final Iterator<Map.Entry<String, Pending>> i = this.pending.entrySet().iterator();
+                while (i.hasNext() && this.inflight.size() < this.batchSize) {
+                    final Map.Entry<String, Pending> entry = i.next();
+                    this.inflight.put(entry.getKey(), entry.getValue());
+                    if (entry.getValue().partial) updates.add(entry.getValue().doc); else docs.add(entry.getValue().doc);
+                    i.remove();
+                }
+                if (this.pending.isEmpty()) this.firstPendingTime = 0;
+                this.notFull.signalAll();
+            } catch (final InterruptedException e) {
+                if (!this.running) return;
+                continue;
+            } finally {
+                this.lock.unlock();
+            }
+
+            write(docs, false);
+            write(updates, true);
+            this.batches.incrementAndGet();
+            docs.clear();
+            updates.clear();
+
+            this.lock.lock();
+            try {
+                this.inflight.clear();
+                this.flushed.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    private void write(final List<SolrInputDocument> docs, final boolean partial) {
+        if (docs.isEmpty()) return;
+        try {
+            if (partial) this.solr.update(docs); else this.solr.add(docs);
+            this.written.addAndGet(docs.size());
+            return;
+        } catch (final Throwable e) {
+            ConcurrentLog.warn(LOGNAME, "failed to write a batch of " + docs.size() + " documents, writing them one by one: " + e.getMessage());
+        }
+        // write the documents one by one so that only the failing documents are lost
+        for (final SolrInputDocument doc: docs) {
+            try {
+                if (partial) this.solr.update(doc); else this.solr.add(doc);
+                this.written.incrementAndGet();
+            } catch (final Throwable e) {
+                ConcurrentLog.warn(LOGNAME, "failed to write document " + doc.getFieldValue(CollectionSchema.id.getSolrFieldName()), e);
+            }
+        }
+    }
+
+    private void put(final SolrInputDocument doc, final boolean partial) throws IOException {
+        final String id = (String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName());
+        if (id == null || !this.running) {
+            if (partial) this.solr.update(doc); else this.solr.add(doc);
+            return;
+        }
+        this.lock.lock();
+        try {
+            final Pending p = this.pending.get(id);
+            if (p != null) {
+                if (partial) {
+                    // merge the update into the buffered document; an added document belongs to the caller and is copied
+                    final SolrInputDocument merged = p.partial ? p.doc : p.doc.deepCopy();
+                    for (final SolrInputField field: doc) merged.setField(field.getName(), field.getValue());
+                    if (merged != p.doc) this.pending.put(id, new Pending(merged, false, p.seq));
+                } else {
+                    this.pending.put(id, new Pending(doc, false, p.seq));
+                }
+                this.coalesced.incrementAndGet();
+                return;
+            }
+            while (this.running && this.pending.size() >= this.maxPending) this.notFull.await();
+            final boolean first = this.pending.isEmpty();
+            if (first) this.firstPendingTime = System.currentTimeMillis();
+            // a partial update is copied because it may be merged with later updates
+            this.pending.put(id, new Pending(partial ? doc.deepCopy() : doc, partial, ++this.seq));
+            // the first document starts the timeout of the flush thread, a full batch ends it
+            if (first || this.pending.size() >= this.batchSize) this.notEmpty.signal();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the write buffer", e);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void put(final Collection<SolrInputDocument> docs, final boolean partial) throws IOException {
+        for (final SolrInputDocument doc: docs) put(doc, partial);
+    }
+
+    @Override
+    public void add(final SolrInputDocument solrdoc) throws IOException, SolrException {
+        put(solrdoc, false);
+    }
+
+    @Override
+    public void add(final Collection<SolrInputDocument> solrdocs) throws IOException, SolrException {
+        put(solrdocs, false);
+    }
+
+    @Override
+    public void update(final SolrInputDocument solrdoc) throws IOException, SolrException {
+        put(solrdoc, true);
+    }
+
+    @Override
+    public void update(final Collection<SolrInputDocument> solrdocs) throws IOException, SolrException {
+        put(solrdocs, true);
+    }
+
+    /**
+     * @return the sequence number of the oldest document which is not yet written, or Long.MAX_VALUE if all are written.
+     * Must be called with the lock.
+     */
+    private long oldestSeq() {
+        // the flush thread takes the documents in the order of the buffer, so the documents in flight are older
+        if (!this.inflight.isEmpty()) return this.inflight.values().iterator().next().seq;
+        if (!this.pending.isEmpty()) return this.pending.values().iterator().next().seq;
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * write all buffered documents and wait until they are written. Documents which are added while waiting
+     * are not waited for, so the flush ends even if other threads write continuously.
+     */
+    public void flush() {
+        this.lock.lock();
+        try {
+            final long target = this.seq;
+            this.flushRequests++;
+            try {
+                this.notEmpty.signal();
+                while (this.flushThread.isAlive() && oldestSeq() <= target) {
+                    this.flushed.await(100, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                this.flushRequests--;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * remove documents from the buffer and wait until the flush thread has written its documents with these ids
+     * so that a following delete operation is not overwritten by the flush thread
+     * @param ids the ids of the documents or null for all documents
+     */
+    private void discard(final Collection<String> ids) {
+        this.lock.lock();
+        try {
+            // the sequence number of the newest document in flight with one of the ids; later batches do not contain them
+            long target = 0;
+            if (ids == null) {
+                this.pending.clear();
+                this.firstPendingTime = 0;
+                for (final Pending p: this.inflight.values()) target = p.seq;
+            } else {
+                for (final String id: ids) {
+                    this.pending.remove(id);
+                    final Pending p = this.inflight.get(id);
+                    if (p != null) target = Math.max(target, p.seq);
+                }
+                if (this.pending.isEmpty()) this.firstPendingTime = 0;
+            }
+            this.notFull.signalAll();
+            while (target > 0 && this.flushThread.isAlive() && oldestSeq() <= target) {
+                this.flushed.await(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteById(final String id) throws IOException {
+        final List<String> ids = new ArrayList<String>(1);
+        ids.add(id);
+        discard(ids);
+        this.solr.deleteById(id);
+    }
+
+    @Override
+    public void deleteByIds(final Collection<String> ids) throws IOException {
+        discard(ids);
+        this.solr.deleteByIds(ids);
+    }
+
+    @Override
+    public void deleteByQuery(final String querystring) throws IOException {
+        flush();
+        this.solr.deleteByQuery(querystring);
+    }
+
+    @Override
+    public void clear() throws IOException {
+        discard(null);
+        this.solr.clear();
+    }
+
+    @Override
+    public void commit(final boolean softCommit) {
+        flush();
+        this.solr.commit(softCommit);
+    }
+
+    @Override
+    public void optimize(final int maxSegments) {
+        flush();
+        this.solr.optimize(maxSegments);
+    }
+
+    /**
+     * get a document from the buffer, combined with the document in the index if the buffer contains only a partial update
+     * @param id
+     * @return the document or null if the buffer does not contain a document with this id
+     * @throws IOException
+     */
+    private SolrInputDocument getPending(final String id) throws IOException {
+        final Pending p, f;
+        this.lock.lock();
+        try {
+            p = this.pending.get(id);
+            f = this.inflight.get(id);
+            if (p == null && f == null) return null;
+            if (p != null && !p.partial) return p.doc.deepCopy();
+            if (f != null && !f.partial) {
+                final SolrInputDocument doc = f.doc.deepCopy();
+                if (p != null) for (final SolrInputField field: p.doc) doc.setField(field.getName(), field.getValue());
+                return doc;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        // only partial updates are buffered: apply them to the document in the index
+        final SolrDocument indexed = this.solr.getDocumentById(id);
+        if (indexed == null) return null;
+        final SolrInputDocument doc = new SolrInputDocument();
+        for (final Map.Entry<String, Object> entry: indexed.entrySet()) doc.setField(entry.getKey(), entry.getValue());
+        if (f != null) for (final SolrInputField field: f.doc) doc.setField(field.getName(), field.getValue());
+        if (p != null) for (final SolrInputField field: p.doc) doc.setField(field.getName(), field.getValue());
+        return doc;
+    }
+
+    @Override
+    public SolrDocument getDocumentById(final String id, final String ... fields) throws IOException {
+        final SolrInputDocument doc = getPending(id);
+        if (doc == null) return this.solr.getDocumentById(id, fields);
+        final SolrDocument sd = new SolrDocument();
+        if (fields == null || fields.length == 0) {
+            for (final SolrInputField field: doc) sd.setField(field.getName(), field.getValue());
+        } else {
+            for (final String field: fields) {
+                final Object value = doc.getFieldValue(field);
+                if (value != null) sd.setField(field, value);
+            }
+        }
+        return sd;
+    }
+
+    @Override
+    public LoadTimeURL getLoadTimeURL(final String id) throws IOException {
+        final SolrInputDocument doc = getPending(id);
+        if (doc == null) return this.solr.getLoadTimeURL(id);
+        return getLoadTimeURL(doc);
+    }
+
+    @Override
+    public QueryResponse getResponseByParams(final ModifiableSolrParams query) throws IOException {
+        return this.solr.getResponseByParams(query);
+    }
+
+    @Override
+    public SolrDocumentList getDocumentListByParams(final ModifiableSolrParams params) throws IOException {
+        return this.solr.getDocumentListByParams(params);
+    }
+
+    @Override
+    public long getCountByQuery(final String querystring) throws IOException {
+        return this.solr.getCountByQuery(querystring);
+    }
+
+    @Override
+    public BlockingQueue<SolrDocument> concurrentDocumentsByQuery(final String querystring, final String sort, final int offset, final int maxcount,
+            final long maxtime, final int buffersize, final int concurrency, final boolean prefetchIDs, final String ... fields) {
+        return this.solr.concurrentDocumentsByQuery(querystring, sort, offset, maxcount, maxtime, buffersize, concurrency, prefetchIDs, fields);
+    }
+
+    @Override
+    public BlockingQueue<SolrDocument> concurrentDocumentsByQueries(final List<String> querystrings, final String sort, final int offset, final int maxcount,
+            final long maxtime, final int buffersize, final int concurrency, final boolean prefetchIDs, final String ... fields) {
+        return this.solr.concurrentDocumentsByQueries(querystrings, sort, offset, maxcount, maxtime, buffersize, concurrency, prefetchIDs, fields);
+    }
+
+    @Override
+    public Runnable newDocumentsByQueriesTask(final BlockingQueue<SolrDocument> queue, final List<String> querystrings, final String sort, final int offset,
+            final int maxcount, final long maxtime, final int buffersize, final int concurrency, final String ... fields) {
+        return this.solr.newDocumentsByQueriesTask(queue, querystrings, sort, offset, maxcount, maxtime, buffersize, concurrency, fields);
+    }
+
+    @Override
+    public BlockingQueue<String> concurrentIDsByQuery(final String querystring, final String sort, final int offset, final int maxcount,
+            final long maxtime, final int buffersize, final int concurrency) {
+        return this.solr.concurrentIDsByQuery(querystring, sort, offset, maxcount, maxtime, buffersize, concurrency);
+    }
+
+    @Override
+    public BlockingQueue<String> concurrentIDsByQueries(final List<String> querystrings, final String sort, final int offset, final int maxcount,
+            final long maxtime, final int buffersize, final int concurrency) {
+        return this.solr.concurrentIDsByQueries(querystrings, sort, offset, maxcount, maxtime, buffersize, concurrency);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return this.solr.iterator();
+    }
+
+    @Override
+    public void clearCaches() {
+        this.solr.clearCaches();
+    }
+
+    /**
+     * @return the number of documents in the buffer and in the buffer of the connector which receives the documents
+     */
+    @Override
+    public int bufferSize() {
+        this.lock.lock();
+        try {
+            return this.pending.size() + this.inflight.size() + this.solr.bufferSize();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public long getSize() {
+        return this.solr.getSize();
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return this.solr.getSegmentCount();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return !this.running || this.solr.isClosed();
+    }
+
+    /**
+     * write all buffered documents and stop the flush thread without closing the connector which receives the documents.
+     * Documents which are written afterwards are written directly.
+     */
+    public void release() {
+        this.lock.lock();
+        try {
+            this.running = false;
+            this.notEmpty.signalAll();
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        try {
+            this.flushThread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        release();
+        this.solr.close();
+    }
+
+    // statistics
+
+    public long getWritten() {
+        return this.written.get();
+    }
+
+    public long getCoalesced() {
+        return this.coalesced.get();
+    }
+
+    public long getBatches() {
+        return this.batches.get();
+    }
+
+}
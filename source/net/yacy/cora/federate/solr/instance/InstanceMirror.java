@@ -27,6 +27,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import net.yacy.cora.federate.solr.connector.CachingSolrConnector;
+import net.yacy.cora.federate.solr.connector.ConcurrentUpdateSolrConnector;
 import net.yacy.cora.federate.solr.connector.EmbeddedSolrConnector;
 import net.yacy.cora.federate.solr.connector.MirrorSolrConnector;
 import net.yacy.cora.federate.solr.connector.RemoteSolrConnector;
@@ -64,7 +66,7 @@ public class InstanceMirror {
     }
 
     public void disconnectEmbedded() {
-        mirrorConnectorCache.clear();
+        clearMirrorConnectorCache();
         if (this.embeddedSolrInstance == null) return;
         Set<SolrConnector> connectors = new HashSet<SolrConnector>();
         connectors.addAll(this.embeddedConnectorCache.values());
@@ -88,7 +90,7 @@ public class InstanceMirror {
     }
 
     public void disconnectRemote() {
-        mirrorConnectorCache.clear();
+        clearMirrorConnectorCache();
         if (this.remoteSolrInstance == null) return;
         for (RemoteSolrConnector connector: this.remoteConnectorCache.values()) connector.close();
         this.remoteConnectorCache.clear();
@@ -96,6 +98,18 @@ public class InstanceMirror {
         this.remoteSolrInstance = null;
     }
 
+    private void clearMirrorConnectorCache() {
+        // the connectors are closed with the instances, but the buffered documents must be written and the result caches released
+        for (SolrConnector connector: this.mirrorConnectorCache.values()) {
+            if (connector instanceof ConcurrentUpdateSolrConnector) {
+                ((ConcurrentUpdateSolrConnector) connector).release();
+                connector = ((ConcurrentUpdateSolrConnector) connector).getSolr();
+            }
+            if (connector instanceof CachingSolrConnector) ((CachingSolrConnector) connector).release();
+        }
+        this.mirrorConnectorCache.clear();
+    }
+
     /**
      * Close this instance and it's connectors and cores
      */
@@ -180,6 +194,26 @@ public class InstanceMirror {
         EmbeddedSolrConnector esc = getEmbeddedConnector(corename);
         RemoteSolrConnector rsc = getRemoteConnector(corename);
         msc = new MirrorSolrConnector(esc, rsc);
+        // the queries to the default core are cached if a result cache is configured
+        final Switchboard sb = Switchboard.getSwitchboard();
+        if (sb != null && corename.equals(this.getDefaultCoreName())) {
+            final long maxMB = sb.getConfigLong(SwitchboardConstants.INDEX_SOLR_RESULTCACHE_MAXMB, 0);
+            if (maxMB > 0) {
+                // the results are bound to the searcher of the embedded index; a remote index has no known searcher
+                msc = new CachingSolrConnector(corename, msc, maxMB * 1024L * 1024L,
+                        sb.getConfigLong(SwitchboardConstants.INDEX_SOLR_RESULTCACHE_MAXAGE, 600000L),
+                        esc != null && rsc == null ? esc::getSearcherVersion : null);
+            }
+        }
+        // the documents are written in batches by a background thread if a batch size is configured
+        if (sb != null) {
+            final int batchSize = sb.getConfigInt(SwitchboardConstants.INDEX_SOLR_WRITEBEHIND_BATCHSIZE, 0);
+            if (batchSize > 0) {
+                msc = new ConcurrentUpdateSolrConnector(corename, msc, batchSize,
+                        sb.getConfigLong(SwitchboardConstants.INDEX_SOLR_WRITEBEHIND_MAXDELAY, 1000L),
+                        sb.getConfigInt(SwitchboardConstants.INDEX_SOLR_WRITEBEHIND_MAXPENDING, 1000));
+            }
+        }
         this.mirrorConnectorCache.put(corename, msc);
         return msc;
     }
@@ -31,8 +31,6 @@ import java.util.Map;
 
 import net.yacy.cora.federate.solr.SolrType;
 
-import org.apache.lucene.document.Document;
-import org.apache.lucene.index.IndexableField;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
@@ -44,10 +42,8 @@ import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.QueryResponseWriter;
 import org.apache.solr.response.ResultContext;
 import org.apache.solr.response.SolrQueryResponse;
-import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
-import org.apache.solr.schema.TextField;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocList;
 import org.apache.solr.search.ReturnFields;
@@ -148,11 +144,17 @@ public class EnhancedXMLResponseWriter implements QueryResponseWriter, SolrjResp
         SolrIndexSearcher searcher = request.getSearcher();
         DocIterator iterator = response.iterator();
         includeScore = includeScore && response.hasScores();
-        IndexSchema schema = request.getSchema();
+        final XMLFieldWriter fieldWriter = new XMLFieldWriter(writer, request.getSchema(), returnFields);
         for (int i = 0; i < sz; i++) {
             int id = iterator.nextDoc();
-            Document doc = searcher.doc(id);
-            writeDoc(writer, schema, null, doc.getFields(), (includeScore ? iterator.score() : 0.0f), includeScore, returnFields);
+            startTagOpen(writer, "doc", null);
+            if (includeScore) {
+                writeTag(writer, "float", "score", Float.toString(iterator.score()), false); // this is the special Solr "score" pseudo-field
+            }
+            fieldWriter.visit(searcher, id);
+            writer.write("</doc>");
+            writer.write(lb);
+            StreamingFieldVisitor.flushChunk(writer, i + 1, sz);
         }
         writer.write("</result>");
         writer.write(lb);
@@ -182,63 +184,38 @@ public class EnhancedXMLResponseWriter implements QueryResponseWriter, SolrjResp
         writer.write(lb);
     }
 
-	private static final void writeDoc(final Writer writer, final IndexSchema schema, final String name,
-			final List<IndexableField> fields, final float score, final boolean includeScore,
-			final ReturnFields returnFields) throws IOException {
-        startTagOpen(writer, "doc", name);
+    /**
+     * Writes the stored fields of index documents directly to the response
+     */
+    private static class XMLFieldWriter extends StreamingFieldVisitor {
 
-        if (includeScore) {
-            writeTag(writer, "float", "score", Float.toString(score), false); // this is the special Solr "score" pseudo-field
+        private final Writer writer;
+        private final Map<String, String> fieldRenamings;
+
+        private XMLFieldWriter(final Writer writer, final IndexSchema schema, final ReturnFields returnFields) {
+            super(schema, returnFields);
+            this.writer = writer;
+            /* Fields may be renamed in the ouput result, using aliases in the 'fl' parameter 
+             * (see https://lucene.apache.org/solr/guide/6_6/common-query-parameters.html#CommonQueryParameters-FieldNameAliases) */
+            this.fieldRenamings = returnFields == null ? Collections.emptyMap() : returnFields.getFieldRenames();
         }
-        
-        /* Fields may be renamed in the ouput result, using aliases in the 'fl' parameter 
-         * (see https://lucene.apache.org/solr/guide/6_6/common-query-parameters.html#CommonQueryParameters-FieldNameAliases) */
-		final Map<String, String> fieldRenamings = returnFields == null ? Collections.emptyMap()
-				: returnFields.getFieldRenames();
 
-        int sz = fields.size();
-        int fidx1 = 0, fidx2 = 0;
-        while (fidx1 < sz) {
-            IndexableField value = fields.get(fidx1);
-            String fieldName = value.name();
-            fidx2 = fidx1 + 1;
-            while (fidx2 < sz && fieldName.equals(fields.get(fidx2).name())) {
-                fidx2++;
+        @Override
+        protected void writeField(final String fieldName, final SchemaField sf, final List<String> fieldValues) throws IOException {
+            final String renderedFieldName = this.fieldRenamings.getOrDefault(fieldName, fieldName);
+            final String typeName = sf.getType().getTypeName();
+            if (fieldValues.size() == 1 && !sf.multiValued()) {
+                EnhancedXMLResponseWriter.writeField(this.writer, typeName, renderedFieldName, fieldValues.get(0));
+                return;
             }
-            if(returnFields == null || returnFields.wantsField(fieldName)) {
-            	SchemaField sf = schema == null ? null : schema.getFieldOrNull(fieldName);
-            	if (sf == null) {
-            		sf = new SchemaField(fieldName, new TextField());
-            	}
-            	
-            	final String renderedFieldName = fieldRenamings.getOrDefault(fieldName, fieldName);
-            	
-            	FieldType type = sf.getType();
-            	if (fidx1 + 1 == fidx2) {
-            		if (sf.multiValued()) {
-            			startTagOpen(writer, "arr", renderedFieldName);
-            			writer.write(lb);
-            			String sv = value.stringValue();
-            			writeField(writer, type.getTypeName(), null, sv); //sf.write(this, null, f1);
-            			writer.write("</arr>");
-            		} else {
-            			writeField(writer, type.getTypeName(), renderedFieldName, value.stringValue()); //sf.write(this, f1.name(), f1);
-            		}
-            	} else {
-            		startTagOpen(writer, "arr", renderedFieldName);
-            		writer.write(lb);
-            		for (int i = fidx1; i < fidx2; i++) {
-            			String sv = fields.get(i).stringValue();
-            			writeField(writer, type.getTypeName(), null, sv); //sf.write(this, null, (Fieldable)this.tlst.get(i));
-            		}
-            		writer.write("</arr>");
-            		writer.write(lb);
-            	}
+            startTagOpen(this.writer, "arr", renderedFieldName);
+            this.writer.write(lb);
+            for (final String sv: fieldValues) {
+                EnhancedXMLResponseWriter.writeField(this.writer, typeName, null, sv);
             }
-            fidx1 = fidx2;
+            this.writer.write("</arr>");
+            if (fieldValues.size() > 1) this.writer.write(lb);
         }
-        writer.write("</doc>");
-        writer.write(lb);
     }
 
     public static final void writeDoc(final Writer writer, final SolrInputDocument sid) throws IOException {
@@ -27,18 +27,14 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.lucene.document.Document;
-import org.apache.lucene.index.IndexableField;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.QueryResponseWriter;
 import org.apache.solr.response.ResultContext;
 import org.apache.solr.response.SolrQueryResponse;
-import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
-import org.apache.solr.schema.TextField;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocList;
 import org.apache.solr.search.SolrIndexSearcher;
@@ -74,80 +70,83 @@ public class FlatJSONResponseWriter implements QueryResponseWriter, EmbeddedSolr
     }
 
     private static final void writeDocs(final Writer writer, final SolrQueryRequest request, final DocList response) throws IOException {
-        boolean includeScore = false;
         final int sz = response.size();
         SolrIndexSearcher searcher = request.getSearcher();
         DocIterator iterator = response.iterator();
-        includeScore = includeScore && response.hasScores();
-        IndexSchema schema = request.getSchema();
+        final JSONFieldWriter fieldWriter = new JSONFieldWriter(writer, request.getSchema());
         for (int i = 0; i < sz; i++) {
             int id = iterator.nextDoc();
-            Document doc = searcher.doc(id);
-            writeDoc(writer, schema, null, doc.getFields(), (includeScore ? iterator.score() : 0.0f), includeScore);
+            writer.write('{');
+            fieldWriter.first = true;
+            fieldWriter.visit(searcher, id);
+            writer.write('}');
+            writer.write(lb);
+            StreamingFieldVisitor.flushChunk(writer, i + 1, sz);
         }
     }
 
-    private static final void writeDoc(final Writer writer, final IndexSchema schema, final String name, final List<IndexableField> fields, final float score, final boolean includeScore) throws IOException {
-        JSONObject json = new JSONObject(true);
-        
-        int sz = fields.size();
-        int fidx1 = 0, fidx2 = 0;
-        while (fidx1 < sz) {
-            IndexableField value = fields.get(fidx1);
-            String fieldName = value.name();
-            fidx2 = fidx1 + 1;
-            while (fidx2 < sz && fieldName.equals(fields.get(fidx2).name())) {
-                fidx2++;
-            }
-            SchemaField sf = schema == null ? null : schema.getFieldOrNull(fieldName);
-            if (sf == null) {
-                sf = new SchemaField(fieldName, new TextField());
-            }
-            FieldType type = sf.getType();
-            if (fidx1 + 1 == fidx2) {
-                if (sf.multiValued()) {
-                    JSONArray a = new JSONArray();
-                    json.put(fieldName, a);
-                    JSONObject j = new JSONObject();
-                    String sv = value.stringValue();
-                    setValue(j, type.getTypeName(), "x", sv); //sf.write(this, null, f1);
-                    a.add(j.get("x"));
-                } else {
-                    setValue(json, type.getTypeName(), value.name(), value.stringValue());
+    /**
+     * Writes the stored fields of index documents as flat json objects directly to the response
+     */
+    private static class JSONFieldWriter extends StreamingFieldVisitor {
+
+        private final Writer writer;
+        private boolean first;
+
+        private JSONFieldWriter(final Writer writer, final IndexSchema schema) {
+            super(schema, null);
+            this.writer = writer;
+            this.first = true;
+        }
+
+        @Override
+        protected void writeField(final String fieldName, final SchemaField sf, final List<String> fieldValues) throws IOException {
+            final String typeName = sf.getType().getTypeName();
+            final boolean array = fieldValues.size() > 1 || sf.multiValued();
+            if (!array && !isWritable(typeName)) return;
+            if (!this.first) this.writer.write(',');
+            this.first = false;
+            JSONObject.quote(fieldName, this.writer);
+            this.writer.write(':');
+            if (array) {
+                this.writer.write('[');
+                int c = 0;
+                for (final String sv: fieldValues) {
+                    if (c++ > 0) this.writer.write(',');
+                    if (isWritable(typeName)) writeValue(this.writer, typeName, sv); else this.writer.write("null"); // keep one element for each value
                 }
+                this.writer.write(']');
             } else {
-                JSONArray a = new JSONArray();
-                json.put(fieldName, a);
-                for (int i = fidx1; i < fidx2; i++) {
-                    String sv = fields.get(i).stringValue();
-                    JSONObject j = new JSONObject();
-                    setValue(j, type.getTypeName(), "x", sv); //sf.write(this, null, f1);
-                    a.add(j.get("x"));
-                }
+                writeValue(this.writer, typeName, fieldValues.get(0));
             }
-            fidx1 = fidx2;
         }
-        writer.write(json.toString());
-        writer.write(lb);
     }
 
-    private static void setValue(final JSONObject json, final String typeName, final String name, final String value) {
+    private static boolean isWritable(final String typeName) {
+        return typeName.equals(SolrType.text_general.printName()) ||
+            typeName.equals(SolrType.string.printName()) ||
+            typeName.equals(SolrType.text_en_splitting_tight.printName()) ||
+            typeName.equals(SolrType.bool.printName()) ||
+            typeName.equals(SolrType.num_integer.printName()) ||
+            typeName.equals(SolrType.num_long.printName()) ||
+            typeName.equals(SolrType.date.printName()) ||
+            typeName.equals(SolrType.num_float.printName()) ||
+            typeName.equals(SolrType.num_double.printName());
+    }
+
+    private static void writeValue(final Writer writer, final String typeName, final String value) throws IOException {
         if (typeName.equals(SolrType.text_general.printName()) ||
             typeName.equals(SolrType.string.printName()) ||
             typeName.equals(SolrType.text_en_splitting_tight.printName())) {
-            json.put(name, value);
+            JSONObject.quote(value, writer);
         } else if (typeName.equals(SolrType.bool.printName())) {
-            json.put(name, "F".equals(value) ? false : true);
-        } else if (typeName.equals(SolrType.num_integer.printName())) {
-            json.put(name, Long.parseLong(value));
-        } else if (typeName.equals(SolrType.num_long.printName())) {
-            json.put(name, Long.parseLong(value));
+            writer.write("F".equals(value) ? "false" : "true");
+        } else if (typeName.equals(SolrType.num_integer.printName()) || typeName.equals(SolrType.num_long.printName())) {
+            writer.write(Long.toString(Long.parseLong(value)));
         } else if (typeName.equals(SolrType.date.printName())) {
-            json.put(name, new Date(Long.parseLong(value)).toInstant().toString());
-        } else if (typeName.equals(SolrType.num_float.printName())) {
-            json.put(name, Double.parseDouble(value));
-        } else if (typeName.equals(SolrType.num_double.printName())) {
-            json.put(name, Double.parseDouble(value));
+            JSONObject.quote(new Date(Long.parseLong(value)).toInstant().toString(), writer);
+        } else if (typeName.equals(SolrType.num_float.printName()) || typeName.equals(SolrType.num_double.printName())) {
+            writer.write(JSONObject.numberToString(Double.parseDouble(value)));
         }
     }
     
@@ -413,6 +413,8 @@ public class OpensearchResponseWriter implements QueryResponseWriter, SolrjRespo
         String urlhash = null;
         MultiProtocolURL url = null;
         final DocIterator iterator = documents.iterator();
+        final int sz = documents.size();
+        int writtenDocs = 0;
         while(iterator.hasNext()) {
             openTag(writer, "item");
             int id = iterator.nextDoc();
@@ -493,6 +495,7 @@ public class OpensearchResponseWriter implements QueryResponseWriter, SolrjRespo
             
             writeDocEnd(writer, snippets, urlhash, url, keywords, texts, descriptions, docTitle, images_protocol_obj,
 					images_stub);
+            StreamingFieldVisitor.flushChunk(writer, ++writtenDocs, sz);
         }
 	}
 	
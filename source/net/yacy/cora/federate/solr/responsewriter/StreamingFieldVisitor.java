@@ -0,0 +1,157 @@
+/**
+ *  StreamingFieldVisitor
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.federate.solr.responsewriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.TextField;
+import org.apache.solr.search.ReturnFields;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Reads the stored fields of an index document and hands them field by field to a response writer.
+ * Only the fields which are requested in the return fields are decoded, and no Lucene Document or
+ * SolrDocument is created for the document: the values of one field are collected until the next
+ * field starts and are then written with {@link #writeField(String, SchemaField, List)}.
+ * A visitor is created once for a response and re-used for all documents of the response.
+ */
+public abstract class StreamingFieldVisitor extends StoredFieldVisitor {
+
+    /** if a response has more documents than this, the writer is flushed after each chunk of this size */
+    public static final int CHUNK_SIZE = 1000;
+
+    private final IndexSchema schema;
+    private final ReturnFields returnFields;
+    private final Map<String, Status> status; // the decision of needsField for each field name
+    private final Map<String, SchemaField> schemaFields;
+    private final List<String> values;
+    private String fieldName;
+
+    /**
+     * @param schema the schema of the index, may be null
+     * @param returnFields the fields which shall be written, null for all fields
+     */
+    protected StreamingFieldVisitor(final IndexSchema schema, final ReturnFields returnFields) {
+        this.schema = schema;
+        this.returnFields = returnFields;
+        this.status = new HashMap<>();
+        this.schemaFields = new HashMap<>();
+        this.values = new ArrayList<>();
+        this.fieldName = null;
+    }
+
+    /**
+     * read the stored fields of a document and write them
+     * @param searcher the searcher of the request
+     * @param docId the internal document number
+     * @throws IOException when the document cannot be read or written
+     */
+    public void visit(final SolrIndexSearcher searcher, final int docId) throws IOException {
+        this.fieldName = null;
+        this.values.clear();
+        searcher.doc(docId, this);
+        flushField();
+    }
+
+    /**
+     * write the values of a field
+     * @param name the name of the field
+     * @param sf the schema field; a text field if the field is not in the schema
+     * @param fieldValues the values of the field in the order of the index, at least one value
+     * @throws IOException when a write error occurred
+     */
+    protected abstract void writeField(final String name, final SchemaField sf, final List<String> fieldValues) throws IOException;
+
+    /**
+     * flush the writer at the end of each chunk of documents of a large response,
+     * so the response is sent while the next documents are read
+     * @param writer the response writer
+     * @param written the number of documents written so far
+     * @param size the number of documents in the response
+     */
+    public static void flushChunk(final Writer writer, final int written, final int size) throws IOException {
+        if (size > CHUNK_SIZE && written % CHUNK_SIZE == 0) writer.flush();
+    }
+
+    @Override
+    public Status needsField(final FieldInfo fieldInfo) throws IOException {
+        Status s = this.status.get(fieldInfo.name);
+        if (s == null) {
+            s = this.returnFields == null || this.returnFields.wantsField(fieldInfo.name) ? Status.YES : Status.NO;
+            this.status.put(fieldInfo.name, s);
+        }
+        return s;
+    }
+
+    @Override
+    public void stringField(final FieldInfo fieldInfo, final byte[] value) throws IOException {
+        add(fieldInfo.name, new String(value, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void intField(final FieldInfo fieldInfo, final int value) throws IOException {
+        add(fieldInfo.name, Integer.toString(value));
+    }
+
+    @Override
+    public void longField(final FieldInfo fieldInfo, final long value) throws IOException {
+        add(fieldInfo.name, Long.toString(value));
+    }
+
+    @Override
+    public void floatField(final FieldInfo fieldInfo, final float value) throws IOException {
+        add(fieldInfo.name, Float.toString(value));
+    }
+
+    @Override
+    public void doubleField(final FieldInfo fieldInfo, final double value) throws IOException {
+        add(fieldInfo.name, Double.toString(value));
+    }
+
+    private void add(final String name, final String value) throws IOException {
+        if (this.fieldName != null && !this.fieldName.equals(name)) flushField();
+        this.fieldName = name;
+        this.values.add(value);
+    }
+
+    private void flushField() throws IOException {
+        if (this.fieldName == null) return;
+        SchemaField sf = this.schemaFields.get(this.fieldName);
+        if (sf == null) {
+            sf = this.schema == null ? null : this.schema.getFieldOrNull(this.fieldName);
+            if (sf == null) sf = new SchemaField(this.fieldName, new TextField());
+            this.schemaFields.put(this.fieldName, sf);
+        }
+        writeField(this.fieldName, sf, this.values);
+        this.fieldName = null;
+        this.values.clear();
+    }
+}
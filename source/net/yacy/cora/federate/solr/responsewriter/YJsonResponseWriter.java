@@ -288,6 +288,7 @@ public class YJsonResponseWriter implements QueryResponseWriter, SolrjResponseWr
 			final Map<String, Collection<String>> snippets) throws IOException {
         final SolrIndexSearcher searcher = request.getSearcher();
         final DocIterator iterator = documents.iterator();
+        final int sz = documents.size();
         int writtenDocs = 0;
         while(iterator.hasNext()) {
         	if(writtenDocs > 0) {
@@ -367,6 +368,7 @@ public class YJsonResponseWriter implements QueryResponseWriter, SolrjResponseWr
                 writer.write("\"description\":\"\"\n}\n");
             }
             writtenDocs++;
+            StreamingFieldVisitor.flushChunk(writer, writtenDocs, sz);
         }
 	}
 
@@ -164,6 +164,8 @@ public class HTTPClient {
 	private Set<Entry<String, String>> headers = null;
 	private CloseableHttpResponse httpResponse = null;
 	private HttpUriRequest currentRequest = null;
+	private volatile HttpUriRequest runningRequest = null; // the request which is executed by getContentBytes
+	private volatile boolean aborted = false;
 	private long upbytes = 0L;
 	private String host = null;
 	private final long timeout;
@@ -842,6 +844,23 @@ public class HTTPClient {
         }
     }
 
+    /**
+     * Abort the request which is executed by GETbytes or POSTbytes from another thread. The executing thread
+     * receives an IOException; requests which are started later with this client are aborted at once.
+     */
+    public void abort() {
+        this.aborted = true;
+        final HttpUriRequest request = this.runningRequest;
+        if (request != null) request.abort();
+    }
+
+    /**
+     * @return true if abort() has been called
+     */
+    public boolean isAborted() {
+        return this.aborted;
+    }
+
     /**
      * This method ensures correct finish of client-connections
      * This method should be used after every use of GET or POST and writeTo or getContentstream!
@@ -902,6 +921,8 @@ public class HTTPClient {
 
     private byte[] getContentBytes(final HttpUriRequest httpUriRequest, final int maxBytes, final boolean concurrent) throws IOException {
         byte[] content = null;
+        this.runningRequest = httpUriRequest;
+        if (this.aborted) httpUriRequest.abort();
     	try {
             execute(httpUriRequest, concurrent);
             if (this.httpResponse == null) return null;
@@ -924,6 +945,7 @@ public class HTTPClient {
                 httpUriRequest.abort();
                 throw e;
         } finally {
+        	this.runningRequest = null;
         	if (this.httpResponse != null) this.httpResponse.close();
         	ConnectionInfo.removeConnection(httpUriRequest.hashCode());
         }
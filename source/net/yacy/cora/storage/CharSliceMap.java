@@ -0,0 +1,196 @@
+/**
+ *  CharSliceMap
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.storage;
+
+import java.util.Arrays;
+
+/**
+ * A map from strings to values which is accessed with slices of char arrays, so a lookup does not need a
+ * String object. The key String is only created when a new key is added.
+ * The entries are stored in the order of their insertion and are addressed by their index, which does not change
+ * when the hash table grows. Each entry has a counter in addition to its value.
+ * The map is meant to be re-used with {@link #clear()}; it is not thread-safe.
+ * @param <V> the type of the values
+ */
+public class CharSliceMap<V> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** the capacity above which the arrays are released by clear() */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+    private int[] table;    // open addressing hash table: index of the entry + 1, 0 for an empty slot
+    private int[] hashes;   // hash of each entry
+    private String[] keys;
+    private Object[] values;
+    private int[] counts;
+    private int size;
+
+    public CharSliceMap() {
+        init(INITIAL_CAPACITY);
+    }
+
+    private void init(final int capacity) {
+        this.table = new int[capacity * 2];
+        this.hashes = new int[capacity];
+        this.keys = new String[capacity];
+        this.values = new Object[capacity];
+        this.counts = new int[capacity];
+        this.size = 0;
+    }
+
+    private static int hash(final char[] chars, final int offset, final int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) h = 31 * h + chars[i];
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(final String key, final char[] chars, final int offset, final int length) {
+        if (key.length() != length) return false;
+        for (int i = 0; i < length; i++) if (key.charAt(i) != chars[offset + i]) return false;
+        return true;
+    }
+
+    /**
+     * find the entry of a key
+     * @param chars the chars of the key
+     * @param offset the start of the key
+     * @param length the length of the key
+     * @return the index of the entry or -1 if the key is not in the map
+     */
+    public int index(final char[] chars, final int offset, final int length) {
+        final int h = hash(chars, offset, length);
+        final int mask = this.table.length - 1;
+        for (int slot = h & mask;; slot = (slot + 1) & mask) {
+            final int e = this.table[slot] - 1;
+            if (e < 0) return -1;
+            if (this.hashes[e] == h && equals(this.keys[e], chars, offset, length)) return e;
+        }
+    }
+
+    /**
+     * find the entry of a key or add a new entry with a null value and a count of 0
+     * @param chars the chars of the key
+     * @param offset the start of the key
+     * @param length the length of the key
+     * @return the index of the entry
+     */
+    public int add(final char[] chars, final int offset, final int length) {
+        final int h = hash(chars, offset, length);
+        int mask = this.table.length - 1;
+        int slot = h & mask;
+        for (;; slot = (slot + 1) & mask) {
+            final int e = this.table[slot] - 1;
+            if (e < 0) break;
+            if (this.hashes[e] == h && equals(this.keys[e], chars, offset, length)) return e;
+        }
+        if (this.size == this.keys.length) {
+            grow();
+            mask = this.table.length - 1;
+            slot = h & mask;
+            while (this.table[slot] != 0) slot = (slot + 1) & mask;
+        }
+        final int e = this.size++;
+        this.hashes[e] = h;
+        this.keys[e] = new String(chars, offset, length);
+        this.table[slot] = e + 1;
+        return e;
+    }
+
+    private void grow() {
+        final int capacity = this.keys.length * 2;
+        this.hashes = Arrays.copyOf(this.hashes, capacity);
+        this.keys = Arrays.copyOf(this.keys, capacity);
+        this.values = Arrays.copyOf(this.values, capacity);
+        this.counts = Arrays.copyOf(this.counts, capacity);
+        this.table = new int[capacity * 2];
+        final int mask = this.table.length - 1;
+        for (int e = 0; e < this.size; e++) {
+            int slot = this.hashes[e] & mask;
+            while (this.table[slot] != 0) slot = (slot + 1) & mask;
+            this.table[slot] = e + 1;
+        }
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param index the index of an entry, 0 &lt;= index &lt; size()
+     * @return the key of the entry
+     */
+    public String key(final int index) {
+        return this.keys[index];
+    }
+
+    /**
+     * @param index the index of an entry, 0 &lt;= index &lt; size()
+     * @return the value of the entry
+     */
+    @SuppressWarnings("unchecked")
+    public V value(final int index) {
+        return (V) this.values[index];
+    }
+
+    /**
+     * @param index the index of an entry, 0 &lt;= index &lt; size()
+     * @param value the new value of the entry
+     */
+    public void value(final int index, final V value) {
+        this.values[index] = value;
+    }
+
+    /**
+     * @param index the index of an entry, 0 &lt;= index &lt; size()
+     * @return the counter of the entry
+     */
+    public int count(final int index) {
+        return this.counts[index];
+    }
+
+    /**
+     * increase the counter of an entry
+     * @param index the index of an entry, 0 &lt;= index &lt; size()
+     * @return the new count
+     */
+    public int inc(final int index) {
+        return ++this.counts[index];
+    }
+
+    /**
+     * remove all entries; the arrays are kept for the next use unless they have grown very large
+     */
+    public void clear() {
+        if (this.keys.length > MAX_RETAINED_CAPACITY) {
+            init(INITIAL_CAPACITY);
+            return;
+        }
+        Arrays.fill(this.table, 0);
+        Arrays.fill(this.keys, 0, this.size, null);
+        Arrays.fill(this.values, 0, this.size, null);
+        Arrays.fill(this.counts, 0, this.size, 0);
+        this.size = 0;
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ *  WeightedARC
+ *  an Adaptive Replacement Cache which is limited by the weight of its entries
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * An Adaptive Replacement Cache as described in http://www.almaden.ibm.com/cs/people/dmodha/ARC.pdf
+ * where each entry has a weight, i.e. its size in bytes, and the cache is limited by the sum of the weights.
+ * Entries which were used once are in the recency level t1, entries which were used more than once
+ * are in the frequency level t2. The keys of entries which were evicted from both levels are kept as
+ * ghost entries in b1 and b2; a hit on a ghost entry moves the target weight of t1 towards the level
+ * which would have kept the entry. Unlike the SimpleARC, a scan over many entries which are used only
+ * once does not replace the frequently used entries.
+ */
+public class WeightedARC<K, V> {
+
+    private static class Node<V> {
+        private final V value;
+        private final long weight;
+        private Node(final V value, final long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final long capacity;
+    private final LinkedHashMap<K, Node<V>> t1, t2; // the entries in the order of their last access
+    private final LinkedHashMap<K, Long> b1, b2; // the weights of the ghost entries
+    private long w1, w2, wb1, wb2; // the sum of the weights in each level
+    private long target; // the adaptive target weight of t1
+    private long evictions;
+
+    /**
+     * @param capacity the maximum sum of the weights of all entries
+     */
+    public WeightedARC(final long capacity) {
+        this.capacity = capacity;
+        this.t1 = new LinkedHashMap<K, Node<V>>();
+        this.t2 = new LinkedHashMap<K, Node<V>>();
+        this.b1 = new LinkedHashMap<K, Long>();
+        this.b2 = new LinkedHashMap<K, Long>();
+        clear();
+    }
+
+    /**
+     * get a value from the cache; a hit moves the entry to the frequency level
+     * @param key
+     * @return the value or null if the key is not in the cache
+     */
+    public synchronized V get(final K key) {
+        Node<V> node = this.t1.remove(key);
+        if (node != null) {
+            this.w1 -= node.weight;
+            this.t2.put(key, node);
+            this.w2 += node.weight;
+            return node.value;
+        }
+        node = this.t2.remove(key);
+        if (node != null) {
+            this.t2.put(key, node); // most recently used
+            return node.value;
+        }
+        return null;
+    }
+
+    /**
+     * put a value to the cache
+     * @param key
+     * @param value
+     * @param weight the weight of the entry; entries which are heavier than the capacity are not stored
+     */
+    public synchronized void put(final K key, final V value, final long weight) {
+        final boolean frequent = remove0(key);
+        if (weight > this.capacity) return;
+        final Node<V> node = new Node<V>(value, weight);
+        final Long ghost1 = this.b1.remove(key);
+        final Long ghost2 = ghost1 == null ? this.b2.remove(key) : null;
+        if (ghost1 != null) {
+            // the entry was evicted from t1 too early: a larger t1 would have kept it
+            this.wb1 -= ghost1.longValue();
+            this.target = Math.min(this.capacity, this.target + Math.max(weight, this.wb1 == 0 ? weight : weight * this.wb2 / this.wb1));
+        } else if (ghost2 != null) {
+            // the entry was evicted from t2 too early: a larger t2 would have kept it
+            this.wb2 -= ghost2.longValue();
+            this.target = Math.max(0, this.target - Math.max(weight, this.wb2 == 0 ? weight : weight * this.wb1 / this.wb2));
+        }
+        if (frequent || ghost1 != null || ghost2 != null) {
+            this.t2.put(key, node);
+            this.w2 += weight;
+        } else {
+            this.t1.put(key, node);
+            this.w1 += weight;
+        }
+        replace(ghost2 != null);
+    }
+
+    // evict entries until the cache is within its capacity
+    private void replace(final boolean ghost2hit) {
+        while (this.w1 + this.w2 > this.capacity) {
+            if (this.w1 > 0 && (this.w1 > this.target || (ghost2hit && this.w1 == this.target) || this.w2 == 0)) {
+                final Map.Entry<K, Node<V>> eldest = this.t1.entrySet().iterator().next();
+                this.t1.remove(eldest.getKey());
+                this.w1 -= eldest.getValue().weight;
+                this.b1.put(eldest.getKey(), eldest.getValue().weight);
+                this.wb1 += eldest.getValue().weight;
+            } else {
+                final Map.Entry<K, Node<V>> eldest = this.t2.entrySet().iterator().next();
+                this.t2.remove(eldest.getKey());
+                this.w2 -= eldest.getValue().weight;
+                this.b2.put(eldest.getKey(), eldest.getValue().weight);
+                this.wb2 += eldest.getValue().weight;
+            }
+            this.evictions++;
+        }
+        // the ghost entries are limited like the entries in ARC: |t1| + |b1| <= c and |t1| + |t2| + |b1| + |b2| <= 2c
+        final Iterator<Map.Entry<K, Long>> i1 = this.b1.entrySet().iterator();
+        while (this.w1 + this.wb1 > this.capacity && i1.hasNext()) {
+            this.wb1 -= i1.next().getValue().longValue();
+            i1.remove();
+        }
+        final Iterator<Map.Entry<K, Long>> i2 = this.b2.entrySet().iterator();
+        while (this.w1 + this.w2 + this.wb1 + this.wb2 > 2 * this.capacity && i2.hasNext()) {
+            this.wb2 -= i2.next().getValue().longValue();
+            i2.remove();
+        }
+    }
+
+    /**
+     * remove an entry from the cache; the ghost entries are not changed
+     * @param key
+     */
+    public synchronized void remove(final K key) {
+        remove0(key);
+    }
+
+    // returns true if the entry was in the frequency level
+    private boolean remove0(final K key) {
+        Node<V> node = this.t1.remove(key);
+        if (node != null) {
+            this.w1 -= node.weight;
+            return false;
+        }
+        node = this.t2.remove(key);
+        if (node != null) {
+            this.w2 -= node.weight;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * remove all entries with a value which matches a filter; the ghost entries are not changed
+     * @param filter
+     * @return the number of removed entries
+     */
+    public synchronized int removeIf(final Predicate<V> filter) {
+        int removed = 0;
+        for (final Iterator<Node<V>> i = this.t1.values().iterator(); i.hasNext();) {
+            final Node<V> node = i.next();
+            if (filter.test(node.value)) {
+                i.remove();
+                this.w1 -= node.weight;
+                removed++;
+            }
+        }
+        for (final Iterator<Node<V>> i = this.t2.values().iterator(); i.hasNext();) {
+            final Node<V> node = i.next();
+            if (filter.test(node.value)) {
+                i.remove();
+                this.w2 -= node.weight;
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        this.t1.clear();
+        this.t2.clear();
+        this.b1.clear();
+        this.b2.clear();
+        this.w1 = 0;
+        this.w2 = 0;
+        this.wb1 = 0;
+        this.wb2 = 0;
+        this.target = 0;
+    }
+
+    /**
+     * @return the number of entries in the cache
+     */
+    public synchronized int size() {
+        return this.t1.size() + this.t2.size();
+    }
+
+    /**
+     * @return the sum of the weights of all entries in the cache
+     */
+    public synchronized long weight() {
+        return this.w1 + this.w2;
+    }
+
+    public long capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * @return the adaptive target weight of the recency level
+     */
+    public synchronized long target() {
+        return this.target;
+    }
+
+    /**
+     * @return the number of entries which were evicted since the cache was created
+     */
+    public synchronized long evictions() {
+        return this.evictions;
+    }
+
+}
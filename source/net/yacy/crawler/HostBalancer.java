@@ -48,6 +48,7 @@ import net.yacy.crawler.data.Latency;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.robots.RobotsTxt;
 import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.index.OffHeapHandleMap;
 import net.yacy.kelondro.index.RowHandleMap;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.util.FileUtils;
@@ -64,13 +65,44 @@ import net.yacy.kelondro.util.FileUtils;
 public class HostBalancer implements Balancer {
 
     private final static ConcurrentLog log = new ConcurrentLog("HostBalancer");
-    public final static HandleMap depthCache = new RowHandleMap(Word.commonHashLength, Word.commonHashOrder, 2, 8 * 1024 * 1024, "HostBalancer.DepthCache");
+    private final static int depthCacheSpace = 8 * 1024 * 1024;
+    public volatile static HandleMap depthCache = new RowHandleMap(Word.commonHashLength, Word.commonHashOrder, 2, depthCacheSpace, "HostBalancer.DepthCache");
+
+    /**
+     * select the implementation of the depth cache. This should be called before the crawler starts:
+     * the content of the current cache is lost when the implementation changes.
+     * @param offHeap if true, the depth cache is an OffHeapHandleMap in direct memory
+     */
+    public static synchronized void setOffHeapDepthCache(final boolean offHeap) {
+        if (offHeap == (depthCache instanceof OffHeapHandleMap)) return;
+        HandleMap cache;
+        if (offHeap) try {
+            cache = new OffHeapHandleMap(Word.commonHashLength, Word.commonHashOrder, 2, depthCacheSpace, "HostBalancer.DepthCache");
+        } catch (final SpaceExceededException e) {
+            log.warn("cannot allocate an off-heap depth cache: " + e.getMessage());
+            return;
+        } else {
+            cache = new RowHandleMap(Word.commonHashLength, Word.commonHashOrder, 2, depthCacheSpace, "HostBalancer.DepthCache");
+        }
+        final HandleMap old = depthCache;
+        depthCache = cache;
+        old.close();
+    }
     
+    /**
+     * if true, new instances select hosts from a HostReadiness schedule which is updated with each latency change,
+     * instead of computing the waiting time of all hosts in pop(). This must be set before the crawler starts.
+     */
+    public static boolean readinessSchedule = false;
+
     private final File hostsPath;
     private final boolean exceed134217727;
     private final Map<String, HostQueue> queues;
     private final Set<String> roundRobinHostHashes;
     private final int onDemandLimit;
+    private final HostReadiness readiness; // null if the round-robin selection is used
+    private final Latency.Listener latencyListener;
+    private volatile RobotsTxt robots; // the robots database of the latest push or pop, used to schedule hosts
 
     /**
      * Create a new instance and asynchronously fills the queue by scanning the hostsPath directory.
@@ -105,6 +137,20 @@ public class HostBalancer implements Balancer {
         if (!(hostsPath.exists())) hostsPath.mkdirs(); // make the path
         this.queues = new ConcurrentHashMap<String, HostQueue>();
         this.roundRobinHostHashes = new HashSet<String>();
+        if (readinessSchedule) {
+            this.readiness = new HostReadiness();
+            this.latencyListener = new Latency.Listener() {
+                @Override
+                public void latencyUpdated(final String hosthash) {
+                    final HostQueue hq = HostBalancer.this.queues.get(hosthash);
+                    if (hq != null) HostBalancer.this.readiness.reschedule(hosthash, due(hq));
+                }
+            };
+            Latency.addListener(this.latencyListener);
+        } else {
+            this.readiness = null;
+            this.latencyListener = null;
+        }
         init(asyncInit); // return without wait but starts a thread to fill the queues
     }
 
@@ -142,6 +188,7 @@ public class HostBalancer implements Balancer {
                     FileUtils.deletedelete(queuePath);
                 } else {
                     queues.put(queue.getHostHash(), queue);
+                    if (this.readiness != null) this.readiness.schedule(queue.getHostHash(), due(queue));
                 }
             } catch (MalformedURLException | RuntimeException e) {
                 log.warn("delete queue due to init error for " + hostsPath.getName() + " host=" + hoststr + " " + e.getLocalizedMessage());
@@ -156,6 +203,10 @@ public class HostBalancer implements Balancer {
         if (depthCache != null) {
             depthCache.clear();
         }
+        if (this.readiness != null) {
+            Latency.removeListener(this.latencyListener);
+            this.readiness.clear();
+        }
         for (HostQueue queue: this.queues.values()) queue.close();
         this.queues.clear();
     }
@@ -165,6 +216,7 @@ public class HostBalancer implements Balancer {
         if (depthCache != null) {
             depthCache.clear();
         }
+        if (this.readiness != null) this.readiness.clear();
         for (HostQueue queue: this.queues.values()) queue.clear();
         this.queues.clear();
     }
@@ -291,11 +343,61 @@ public class HostBalancer implements Balancer {
                 this.queues.put(hosthash, queue);
                 // profile might be null when continue crawls after YaCy restart
                 robots.ensureExist(entry.url(), profile == null ? ClientIdentification.yacyInternetCrawlerAgent : profile.getAgent(), true); // concurrently load all robots.txt
+                if (this.readiness != null) {
+                    final String error = queue.push(entry, profile, robots);
+                    this.robots = robots;
+                    this.readiness.schedule(hosthash, due(queue));
+                    return error;
+                }
             }
             return queue.push(entry, profile, robots);
         }
     }
 
+    /**
+     * compute the time when a host may be accessed next; hosts which were never accessed are due first
+     * @param hq the queue of the host
+     * @return the time in milliseconds
+     */
+    private long due(final HostQueue hq) {
+        final int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), hq.getHostHash(), this.robots, ClientIdentification.yacyInternetCrawlerAgent);
+        return System.currentTimeMillis() + Math.max(-60000, delta);
+    }
+
+    /**
+     * get the next entry from the host which is due first in the readiness schedule. The host is taken out of the
+     * schedule while its queue is popped, so concurrent callers always get different hosts, and it is scheduled
+     * again with its new waiting time afterwards.
+     */
+    private Request popReady(final boolean delay, final CrawlSwitchboard cs, final RobotsTxt robots) throws IOException {
+        this.robots = robots;
+        while (true) {
+            final String rhh = this.readiness.poll();
+            if (rhh == null) return null;
+            final HostQueue rhq = this.queues.get(rhh);
+            if (rhq == null) continue;
+            Request request = null;
+            try {
+                request = rhq.pop(delay, cs, robots);
+            } catch (final IOException e) {
+                throw e;
+            } catch (final Throwable e) {
+                ConcurrentLog.logException(e);
+                throw new IOException(e.getMessage());
+            } finally {
+                if (rhq.isEmpty()) {
+                    synchronized (this) {
+                        this.queues.remove(rhh);
+                    }
+                    rhq.close();
+                } else {
+                    this.readiness.schedule(rhh, due(rhq));
+                }
+            }
+            if (request != null) return request;
+        }
+    }
+
     /**
      * get the next entry in this crawl queue in such a way that the domain access time delta is maximized
      * and always above the given minimum delay time. An additional delay time is computed using the robots.txt
@@ -310,6 +412,7 @@ public class HostBalancer implements Balancer {
      */
     @Override
     public Request pop(boolean delay, CrawlSwitchboard cs, RobotsTxt robots) throws IOException {
+        if (this.readiness != null) return popReady(delay, cs, robots);
         tryagain: while (true) try {
             HostQueue rhq = null;
             String rhh = null;
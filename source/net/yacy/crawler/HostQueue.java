@@ -54,6 +54,7 @@ import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.index.BufferedObjectIndex;
 import net.yacy.kelondro.index.Index;
 import net.yacy.kelondro.index.OnDemandOpenFileIndex;
+import net.yacy.kelondro.index.PooledOpenFileIndex;
 import net.yacy.kelondro.index.Row;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.table.Table;
@@ -69,6 +70,12 @@ public class HostQueue implements Balancer {
     private static final int    EcoFSBufferSize       = 1000;
     private static final int    objectIndexBufferSize = 1000;
 
+    /**
+     * if true, the depth stacks are opened in the process-wide pool of the PooledOpenFileIndex,
+     * which limits the number of open stack files of all host queues
+     */
+    public static boolean pooledStacks = false;
+
     private final File          hostPath; // path to the stack files
     private final String        hostName;
     private final String        hostHash;
@@ -260,7 +267,13 @@ public class HostQueue implements Balancer {
     private Index openStack(File f) {
         for (int i = 0; i < 10; i++) {
             // we try that again if it fails because it shall not fail
-            if (this.onDemand && (!f.exists() || f.length() < 10000)) {
+            if (pooledStacks) {
+                try {
+                    return new BufferedObjectIndex(new PooledOpenFileIndex(f, Request.rowdef, exceed134217727), objectIndexBufferSize);
+                } catch (kelondroException e) {
+                    ConcurrentLog.logException(e);
+                }
+            } else if (this.onDemand && (!f.exists() || f.length() < 10000)) {
                 try {
                     return new BufferedObjectIndex(new OnDemandOpenFileIndex(f, Request.rowdef, exceed134217727), objectIndexBufferSize);
                 } catch (kelondroException e) {
@@ -0,0 +1,136 @@
+/**
+ *  HostReadiness
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.crawler;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrent schedule of hosts, ordered by the time when a host may be accessed next.
+ * A host is either scheduled or taken: poll() takes the host which is due first out of the
+ * schedule, so that no other thread gets the same host until it is scheduled again.
+ * All operations cost O(log n) for n scheduled hosts and do not use a global lock.
+ */
+public class HostReadiness {
+
+    private static final class Slot implements Comparable<Slot> {
+        private final String hosthash;
+        private final long due;
+        private final long sequence;
+
+        private Slot(final String hosthash, final long due, final long sequence) {
+            this.hosthash = hosthash;
+            this.due = due;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(final Slot o) {
+            if (this.due != o.due) return this.due < o.due ? -1 : 1;
+            return this.sequence < o.sequence ? -1 : this.sequence == o.sequence ? 0 : 1;
+        }
+    }
+
+    private final ConcurrentSkipListSet<Slot> schedule;
+    private final ConcurrentHashMap<String, Slot> slots;
+    private final AtomicLong sequence;
+
+    public HostReadiness() {
+        this.schedule = new ConcurrentSkipListSet<Slot>();
+        this.slots = new ConcurrentHashMap<String, Slot>();
+        this.sequence = new AtomicLong(0);
+    }
+
+    /**
+     * schedule a host or move it to a new time if it is already scheduled
+     * @param hosthash
+     * @param due the time in milliseconds when the host may be accessed
+     */
+    public void schedule(final String hosthash, final long due) {
+        this.slots.compute(hosthash, (h, old) -> {
+            if (old != null) this.schedule.remove(old);
+            final Slot slot = new Slot(h, due, this.sequence.incrementAndGet());
+            this.schedule.add(slot);
+            return slot;
+        });
+    }
+
+    /**
+     * move a host to a new time if it is scheduled; a taken host is not scheduled again
+     * @param hosthash
+     * @param due the time in milliseconds when the host may be accessed
+     * @return true if the host was scheduled
+     */
+    public boolean reschedule(final String hosthash, final long due) {
+        return this.slots.computeIfPresent(hosthash, (h, old) -> {
+            this.schedule.remove(old);
+            final Slot slot = new Slot(h, due, this.sequence.incrementAndGet());
+            this.schedule.add(slot);
+            return slot;
+        }) != null;
+    }
+
+    /**
+     * take the host which is due first out of the schedule
+     * @return the host hash or null if no host is scheduled
+     */
+    public String poll() {
+        Slot slot;
+        while ((slot = this.schedule.pollFirst()) != null) {
+            // a slot which was replaced concurrently is skipped, its replacement is still in the schedule
+            if (this.slots.remove(slot.hosthash, slot)) return slot.hosthash;
+        }
+        return null;
+    }
+
+    /**
+     * @return the time when the first host is due or Long.MAX_VALUE if no host is scheduled
+     */
+    public long nextDue() {
+        try {
+            return this.schedule.first().due;
+        } catch (final NoSuchElementException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    public void remove(final String hosthash) {
+        this.slots.computeIfPresent(hosthash, (h, old) -> {
+            this.schedule.remove(old);
+            return null;
+        });
+    }
+
+    public boolean isScheduled(final String hosthash) {
+        return this.slots.containsKey(hosthash);
+    }
+
+    public int size() {
+        return this.slots.size();
+    }
+
+    public void clear() {
+        for (final String hosthash: this.slots.keySet()) remove(hosthash);
+    }
+
+}
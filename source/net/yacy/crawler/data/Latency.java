@@ -24,8 +24,10 @@
 package net.yacy.crawler.data;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -46,6 +48,31 @@ public class Latency {
     private static final int mapMaxSize = 1000;
     private static final ConcurrentHashMap<String, Host> map = new ConcurrentHashMap<String, Host>();
 
+    /**
+     * a receiver of latency updates, used to re-schedule a host when its waiting time changes
+     */
+    public interface Listener {
+        /**
+         * called after the latency entry of a host was updated
+         * @param hosthash
+         */
+        public void latencyUpdated(String hosthash);
+    }
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    public static void addListener(final Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static void notifyListeners(final String hosthash) {
+        for (final Listener listener: listeners) listener.latencyUpdated(hosthash);
+    }
+
     /**
      * update the latency entry after a host was selected for queueing into the loader
      * @param url
@@ -61,6 +88,7 @@ public class Latency {
             if (map.size() > mapMaxSize || MemoryControl.shortStatus()) map.clear();
             map.put(hosthash, h);
         }
+        notifyListeners(hosthash);
     }
 
     /**
@@ -80,6 +108,7 @@ public class Latency {
         } else {
             h.update();
         }
+        notifyListeners(hosthash);
     }
 
     /**
@@ -99,6 +128,7 @@ public class Latency {
         } else {
             h.update(time);
         }
+        notifyListeners(hosthash);
     }
 
     private static Host host(final DigestURL url) {
@@ -0,0 +1,257 @@
+/**
+ *  TokenScanner
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.util.Locale;
+
+/**
+ * A streaming tokenizer which produces the same tokens as a {@link WordTokenizer} on a {@link SentenceReader},
+ * without creating objects for the sentences and tokens: the text is copied into a re-used char array and a token
+ * is given as the offsets of its characters in that array.
+ * A token is either a word, made of characters which are not {@link SentenceReader#invisible(char)}, or a single
+ * {@link SentenceReader#punctuation(char)} character.
+ * As with the SentenceReader, the text ends at the first sentence which is empty or has only white space; in pre mode
+ * empty lines are skipped.
+ * The scanner is meant to be re-used with {@link #reset(String)}; it is not thread-safe.
+ */
+public final class TokenScanner {
+
+    /** the capacity above which the text buffer is released by reset() */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+    private char[] chars;          // the text
+    private int length;
+    private int pos;               // the position of the next character to read
+    private boolean pre;           // when true, line breaks end sentences
+    private boolean inSentence;    // false if the next character starts a new sentence
+    private boolean sentenceEmpty; // true if the current sentence has no character yet
+    private char lc;               // the last character of the sentence
+    private boolean finished;
+    private int pendingPunctuation; // position of a punctuation token that follows the current word, or -1
+
+    private int start, end;        // the current token
+    private char[] lower;          // the lower case form of the current token
+    private int lowerLength;
+
+    public TokenScanner() {
+        this.chars = new char[256];
+        this.lower = new char[32];
+        reset("");
+    }
+
+    public TokenScanner(final String text) {
+        this();
+        reset(text);
+    }
+
+    /**
+     * start to scan a new text
+     * @param text the text, must not be null
+     * @return this scanner
+     */
+    public TokenScanner reset(final String text) {
+        this.length = text.length();
+        if (this.chars.length < this.length || (this.chars.length > MAX_RETAINED_CAPACITY && this.length < MAX_RETAINED_CAPACITY)) {
+            this.chars = new char[Math.max(256, this.length)];
+        }
+        text.getChars(0, this.length, this.chars, 0);
+        this.pos = 0;
+        this.pre = false;
+        this.inSentence = false;
+        this.finished = false;
+        this.pendingPunctuation = -1;
+        this.start = 0;
+        this.end = 0;
+        this.lowerLength = -1;
+        return this;
+    }
+
+    /**
+     * When true, line breaks end sentences. Unlike the SentenceReader, which reads ahead, the switch applies
+     * to the characters which have not been scanned yet, and an empty line does not end the text.
+     * @param x
+     */
+    public void pre(final boolean x) {
+        this.pre = x;
+    }
+
+    /**
+     * move to the next token
+     * @return false if the text has no more tokens
+     */
+    public boolean next() {
+        this.lowerLength = -1;
+        if (this.pendingPunctuation >= 0) {
+            this.start = this.pendingPunctuation;
+            this.end = this.start + 1;
+            this.pendingPunctuation = -1;
+            return true;
+        }
+        if (this.finished) return false;
+        int wordStart = -1;
+        while (true) {
+            if (!this.inSentence) {
+                this.inSentence = true;
+                this.sentenceEmpty = true;
+                this.lc = ' '; // starting with ' ' as last character prevents that the sentence starts with a ' '
+            }
+            if (this.pos >= this.length) {
+                endOfSentence();
+                if (wordStart >= 0) return token(wordStart, this.pos);
+                if (this.finished) return false;
+                continue;
+            }
+            final int i = this.pos++;
+            final char nc = this.chars[i];
+            if (this.pre && (nc == 10 || nc == 13)) {
+                // the line break ends the sentence; unlike in the SentenceReader, an empty line does not end the text
+                this.inSentence = false;
+                if (wordStart >= 0) return token(wordStart, i);
+                continue;
+            }
+            if (nc == 0) {
+                // the character ends the sentence and is not part of it
+                endOfSentence();
+                if (wordStart >= 0) return token(wordStart, i);
+                if (this.finished) return false;
+                continue;
+            }
+            final char c = nc < ' ' ? ' ' : nc;
+            if (this.lc == ' ' && c == ' ') continue; // ignore double spaces
+            this.sentenceEmpty = false;
+            if (SentenceReader.punctuation(c)) {
+                this.lc = c;
+                if (wordStart >= 0) {
+                    this.pendingPunctuation = i;
+                    return token(wordStart, i);
+                }
+                return token(i, i + 1);
+            }
+            if (SentenceReader.invisible(c)) {
+                if (SentenceReader.punctuation(this.lc)) this.inSentence = false; // the sentence ends after the punctuation
+                this.lc = c;
+                if (wordStart >= 0) return token(wordStart, i);
+                continue;
+            }
+            this.lc = c;
+            if (wordStart < 0) wordStart = i;
+        }
+    }
+
+    private void endOfSentence() {
+        if (this.sentenceEmpty) this.finished = true; // an empty sentence ends the text
+        this.inSentence = false;
+    }
+
+    private boolean token(final int s, final int e) {
+        this.start = s;
+        this.end = e;
+        return true;
+    }
+
+    /**
+     * @return the buffer with the scanned text; the current token is at the positions start() to end()
+     */
+    public char[] chars() {
+        return this.chars;
+    }
+
+    /**
+     * @return the position of the first character of the current token in chars()
+     */
+    public int start() {
+        return this.start;
+    }
+
+    /**
+     * @return the position after the last character of the current token in chars()
+     */
+    public int end() {
+        return this.end;
+    }
+
+    /**
+     * @return the number of characters of the current token
+     */
+    public int length() {
+        return this.end - this.start;
+    }
+
+    /**
+     * @return true if the current token is a punctuation character
+     */
+    public boolean isPunctuation() {
+        return this.end - this.start == 1 && SentenceReader.punctuation(this.chars[this.start]);
+    }
+
+    /**
+     * @return the current token as String
+     */
+    @Override
+    public String toString() {
+        return new String(this.chars, this.start, this.end - this.start);
+    }
+
+    /**
+     * compute the lower case form of the current token in a buffer of this scanner;
+     * the result is the same as the one of String.toLowerCase(Locale.ENGLISH)
+     * @return the length of the lower case form
+     */
+    public int toLowerCase() {
+        if (this.lowerLength >= 0) return this.lowerLength;
+        final int len = this.end - this.start;
+        if (this.lower.length < len) this.lower = new char[Math.max(len, 2 * this.lower.length)];
+        for (int i = 0; i < len; i++) {
+            final char c = this.chars[this.start + i];
+            if (c < 0x80) {
+                this.lower[i] = (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+            } else if (c == 'İ' || c == 'Σ' || Character.isSurrogate(c)) {
+                // these characters depend on their context or change the length
+                final String s = toString().toLowerCase(Locale.ENGLISH);
+                if (this.lower.length < s.length()) this.lower = new char[s.length()];
+                s.getChars(0, s.length(), this.lower, 0);
+                return this.lowerLength = s.length();
+            } else {
+                this.lower[i] = Character.toLowerCase(c);
+            }
+        }
+        return this.lowerLength = len;
+    }
+
+    /**
+     * @return the buffer with the lower case form of the current token, valid after {@link #toLowerCase()}
+     *   until the next token is scanned
+     */
+    public char[] lowerCaseChars() {
+        return this.lower;
+    }
+
+    /**
+     * @param word a lower case word
+     * @return true if the lower case form of the current token equals the word
+     */
+    public boolean lowerCaseEquals(final String word) {
+        final int len = toLowerCase();
+        if (len != word.length()) return false;
+        for (int i = 0; i < len; i++) if (this.lower[i] != word.charAt(i)) return false;
+        return true;
+    }
+}
@@ -27,7 +27,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -37,6 +36,7 @@ import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.language.synonyms.SynonymLibrary;
 import net.yacy.cora.lod.vocabulary.Tagging;
 import net.yacy.cora.order.NaturalOrder;
+import net.yacy.cora.storage.CharSliceMap;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.util.Bitfield;
 
@@ -64,6 +64,49 @@ public class Tokenizer {
     public int RESULT_NUMB_SENTENCES = -1;
     public Bitfield RESULT_FLAGS = new Bitfield(4);
 
+    /**
+     * the buffers of a tokenization which are re-used in each thread, so a token does not create objects
+     */
+    static final class Buffers {
+        final TokenScanner scanner = new TokenScanner();
+        final CharSliceMap<Word> words = new CharSliceMap<Word>();    // the lower case words of the text
+        final CharSliceMap<Object> learned = new CharSliceMap<Object>(); // the words for the WordCache, counted
+
+        /**
+         * count a token for the generic dictionary of the WordCache
+         */
+        void learn() {
+            if (this.scanner.length() >= wordminsize) this.learned.inc(this.learned.add(this.scanner.chars(), this.scanner.start(), this.scanner.length()));
+        }
+
+        /**
+         * add the counted tokens to the generic dictionary
+         */
+        void flushLearned() {
+            for (int i = 0; i < this.learned.size(); i++) WordCache.learn(new StringBuilder(this.learned.key(i)), this.learned.count(i));
+            this.learned.clear();
+        }
+    }
+
+    private static final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>();
+
+    /**
+     * take the buffers of the current thread; a nested tokenization gets new buffers until they are released
+     */
+    static Buffers acquireBuffers() {
+        final Buffers b = buffers.get();
+        if (b == null) return new Buffers();
+        buffers.set(null);
+        return b;
+    }
+
+    static void releaseBuffers(final Buffers b) {
+        b.scanner.reset("");
+        b.words.clear();
+        b.learned.clear();
+        buffers.set(b);
+    }
+
     public Tokenizer(final DigestURL root, final String text, final WordCache meaningLib, boolean doAutotagging, final VocabularyScraper scraper) {
         this.words = new TreeMap<String, Word>(NaturalOrder.naturalComparator);
         this.synonyms = new LinkedHashSet<String>();
@@ -82,19 +125,24 @@ public class Tokenizer {
         if (LibraryProvider.autotagging.isEmpty()) doAutotagging = false;
 
         // read source
-        WordTokenizer wordenum = new WordTokenizer(new SentenceReader(text), meaningLib);
+        final Buffers buffers = acquireBuffers();
         try {
-            while (wordenum.hasMoreElements()) {
-                String word = wordenum.nextElement().toString().toLowerCase(Locale.ENGLISH);
+            final TokenScanner scanner = buffers.scanner.reset(text);
+            final CharSliceMap<Word> terms = buffers.words;
+            while (scanner.next()) {
+                if (meaningLib != null) buffers.learn();
                 // handle punktuation (start new sentence)
-                if (word.length() == 1 && SentenceReader.punctuation(word.charAt(0))) {
+                if (scanner.isPunctuation()) {
                     // store sentence
                     if (wordInSentenceCounter > 1) // if no word in sentence repeated punktuation ".....", don't count as sentence
                         allsentencecounter++;
                     wordInSentenceCounter = 1;
                     continue;
                 }
-                if (word.length() < wordminsize) continue;
+                final int length = scanner.toLowerCase();
+                if (length < wordminsize) continue;
+                final int term = terms.add(scanner.lowerCaseChars(), 0, length);
+                final String word = terms.key(term);
 
                 // get tags from autotagging
                 if (doAutotagging) {
@@ -110,7 +158,7 @@ public class Tokenizer {
                 // check index.of detection
                 if (last_last && comb_indexof && word.equals("modified")) {
                     this.RESULT_FLAGS.set(flag_cat_indexof, true);
-                    wordenum.pre(true); // parse lines as they come with CRLF
+                    scanner.pre(true); // parse lines as they come with CRLF
                 }
                 if (last_index && (wordminsize > 2 || word.equals("of"))) comb_indexof = true;
                 last_last = word.equals("last");
@@ -118,7 +166,7 @@ public class Tokenizer {
 
                 // store word
                 allwordcounter++;
-                Word wsp = this.words.get(word);
+                Word wsp = terms.value(term);
                 if (wsp != null) {
                     // word already exists
                     wsp.inc();
@@ -126,14 +174,16 @@ public class Tokenizer {
                     // word does not yet exist, create new word entry
                     wsp = new Word(allwordcounter, wordInSentenceCounter, allsentencecounter + 100); // nomal sentence start at 100 !
                     wsp.flags = this.RESULT_FLAGS.clone();
-                    this.words.put(word, wsp);
+                    wsp.hash = Word.word2hash(scanner.lowerCaseChars(), 0, length);
+                    terms.value(term, wsp);
                 }
                 // we now have the unique handle of the word, put it into the sentence:
                 wordInSentenceCounter++;
             }
+            for (int i = 0; i < terms.size(); i++) this.words.put(terms.key(i), terms.value(i));
+            buffers.flushLearned();
         } finally {
-            wordenum.close();
-            wordenum = null;
+            releaseBuffers(buffers);
         }
 
         if (pseudostemming) {
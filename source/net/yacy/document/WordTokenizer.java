@@ -27,7 +27,6 @@ package net.yacy.document;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
-import java.util.Locale;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -187,29 +186,24 @@ public class WordTokenizer implements Enumeration<StringBuilder> {
      */
     public static SortedMap<byte[], Integer> hashSentence(final String sentence, int maxlength) {
         final SortedMap<byte[], Integer> map = new TreeMap<byte[], Integer>(Base64Order.enhancedCoder);
-        WordTokenizer words = new WordTokenizer(new SentenceReader(sentence), null);
-        try {
-	        int pos = 0;
-	        StringBuilder word;
-	        byte[] hash;
-	        Integer oldpos;
-	        while (words.hasMoreElements() && maxlength-- > 0) {
-	            word = words.nextElement();
-	            hash = Word.word2hash(word);
-
-	            // don't overwrite old values, that leads to too far word distances
-	            oldpos = map.put(hash, LargeNumberCache.valueOf(pos));
-	            if (oldpos != null) {
-	                map.put(hash, oldpos);
-	            }
-
-	            pos += word.length() + 1;
-	        }
-	        return map;
-        } finally {
-        	words.close();
-        	words = null;
+        final TokenScanner words = new TokenScanner(sentence);
+        int pos = 0;
+        int length;
+        byte[] hash;
+        Integer oldpos;
+        while (maxlength-- > 0 && words.next()) {
+            length = words.toLowerCase();
+            hash = Word.word2hash(words.lowerCaseChars(), 0, length);
+
+            // don't overwrite old values, that leads to too far word distances
+            oldpos = map.put(hash, LargeNumberCache.valueOf(pos));
+            if (oldpos != null) {
+                map.put(hash, oldpos);
+            }
+
+            pos += words.length() + 1;
         }
+        return map;
     }
     
     /**
@@ -219,26 +213,23 @@ public class WordTokenizer implements Enumeration<StringBuilder> {
      */
     public static SortedMap<String, Integer> tokenizeSentence(final String sentence, int maxlength) {
         final SortedMap<String, Integer> map = new TreeMap<String, Integer>();
-        WordTokenizer words = new WordTokenizer(new SentenceReader(sentence), null);
-        try {
-	        int pos = 0;
-	        String word;
-	        Integer oldpos;
-	        while (words.hasMoreElements() && maxlength-- > 0) {
-	            word = words.nextElement().toString().toLowerCase(Locale.ENGLISH);
-
-	            // don't overwrite old values, that leads to too far word distances
-	            oldpos = map.put(word, LargeNumberCache.valueOf(pos));
-	            if (oldpos != null) {
-	                map.put(word, oldpos);
-	            }
-
-	            pos += word.length() + 1;
-	        }
-	        return map;
-        } finally {
-        	words.close();
-        	words = null;
+        final TokenScanner words = new TokenScanner(sentence);
+        int pos = 0;
+        int length;
+        String word;
+        Integer oldpos;
+        while (maxlength-- > 0 && words.next()) {
+            length = words.toLowerCase();
+            word = new String(words.lowerCaseChars(), 0, length);
+
+            // don't overwrite old values, that leads to too far word distances
+            oldpos = map.put(word, LargeNumberCache.valueOf(pos));
+            if (oldpos != null) {
+                map.put(word, oldpos);
+            }
+
+            pos += word.length() + 1;
         }
+        return map;
     }
 }
@@ -0,0 +1,161 @@
+/**
+ *  SplitLineReader
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.content;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the UTF-8 lines of a byte range of a file, i.e. of a jsonlist surrogate file.
+ * A large file is split with {@link #split(File, int)} into ranges which start at the beginning of a line,
+ * so that each range can be read by its own reader in parallel. The position after the last line which
+ * has been read can be stored to resume the reading of a range later.
+ */
+public class SplitLineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final RandomAccessFile raf;
+    private final long end;
+    private final byte[] buffer;
+    private int bufferPos, bufferLength;
+    private byte[] line;
+    private long position; // the position of the next line in the file
+
+    /**
+     * @param file the file to read
+     * @param start the start of the range, must be the start of a line
+     * @param end the end of the range, must be the start of a line or the length of the file
+     * @throws IOException
+     */
+    public SplitLineReader(final File file, final long start, final long end) throws IOException {
+        this.raf = new RandomAccessFile(file, "r");
+        this.raf.seek(start);
+        this.end = end;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.bufferPos = 0;
+        this.bufferLength = 0;
+        this.line = new byte[1024];
+        this.position = start;
+    }
+
+    /**
+     * read the next line of the range
+     * @return the line without the line terminator, or null if the end of the range is reached
+     * @throws IOException
+     */
+    public String readLine() throws IOException {
+        if (this.position >= this.end) return null;
+        int length = 0;
+        while (true) {
+            if (this.bufferPos == this.bufferLength) {
+                this.bufferLength = this.raf.read(this.buffer, 0, this.buffer.length);
+                this.bufferPos = 0;
+                if (this.bufferLength <= 0) {
+                    // end of file without a line terminator
+                    this.bufferLength = 0;
+                    if (length == 0) {
+                        this.position = this.end;
+                        return null;
+                    }
+                    return string(length);
+                }
+            }
+            int i = this.bufferPos;
+            while (i < this.bufferLength && this.buffer[i] != '\n') i++;
+            final int n = i - this.bufferPos;
+            if (length + n > this.line.length) this.line = Arrays.copyOf(this.line, Math.max(length + n, 2 * this.line.length));
+            System.arraycopy(this.buffer, this.bufferPos, this.line, length, n);
+            length += n;
+            this.position += n;
+            if (i < this.bufferLength) {
+                // found the line terminator
+                this.bufferPos = i + 1;
+                this.position++;
+                return string(length);
+            }
+            this.bufferPos = this.bufferLength;
+        }
+    }
+
+    private String string(int length) {
+        if (length > 0 && this.line[length - 1] == '\r') length--;
+        return new String(this.line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the position in the file after the last line which has been read
+     */
+    public long position() {
+        return this.position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.raf.close();
+    }
+
+    /**
+     * split a file into ranges of about the same size which start at the beginning of a line
+     * @param file the file
+     * @param parts the wanted number of ranges
+     * @return the boundaries of the ranges: range i starts at boundaries[i] and ends at boundaries[i + 1].
+     *   There are less than parts ranges if the file has too few lines, but at least one range.
+     * @throws IOException
+     */
+    public static long[] split(final File file, final int parts) throws IOException {
+        final long size = file.length();
+        final int n = Math.max(1, parts);
+        final long[] boundaries = new long[n + 1];
+        int count = 0;
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            final byte[] b = new byte[4096];
+            for (int i = 1; i < n; i++) {
+                long p = Math.max(boundaries[count], size * i / n);
+                if (p == 0 || p >= size) continue;
+                // find the start of the next line; p - 1 is checked in case that p is already the start of a line
+                p--;
+                raf.seek(p);
+                search: while (true) {
+                    final int l = raf.read(b, 0, b.length);
+                    if (l <= 0) {
+                        p = size;
+                        break;
+                    }
+                    for (int j = 0; j < l; j++) {
+                        if (b[j] == '\n') {
+                            p += j + 1;
+                            break search;
+                        }
+                    }
+                    p += l;
+                }
+                if (p > boundaries[count] && p < size) boundaries[++count] = p;
+            }
+        }
+        boundaries[++count] = size;
+        return Arrays.copyOf(boundaries, count + 1);
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ *  SurrogateCheckpoint
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.content;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * The progress of the import of a line-oriented surrogate file which is split into ranges with
+ * {@link SplitLineReader#split(File, int)}. For each range, the position after the last imported line is
+ * stored in a checkpoint file next to the surrogate file, so that an interrupted import is resumed at
+ * these positions, i.e. after a restart.
+ */
+public class SurrogateCheckpoint {
+
+    /** the extension of the checkpoint file name, appended to the name of the surrogate file */
+    public static final String EXTENSION = ".checkpoint";
+
+    private final File file;
+    private final long sourceSize;
+    private final long[] positions;
+    private final long[] ends;
+
+    private SurrogateCheckpoint(final File file, final long sourceSize, final long[] positions, final long[] ends) {
+        this.file = file;
+        this.sourceSize = sourceSize;
+        this.positions = positions;
+        this.ends = ends;
+    }
+
+    /**
+     * load the checkpoint of a surrogate file, or split the file into new ranges if there is no valid checkpoint
+     * @param source the surrogate file
+     * @param parts the wanted number of ranges for a new checkpoint
+     * @return the checkpoint
+     * @throws IOException
+     */
+    public static SurrogateCheckpoint open(final File source, final int parts) throws IOException {
+        final File file = new File(source.getParentFile(), source.getName() + EXTENSION);
+        final long size = source.length();
+        if (file.exists()) {
+            final Properties p = new Properties();
+            try (final InputStream is = new FileInputStream(file)) {
+                p.load(is);
+                if (Long.parseLong(p.getProperty("size", "-1")) == size) {
+                    final int ranges = Integer.parseInt(p.getProperty("ranges", "0"));
+                    final long[] positions = new long[ranges];
+                    final long[] ends = new long[ranges];
+                    for (int i = 0; i < ranges; i++) {
+                        final String range = p.getProperty("range." + i, "");
+                        final int c = range.indexOf(',');
+                        positions[i] = Long.parseLong(range.substring(0, c));
+                        ends[i] = Long.parseLong(range.substring(c + 1));
+                    }
+                    if (ranges > 0) return new SurrogateCheckpoint(file, size, positions, ends);
+                }
+                ConcurrentLog.warn("SurrogateCheckpoint", "ignoring checkpoint " + file + " which does not match the file");
+            } catch (final NumberFormatException | IndexOutOfBoundsException e) {
+                ConcurrentLog.warn("SurrogateCheckpoint", "ignoring broken checkpoint " + file);
+            }
+        }
+        final long[] boundaries = SplitLineReader.split(source, parts);
+        final int ranges = boundaries.length - 1;
+        final long[] positions = new long[ranges];
+        final long[] ends = new long[ranges];
+        for (int i = 0; i < ranges; i++) {
+            positions[i] = boundaries[i];
+            ends[i] = boundaries[i + 1];
+        }
+        return new SurrogateCheckpoint(file, size, positions, ends);
+    }
+
+    /**
+     * @return the number of ranges
+     */
+    public int ranges() {
+        return this.positions.length;
+    }
+
+    /**
+     * @param range the index of a range
+     * @return the position after the last imported line of the range
+     */
+    public synchronized long position(final int range) {
+        return this.positions[range];
+    }
+
+    /**
+     * @param range the index of a range
+     * @return the end of the range
+     */
+    public long end(final int range) {
+        return this.ends[range];
+    }
+
+    /**
+     * @param range the index of a range
+     * @param position the position after the last imported line of the range
+     */
+    public synchronized void update(final int range, final long position) {
+        this.positions[range] = position;
+    }
+
+    /**
+     * @return a copy of the positions after the last imported line of each range
+     */
+    public synchronized long[] positions() {
+        return this.positions.clone();
+    }
+
+    /**
+     * @return true if all lines of all ranges have been imported
+     */
+    public synchronized boolean isComplete() {
+        for (int i = 0; i < this.positions.length; i++) {
+            if (this.positions[i] < this.ends[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * write the checkpoint file with the current positions
+     * @throws IOException
+     */
+    public void store() throws IOException {
+        store(positions());
+    }
+
+    /**
+     * write the checkpoint file; a temporary file is renamed, so the file is complete even if the process is killed
+     * @param positions the positions of the ranges as returned by {@link #positions()} at an earlier time,
+     *   i.e. before the imported documents have been committed to the index
+     * @throws IOException
+     */
+    public void store(final long[] positions) throws IOException {
+        final Properties p = new Properties();
+        p.setProperty("size", Long.toString(this.sourceSize));
+        p.setProperty("ranges", Integer.toString(positions.length));
+        for (int i = 0; i < positions.length; i++) {
+            p.setProperty("range." + i, positions[i] + "," + this.ends[i]);
+        }
+        final File tmp = new File(this.file.getParentFile(), this.file.getName() + ".tmp");
+        try (final OutputStream os = new FileOutputStream(tmp)) {
+            p.store(os, "positions of the surrogate import");
+        }
+        if (!tmp.renameTo(this.file)) {
+            // renameTo does not replace an existing file on all platforms
+            FileUtils.deletedelete(this.file);
+            if (!tmp.renameTo(this.file)) throw new IOException("could not write checkpoint " + this.file);
+        }
+    }
+
+    /**
+     * delete the checkpoint file
+     */
+    public void delete() {
+        if (this.file.exists()) FileUtils.deletedelete(this.file);
+    }
+}
@@ -22,22 +22,37 @@
  */
 package net.yacy.document.importer;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.protocol.HeaderFramework;
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.protocol.ResponseHeader;
-import net.yacy.cora.util.ByteBuffer;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.document.TextParser;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+import net.yacy.kelondro.workflow.WorkflowProcessor;
+import net.yacy.search.IndexingQueueEntry;
 import net.yacy.search.Switchboard;
+import net.yacy.search.SwitchboardConstants;
 import net.yacy.server.http.ChunkedInputStream;
 import org.jwat.common.HeaderLine;
 import org.jwat.common.HttpHeader;
@@ -55,25 +70,57 @@ import org.jwat.warc.WarcRecord;
  *
  * http://archive-access.sourceforge.net/warc/warc_file_format-0.9.html
  * http://archive-access.sourceforge.net/warc/
+ *
+ * The import is pipelined: the importer thread splits the archive into records and copies the payload
+ * of each response, worker threads decode the payload and hand it over to the indexer. The workers wait
+ * while the queue of the document parser is filled, so the import does not read the archive faster than
+ * the documents can be parsed. With zero workers, the records are processed in the importer thread.
  */
 public class WarcImporter extends Thread implements Importer {
 
     static public WarcImporter job; // static object to assure only one importer is running (if started from a servlet, this object is used to store the thread)
 
+    /** a response read from the archive which is waiting for a worker */
+    private static class WarcResponse {
+        private final DigestURL location;
+        private final HttpHeader http;
+        private final byte[] payload; // the http payload as stored in the archive, may be chunked
+
+        private WarcResponse(final DigestURL location, final HttpHeader http, final byte[] payload) {
+            this.location = location;
+            this.http = http;
+            this.payload = payload;
+        }
+    }
+
+    private static final WarcResponse POISON = new WarcResponse(null, null, null);
+
     private final InputStream source; // current input warc archive
     private String name; // file name of input source
-    
-    private int recordCnt; // number of responses indexed (for statistic)
+    private final int workers; // number of threads which decode and index the responses
+
+    private final AtomicInteger recordCnt; // number of responses indexed (for statistic)
+    private final AtomicLong payloadBytes; // bytes of the indexed responses (for statistic)
     private long startTime; // (for statistic)
     private final long sourceSize; // length of the input source (for statistic)
     private long consumed; // bytes consumed from input source (for statistic)
-    private boolean abort = false; // flag to signal stop of import
+    private volatile boolean abort = false; // flag to signal stop of import
 
     public WarcImporter(InputStream f) {
+        this(f, configuredWorkers());
+    }
+
+    /**
+     * @param f the input stream to read the warc archive from
+     * @param workers the number of threads which decode and index the responses
+     */
+    WarcImporter(InputStream f, int workers) {
     	super("WarcImporter - from InputStream");
         source = f;
-        recordCnt = 0;
+        recordCnt = new AtomicInteger(0);
+        payloadBytes = new AtomicLong(0);
         sourceSize = -1;
+        this.workers = workers;
     }
 
     /**
@@ -93,6 +140,18 @@ public class WarcImporter extends Thread implements Importer {
        name = f.getName();
        sourceSize = f.length();
        source = new FileInputStream(f);
+       recordCnt = new AtomicInteger(0);
+       payloadBytes = new AtomicLong(0);
+       workers = configuredWorkers();
+    }
+
+    /**
+     * @return the number of worker threads set in the configuration
+     */
+    private static int configuredWorkers() {
+        final Switchboard sb = Switchboard.getSwitchboard();
+        if (sb == null) return SwitchboardConstants.WARC_IMPORT_THREADS_DEFAULT;
+        return Math.max(0, sb.getConfigInt(SwitchboardConstants.WARC_IMPORT_THREADS, SwitchboardConstants.WARC_IMPORT_THREADS_DEFAULT));
     }
 
     /**
@@ -104,80 +163,192 @@ public class WarcImporter extends Thread implements Importer {
      */
     public void indexWarcRecords(InputStream f) throws IOException {
 
-        byte[] content;
         job = this;
         startTime = System.currentTimeMillis();
 
+        // a small queue is enough to keep the workers busy and limits the memory used by waiting payloads
+        final BlockingQueue<WarcResponse> queue = this.workers == 0 ? null : new ArrayBlockingQueue<WarcResponse>(this.workers * 2);
+        final ExecutorService service = this.workers == 0 ? null : Executors.newFixedThreadPool(this.workers,
+                new NamePrefixThreadFactory(WarcImporter.class.getSimpleName() + ".worker"));
+        if (service != null) {
+            for (int i = 0; i < this.workers; i++) {
+                service.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            WarcResponse r;
+                            while ((r = queue.take()) != POISON) {
+                                if (abort) continue;
+                                try {
+                                    index(r);
+                                } catch (final Throwable e) {
+                                    // a worker must not stop, the importer thread would wait for it
+                                    ConcurrentLog.logException(e);
+                                }
+                            }
+                        } catch (final InterruptedException e) {
+                            // the import is stopped
+                        }
+                    }
+                });
+            }
+        }
+
         WarcReader localwarcReader = WarcReaderFactory.getReader(f);
-        WarcRecord wrec = localwarcReader.getNextRecord();
-        while (wrec != null && !abort) {
+        try {
+            WarcRecord wrec = localwarcReader.getNextRecord();
+            while (wrec != null && !abort) {
 
-            HeaderLine hl = wrec.getHeader(WarcConstants.FN_WARC_TYPE);
-            if (hl != null && hl.value.equals(WarcConstants.RT_RESPONSE)) { // filter responses
+                HeaderLine hl = wrec.getHeader(WarcConstants.FN_WARC_TYPE);
+                if (hl != null && hl.value.equals(WarcConstants.RT_RESPONSE)) { // filter responses
 
-                hl = wrec.getHeader(WarcConstants.FN_WARC_TARGET_URI);
-                DigestURL location = new DigestURL(hl.value);
+                    hl = wrec.getHeader(WarcConstants.FN_WARC_TARGET_URI);
+                    DigestURL location = new DigestURL(hl.value);
 
-                HttpHeader http = wrec.getHttpHeader();
+                    HttpHeader http = wrec.getHttpHeader();
 
-                if (http != null && http.statusCode == 200) { // process http response header OK (status 200)
+                    if (http != null && http.statusCode == 200) { // process http response header OK (status 200)
 
-                    if (TextParser.supportsMime(http.contentType) == null) { // check availability of parser
+                        if (TextParser.supportsMime(http.contentType) == null) { // check availability of parser
 
-                        InputStream istream = wrec.getPayloadContent();
-                        hl = http.getHeader(HeaderFramework.TRANSFER_ENCODING);
-                        if (hl != null && hl.value.contains("chunked")) {
-                            // because chunked stream.read doesn't read source fully, make sure all chunks are read
-                            istream = new ChunkedInputStream(istream);
-                            final ByteBuffer bbuffer = new ByteBuffer();
-                            int c;
-                            while ((c = istream.read()) >= 0) {
-                                bbuffer.append(c);
+                            // the payload must be read before the next record, the decoding is left to the workers
+                            final WarcResponse r = new WarcResponse(location, http, readPayload(wrec.getPayloadContent(), http.getPayloadLength()));
+                            if (queue == null) {
+                                index(r);
+                            } else try {
+                                // a worker which stops the import does not take responses any more
+                                while (!abort && !queue.offer(r, 100, TimeUnit.MILLISECONDS)) {}
+                            } catch (final InterruptedException e) {
+                                abort = true; // the workers drop the queued responses
+                                throw new InterruptedIOException("WarcImporter interrupted");
                             }
-                            content = bbuffer.getBytes();
-                        } else {
-                            content = new byte[(int) http.getPayloadLength()];
-                            istream.read(content, 0, content.length);
                         }
-                        istream.close();
+                    }
+                }
+                this.consumed = localwarcReader.getConsumed();
+                wrec = localwarcReader.getNextRecord();
+            }
+        } finally {
+            localwarcReader.close();
+            if (service != null) {
+                if (abort) queue.clear();
+                try {
+                    for (int i = 0; i < this.workers; i++) queue.put(POISON);
+                    service.shutdown();
+                    service.awaitTermination(1, TimeUnit.HOURS);
+                } catch (final InterruptedException e) {
+                    service.shutdownNow();
+                }
+            }
+            ConcurrentLog.info("WarcImporter", "Indexed " + recordCnt + " documents, " + status());
+            job = null;
+        }
+    }
 
-                        RequestHeader requestHeader = new RequestHeader();
+    /**
+     * Read the payload of a record with bulk reads
+     * @param istream the payload stream, is closed by this method
+     * @param length the length of the payload or -1 if it is unknown
+     * @return the payload bytes
+     * @throws IOException
+     */
+    private static byte[] readPayload(final InputStream istream, final long length) throws IOException {
+        try {
+            if (length < 0 || length > Integer.MAX_VALUE) return FileUtils.read(istream);
+            final byte[] content = new byte[(int) length];
+            int n = 0;
+            while (n < content.length) {
+                final int c = istream.read(content, n, content.length - n);
+                if (c < 0) return Arrays.copyOf(content, n); // truncated record
+                n += c;
+            }
+            return content;
+        } finally {
+            istream.close();
+        }
+    }
 
-                        ResponseHeader responseHeader = new ResponseHeader(http.statusCode);
-                        for (HeaderLine hx : http.getHeaderList()) { // include all original response headers for parser
-                            responseHeader.put(hx.name, hx.value);
-                        }
+    /**
+     * Decode the payload of a response and add it to the indexing queue
+     * @param r a response from the archive
+     */
+    private void index(final WarcResponse r) {
+        final HttpHeader http = r.http;
+        byte[] content = r.payload;
+        final HeaderLine hl = http.getHeader(HeaderFramework.TRANSFER_ENCODING);
+        if (hl != null && hl.value.contains("chunked")) {
+            try {
+                content = FileUtils.read(new ChunkedInputStream(new ByteArrayInputStream(content)));
+            } catch (final IOException e) {
+                ConcurrentLog.warn("WarcImporter", "could not decode chunked content of " + r.location.toNormalform(true) + ": " + e.getMessage());
+                return;
+            }
+        }
 
-                        final Request request = new Request(
-                                ASCII.getBytes(Switchboard.getSwitchboard().peers.mySeed().hash),
-                                location,
-                                requestHeader.referer() == null ? null : requestHeader.referer().hash(),
-                                "warc",
-                                responseHeader.lastModified(),
-                                Switchboard.getSwitchboard().crawler.defaultSurrogateProfile.handle(),
-                                0,
-                                Switchboard.getSwitchboard().crawler.defaultSurrogateProfile.timezoneOffset());
-
-                        final Response response = new Response(
-                                request,
-                                requestHeader,
-                                responseHeader,
-                                Switchboard.getSwitchboard().crawler.defaultSurrogateProfile,
-                                false,
-                                content
-                        );
-
-                        Switchboard.getSwitchboard().toIndexer(response);
-                        recordCnt++;
-                    }
-                }
+        ResponseHeader responseHeader = new ResponseHeader(http.statusCode);
+        for (HeaderLine hx : http.getHeaderList()) { // include all original response headers for parser
+            responseHeader.put(hx.name, hx.value);
+        }
+
+        if (!toIndexer(r.location, responseHeader, content)) return;
+        recordCnt.incrementAndGet();
+        payloadBytes.addAndGet(content.length);
+    }
+
+    /**
+     * Add a decoded response to the indexing queue of the switchboard
+     * @param location the url of the response
+     * @param responseHeader the original response header
+     * @param content the decoded payload
+     * @return false if the import was stopped and the response is not indexed
+     */
+    protected boolean toIndexer(final DigestURL location, final ResponseHeader responseHeader, final byte[] content) {
+        RequestHeader requestHeader = new RequestHeader();
+
+        final Switchboard sb = Switchboard.getSwitchboard();
+        final Request request = new Request(
+                ASCII.getBytes(sb.peers.mySeed().hash),
+                location,
+                requestHeader.referer() == null ? null : requestHeader.referer().hash(),
+                "warc",
+                responseHeader.lastModified(),
+                sb.crawler.defaultSurrogateProfile.handle(),
+                0,
+                sb.crawler.defaultSurrogateProfile.timezoneOffset());
+
+        final Response response = new Response(
+                request,
+                requestHeader,
+                responseHeader,
+                sb.crawler.defaultSurrogateProfile,
+                false,
+                content
+        );
+
+        if (!awaitIndexingCapacity(sb.indexingDocumentProcessor)) return false;
+        sb.toIndexer(response);
+        return true;
+    }
+
+    /**
+     * Wait until the queue of the document parser is less than half full, so that the import does not
+     * block other processes which feed the indexer and does not keep more documents in memory than the
+     * parser can process.
+     * @param processor the document parser
+     * @return false if the import was stopped or the thread was interrupted while it was waiting
+     */
+    private boolean awaitIndexingCapacity(final WorkflowProcessor<IndexingQueueEntry> processor) {
+        final int limit = Math.max(1, processor.getMaxQueueSize() / 2);
+        while (!abort && processor.getQueueSize() >= limit) {
+            try {
+                Thread.sleep(10);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                quit();
+                return false;
             }
-            this.consumed = localwarcReader.getConsumed();
-            wrec = localwarcReader.getNextRecord();
         }
-        localwarcReader.close();
-        ConcurrentLog.info("WarcImporter", "Indexed " + recordCnt + " documents");
-        job = null;
+        return !abort;
     }
 
     @Override
@@ -211,7 +382,7 @@ public class WarcImporter extends Thread implements Importer {
      */
     @Override
     public int count() {
-        return this.recordCnt;
+        return this.recordCnt.get();
     }
 
     /**
@@ -220,8 +391,8 @@ public class WarcImporter extends Thread implements Importer {
      */
     @Override
     public int speed() {
-        if (this.recordCnt == 0) return 0;
-        return (int) (this.recordCnt / Math.max(0L, runningTime() ));
+        if (this.recordCnt.get() == 0) return 0;
+        return (int) (this.recordCnt.get() / Math.max(1L, runningTime() ));
     }
 
     /**
@@ -240,16 +411,25 @@ public class WarcImporter extends Thread implements Importer {
      */
     @Override
     public long remainingTime() {
-        if (this.consumed == 0) {
+        if (this.consumed == 0 || this.sourceSize < 0) {
             return 0;
         }
-		long speed = this.consumed / runningTime();
-		return (this.sourceSize - this.consumed) / speed;
+		long speed = Math.max(1L, this.consumed / Math.max(1L, runningTime()));
+		return Math.max(0L, this.sourceSize - this.consumed) / speed;
     }
 
+    /**
+     * @return the import speed in documents per second, the speed in MB per second of the archive
+     *   and of the indexed payloads, and the number of workers
+     */
     @Override
     public String status() {
-        return "";
+        final double seconds = Math.max(1L, System.currentTimeMillis() - this.startTime) / 1000.0d;
+        return String.format("%.1f docs/s, archive %.2f MB/s, payload %.2f MB/s, %d workers",
+                this.recordCnt.get() / seconds,
+                this.consumed / seconds / 1048576.0d,
+                this.payloadBytes.get() / seconds / 1048576.0d,
+                this.workers);
     }
 
 }
@@ -334,6 +334,11 @@ public class ContentScraper extends AbstractScraper implements Scraper {
         this.content.trimToSize();
     }
 
+    private static boolean hasAmpersand(final char[] text) {
+        for (final char c: text) if (c == '&') return true;
+        return false;
+    }
+
     @Override
     public void scrapeText(final char[] newtext0, final Tag insideTag) {
         if (insideTag != null) {
@@ -345,7 +350,8 @@ public class ContentScraper extends AbstractScraper implements Scraper {
 			}
         }
         int p, pl, q, s = 0;
-        char[] newtext = CharacterCoding.html2unicode(new String(newtext0)).toCharArray();
+        // only texts with an ampersand can contain html entities; the text is not modified below
+        final char[] newtext = hasAmpersand(newtext0) ? CharacterCoding.html2unicode(new String(newtext0)).toCharArray() : newtext0;
         
         // match evaluation pattern
         this.evaluationScores.match(Element.text, newtext);
@@ -0,0 +1,222 @@
+/**
+ *  TagAttributes
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.parser.html;
+
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import net.yacy.kelondro.io.CharBuffer;
+
+/**
+ * The attributes of a html tag, with the same content as the Properties produced by {@link CharBuffer#propParser()}.
+ * The attributes are kept as the characters of the tag and {@link #getProperty(String)} searches them without
+ * creating a String for each attribute. The Properties are only filled when they are accessed in any other way,
+ * i.e. when they are modified or enumerated.
+ */
+public class TagAttributes extends Properties {
+
+    private static final long serialVersionUID = 1L;
+
+    private final char[] chars;
+    private volatile boolean materialized;
+
+    /**
+     * @param chars the characters after the tag name
+     * @param offset the start of the attributes in chars
+     * @param length the length of the attributes
+     */
+    public TagAttributes(final char[] chars, final int offset, final int length) {
+        super();
+        this.chars = new char[length];
+        System.arraycopy(chars, offset, this.chars, 0, length);
+        this.materialized = false;
+    }
+
+    /**
+     * find the next attribute, with the same rules as {@link CharBuffer#propParser()}
+     * @param pos the position of the attribute, after white space
+     * @param bounds receives the start and end of the key and the trimmed value; the value start is -1 for an attribute without value
+     * @return the position of the next attribute or -1 if there is no more attribute; then the bounds are not valid
+     */
+    private int next(int pos, final int[] bounds) {
+        final char[] b = this.chars;
+        final int length = b.length;
+        if (pos >= length) return -1;
+        bounds[0] = pos;
+        while (pos < length && b[pos] != CharBuffer.equal && b[pos] > 32) pos++; // find = or whitespace
+        bounds[1] = pos;
+        while (pos < length && b[pos] != CharBuffer.equal && b[pos] <= 32) pos++; // eat up whitespace until = or next char found
+        if (pos >= length || b[pos] != CharBuffer.equal) { // attribute without value
+            bounds[2] = -1;
+            return pos;
+        }
+        pos++;
+        while (pos < length && b[pos] <= 32) pos++;
+        if (pos >= length) return -1; // the input ended too early
+        int start, end;
+        if (b[pos] == CharBuffer.doublequote || b[pos] == CharBuffer.singlequote) {
+            final char quote = b[pos++];
+            start = pos;
+            while (pos < length && b[pos] != quote) pos++;
+            if (pos >= length) return -1; // no closing quote
+            end = pos++;
+        } else {
+            start = pos;
+            while (pos < length && b[pos] > 32) pos++;
+            end = pos;
+        }
+        // trim the value
+        while (start < end && b[start] <= ' ') start++;
+        while (end > start && b[end - 1] <= ' ') end--;
+        bounds[2] = start;
+        bounds[3] = end;
+        while (pos < length && b[pos] <= 32) pos++;
+        return pos;
+    }
+
+    private static int skipSpace(final char[] b) {
+        int pos = 0;
+        while (pos < b.length && b[pos] <= 32) pos++;
+        return pos;
+    }
+
+    private boolean keyEquals(final int start, final int end, final String key) {
+        if (end - start != key.length()) return false;
+        for (int i = 0; i < key.length(); i++) {
+            if (Character.toLowerCase(this.chars[start + i]) != key.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private String value(final int[] bounds) {
+        return bounds[2] < 0 ? "" : new String(this.chars, bounds[2], bounds[3] - bounds[2]);
+    }
+
+    /**
+     * fill the properties with all attributes
+     */
+    private synchronized void materialize() {
+        if (this.materialized) return;
+        this.materialized = true;
+        final int[] bounds = new int[4];
+        int pos = skipSpace(this.chars);
+        while ((pos = next(pos, bounds)) >= 0) {
+            super.put(new String(this.chars, bounds[0], bounds[1] - bounds[0]).toLowerCase(), value(bounds));
+        }
+    }
+
+    /**
+     * @param key a lower case attribute name
+     * @return the value of the attribute or null if the tag has no such attribute
+     */
+    @Override
+    public String getProperty(final String key) {
+        if (this.materialized) return super.getProperty(key);
+        final int[] bounds = new int[4];
+        int pos = skipSpace(this.chars);
+        String value = null;
+        while ((pos = next(pos, bounds)) >= 0) {
+            if (keyEquals(bounds[0], bounds[1], key)) value = value(bounds); // the last attribute wins, as in the Properties
+        }
+        return value;
+    }
+
+    @Override
+    public String getProperty(final String key, final String defaultValue) {
+        final String value = getProperty(key);
+        return value == null ? defaultValue : value;
+    }
+
+    // all other methods work on the filled properties
+
+    @Override
+    public Object get(final Object key) {materialize(); return super.get(key);}
+    @Override
+    public Object put(final Object key, final Object value) {materialize(); return super.put(key, value);}
+    @Override
+    public Object setProperty(final String key, final String value) {materialize(); return super.setProperty(key, value);}
+    @Override
+    public Object remove(final Object key) {materialize(); return super.remove(key);}
+    @Override
+    public boolean remove(final Object key, final Object value) {materialize(); return super.remove(key, value);}
+    @Override
+    public void putAll(final Map<?, ?> t) {materialize(); super.putAll(t);}
+    @Override
+    public void clear() {materialize(); super.clear();}
+    @Override
+    public int size() {materialize(); return super.size();}
+    @Override
+    public boolean isEmpty() {materialize(); return super.isEmpty();}
+    @Override
+    public boolean contains(final Object value) {materialize(); return super.contains(value);}
+    @Override
+    public boolean containsValue(final Object value) {materialize(); return super.containsValue(value);}
+    @Override
+    public boolean containsKey(final Object key) {materialize(); return super.containsKey(key);}
+    @Override
+    public Enumeration<Object> keys() {materialize(); return super.keys();}
+    @Override
+    public Enumeration<Object> elements() {materialize(); return super.elements();}
+    @Override
+    public Set<Object> keySet() {materialize(); return super.keySet();}
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet() {materialize(); return super.entrySet();}
+    @Override
+    public Collection<Object> values() {materialize(); return super.values();}
+    @Override
+    public Enumeration<?> propertyNames() {materialize(); return super.propertyNames();}
+    @Override
+    public Set<String> stringPropertyNames() {materialize(); return super.stringPropertyNames();}
+    @Override
+    public Object getOrDefault(final Object key, final Object defaultValue) {materialize(); return super.getOrDefault(key, defaultValue);}
+    @Override
+    public void forEach(final BiConsumer<? super Object, ? super Object> action) {materialize(); super.forEach(action);}
+    @Override
+    public void replaceAll(final BiFunction<? super Object, ? super Object, ?> function) {materialize(); super.replaceAll(function);}
+    @Override
+    public Object putIfAbsent(final Object key, final Object value) {materialize(); return super.putIfAbsent(key, value);}
+    @Override
+    public boolean replace(final Object key, final Object oldValue, final Object newValue) {materialize(); return super.replace(key, oldValue, newValue);}
+    @Override
+    public Object replace(final Object key, final Object value) {materialize(); return super.replace(key, value);}
+    @Override
+    public Object computeIfAbsent(final Object key, final Function<? super Object, ?> mappingFunction) {materialize(); return super.computeIfAbsent(key, mappingFunction);}
+    @Override
+    public Object computeIfPresent(final Object key, final BiFunction<? super Object, ? super Object, ?> remappingFunction) {materialize(); return super.computeIfPresent(key, remappingFunction);}
+    @Override
+    public Object compute(final Object key, final BiFunction<? super Object, ? super Object, ?> remappingFunction) {materialize(); return super.compute(key, remappingFunction);}
+    @Override
+    public Object merge(final Object key, final Object value, final BiFunction<? super Object, ? super Object, ?> remappingFunction) {materialize(); return super.merge(key, value, remappingFunction);}
+    @Override
+    public Object clone() {materialize(); return super.clone();}
+    @Override
+    public String toString() {materialize(); return super.toString();}
+    @Override
+    public boolean equals(final Object o) {materialize(); return super.equals(o);}
+    @Override
+    public int hashCode() {materialize(); return super.hashCode();}
+}
@@ -36,12 +36,14 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.Stack;
-import net.yacy.document.parser.html.ContentScraper.TagName;
 
+import net.yacy.cora.storage.CharSliceMap;
+import net.yacy.document.parser.html.ContentScraper.TagName;
 import net.yacy.kelondro.io.CharBuffer;
 
 
@@ -54,6 +56,25 @@ public final class TransformerWriter extends Writer {
     public static final char singlequote = '\'';
     public static final char doublequote = '"';
 
+    private static final char[] EMPTY = new char[0];
+
+    /** tag names which are not created again for each tag in bulk mode; read-only after the class initialization */
+    private static final CharSliceMap<Object> TAG_NAMES = new CharSliceMap<>();
+    static {
+        for (final TagName tag: TagName.values()) {
+            final String name = tag.name();
+            TAG_NAMES.add(name.toCharArray(), 0, name.length());
+        }
+        for (final String name: new String[]{"!--", "!doctype", "abbr", "address", "aside", "audio", "blockquote",
+                "br", "button", "caption", "center", "cite", "code", "col", "colgroup", "del", "dl", "fieldset",
+                "figcaption", "figure", "font", "footer", "form", "g", "head", "header", "hr", "input", "ins", "label",
+                "legend", "main", "noscript", "object", "ol", "option", "p", "path", "picture", "pre", "q", "s",
+                "section", "select", "small", "strike", "sub", "sup", "svg", "table", "tbody", "td", "textarea",
+                "tfoot", "th", "thead", "tr", "ul", "video", "wbr"}) {
+            TAG_NAMES.add(name.toCharArray(), 0, name.length());
+        }
+    }
+
     private final OutputStream outStream;
     private OutputStreamWriter out;
     private CharBuffer buffer;
@@ -64,6 +85,8 @@ public final class TransformerWriter extends Writer {
     private boolean inComment;
     private boolean binaryUnsuspect;
     private final boolean passbyIfBinarySuspect;
+    private final boolean bulk;
+    private final char[] tagName; // buffer for the lower case tag name in bulk mode
     
     public TransformerWriter(
             final OutputStream outStream,
@@ -80,6 +103,27 @@ public final class TransformerWriter extends Writer {
             final Scraper scraper,
             final boolean passbyIfBinarySuspect,
             final int initialBufferSize
+    ) {
+        this(outStream, charSet, scraper, passbyIfBinarySuspect, initialBufferSize, false);
+    }
+
+    /**
+     * @param outStream the stream for the transformed content, may be null
+     * @param charSet the charset of the stream
+     * @param scraper the scraper which is called for the parsed text and tags, may be null
+     * @param passbyIfBinarySuspect when true, binary content is written to the output stream without parsing
+     * @param initialBufferSize the initial size of the token buffer
+     * @param bulk when true, the input chars are scanned in runs and tag names and attributes are not copied
+     *   into Strings and Properties unless they are used. The scraper is called with the same tags and texts
+     *   as in the character mode.
+     */
+    public TransformerWriter(
+            final OutputStream outStream,
+            final Charset charSet,
+            final Scraper scraper,
+            final boolean passbyIfBinarySuspect,
+            final int initialBufferSize,
+            final boolean bulk
     ) {
         this.outStream     = outStream;
         this.scraper       = scraper;
@@ -90,6 +134,8 @@ public final class TransformerWriter extends Writer {
         this.inComment     = false;
         this.binaryUnsuspect = true;
         this.passbyIfBinarySuspect = passbyIfBinarySuspect;
+        this.bulk = bulk;
+        this.tagName = bulk ? new char[32] : null;
 
         if (this.outStream != null) {
             this.out = new OutputStreamWriter(this.outStream,(charSet == null)?Charset.defaultCharset():charSet);
@@ -97,15 +143,19 @@ public final class TransformerWriter extends Writer {
     }
 
     public static char[] genTag0raw(final String tagname, final boolean opening, final char[] tagopts) {
-            final CharBuffer bb = new CharBuffer(ContentScraper.MAX_DOCSIZE, tagname.length() + tagopts.length + 3);
+            return genTag0raw(tagname, opening, tagopts, 0, tagopts.length);
+    }
+
+    private static char[] genTag0raw(final String tagname, final boolean opening, final char[] tagopts, final int start, final int end) {
+            final CharBuffer bb = new CharBuffer(ContentScraper.MAX_DOCSIZE, tagname.length() + end - start + 3);
             bb.append('<');
             if (!opening) {
                 bb.append('/');
             }
             bb.append(tagname);
-            if (tagopts.length > 0) {
+            if (end > start) {
 //              if (tagopts[0] == (byte) 32)
-                bb.append(tagopts);
+                bb.append(tagopts, start, end - start);
 //              else bb.append((byte) 32).append(tagopts);
             }
             bb.append('>');
@@ -186,6 +236,7 @@ public final class TransformerWriter extends Writer {
         if (in.length <= 2 || in[0] != lb) return filterTag(in); // this is a text
 
         // this is a tag
+        if (this.bulk) return bulkTokenProcessor(in, quotechar);
         String tag;
         int tagend;
         if (in[1] == '/') {
@@ -320,7 +371,12 @@ public final class TransformerWriter extends Writer {
         char[] ret;
         ContentScraper.Tag tag = this.tagStack.lastElement();
         if (this.scraper != null) this.scraper.scrapeTag1(tag);
-        ret = genTag1(tag.name, tag.opts, tag.content.getChars(), quotechar);
+        if (this.bulk && this.out == null && this.tagStack.size() == 1) {
+            // the generated tag would be neither written nor attached to a parent tag
+            ret = EMPTY;
+        } else {
+            ret = genTag1(tag.name, tag.opts, tag.content.getChars(), quotechar);
+        }
         if (this.scraper != null && this.scraper.isTag1(tag.name)) {
             // remove the tag from the stack as soon as the tag is processed
             this.tagStack.pop();
@@ -338,11 +394,95 @@ public final class TransformerWriter extends Writer {
         // it's our closing tag! return complete result.
         char[] ret;
         if (this.scraper != null) this.scraper.scrapeTag1(this.tagStack.lastElement());
+        if (this.bulk && this.out == null) {
+            this.tagStack.pop();
+            return EMPTY;
+        }
         ret = genTag1(this.tagStack.lastElement().name, this.tagStack.lastElement().opts, this.tagStack.lastElement().content.getChars(), quotechar);
         this.tagStack.pop();
         return ret;
     }
 
+    /**
+     * the tag processing of the bulk mode: the same as in tokenProcessor and the filterTag methods, but the tag
+     * name and attributes are taken from the token without copies and the raw tags are only generated if they
+     * are written or attached to a parent tag
+     * @param in a tag token
+     * @param quotechar
+     * @return a processed version of the token
+     */
+    private char[] bulkTokenProcessor(final char[] in, final char quotechar) {
+        final int contentEnd = in.length - 1;
+        if (in[1] == '/') {
+            // a closing tag
+            final int tagend = tagEnd(in, 2);
+            final String tagname = tagName(in, 2, tagend);
+            if (this.tagStack.size() == 0) {
+                // case (3): we ignore that thing and return it again
+                return this.out == null ? EMPTY : genTag0raw(tagname, false, in, tagend, contentEnd);
+            }
+            if (tagname.equals("!")) filterTag(Arrays.copyOfRange(in, tagend, contentEnd));
+            if (!tagname.equalsIgnoreCase(this.tagStack.lastElement().name)) {
+                // case (6): its a closing tag, but the wrong one. just add it.
+                this.tagStack.lastElement().content.append(genTag0raw(tagname, false, in, tagend, contentEnd));
+                return EMPTY;
+            }
+            return filterTagCloseing(quotechar);
+        }
+
+        // don't add text from within <script> section, here e.g. a "if 1<a" expression could confuse tag detection
+        if (this.tagStack.size() > 0 && this.tagStack.lastElement().name.equals(TagName.script.name())) {
+            return EMPTY;
+        }
+
+        // an opening tag
+        final int tagend = tagEnd(in, 1);
+        final String tagname = tagName(in, 1, tagend);
+        if (this.tagStack.size() == 0) {
+            // case (2)
+            return bulkTagOpening(tagname, in, tagend, contentEnd);
+        }
+        if (tagname.equals("!")) filterTag(Arrays.copyOfRange(in, tagend, contentEnd));
+        // case (5): the opening should not be here. But we keep the order anyway
+        this.tagStack.lastElement().content.append(bulkTagOpening(tagname, in, tagend, contentEnd));
+        return EMPTY;
+    }
+
+    private char[] bulkTagOpening(final String tagname, final char[] in, final int start, final int end) {
+        final ContentScraper.Tag tag = new ContentScraper.Tag(tagname, new TagAttributes(in, start, end - start));
+        final ContentScraper.Tag parentTag = this.tagStack.size() > 0 ? this.tagStack.lastElement() : null;
+
+        if (this.scraper != null) {
+            /* Check scraper ignoring rules */
+            if (this.scraper.shouldIgnoreTag(tag, parentTag)) tag.setIgnore(true);
+            /* Apply processing relevant for any kind of tag opening */
+            this.scraper.scrapeAnyTagOpening(tag);
+            // this single tag is collected at once here
+            if (this.scraper.isTag0(tagname)) this.scraper.scrapeTag0(tag);
+            if (this.scraper.isTag1(tagname)) {
+                // ok, start collecting; we don't push this here to the scraper or transformer; we do that when the tag is closed.
+                this.tagStack.push(tag);
+                return EMPTY;
+            }
+        }
+        // we ignore that thing and return it again
+        return this.out == null && parentTag == null ? EMPTY : genTag0raw(tagname, true, in, start, end);
+    }
+
+    /**
+     * @return the lower case tag name; the names of known tags are not created again
+     */
+    private String tagName(final char[] in, final int start, final int end) {
+        final int length = end - start;
+        if (length > this.tagName.length) return new String(in, start, length).toLowerCase(Locale.ROOT);
+        for (int i = 0; i < length; i++) {
+            final char c = in[start + i];
+            this.tagName[i] = (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c; // tagEnd only accepts ASCII characters
+        }
+        final int i = TAG_NAMES.index(this.tagName, 0, length);
+        return i >= 0 ? TAG_NAMES.key(i) : new String(this.tagName, 0, length);
+    }
+
     private static int tagEnd(final char[] tag, final int start) {
         char c;
         for (int i = start; i < tag.length; i++) {
@@ -479,7 +619,55 @@ public final class TransformerWriter extends Writer {
     public void write(final char b[], final int off, final int len) throws IOException {
 //      System.out.println(UTF8.String(b, off, len));
         if ((off | len | (b.length - (len + off)) | (off + len)) < 0) throw new IndexOutOfBoundsException();
-        for (int i = off ; i < (len - off) ; i++) this.write(b[i]);
+        if (this.bulk) {
+            bulkWrite(b, off, off + len);
+            return;
+        }
+        for (int i = off ; i < off + len ; i++) this.write(b[i]);
+    }
+
+    /**
+     * The bulk mode of write(char[], int, int): runs of characters which do not change the state of the tokenizer
+     * are appended to the token buffer at once; all other characters are processed by write(int).
+     */
+    private void bulkWrite(final char[] b, final int off, final int end) throws IOException {
+        int i = off;
+        while (i < end) {
+            if (!this.binaryUnsuspect && this.passbyIfBinarySuspect) {
+                this.write(b[i++]);
+                continue;
+            }
+            // the characters which end a run in the current state
+            final char stop1, stop2;
+            final boolean inTag;
+            if (this.inSingleQuote) {
+                stop1 = singlequote; stop2 = rb; inTag = false;
+            } else if (this.inDoubleQuote) {
+                stop1 = doublequote; stop2 = rb; inTag = false;
+            } else if (this.inComment) {
+                stop1 = rb; stop2 = rb; inTag = false;
+            } else if (this.buffer.isEmpty()) {
+                this.write(b[i++]);
+                continue;
+            } else if (this.buffer.charAt(0) == lb) {
+                stop1 = lb; stop2 = rb; inTag = true;
+            } else {
+                stop1 = lb; stop2 = lb; inTag = false;
+            }
+            int j = i;
+            while (j < end) {
+                final char c = b[j];
+                if (c == stop1 || c == stop2) break;
+                if (inTag && (c == singlequote || c == doublequote || c == dash)) break;
+                if (c < ' ' && this.binaryUnsuspect && binaryHint(c)) break;
+                j++;
+            }
+            if (j > i) {
+                this.buffer.append(b, i, j - i);
+                i = j;
+            }
+            if (i < end) this.write(b[i++]);
+        }
     }
 
     @Override
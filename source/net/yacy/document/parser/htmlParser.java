@@ -65,6 +65,9 @@ public class htmlParser extends AbstractParser implements Parser {
 	/** The default maximum number of links (other than a, area, and canonical and stylesheet links) to add to a parsed document */
     private static final int DEFAULT_MAX_LINKS = 10000;
 
+    /** when true, the html is scraped with the bulk mode of the TransformerWriter */
+    public static boolean bulkScraper = true;
+
     public htmlParser() {
         super("Streaming HTML Parser");
         this.SUPPORTED_EXTENSIONS.add("htm");
@@ -312,7 +315,7 @@ public class htmlParser extends AbstractParser implements Parser {
         // parsing the content
         // for this static method no need to init local this.scraperObject here
         final ContentScraper scraper = new ContentScraper(location, maxAnchors, maxLinks, ignore_class_name, vocabularyScraper, timezoneOffset);
-        final TransformerWriter writer = new TransformerWriter(null, null, scraper, false, Math.max(64, Math.min(4096, sourceStream.available())));
+        final TransformerWriter writer = new TransformerWriter(null, null, scraper, false, Math.max(64, Math.min(4096, sourceStream.available())), bulkScraper);
         try {
         	final long maxChars = (long)(maxBytes * detectedcharsetcontainer[0].newDecoder().averageCharsPerByte());
         	final Reader sourceReader = new InputStreamReader(sourceStream, detectedcharsetcontainer[0]);
@@ -0,0 +1,271 @@
+/**
+ *  TransferIndexServlet
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.http.servlets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.util.Streams;
+
+import net.yacy.cora.date.GenericFormatter;
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.feed.RSSMessage;
+import net.yacy.cora.protocol.HeaderFramework;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.Memory;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.crawler.data.ResultURLs;
+import net.yacy.crawler.data.ResultURLs.EventOrigin;
+import net.yacy.kelondro.data.meta.URIMetadataNode;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.index.RowHandleSet;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.peers.EventChannel;
+import net.yacy.peers.IndexTransferCodec;
+import net.yacy.peers.Network;
+import net.yacy.peers.Protocol;
+import net.yacy.peers.Seed;
+import net.yacy.repository.Blacklist.BlacklistType;
+import net.yacy.search.Switchboard;
+import net.yacy.search.SwitchboardConstants;
+import net.yacy.server.serverObjects;
+
+/**
+ * Receives the binary index transfer of the DHT distribution, which replaces the requests to
+ * /yacy/transferRWI.html and /yacy/transferURL.html for peers with the flag for binary index transfer.
+ * The request is a multipart post with the standard identification parts followed by the part "index",
+ * which is a stream in the format of {@link IndexTransferCodec}. The stream is decoded while it is received.
+ * The response has the same lines as the response of transferRWI: the result, the unknown urls and a pause.
+ * The line "accepted" counts the stored references; if the stream breaks, the result is
+ * {@link IndexTransferCodec#RESULT_DECODE_ERROR} and the references decoded before are kept.
+ */
+public class TransferIndexServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 3405749236483214862L;
+
+    /** urls which are not fresher than this date are rejected as in /yacy/transferURL.html */
+    private static final long FRESHDATE;
+    static {
+        long freshdate = 0;
+        try {freshdate = GenericFormatter.SHORT_DAY_FORMATTER.parse("20061101", 0).getTime().getTime();} catch (final ParseException e) {}
+        FRESHDATE = freshdate;
+    }
+
+    @Override
+    protected void doPost(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+        final Switchboard sb = Switchboard.getSwitchboard();
+
+        // remember the peer contact for peer statistics
+        final String clientip = request.getRemoteAddr();
+        final String userAgent = request.getHeader(HeaderFramework.USER_AGENT);
+        if (clientip != null) sb.peers.peerActions.setUserAgent(clientip, userAgent == null ? "<unknown>" : userAgent);
+
+        final serverObjects post = new serverObjects();
+        final StringBuilder unknownURLs = new StringBuilder();
+        String result = "missing index";
+        int pause = 60000;
+        final int[] accepted = new int[1];
+        if (ServletFileUpload.isMultipartContent(request)) try {
+            final FileItemIterator items = new ServletFileUpload().getItemIterator(request);
+            while (items.hasNext()) {
+                final FileItemStream item = items.next();
+                if (item.isFormField()) {
+                    post.put(item.getFieldName(), Streams.asString(item.openStream(), StandardCharsets.UTF_8.name()));
+                    continue;
+                }
+                if (!"index".equals(item.getFieldName())) continue;
+                final String iam = post.get("iam", "");
+                final Seed otherPeer = sb.peers.get(iam);
+                final String otherPeerName = iam + ":" + ((otherPeer == null) ? "NULL" : (otherPeer.getName() + "/" + otherPeer.getVersion()));
+                final double load = Memory.load();
+                final float maxload = sb.getConfigFloat(SwitchboardConstants.INDEX_DIST_LOADPREREQ, 2.0f);
+                if (!Protocol.authentifyRequest(post, sb)) {
+                    result = "not authentified";
+                } else if (load > maxload || MemoryControl.shortStatus()) {
+                    sb.getLog().info("Rejecting index from peer " + otherPeerName + ", system has too high load = " + load + ", maxload = " + maxload);
+                    result = "not_granted";
+                    pause = (int) (load * 20000);
+                } else if (!post.get("youare", "").equals(sb.peers.mySeed().hash)) {
+                    sb.getLog().info("Rejecting index from peer " + otherPeerName + ". Wrong target. Wanted peer=" + post.get("youare", "") + ", iam=" + sb.peers.mySeed().hash);
+                    result = "wrong_target";
+                    pause = 0;
+                } else if (otherPeer == null || !sb.getConfigBool(SwitchboardConstants.INDEX_RECEIVE_ALLOW, false) || sb.isRobinsonMode()) {
+                    sb.getLog().info("Rejecting index from peer " + otherPeerName + ". Not granted.");
+                    result = "not_granted";
+                } else if (sb.index.RWIBufferCount() > sb.getConfigLong(SwitchboardConstants.WORDCACHE_MAX_COUNT, 100000)) {
+                    sb.getLog().info("Rejecting index from peer " + otherPeerName + ". We are too busy (buffersize=" + sb.index.RWIBufferCount() + ").");
+                    result = "busy";
+                } else {
+                    try (final InputStream in = item.openStream()) {
+                        pause = receive(sb, otherPeer, otherPeerName, in, unknownURLs, accepted);
+                        result = "ok";
+                    } catch (final IOException e) {
+                        Network.log.warn("transferIndex: broken index from peer " + otherPeerName + " after " + accepted[0] + " references: " + e.getMessage());
+                        result = IndexTransferCodec.RESULT_DECODE_ERROR;
+                    } catch (final SpaceExceededException e) {
+                        Network.log.warn("transferIndex: no space for the index from peer " + otherPeerName + ": " + e.getMessage());
+                        result = "error: " + e.getMessage();
+                    }
+                }
+                break;
+            }
+        } catch (final FileUploadException e) {
+            throw new IOException(e.getMessage());
+        }
+
+        response.setContentType("text/plain");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        final PrintWriter writer = response.getWriter();
+        writer.print("unknownURL=" + unknownURLs.toString() + "\r\n");
+        writer.print("result=" + result + "\r\n");
+        writer.print("pause=" + pause + "\r\n");
+        writer.print("accepted=" + accepted[0] + "\r\n");
+        writer.flush();
+    }
+
+    /**
+     * store the references and the url metadata of a binary index transfer
+     * @param unknownURLs the hashes of referenced urls which are still unknown are appended, separated by comma
+     * @param accepted the number of stored references is counted in the first element, also if the stream breaks
+     * @return the pause that the other peer shall wait until the next transfer
+     * @throws IOException if the stream cannot be decoded
+     */
+    private static int receive(final Switchboard sb, final Seed otherPeer, final String otherPeerName, final InputStream in,
+            final StringBuilder unknownURLs, final int[] accepted) throws IOException, SpaceExceededException {
+        final long startProcess = System.currentTimeMillis();
+        final boolean blockBlacklist = sb.getConfigBool(SwitchboardConstants.INDEX_RECEIVE_BLOCK_BLACKLIST, false);
+        final IndexTransferCodec.Reader reader = new IndexTransferCodec.Reader(in);
+
+        // store the references
+        final Set<String> testids = new HashSet<String>();
+        final List<String> wordhashes = new ArrayList<String>();
+        int received = 0, blocked = 0;
+        ReferenceContainer<WordReference> container;
+        while ((container = reader.next()) != null) {
+            // reject containers with hashes of peers which send [B@... hashes
+            if (ASCII.String(container.getTermHash()).indexOf("[B@") >= 0) {
+                blocked += container.size();
+                continue;
+            }
+            final RowHandleSet blockedURLs = new RowHandleSet(Word.commonHashLength, Word.commonHashOrder, 0);
+            final Iterator<WordReference> i = container.entries();
+            while (i.hasNext()) {
+                final byte[] urlHash = i.next().urlhash();
+
+                // block malformed and blacklisted entries and entries which are not in our network domain
+                if (ASCII.String(urlHash).indexOf("[B@") >= 0 ||
+                    (blockBlacklist && Switchboard.urlBlacklist.hashInBlacklistedCache(BlacklistType.DHT, urlHash)) ||
+                    sb.crawlStacker.urlInAcceptedDomainHash(urlHash) != null) {
+                    blockedURLs.put(urlHash);
+                    continue;
+                }
+                testids.add(ASCII.String(urlHash));
+            }
+            blocked += container.removeEntries(blockedURLs);
+            if (container.isEmpty()) continue;
+            sb.index.storeRWI(container);
+            wordhashes.add(ASCII.String(container.getTermHash()));
+            received += container.size();
+            accepted[0] = received;
+        }
+        sb.peers.mySeed().incRI(received);
+
+        // store the metadata of urls which we do not know
+        final Set<String> stored = new HashSet<String>();
+        int receivedURLs = 0, blockedURLs = 0;
+        String properties;
+        while ((properties = reader.nextMetadata()) != null) {
+            if (properties.indexOf("[B@") >= 0) {
+                blockedURLs++;
+                continue;
+            }
+            final URIMetadataNode entry = URIMetadataNode.importEntry(properties, "dht");
+            if (entry == null || entry.url() == null) {
+                blockedURLs++;
+                continue;
+            }
+
+            // check whether entry is too old
+            if (entry.freshdate().getTime() <= FRESHDATE) {
+                blockedURLs++;
+                continue;
+            }
+            final String id = ASCII.String(entry.hash());
+            if (!testids.contains(id) ||
+                (blockBlacklist && Switchboard.urlBlacklist.isListed(BlacklistType.DHT, entry.url())) ||
+                sb.crawlStacker.urlInAcceptedDomain(entry.url()) != null) {
+                blockedURLs++;
+                continue;
+            }
+            try {
+                if (sb.index.getLoadTime(id) >= 0) continue;
+                sb.index.fulltext().putMetadata(entry);
+                ResultURLs.stack(id, entry.url().getHost(), otherPeer.hash.getBytes(), otherPeer.hash.getBytes(), EventOrigin.DHT_TRANSFER);
+                stored.add(id);
+                receivedURLs++;
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+            }
+        }
+        reader.close();
+        sb.peers.mySeed().incRU(receivedURLs);
+
+        // compose the list of urls which are still unknown
+        int unknown = 0;
+        for (final String id: testids) {
+            if (stored.contains(id)) continue;
+            try {
+                if (sb.index.fulltext().getLoadTime(id) >= 0) continue;
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+            }
+            if (unknown++ > 0) unknownURLs.append(',');
+            unknownURLs.append(id);
+        }
+
+        final String message = "Received " + received + " RWIs, " + wordhashes.size() + " Words and " + receivedURLs + " URLs from " + otherPeerName +
+                ", processed in " + (System.currentTimeMillis() - startProcess) + " milliseconds, blocked " + blocked + " RWIs and " + blockedURLs +
+                " URLs, requesting " + unknown + "/" + received + " URLs";
+        sb.getLog().info(message);
+        if (received > 0) EventChannel.channels(EventChannel.DHTRECEIVE).addMessage(new RSSMessage(message, "", otherPeer.hash));
+
+        return (int) (sb.index.RWIBufferCount() * 20000 / sb.getConfigLong(SwitchboardConstants.WORDCACHE_MAX_COUNT, 100000)); // estimation of necessary pause time
+    }
+}
@@ -93,6 +93,7 @@ import net.yacy.server.serverObjects;
 import net.yacy.server.serverSwitch;
 import net.yacy.server.servletProperties;
 import net.yacy.server.http.HTTPDFileHandler;
+import net.yacy.server.http.CompiledTemplate;
 import net.yacy.server.http.TemplateEngine;
 import net.yacy.visualization.RasterPlotter;
 
@@ -1060,6 +1061,23 @@ public class YaCyDefaultServlet extends HttpServlet  {
                 InputStream fis;
                 long fileSize = targetFile.length();
 
+                if (sb.getConfigBool(SwitchboardConstants.SERVER_TEMPLATES_COMPILED, SwitchboardConstants.SERVER_TEMPLATES_COMPILED_DEFAULT)
+                        && fileSize <= Math.min(4 * 1024 * 1204, MemoryControl.available() / 100)) {
+                    // use the parsed template from the cache
+                    final CompiledTemplate template = CompiledTemplate.get(targetFile);
+                    response.setContentType(mimeType);
+                    response.setStatus(HttpServletResponse.SC_OK);
+                    if (template.hasSSI(templatePatterns)) {
+                        ByteArrayOutputStream bas = new ByteArrayOutputStream(4096);
+                        template.write(bas, templatePatterns);
+                        parseSSI(bas.toByteArray(), request, response);
+                    } else {
+                        // without server side includes the template is written directly to the client
+                        template.write(response.getOutputStream(), templatePatterns);
+                    }
+                    return;
+                }
+
                 if (fileSize <= Math.min(4 * 1024 * 1204, MemoryControl.available() / 100)) {
                     // read file completely into ram, avoid that too many files are open at the same time
                     fis = new ByteArrayInputStream(FileUtils.read(targetFile));
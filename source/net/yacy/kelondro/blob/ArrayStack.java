@@ -30,11 +30,16 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.text.ParseException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
@@ -49,6 +54,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.yacy.cora.date.GenericFormatter;
 import net.yacy.cora.document.encoding.ASCII;
@@ -59,6 +65,8 @@ import net.yacy.cora.order.NaturalOrder;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.LookAheadIterator;
 import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.PostingBlocks;
+import net.yacy.kelondro.index.RowSet;
 import net.yacy.kelondro.rwi.Reference;
 import net.yacy.kelondro.rwi.ReferenceContainer;
 import net.yacy.kelondro.rwi.ReferenceFactory;
@@ -98,6 +106,9 @@ public class ArrayStack implements BLOB {
     private final String         prefix;
     private final int            buffersize;
     private final boolean        trimall;
+    private final boolean        mappedRead;
+    private volatile boolean     keyFilter;   // if true, BLOB files which are not written any more get a membership filter for their keys
+    private       long           lastNewBLOB; // the time of the latest generated BLOB file name
 
     /** the thread pool for the keeperOf executor service */
     private final ExecutorService executor;
@@ -114,6 +125,30 @@ public class ArrayStack implements BLOB {
             final int buffersize,
             final boolean trimall,
             final boolean deleteonfail) throws IOException {
+        this(heapLocation, prefix, ordering, keylength, buffersize, trimall, deleteonfail, false);
+    }
+
+    /**
+     * open an array of heap files
+     * @param heapLocation the directory of the heap files
+     * @param prefix the file name prefix of the heap files
+     * @param ordering
+     * @param keylength
+     * @param buffersize the write buffer of the topmost heap
+     * @param trimall if true, no heap is opened for writing
+     * @param deleteonfail if true, heap files which cannot be opened are deleted
+     * @param mappedRead if true, heaps which are not written any more are memory-mapped and read without locking
+     * @throws IOException
+     */
+    public ArrayStack(
+            final File heapLocation,
+            final String prefix,
+            final ByteOrder ordering,
+            final int keylength,
+            final int buffersize,
+            final boolean trimall,
+            final boolean deleteonfail,
+            final boolean mappedRead) throws IOException {
         this.keylength = keylength;
         this.prefix = prefix;
         this.ordering = ordering;
@@ -124,6 +159,8 @@ public class ArrayStack implements BLOB {
         this.repositoryAgeMax = Long.MAX_VALUE;
         this.repositorySizeMax = Long.MAX_VALUE;
         this.trimall = trimall;
+        this.mappedRead = mappedRead;
+        this.keyFilter = false;
 
         // init the thread pool for the keeperOf executor service
         this.executor = new ThreadPoolExecutor(
@@ -152,13 +189,20 @@ public class ArrayStack implements BLOB {
                 FileUtils.deletedelete(new File(heapLocation, file));
                 deletions = true;
             }
-            if (file.endsWith(".idx") || file.endsWith(".gap")) {
+            if (file.endsWith(".idx") || file.endsWith(".gap") || file.endsWith(".ohi")) {
                 final String s = file.substring(0, file.length() - 17);
                 if (!fh.contains(s)) {
                     FileUtils.deletedelete(new File(heapLocation, file));
                     deletions = true;
                 }
             }
+            if (file.endsWith(".bloom")) {
+                final String s = file.substring(0, file.length() - 19);
+                if (!fh.contains(s)) {
+                    FileUtils.deletedelete(new File(heapLocation, file));
+                    deletions = true;
+                }
+            }
         }
         if (deletions) files = heapLocation.list(); // make a fresh list
         // migrate old file names
@@ -206,7 +250,7 @@ public class ArrayStack implements BLOB {
                        if (time == maxtime && !trimall) {
                            oneBlob = new Heap(f, keylength, ordering, buffersize);
                        } else {
-                           oneBlob = new HeapModifier(f, keylength, ordering);
+                           oneBlob = new HeapModifier(f, keylength, ordering, mappedRead);
                            oneBlob.optimize(); // no writings here, can be used with minimum memory
                        }
                        sortedItems.put(Long.valueOf(time), new blobItem(d, f, oneBlob));
@@ -261,12 +305,27 @@ public class ArrayStack implements BLOB {
         if (full && this.buffersize > 0 && !this.trimall) {
             oneBlob = new Heap(location, this.keylength, this.ordering, this.buffersize);
         } else {
-            oneBlob = new HeapModifier(location, this.keylength, this.ordering);
+            oneBlob = new HeapModifier(location, this.keylength, this.ordering, this.mappedRead);
             oneBlob.optimize();
+            if (this.keyFilter) ((HeapModifier) oneBlob).useKeyFilter();
         }
         this.blobs.add(new blobItem(d, location, oneBlob));
     }
 
+    /**
+     * switch the membership filters for the keys of the BLOB files on or off.
+     * Only BLOB files without write buffer get a filter, because the filter cannot learn new keys;
+     * a merged BLOB file gets its filter when it is mounted.
+     * @param keyFilter
+     */
+    public synchronized void setKeyFilter(final boolean keyFilter) {
+        this.keyFilter = keyFilter;
+        for (final blobItem bi: this.blobs) {
+            if (!(bi.blob instanceof HeapModifier) || bi.blob instanceof Heap) continue;
+            if (keyFilter) ((HeapModifier) bi.blob).useKeyFilter(); else ((HeapModifier) bi.blob).dropKeyFilter();
+        }
+    }
+
     private synchronized void unmountBLOB(final File location, final boolean writeIDX) {
         blobItem b;
         for (int i = 0; i < this.blobs.size(); i++) {
@@ -370,6 +429,76 @@ public class ArrayStack implements BLOB {
         return unmount(idx);
     }
 
+    /**
+     * unmount a group of files for a size-tiered merge. Files of similar size form a tier: the largest
+     * file of a tier is at most twice as large as the smallest one; all files below the given minimum
+     * size belong to the same tier. The group of the smallest tier which has enough files is unmounted.
+     * @param minWidth the minimum number of files of a group
+     * @param maxWidth the maximum number of files of a group
+     * @param minSize files up to this size are treated as one tier
+     * @param maxResultSize the maximum sum of the file sizes of a group
+     * @return the unmounted files, the oldest first, or null if there is no tier with enough files
+     */
+    public synchronized File[] unmountTier(final int minWidth, final int maxWidth, final long minSize, final long maxResultSize) {
+        if (this.blobs.size() < Math.max(2, minWidth)) return null;
+        final List<File> sorted = new ArrayList<File>(this.blobs.size());
+        for (final blobItem b: this.blobs) sorted.add(b.location);
+        sorted.sort((f0, f1) -> Long.compare(f0.length(), f1.length()));
+        for (int i = 0; i <= sorted.size() - minWidth; i++) {
+            final long tierLimit = Math.max(minSize, 2 * sorted.get(i).length());
+            final List<File> group = new ArrayList<File>(maxWidth);
+            long sum = 0;
+            for (int j = i; j < sorted.size() && group.size() < maxWidth; j++) {
+                final long l = sorted.get(j).length();
+                if (l > tierLimit || sum + l > maxResultSize) break;
+                group.add(sorted.get(j));
+                sum += l;
+            }
+            if (group.size() >= minWidth) return unmountGroup(group);
+        }
+        return null;
+    }
+
+    /**
+     * unmount a group of files for a leveled merge. All files below the level size form the first level;
+     * when there are enough of them, they are merged together with the smallest larger file, so that few
+     * and large files are kept. This costs more writing than a size-tiered merge but less reading on lookups.
+     * @param minWidth the minimum number of files in the first level before they are merged
+     * @param maxWidth the maximum number of files of a group
+     * @param levelSize the size limit of files in the first level
+     * @param maxResultSize the maximum sum of the file sizes of a group
+     * @return the unmounted files, the oldest first, or null if the first level has not enough files
+     */
+    public synchronized File[] unmountLevel(final int minWidth, final int maxWidth, final long levelSize, final long maxResultSize) {
+        if (this.blobs.size() < 2) return null;
+        final List<File> group = new ArrayList<File>(maxWidth);
+        File next = null;
+        long sum = 0;
+        for (final blobItem b: this.blobs) {
+            final long l = b.location.length();
+            if (l < levelSize) {
+                if (group.size() < maxWidth - 1 && sum + l <= maxResultSize) {
+                    group.add(b.location);
+                    sum += l;
+                }
+            } else if (next == null || l < next.length()) {
+                next = b.location;
+            }
+        }
+        if (group.size() < Math.max(2, minWidth) && sum < levelSize) return null;
+        if (next != null && sum + next.length() <= maxResultSize) group.add(next);
+        if (group.size() < 2) return null;
+        return unmountGroup(group);
+    }
+
+    private File[] unmountGroup(final List<File> group) {
+        // unmount in the order of the array, so that the oldest file is first
+        final List<File> files = new ArrayList<File>(group.size());
+        for (final blobItem b: this.blobs) if (group.contains(b.location)) files.add(b.location);
+        for (final File f: files) unmountBLOB(f, false);
+        return files.toArray(new File[files.size()]);
+    }
+
     /**
      * return the number of BLOB files in this array
      * @return
@@ -381,12 +510,15 @@ public class ArrayStack implements BLOB {
     /**
      * generate a new BLOB file name with a given date.
      * This method is needed to generate a file name that matches to the name structure that is needed for parts of the array
+     * Names are unique: if several names are requested within the same millisecond, the time is moved forward.
      * @param creation
      * @return
      */
     public synchronized File newBLOB(final Date creation) {
         //return new File(heapLocation, DateFormatter.formatShortSecond(creation) + "." + blobSalt + ".blob");
-        return new File(this.heapLocation, this.prefix + "." + my_SHORT_MILSEC_FORMATTER.format(creation) + ".blob");
+        final long time = Math.max(creation.getTime(), this.lastNewBLOB + 1);
+        this.lastNewBLOB = time;
+        return new File(this.heapLocation, this.prefix + "." + my_SHORT_MILSEC_FORMATTER.format(new Date(time)) + ".blob");
     }
 
     @Override
@@ -446,6 +578,11 @@ public class ArrayStack implements BLOB {
         Date creation;
         File location;
         BLOB blob;
+        // lookup statistics for this BLOB file
+        final AtomicLong lookups = new AtomicLong(0);
+        final AtomicLong lookupTime = new AtomicLong(0); // nanoseconds
+        final AtomicLong lookupMaxTime = new AtomicLong(0); // nanoseconds
+        final AtomicLong lookupTimeouts = new AtomicLong(0);
         public blobItem(final Date creation, final File location, final BLOB blob) {
             assert blob != null;
             this.creation = creation;
@@ -458,6 +595,98 @@ public class ArrayStack implements BLOB {
             this.location = newBLOB(this.creation);
             this.blob = (buffer == 0) ? new HeapModifier(this.location, ArrayStack.this.keylength, ArrayStack.this.ordering) : new Heap(this.location, ArrayStack.this.keylength, ArrayStack.this.ordering, buffer);
         }
+        private boolean mightContain(final byte[] key) {
+            // a BLOB without filter may contain anything
+            return !(this.blob instanceof HeapReader) || ((HeapReader) this.blob).mightContainKey(key);
+        }
+        private void countLookup(final long time) {
+            this.lookups.incrementAndGet();
+            this.lookupTime.addAndGet(time);
+            long max;
+            while ((max = this.lookupMaxTime.get()) < time && !this.lookupMaxTime.compareAndSet(max, time)) {}
+        }
+    }
+
+    /**
+     * lookup statistics of a single BLOB file in the array
+     */
+    public static class GenerationStatistics {
+        private final String name;
+        private final int size;
+        private final long lookups, lookupTime, lookupMaxTime, lookupTimeouts;
+        private final boolean filter;
+        private final long filterHits, filterFalsePositives;
+
+        private GenerationStatistics(final blobItem item) {
+            this.name = item.location == null ? "" : item.location.getName();
+            final BLOB blob = item.blob;
+            this.size = blob == null ? 0 : blob.size();
+            this.lookups = item.lookups.get();
+            this.lookupTime = item.lookupTime.get();
+            this.lookupMaxTime = item.lookupMaxTime.get();
+            this.lookupTimeouts = item.lookupTimeouts.get();
+            final HeapReader heap = blob instanceof HeapReader ? (HeapReader) blob : null;
+            this.filter = heap != null && heap.hasKeyFilter();
+            this.filterHits = heap == null ? 0 : heap.getFilterHits();
+            this.filterFalsePositives = heap == null ? 0 : heap.getFilterFalsePositives();
+        }
+
+        /** @return the file name of the BLOB */
+        public String getName() {
+            return this.name;
+        }
+
+        /** @return the number of entries in the BLOB */
+        public int getSize() {
+            return this.size;
+        }
+
+        /** @return the number of finished lookups in the BLOB */
+        public long getLookups() {
+            return this.lookups;
+        }
+
+        /** @return the average time of a lookup in milliseconds */
+        public double getAverageLookupTime() {
+            return this.lookups == 0 ? 0.0d : this.lookupTime / 1000000.0d / this.lookups;
+        }
+
+        /** @return the longest time of a lookup in milliseconds */
+        public double getMaxLookupTime() {
+            return this.lookupMaxTime / 1000000.0d;
+        }
+
+        /** @return the number of concurrent lookups which were cancelled because the time budget was exhausted */
+        public long getLookupTimeouts() {
+            return this.lookupTimeouts;
+        }
+
+        /** @return true if the BLOB has a membership filter for its keys */
+        public boolean hasFilter() {
+            return this.filter;
+        }
+
+        /** @return the number of lookups where the filter ruled out the BLOB */
+        public long getFilterHits() {
+            return this.filterHits;
+        }
+
+        /** @return the number of lookups which passed the filter but did not find the key in the BLOB */
+        public long getFilterFalsePositives() {
+            return this.filterFalsePositives;
+        }
+    }
+
+    /**
+     * get the lookup statistics of all BLOB files, the oldest file first
+     * @return a list of statistics, one for each BLOB file
+     */
+    public List<GenerationStatistics> generationStatistics() {
+        final List<blobItem> items = this.blobs;
+        if (items == null) return new ArrayList<GenerationStatistics>(0);
+        final List<GenerationStatistics> stats = new ArrayList<GenerationStatistics>(items.size());
+        for (final blobItem bi: items) stats.add(new GenerationStatistics(bi));
+        return stats;
     }
 
     /**
@@ -554,9 +783,12 @@ public class ArrayStack implements BLOB {
      * @throws IOException
      */
     @Override
-    public synchronized boolean containsKey(final byte[] key) {
-    	final blobItem bi = keeperOf(key);
-    	return bi != null;
+    public boolean containsKey(final byte[] key) {
+        // mapped heaps answer without locking; don't serialize them here
+        if (this.mappedRead) return keeperOf(key) != null;
+        synchronized (this) {
+            return keeperOf(key) != null;
+        }
         //for (blobItem bi: blobs) if (bi.blob.has(key)) return true;
         //return false;
     }
@@ -568,20 +800,24 @@ public class ArrayStack implements BLOB {
      * @return the blobItem that holds the key or null if no blobItem is found
      */
     private blobItem keeperOf(final byte[] key) {
-        if (this.blobs.isEmpty()) return null;
-        if (this.blobs.size() == 1) {
-            final blobItem bi = this.blobs.get(0);
+        // a snapshot of the files: without synchronization (mapped read mode), files may be unmounted concurrently
+        final List<blobItem> blobList = this.blobs;
+        if (blobList == null) return null;
+        final blobItem[] items = blobList.toArray(new blobItem[0]);
+        if (items.length == 0) return null;
+        if (items.length == 1) {
+            final blobItem bi = items[0];
             if (bi.blob.containsKey(key)) return bi;
             return null;
         }
 
         // first check the current blob only because that has most probably the key if any has that key
-        int bs1 = this.blobs.size() - 1;
-        blobItem bi = this.blobs.get(bs1);
+        int bs1 = items.length - 1;
+        blobItem bi = items[bs1];
         if (bi.blob.containsKey(key)) return bi;
-        if (this.blobs.size() == 2) {
+        if (items.length == 2) {
             // this should not be done concurrently
-            bi = this.blobs.get(0);
+            bi = items[0];
             if (bi.blob.containsKey(key)) return bi;
             return null;
         }
@@ -590,7 +826,8 @@ public class ArrayStack implements BLOB {
         final CompletionService<blobItem> cs = new ExecutorCompletionService<blobItem>(this.executor);
         int accepted = 0;
         for (int i = 0; i < bs1; i++) {
-            final blobItem b = this.blobs.get(i);
+            final blobItem b = items[i];
+            if (!b.mightContain(key)) continue; // don't occupy a thread for a BLOB that cannot contain the key
             try {
                 cs.submit(new Callable<blobItem>() {
                     @Override
@@ -695,10 +932,13 @@ public class ArrayStack implements BLOB {
         @Override
         protected byte[] next0() {
             while (this.bii.hasNext()) {
-                final BLOB b = this.bii.next().blob;
+                final blobItem bi = this.bii.next();
+                final BLOB b = bi.blob;
                 if (b == null) continue;
                 try {
+                    final long start = System.nanoTime();
                     final byte[] n = b.get(this.key);
+                    bi.countLookup(System.nanoTime() - start);
                     if (n != null) return n;
                 } catch (final IOException e) {
                     ConcurrentLog.severe("ArrayStack", "BlobValues - IOException: " + e.getMessage(), e);
@@ -712,6 +952,135 @@ public class ArrayStack implements BLOB {
         }
     }
 
+    /**
+     * get all BLOBs in the array, reading all BLOB files concurrently.
+     * The lookups run on a bounded executor that is shared by all ArrayStack instances and
+     * the results are returned in the order in which they arrive. Each result carries the position of
+     * its BLOB file in the array (0 = oldest file) so the caller can merge the values in file order;
+     * the value is null if the BLOB file does not contain the key.
+     * Lookups which are not finished when the time budget is exhausted are cancelled and counted
+     * as timeout in the statistics of their BLOB file. An exhausted budget never means "no BLOB":
+     * until a BLOB has been found, the iteration waits for the lookups without a time limit.
+     * @param key
+     * @param maxtime the time budget for all lookups in milliseconds
+     * @return an iteration of the BLOB file positions and the BLOBs
+     */
+    public Iterable<Map.Entry<Integer, byte[]>> getAllConcurrently(final byte[] key, final long maxtime) {
+        return new ConcurrentBlobValues(key, maxtime);
+    }
+
+    private class ConcurrentBlobValues extends LookAheadIterator<Map.Entry<Integer, byte[]>> {
+
+        private final List<blobItem> items;
+        private final List<Future<Map.Entry<Integer, byte[]>>> futures;
+        private final List<blobItem> submitted; // the BLOB of each future
+        private final CompletionService<Map.Entry<Integer, byte[]>> cs;
+        private final LinkedList<Map.Entry<Integer, byte[]>> direct; // results of lookups which were not accepted by the executor
+        private final byte[] key;
+        private final long timeout;
+        private int pending;
+        private boolean found; // true if a BLOB has been returned
+
+        public ConcurrentBlobValues(final byte[] key, final long maxtime) {
+            this.items = new ArrayList<blobItem>(ArrayStack.this.blobs);
+            this.futures = new ArrayList<Future<Map.Entry<Integer, byte[]>>>(this.items.size());
+            this.submitted = new ArrayList<blobItem>(this.items.size());
+            this.cs = new ExecutorCompletionService<Map.Entry<Integer, byte[]>>(LOOKUP_EXECUTOR);
+            this.direct = new LinkedList<Map.Entry<Integer, byte[]>>();
+            this.key = key;
+            this.timeout = System.currentTimeMillis() + maxtime;
+            this.pending = 0;
+            this.found = false;
+            for (int i = 0; i < this.items.size(); i++) {
+                if (!this.items.get(i).mightContain(key)) {
+                    // the filter rules out this BLOB; report it as empty without a lookup
+                    this.direct.add(new AbstractMap.SimpleImmutableEntry<Integer, byte[]>(i, null));
+                    continue;
+                }
+                final Lookup lookup = new Lookup(i, this.items.get(i));
+                try {
+                    this.futures.add(this.cs.submit(lookup));
+                    this.submitted.add(this.items.get(i));
+                    this.pending++;
+                } catch (final RejectedExecutionException e) {
+                    // the executor is either shutting down or the queue is full: execute the lookup in this thread
+                    try {
+                        this.direct.add(lookup.call());
+                    } catch (final Exception ee) {
+                        ConcurrentLog.severe("ArrayStack", "ConcurrentBlobValues - " + ee.getMessage(), ee);
+                    }
+                }
+            }
+        }
+
+        private class Lookup implements Callable<Map.Entry<Integer, byte[]>> {
+            private final int position;
+            private final blobItem item;
+            public Lookup(final int position, final blobItem item) {
+                this.position = position;
+                this.item = item;
+            }
+            @Override
+            public Map.Entry<Integer, byte[]> call() throws IOException, SpaceExceededException {
+                final BLOB b = this.item.blob;
+                if (b == null) return new AbstractMap.SimpleImmutableEntry<Integer, byte[]>(this.position, null);
+                final long start = System.nanoTime();
+                final byte[] n = b.get(ConcurrentBlobValues.this.key);
+                this.item.countLookup(System.nanoTime() - start);
+                return new AbstractMap.SimpleImmutableEntry<Integer, byte[]>(this.position, n);
+            }
+        }
+
+        @Override
+        protected Map.Entry<Integer, byte[]> next0() {
+            if (!this.direct.isEmpty()) return found(this.direct.removeFirst());
+            while (this.pending > 0) {
+                final long remaining = this.timeout - System.currentTimeMillis();
+                Future<Map.Entry<Integer, byte[]>> f = null;
+                try {
+                    if (remaining > 0) f = this.cs.poll(remaining, TimeUnit.MILLISECONDS);
+                    else if (!this.found) f = this.cs.take(); // wait for the first BLOB also if the budget is exhausted
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (f == null) {
+                    cancelPending();
+                    return null;
+                }
+                this.pending--;
+                try {
+                    return found(f.get());
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancelPending();
+                    return null;
+                } catch (final ExecutionException e) {
+                    ConcurrentLog.severe("ArrayStack", "ConcurrentBlobValues - " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+            return null;
+        }
+
+        private Map.Entry<Integer, byte[]> found(final Map.Entry<Integer, byte[]> entry) {
+            if (entry.getValue() != null) this.found = true;
+            return entry;
+        }
+
+        private void cancelPending() {
+            final StringBuilder slow = new StringBuilder();
+            for (int i = 0; i < this.futures.size(); i++) {
+                final Future<Map.Entry<Integer, byte[]>> f = this.futures.get(i);
+                if (f.isDone()) continue;
+                f.cancel(false);
+                final blobItem bi = this.submitted.get(i);
+                bi.lookupTimeouts.incrementAndGet();
+                if (bi.location != null) slow.append(' ').append(bi.location.getName());
+            }
+            ConcurrentLog.warn("ArrayStack", "timeout in concurrent lookup: " + this.pending + " of " + this.items.size() + " files not finished:" + slow.toString());
+            this.pending = 0;
+        }
+    }
+
     /**
      * retrieve the size of the BLOB
      * @param key
@@ -719,9 +1088,18 @@ public class ArrayStack implements BLOB {
      * @throws IOException
      */
     @Override
-    public synchronized long length(final byte[] key) throws IOException {
+    public long length(final byte[] key) throws IOException {
+        if (this.mappedRead) return length0(key);
+        synchronized (this) {
+            return length0(key);
+        }
+    }
+
+    private long length0(final byte[] key) throws IOException {
+        final List<blobItem> blobList = this.blobs;
+        if (blobList == null) return -1;
         long l;
-        for (final blobItem bi: this.blobs) {
+        for (final blobItem bi: blobList) {
             l = bi.blob.length(key);
             if (l >= 0) return l;
         }
@@ -766,6 +1144,55 @@ public class ArrayStack implements BLOB {
         }
     }
 
+    /**
+     * get the beginning of all BLOBs in the array which have the given key, i.e. the headers of
+     * the BLOBs without reading their content.
+     * @param key
+     * @param len the number of bytes to read from each BLOB
+     * @return the first min(len, length) bytes of each BLOB
+     */
+    public Iterable<byte[]> headAll(final byte[] key, final int len) {
+        return new BlobHeads(key, len);
+    }
+
+    private class BlobHeads extends LookAheadIterator<byte[]> {
+
+        private final Iterator<blobItem> bii;
+        private final byte[] key;
+        private final int len;
+
+        public BlobHeads(final byte[] key, final int len) {
+            this.bii = ArrayStack.this.blobs.iterator();
+            this.key = key;
+            this.len = len;
+        }
+
+        @Override
+        protected byte[] next0() {
+            while (this.bii.hasNext()) {
+                final BLOB b = this.bii.next().blob;
+                if (b == null) continue;
+                try {
+                    final byte[] head;
+                    if (b instanceof HeapReader) {
+                        head = ((HeapReader) b).head(this.key, this.len);
+                    } else {
+                        final byte[] n = b.get(this.key);
+                        head = n == null || n.length <= this.len ? n : Arrays.copyOf(n, this.len);
+                    }
+                    if (head != null) return head;
+                } catch (final IOException e) {
+                    ConcurrentLog.severe("ArrayStack", "", e);
+                    return null;
+                } catch (final SpaceExceededException e) {
+                    ConcurrentLog.severe("ArrayStack", "BlobHeads - RowSpaceExceededException: " + e.getMessage(), e);
+                    break;
+                }
+            }
+            return null;
+        }
+    }
+
     /**
      * retrieve the sizes of all BLOB
      * @param key
@@ -879,6 +1306,17 @@ public class ArrayStack implements BLOB {
         assert mem() <= m : "m = " + m + ", mem() = " + mem();
     }
 
+	/** the bounded thread pool for concurrent lookups on any ArrayStack instance */
+	private static final ThreadPoolExecutor LOOKUP_EXECUTOR = new ThreadPoolExecutor(
+			Runtime.getRuntime().availableProcessors() * 2,
+			Runtime.getRuntime().availableProcessors() * 2, 10,
+			TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(1000),
+			new NamePrefixThreadFactory(ArrayStack.class.getSimpleName() + ".LOOKUP_EXECUTOR"));
+	static {
+		LOOKUP_EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
 	private static final ExecutorService DELETE_EXECUTOR = Executors
 			.newCachedThreadPool(new NamePrefixThreadFactory(ArrayStack.class.getSimpleName() + ".DELETE_EXECUTOR"));
 	
@@ -898,6 +1336,13 @@ public class ArrayStack implements BLOB {
 		}
 	}
 
+	/**
+	 * Shutdown the lookup executor service used to run concurrent lookups on any ArrayStack instance
+	 */
+	public static void shutdownLookupService() {
+		LOOKUP_EXECUTOR.shutdownNow();
+	}
+
     /**
      * close the BLOB
      */
@@ -941,7 +1386,7 @@ public class ArrayStack implements BLOB {
             return resultFile;
         }
         ConcurrentLog.info("BLOBArray", "merging " + f1.getName() + " with " + f2.getName());
-        final File resultFile = mergeWorker(factory, this.keylength, this.ordering, f1, f2, newFile, writeBuffer);
+        final File resultFile = mergeWorker(factory, this.keylength, this.ordering, new File[]{f1, f2}, newFile, writeBuffer, 0);
         if (resultFile == null) {
             ConcurrentLog.warn("BLOBArray", "merge of files " + f1 + ", " + f2 + " returned null. newFile = " + newFile);
             return null;
@@ -956,64 +1401,177 @@ public class ArrayStack implements BLOB {
         return resultFile;
     }
 
+    /**
+     * a sorted input of a k-way merge: the current entry of a blob file
+     */
+    private static final class MergeSource implements Comparable<MergeSource> {
+        private final int generation; // the position of the file in the merge; lower is older
+        private final ByteOrder order;
+        private HeapReader.entries entries;
+        private byte[] key, payload;
+
+        private MergeSource(final int generation, final ByteOrder order, final HeapReader.entries entries) {
+            this.generation = generation;
+            this.order = order;
+            this.entries = entries;
+        }
+
+        private boolean advance() {
+            if (this.entries != null && this.entries.hasNext()) {
+                final Map.Entry<byte[], byte[]> entry = this.entries.next();
+                if (entry != null) {
+                    this.key = entry.getKey();
+                    this.payload = entry.getValue();
+                    return true;
+                }
+            }
+            close();
+            return false;
+        }
+
+        private void close() {
+            if (this.entries != null) this.entries.close();
+            this.entries = null;
+            this.key = null;
+            this.payload = null;
+        }
+
+        @Override
+        public int compareTo(final MergeSource other) {
+            final int c = this.order.compare(this.key, other.key);
+            return c == 0 ? this.generation - other.generation : c;
+        }
+    }
+
+    /**
+     * merge several blob files into one in a single streaming pass. The files are read with
+     * sorted entry iterators and only the entries of a term which appears in more than one file
+     * are loaded as ReferenceContainer; all other entries are copied as they are.
+     * @param files the files to merge, the oldest first; references of younger files are merged into older ones
+     * @param factory
+     * @param newFile
+     * @param writeBuffer
+     * @param maxBytesPerSecond the maximum write rate of the merge, 0 if the merge shall not be throttled
+     * @return the target file where the given files are merged in
+     */
+    public File mergeMount(final File[] files,
+            final ReferenceFactory<? extends Reference> factory,
+            final File newFile, final int writeBuffer, final long maxBytesPerSecond) {
+        if (files.length == 1) return mergeMount(files[0], null, factory, newFile, writeBuffer);
+        final StringBuilder names = new StringBuilder();
+        for (final File f: files) names.append(names.length() == 0 ? "" : ", ").append(f.getName());
+        ConcurrentLog.info("BLOBArray", "merging " + names.toString());
+        final File resultFile = mergeWorker(factory, this.keylength, this.ordering, files, newFile, writeBuffer, maxBytesPerSecond);
+        if (resultFile == null) {
+            ConcurrentLog.warn("BLOBArray", "merge of files " + names.toString() + " returned null. newFile = " + newFile);
+            return null;
+        }
+        try {
+            mountBLOB(resultFile, false);
+        } catch (final IOException e) {
+            ConcurrentLog.warn("BLOBArray", "merge of files " + names.toString() + " successfull, but read failed. resultFile = " + resultFile);
+            return null;
+        }
+        ConcurrentLog.info("BLOBArray", "merged " + names.toString() + " into " + resultFile);
+        return resultFile;
+    }
+
     private static <ReferenceType extends Reference> File mergeWorker(
                     final ReferenceFactory<ReferenceType> factory,
-                    final int keylength, final ByteOrder order, final File f1, final File f2, final File newFile, final int writeBuffer) {
-        // iterate both files and write a new one
-        ReferenceIterator<ReferenceType> i1 = null;
+                    final int keylength, final ByteOrder order, final File[] files, final File newFile, final int writeBuffer, final long maxBytesPerSecond) {
+        // open a sorted iterator for each file
+        final PriorityQueue<MergeSource> queue = new PriorityQueue<MergeSource>(files.length);
+        final List<MergeSource> sources = new ArrayList<MergeSource>(files.length);
+        final List<File> nonEmpty = new ArrayList<File>(files.length);
         try {
-            i1 = new ReferenceIterator<ReferenceType>(f1, factory);
-            ReferenceIterator<ReferenceType> i2 = null;
-            try {
-                i2 = new ReferenceIterator<ReferenceType>(f2, factory);
-                if (!i1.hasNext()) {
-                    if (i2.hasNext()) {
-                        HeapWriter.delete(f1);
-                        if (f2.renameTo(newFile)) return newFile;
-                        return f2;
-                    }
-                    HeapWriter.delete(f1);
-                    HeapWriter.delete(f2);
-                    return null;
-                } else if (!i2.hasNext()) {
-                    HeapWriter.delete(f2);
-                    if (f1.renameTo(newFile)) return newFile;
-                    return f1;
+            for (int i = 0; i < files.length; i++) {
+                final MergeSource source = new MergeSource(i, order, new HeapReader.entries(files[i], keylength));
+                sources.add(source);
+                if (source.advance()) {
+                    queue.add(source);
+                    nonEmpty.add(files[i]);
                 }
-                assert i1.hasNext();
-                assert i2.hasNext();
-                final File tmpFile = new File(newFile.getParentFile(), newFile.getName() + ".prt");
-                try {
-                    final HeapWriter writer = new HeapWriter(tmpFile, newFile, keylength, order, writeBuffer);
-                    merge(i1, i2, order, writer);
-                    writer.close(true);
-                } catch (final IOException e) {
-                    ConcurrentLog.severe("ArrayStack", "cannot writing or close writing merge, newFile = " + newFile.toString() + ", tmpFile = " + tmpFile.toString() + ": " + e.getMessage(), e);
-                    HeapWriter.delete(tmpFile);
-                    HeapWriter.delete(newFile);
-                    return null;
-                } catch (final SpaceExceededException e) {
-                    ConcurrentLog.severe("ArrayStack", "cannot merge because of memory failure: " + e.getMessage(), e);
-                    HeapWriter.delete(tmpFile);
-                    HeapWriter.delete(newFile);
-                    return null;
+            }
+        } catch (final IOException e) {
+            ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read: " + e.getMessage(), e);
+            for (final MergeSource source: sources) source.close();
+            return null;
+        }
+        if (nonEmpty.size() <= 1) {
+            // nothing to merge: at most one of the files has content
+            for (final File f: files) if (!nonEmpty.contains(f)) HeapWriter.delete(f);
+            for (final MergeSource source: sources) source.close();
+            if (nonEmpty.isEmpty()) return null;
+            if (nonEmpty.get(0).renameTo(newFile)) return newFile;
+            return nonEmpty.get(0);
+        }
+
+        // write the merged entries in the order of the keys
+        final File tmpFile = new File(newFile.getParentFile(), newFile.getName() + ".prt");
+        try {
+            final HeapWriter writer = new HeapWriter(tmpFile, newFile, keylength, order, writeBuffer);
+            final long start = System.currentTimeMillis();
+            long written = 0;
+            while (!queue.isEmpty()) {
+                final MergeSource source = queue.poll();
+                final byte[] key = source.key;
+                byte[] payload = source.payload;
+                ReferenceContainer<ReferenceType> c = null;
+                // entries of the same term in younger files; only these are loaded as container
+                while (!queue.isEmpty() && order.compare(queue.peek().key, key) == 0) {
+                    final MergeSource same = queue.poll();
+                    if (c == null) c = container(factory, key, payload);
+                    c = c.merge(container(factory, key, same.payload));
+                    if (same.advance()) queue.add(same);
                 }
-                // we don't need the old files any more
-                HeapWriter.delete(f1);
-                HeapWriter.delete(f2);
-                return newFile;
-            } catch (final IOException e) {
-                ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read, f2 = " + f2.toString() + ": " + e.getMessage(), e);
-                return null;
-            } finally {
-                if (i2 != null) i2.close();
+                if (c == null && ReferenceContainer.maxReferences > 0 && PostingBlocks.count(payload, factory.getRow()) > ReferenceContainer.maxReferences) {
+                    c = container(factory, key, payload);
+                }
+                if (c != null) {
+                    final int s = c.shrinkReferences();
+                    if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(key) + " by " + s + " to " + c.size() + " entries");
+                    payload = c.exportBLOB();
+                } else if (PostingBlocks.isBlockCoded(payload) != PostingBlocks.writeBlocks) {
+                    // old generations are converted to the configured posting format while they are merged
+                    payload = PostingBlocks.writeBlocks ? PostingBlocks.encode(payload, factory.getRow()) : container(factory, key, payload).exportCollection();
+                }
+                writer.add(key, payload);
+                if (source.advance()) queue.add(source);
+
+                written += 4 + key.length + payload.length;
+                if (maxBytesPerSecond > 0) throttle(start, written, maxBytesPerSecond);
             }
+            writer.close(true);
         } catch (final IOException e) {
-            ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read, f1 = " + f1.toString() + ": " + e.getMessage(), e);
+            ConcurrentLog.severe("ArrayStack", "cannot writing or close writing merge, newFile = " + newFile.toString() + ", tmpFile = " + tmpFile.toString() + ": " + e.getMessage(), e);
+            HeapWriter.delete(tmpFile);
+            HeapWriter.delete(newFile);
+            return null;
+        } catch (final SpaceExceededException e) {
+            ConcurrentLog.severe("ArrayStack", "cannot merge because of memory failure: " + e.getMessage(), e);
+            HeapWriter.delete(tmpFile);
+            HeapWriter.delete(newFile);
             return null;
         } finally {
-            if (i1 != null) i1.close();
+            for (final MergeSource source: sources) source.close();
         }
+        // we don't need the old files any more
+        for (final File f: files) HeapWriter.delete(f);
+        return newFile;
+    }
+
+    private static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> container(
+            final ReferenceFactory<ReferenceType> factory, final byte[] key, final byte[] payload) throws SpaceExceededException {
+        final RowSet row = PostingBlocks.importRowSet(payload, factory.getRow());
+        return row == null ? new ReferenceContainer<ReferenceType>(factory, key) : new ReferenceContainer<ReferenceType>(factory, key, row);
+    }
+
+    /**
+     * wait until the written bytes do not exceed the given rate
+     */
+    private static void throttle(final long start, final long written, final long maxBytesPerSecond) {
+        final long wait = start + written * 1000L / maxBytesPerSecond - System.currentTimeMillis();
+        if (wait > 10) try {Thread.sleep(wait);} catch (final InterruptedException e) {}
     }
 
     private static <ReferenceType extends Reference> File rewriteWorker(
@@ -1055,107 +1613,6 @@ public class ArrayStack implements BLOB {
         return newFile;
     }
 
-    private static <ReferenceType extends Reference> void merge(
-            final CloneableIterator<ReferenceContainer<ReferenceType>> i1,
-            final CloneableIterator<ReferenceContainer<ReferenceType>> i2,
-            final ByteOrder ordering, final HeapWriter writer) throws IOException, SpaceExceededException {
-        assert i1.hasNext();
-        assert i2.hasNext();
-        byte[] c1lh, c2lh;
-        ReferenceContainer<ReferenceType> c1, c2;
-        c1 = i1.next();
-        c2 = i2.next();
-        int e, s;
-        while (true) {
-            assert c1 != null;
-            assert c2 != null;
-            e = ordering.compare(c1.getTermHash(), c2.getTermHash());
-            if (e < 0) {
-            	s = c1.shrinkReferences();
-            	if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-                writer.add(c1.getTermHash(), c1.exportCollection());
-                if (i1.hasNext()) {
-                    c1lh = c1.getTermHash();
-                    c1 = i1.next();
-                    assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-                    continue;
-                }
-                c1 = null;
-                break;
-            }
-            if (e > 0) {
-                s = c2.shrinkReferences();
-                if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
-                writer.add(c2.getTermHash(), c2.exportCollection());
-                if (i2.hasNext()) {
-                    c2lh = c2.getTermHash();
-                    c2 = i2.next();
-                    assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-                    continue;
-                }
-                c2 = null;
-                break;
-            }
-            assert e == 0;
-            // merge the entries
-            c1 = c1.merge(c2);
-            s = c1.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-            writer.add(c1.getTermHash(), c1.exportCollection());
-            c1lh = c1.getTermHash();
-            c2lh = c2.getTermHash();
-            if (i1.hasNext() && i2.hasNext()) {
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-                continue;
-            }
-            c1 = null;
-            c2 = null;
-            if (i1.hasNext()) {
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-            }
-            if (i2.hasNext()) {
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-            }
-            break;
-
-        }
-        // catch up remaining entries
-        assert !(i1.hasNext() && i2.hasNext());
-        assert (c1 == null) || (c2 == null);
-        while (c1 != null) {
-            //System.out.println("FLUSH REMAINING 1: " + c1.getWordHash());
-            s = c1.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-            writer.add(c1.getTermHash(), c1.exportCollection());
-            if (i1.hasNext()) {
-                c1lh = c1.getTermHash();
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-            } else {
-                c1 = null;
-            }
-        }
-        while (c2 != null) {
-            //System.out.println("FLUSH REMAINING 2: " + c2.getWordHash());
-            s = c2.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
-            writer.add(c2.getTermHash(), c2.exportCollection());
-            if (i2.hasNext()) {
-                c2lh = c2.getTermHash();
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-            } else {
-                c2 = null;
-            }
-        }
-        // finished with writing
-    }
-
     private static <ReferenceType extends Reference> void rewrite(
             final CloneableIterator<ReferenceContainer<ReferenceType>> i,
             final ByteOrder ordering, final HeapWriter writer) throws IOException, SpaceExceededException {
@@ -1168,7 +1625,7 @@ public class ArrayStack implements BLOB {
             assert c != null;
             s = c.shrinkReferences();
             if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c.getTermHash()) + " by " + s + " to " + c.size() + " entries");
-            writer.add(c.getTermHash(), c.exportCollection());
+            writer.add(c.getTermHash(), c.exportBLOB());
             if (i.hasNext()) {
                 clh = c.getTermHash();
                 c = i.next();
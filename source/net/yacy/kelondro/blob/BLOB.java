@@ -163,7 +163,8 @@ public interface BLOB {
      * a reduce method is the same as the replace. A replace subsumes a reduce method. A reduce method may be more simple.
      * @param key  the primary key
      * @param reducer
-     * @return the number of bytes that the rewriter reduced the BLOB
+     * @return the number of bytes that the rewriter reduced the BLOB; this is negative if the reducer
+     * enlarged the entry, which is possible for block-coded reference containers
      * @throws IOException
      * @throws SpaceExceededException 
      */
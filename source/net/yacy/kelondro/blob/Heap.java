@@ -28,6 +28,7 @@ package net.yacy.kelondro.blob;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -273,6 +274,28 @@ public final class Heap extends HeapModifier implements BLOB {
             return super.length(key);
         }
     }
+
+    /**
+     * read the beginning of a BLOB
+     * @param key
+     * @param len the number of bytes to read
+     * @return the first min(len, length(key)) bytes of the BLOB or null if the BLOB does not exist
+     * @throws IOException
+     */
+    @Override
+    public byte[] head(byte[] key, final int len) throws IOException {
+        key = normalizeKey(key);
+
+        synchronized (this) {
+            // check the buffer
+            if (this.buffer != null) {
+                byte[] blob = this.buffer.get(key);
+                if (blob != null) return blob.length <= len ? blob : Arrays.copyOf(blob, len);
+            }
+
+            return super.head(key, len);
+        }
+    }
     
     /**
      * clears the content of the database
@@ -58,12 +58,26 @@ public class HeapModifier extends HeapReader implements BLOB {
         super(heapFile, keylength, ordering);
     }
 
+    /**
+     * create a heap file which may be read using a memory-mapped, lock-free access.
+     * The mapping is released as soon as the heap is modified with delete() or reduce().
+     * @param heapFile
+     * @param keylength
+     * @param ordering
+     * @param mappedRead
+     * @throws IOException
+     */
+    public HeapModifier(final File heapFile, final int keylength, final ByteOrder ordering, final boolean mappedRead) throws IOException {
+        super(heapFile, keylength, ordering, mappedRead);
+    }
+
     /**
      * clears the content of the database
      * @throws IOException
      */
     @Override
     public synchronized void clear() throws IOException {
+        releaseMapping();
         this.index.clear();
         this.free.clear();
         this.file.close();
@@ -78,6 +92,9 @@ public class HeapModifier extends HeapReader implements BLOB {
      */
     @Override
     public synchronized void close(boolean writeIDX) {
+        // release the mapping before the file is truncated: this waits for running mapped reads,
+        // and all later reads use the synchronized file access
+        releaseMapping();
         shrinkWithGapsAtEnd();
         super.close(writeIDX);
     }
@@ -110,6 +127,7 @@ public class HeapModifier extends HeapReader implements BLOB {
             // check again if the index contains the key
             seek = this.index.get(key);
             if (seek < 0) return;
+            releaseMapping();
 
             // check consistency of the index
             //assert (checkKey(key, seek)) : "key compare failed; key = " + UTF8.String(key) + ", seek = " + seek;
@@ -142,6 +160,23 @@ public class HeapModifier extends HeapReader implements BLOB {
         }
     }
 
+    /**
+     * write a BLOB at the end of the heap file. The key must not be in the index.
+     */
+    private void append(final byte[] key, final byte[] blob) throws IOException {
+        if (blob.length == 0) return;
+        final long pos = this.file.length();
+        try {
+            this.index.put(key, pos);
+        } catch (final SpaceExceededException e) {
+            throw new IOException(e.getMessage()); // should never occur
+        }
+        this.file.seek(pos);
+        this.file.writeInt(this.keylength + blob.length);
+        this.file.write(key);
+        this.file.write(blob, 0, blob.length);
+    }
+
     private void tryMergePreviousGap(final long thisSeek) throws IOException {
         // this is called after a record has been removed. That may cause that a new
         // empty record was surrounded by gaps. We merge with a previous gap, if this
@@ -266,6 +301,7 @@ public class HeapModifier extends HeapReader implements BLOB {
             // check again if the index contains the key
             pos = this.index.get(key);
             if (pos < 0) return 0;
+            releaseMapping();
 
             // check consistency of the index
             //assert checkKey(key, pos) : "key compare failed; key = " + UTF8.String(key) + ", seek = " + pos;
@@ -297,6 +333,14 @@ public class HeapModifier extends HeapReader implements BLOB {
                 return 0;
             }
 
+            // a rewritten block-coded container may be larger than the old one: the old entry is
+            // deleted and the new entry is appended to the heap; the reduction is then negative
+            if (reduction < 0) {
+                delete(key);
+                append(key, blob);
+                return reduction;
+            }
+
             // the new entry must be smaller than the old entry and must at least be 4 bytes smaller
             // because that is the space needed to write a new empty entry record at the end of the gap
             if (blob.length > len - 4) throw new IOException("replace of BLOB for key " + UTF8.String(key) + " failed (too large): new size = " + blob.length + ", old size = " + (len - 4));
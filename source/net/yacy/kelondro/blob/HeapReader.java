@@ -35,6 +35,8 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.encoding.UTF8;
@@ -46,8 +48,11 @@ import net.yacy.cora.storage.HandleMap;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.LookAheadIterator;
 import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.BloomFilter;
+import net.yacy.kelondro.index.OffHeapHandleMap;
 import net.yacy.kelondro.index.RowHandleMap;
 import net.yacy.kelondro.io.CachedFileWriter;
+import net.yacy.kelondro.io.MappedFileReader;
 import net.yacy.kelondro.io.Writer;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.MemoryControl;
@@ -60,6 +65,9 @@ public class HeapReader {
 
 	private final static ConcurrentLog log = new ConcurrentLog("HeapReader");
 
+    // if true, the index of heaps is an OffHeapHandleMap; it is dumped as memory image instead of the sorted idx dump
+    public static boolean offHeapIndex = false;
+
     // input values
     protected int                keylength;  // the length of the primary key
     protected File               heapFile;   // the file of the heap
@@ -72,10 +80,40 @@ public class HeapReader {
     private   File               fingerprintFileIdx, fingerprintFileGap; // files with dumped indexes. Will be deleted if file is written
     private   Date               closeDate;  // records a time when the file was closed; used for debugging
 
+    // optional memory-mapped read access for heaps which are not written any more
+    protected final  boolean          mappedRead;  // true if the heap was opened for memory-mapped reading
+    private volatile MappedFileReader mapped;      // lock-free positional read access; null if not mapped
+    private final    StampedLock      mappedLock;  // shared by the memory-mapped reads; releasing the mapping waits for them
+
+    // optional membership filter for heaps which get no new keys any more
+    public  static final int          FILTER_BITS_PER_KEY = 10; // about 1% false positives
+    private volatile BloomFilter      filter;      // null if keys are not filtered
+    private          File             fingerprintFileFilter; // dump of the filter, next to the idx and gap dumps
+    private final    AtomicLong       filterHits = new AtomicLong(0);  // lookups that were answered by the filter alone
+    private final    AtomicLong       filterFalsePositives = new AtomicLong(0); // lookups that passed the filter but found no entry
+
     public HeapReader(
             final File heapFile,
             final int keylength,
             final ByteOrder ordering) throws IOException {
+        this(heapFile, keylength, ordering, false);
+    }
+
+    /**
+     * open a heap file for reading
+     * @param heapFile
+     * @param keylength
+     * @param ordering
+     * @param mappedRead if true, the heap file is memory-mapped after initialization and get(), length() and containsKey()
+     *        read without locking. This must only be used for heaps that are not written any more; the first
+     *        modification of the heap switches back to the synchronized read path.
+     * @throws IOException
+     */
+    public HeapReader(
+            final File heapFile,
+            final int keylength,
+            final ByteOrder ordering,
+            final boolean mappedRead) throws IOException {
         this.ordering = ordering;
         this.heapFile = heapFile;
         this.keylength = keylength;
@@ -84,21 +122,25 @@ public class HeapReader {
         this.heapFile.getParentFile().mkdirs();
         this.file = new CachedFileWriter(this.heapFile);
         this.closeDate = null;
+        this.mappedRead = mappedRead;
+        this.mapped = null;
+        this.mappedLock = new StampedLock();
 
         // read or initialize the index
         this.fingerprintFileIdx = null;
         this.fingerprintFileGap = null;
         if (initIndexReadDump()) {
             // verify that everything worked just fine
-            // pick some elements of the index
-            Iterator<byte[]> i = this.index.keys(true, null);
+            // pick some elements of the index; the iterator does not need to sort the index
+            Iterator<Map.Entry<byte[], Long>> i = this.index.iterator();
             int c = 3;
             byte[] b, b1 = new byte[this.keylength];
             long pos;
             boolean ok = true;
             while (i.hasNext() && c-- > 0) {
-                b = i.next();
-                pos = this.index.get(b);
+                Map.Entry<byte[], Long> entry = i.next();
+                b = entry.getKey();
+                pos = entry.getValue().longValue();
                 this.file.seek(pos + 4);
                 this.file.readFully(b1, 0, b1.length);
                 if (!this.ordering.equal(b, b1)) {
@@ -125,10 +167,122 @@ public class HeapReader {
         // of file descriptors is too low and the number of files is too high
         this.file.close();
         // the file will be opened again automatically when the next access to it comes.
+
+        if (mappedRead && this.heapFile.length() > 0) {
+            try {
+                this.mapped = new MappedFileReader(this.heapFile);
+            } catch (final IOException e) {
+                log.warn("cannot map " + this.heapFile.toString() + ", using synchronized file access: " + e.getMessage());
+                this.mapped = null;
+            }
+        }
+    }
+
+    /**
+     * @return true if read operations currently use the lock-free memory-mapped access
+     */
+    public boolean isMapped() {
+        return this.mapped != null;
+    }
+
+    /**
+     * switch from the memory-mapped read path back to the synchronized file access.
+     * This must be called before the heap file is modified or closed; it waits until the memory-mapped
+     * reads which are running concurrently are finished, later reads use the synchronized path.
+     */
+    protected void releaseMapping() {
+        if (this.mapped == null) return;
+        final long stamp = this.mappedLock.writeLock();
+        try {
+            this.mapped = null;
+        } finally {
+            this.mappedLock.unlockWrite(stamp);
+        }
     }
 
     public long mem() {
-        return this.index.mem(); // don't add the memory for free here since then the asserts for memory management don't work
+        final BloomFilter f = this.filter;
+        return this.index.mem() + (f == null ? 0 : f.mem()); // don't add the memory for free here since then the asserts for memory management don't work
+    }
+
+    /**
+     * switch on the membership filter for the keys of this heap. The filter is read from its dump next to the
+     * idx and gap files if that exists, otherwise it is computed from the index and dumped.
+     * Keys which are deleted stay in the filter, so this can be used for heaps where entries are deleted or reduced,
+     * but not for heaps where new keys are added.
+     */
+    public void useKeyFilter() {
+        if (this.filter != null || this.index == null) return;
+        final String fingerprint = fingerprintFileHash(this.heapFile);
+        final File filterFile = fingerprint == null ? null : HeapWriter.fingerprintFilterFile(this.heapFile, fingerprint);
+        if (filterFile != null && filterFile.exists()) {
+            try {
+                this.filter = new BloomFilter(filterFile);
+                this.fingerprintFileFilter = filterFile;
+                return;
+            } catch (final IOException e) {
+                log.warn("cannot read filter dump " + filterFile.getName() + ", re-building filter: " + e.getMessage());
+                FileUtils.deletedelete(filterFile);
+            }
+        }
+        final long start = System.currentTimeMillis();
+        final BloomFilter f;
+        synchronized (this.index) {
+            f = new BloomFilter(this.index.size(), FILTER_BITS_PER_KEY);
+            for (final Map.Entry<byte[], Long> entry: this.index) f.add(entry.getKey());
+        }
+        this.filter = f;
+        if (filterFile != null && this.index.size() > 3) {
+            deleteFilterDumps(this.heapFile);
+            try {
+                f.dump(filterFile);
+                this.fingerprintFileFilter = filterFile;
+            } catch (final IOException e) {
+                log.warn("cannot write filter dump " + filterFile.getName() + ": " + e.getMessage());
+            }
+        }
+        log.info("computed a key filter for the " + this.index.size() + " entries of " + this.heapFile.getName() + " in " + (System.currentTimeMillis() - start) + " milliseconds.");
+    }
+
+    /**
+     * switch off the membership filter; the dump of the filter is kept for the next use
+     */
+    public void dropKeyFilter() {
+        this.filter = null;
+    }
+
+    public boolean hasKeyFilter() {
+        return this.filter != null;
+    }
+
+    /**
+     * ask the membership filter if the heap may contain the key. If the filter is switched off, this is always true.
+     * @param key
+     * @return false if the heap certainly does not contain the key
+     */
+    public boolean mightContainKey(final byte[] key) {
+        final BloomFilter f = this.filter;
+        if (f == null || f.mightContain(normalizeKey(key))) return true;
+        this.filterHits.incrementAndGet();
+        return false;
+    }
+
+    private void countFalsePositive() {
+        if (this.filter != null) this.filterFalsePositives.incrementAndGet();
+    }
+
+    /**
+     * @return the number of lookups which were answered by the key filter without access to the index
+     */
+    public long getFilterHits() {
+        return this.filterHits.get();
+    }
+
+    /**
+     * @return the number of lookups where the key filter let a key pass which is not in the heap
+     */
+    public long getFilterFalsePositives() {
+        return this.filterFalsePositives.get();
     }
 
     public void optimize() {
@@ -166,6 +320,11 @@ public class HeapReader {
         }
         this.fingerprintFileIdx = HeapWriter.fingerprintIndexFile(this.heapFile, fingerprint);
         if (!this.fingerprintFileIdx.exists()) this.fingerprintFileIdx = new File(this.fingerprintFileIdx.getAbsolutePath() + ".gz");
+        if (offHeapIndex) {
+            // prefer the memory image; an idx dump is read into the off-heap index as well
+            final File image = HeapWriter.fingerprintImageFile(this.heapFile, fingerprint);
+            if (image.exists() || !this.fingerprintFileIdx.exists()) this.fingerprintFileIdx = image;
+        }
         this.fingerprintFileGap = HeapWriter.fingerprintGapFile(this.heapFile, fingerprint);
         if (!this.fingerprintFileGap.exists()) this.fingerprintFileGap = new File(this.fingerprintFileGap.getAbsolutePath() + ".gz");
         if (!this.fingerprintFileIdx.exists() || !this.fingerprintFileGap.exists()) {
@@ -176,7 +335,9 @@ public class HeapReader {
         // there is an index and a gap file:
         // read the index file:
         try {
-            this.index = new RowHandleMap(this.keylength, this.ordering, 8, this.fingerprintFileIdx);
+            this.index = offHeapIndex ?
+                    new OffHeapHandleMap(this.keylength, this.ordering, 8, this.fingerprintFileIdx) :
+                    new RowHandleMap(this.keylength, this.ordering, 8, this.fingerprintFileIdx);
         } catch (final IOException e) {
             ConcurrentLog.logException(e);
             return false;
@@ -220,6 +381,10 @@ public class HeapReader {
             FileUtils.deletedelete(this.fingerprintFileGap);
             this.fingerprintFileGap = null;
         }
+        if (this.fingerprintFileFilter != null) {
+            FileUtils.deletedelete(this.fingerprintFileFilter);
+            this.fingerprintFileFilter = null;
+        }
     }
 
     protected static String fingerprintFileHash(File f) {
@@ -242,17 +407,35 @@ public class HeapReader {
             if (l[i].endsWith(".idx") ||
                 l[i].endsWith(".gap") ||
                 l[i].endsWith(".idx.gz") ||
-                l[i].endsWith(".gap.gz")
+                l[i].endsWith(".gap.gz") ||
+                l[i].endsWith(".ohi") ||
+                l[i].endsWith(".bloom")
                ) FileUtils.deletedelete(new File(d, l[i]));
         }
     }
 
+    private static void deleteFilterDumps(File f) {
+        File d = f.getParentFile();
+        String n = f.getName() + ".";
+        String[] l = d.list();
+        for (int i = 0; i < l.length; i++) {
+            if (l[i].startsWith(n) && l[i].endsWith(".bloom")) FileUtils.deletedelete(new File(d, l[i]));
+        }
+    }
+
     private void initIndexReadFromHeap() throws IOException {
         // this initializes the this.index object by reading positions from the heap file
         log.info("generating index for " + this.heapFile.toString() + ", " + (this.file.length() / 1024 / 1024) + " MB. Please wait.");
 
         this.free = new Gap();
-        RowHandleMap.initDataConsumer indexready = RowHandleMap.asynchronusInitializer(this.name() + ".initializer", this.keylength, this.ordering, 8, Math.max(10, (int) (Runtime.getRuntime().freeMemory() / (10 * 1024 * 1024))));
+        // an off-heap index is filled directly, it needs no concurrent sorting
+        HandleMap offHeap = null;
+        if (offHeapIndex) try {
+            offHeap = new OffHeapHandleMap(this.keylength, this.ordering, 8, (int) Math.min(Integer.MAX_VALUE, this.file.length() / 64), this.name());
+        } catch (final SpaceExceededException e) {
+            log.warn("cannot allocate an off-heap index for " + this.heapFile.getName() + ", using a RowHandleMap: " + e.getMessage());
+        }
+        RowHandleMap.initDataConsumer indexready = offHeap != null ? null : RowHandleMap.asynchronusInitializer(this.name() + ".initializer", this.keylength, this.ordering, 8, Math.max(10, (int) (Runtime.getRuntime().freeMemory() / (10 * 1024 * 1024))));
         byte[] key = new byte[this.keylength];
         int reclen;
         long seek = 0;
@@ -287,8 +470,14 @@ public class HeapReader {
                 if (reclen > 0) this.free.put(seek, reclen);
             } else {
                 if (this.ordering.wellformed(key)) {
-                    indexready.consume(key, seek);
-                    key = new byte[this.keylength];
+                    if (offHeap == null) {
+                        indexready.consume(key, seek);
+                        key = new byte[this.keylength];
+                    } else try {
+                        offHeap.putUnique(key, seek);
+                    } catch (final SpaceExceededException e) {
+                        throw new IOException("cannot index " + this.heapFile.getName() + ": " + e.getMessage(), e);
+                    }
                 } else {
                     // free the lost space
                     this.free.put(seek, reclen);
@@ -302,15 +491,19 @@ public class HeapReader {
             seek += 4L + reclen;
         }
         }
-        indexready.finish();
+        if (offHeap != null) {
+            this.index = offHeap;
+        } else {
+            indexready.finish();
 
-        // finish the index generation
-        try {
-            this.index = indexready.result();
-        } catch (final InterruptedException e) {
-        	ConcurrentLog.logException(e);
-        } catch (final ExecutionException e) {
-        	ConcurrentLog.logException(e);
+            // finish the index generation
+            try {
+                this.index = indexready.result();
+            } catch (final InterruptedException e) {
+            	ConcurrentLog.logException(e);
+            } catch (final ExecutionException e) {
+            	ConcurrentLog.logException(e);
+            }
         }
         log.info("finished index generation for " + this.heapFile.toString() + ", " + this.index.size() + " entries, " + this.free.size() + " gaps.");
     }
@@ -381,17 +574,35 @@ public class HeapReader {
      * @return true if the key exists, false otherwise
      */
     public boolean containsKey(byte[] key) {
-        assert (this.index != null) : "index == null; closeDate=" + this.closeDate + ", now=" + new Date();
+        // with mapped reads the heap may be closed concurrently; a read after close answers "not found"
+        assert this.mappedRead || this.index != null : "index == null; closeDate=" + this.closeDate + ", now=" + new Date();
         if (this.index == null) {
-            log.severe("this.index == null in containsKey(); closeDate=" + this.closeDate + ", now=" + new Date() + this.heapFile == null ? "" : (" file = " + this.heapFile.toString()));
+            if (!this.mappedRead) log.severe("this.index == null in containsKey(); closeDate=" + this.closeDate + ", now=" + new Date() + this.heapFile == null ? "" : (" file = " + this.heapFile.toString()));
             return false;
         }
         key = normalizeKey(key);
+        if (!mightContainKey(key)) return false;
 
-        synchronized (this.index) {
-            // check if the file index contains the key
-            return this.index.get(key) >= 0;
+        // the index has its own locks; the heap lock is only needed to coordinate with file access
+        boolean found = false;
+        final long stamp = mappedReadLock();
+        if (stamp != 0) {
+            try {
+                // close() releases the mapping before the index, so the index is valid while the read lock is held
+                found = this.index.get(key) >= 0;
+            } finally {
+                this.mappedLock.unlockRead(stamp);
+            }
+        } else {
+            final HandleMap idx = this.index;
+            if (idx == null) return false;
+            synchronized (idx) {
+                // check if the file index contains the key; the index may have been closed while waiting for the lock
+                found = this.index == idx && idx.get(key) >= 0;
+            }
         }
+        if (!found) countFalsePositive();
+        return found;
     }
 
     public ByteOrder ordering() {
@@ -482,17 +693,38 @@ public class HeapReader {
      * @throws IOException
      */
     public byte[] get(byte[] key) throws IOException, SpaceExceededException {
-        assert (this.index != null) : "index == null; closeDate=" + this.closeDate + ", now=" + new Date();
+        // with mapped reads the heap may be closed concurrently; a read after close answers "not found"
+        assert this.mappedRead || this.index != null : "index == null; closeDate=" + this.closeDate + ", now=" + new Date();
         if (this.index == null) {
-            log.severe("this.index == null in get(); closeDate=" + this.closeDate + ", now=" + new Date() + this.heapFile == null ? "" : (" file = " + this.heapFile.toString()));
+            if (!this.mappedRead) log.severe("this.index == null in get(); closeDate=" + this.closeDate + ", now=" + new Date() + this.heapFile == null ? "" : (" file = " + this.heapFile.toString()));
             return null;
         }
         key = normalizeKey(key);
+        if (!mightContainKey(key)) return null;
 
-        synchronized (this.index) {
+        final long stamp = mappedReadLock();
+        if (stamp != 0) {
+            try {
+                final byte[] blob = getMapped(this.mapped, key);
+                if (blob == null) countFalsePositive();
+                return blob;
+            } catch (final IOException e) {
+                // inconsistent record: the synchronized path below handles that
+            } finally {
+                this.mappedLock.unlockRead(stamp);
+            }
+        }
+
+        final HandleMap idx = this.index;
+        if (idx == null) return null;
+        synchronized (idx) {
+            if (this.index != idx) return null; // closed while waiting for the lock
             // check if the index contains the key
             final long pos = this.index.get(key);
-            if (pos < 0) return null;
+            if (pos < 0) {
+                countFalsePositive();
+                return null;
+            }
 
             // access the file and read the container
             this.file.seek(pos);
@@ -549,6 +781,55 @@ public class HeapReader {
         }
     }
 
+    /**
+     * get a read lock for the memory-mapped access; it is not blocked by other readers. The mapping and
+     * the index stay valid until the lock is released, because releaseMapping() waits for the read locks.
+     * @return a stamp which must be released with unlockRead, or 0 if the heap is not mapped
+     */
+    private long mappedReadLock() {
+        if (this.mapped == null) return 0;
+        final long stamp = this.mappedLock.tryReadLock();
+        if (stamp == 0) return 0; // the mapping is being released
+        if (this.mapped == null || this.index == null) {
+            this.mappedLock.unlockRead(stamp);
+            return 0;
+        }
+        return stamp;
+    }
+
+    /**
+     * read a blob using the memory-mapped file without the heap lock
+     * @param m the mapping of the heap file
+     * @param key the normalized key
+     * @return the blob or null if the key is not in the index
+     * @throws IOException if the record is not consistent with the index
+     */
+    private byte[] getMapped(final MappedFileReader m, final byte[] key) throws IOException, SpaceExceededException {
+        final long pos = this.index.get(key);
+        if (pos < 0) return null;
+
+        final int len = m.readInt(pos) - this.keylength;
+        if (len < 0) throw new IOException("file " + this.heapFile + " corrupted at " + pos + ": negative len. len = " + len + ", pk.len = " + this.keylength);
+        if (pos + 4 + this.keylength + len > m.length()) throw new IOException("file " + this.heapFile + " corrupted at " + pos + ": record exceeds file. len = " + len);
+        long memr = len + this.keylength + 64;
+        if (MemoryControl.available() < memr) {
+            if (!MemoryControl.request(memr, true)) throw new SpaceExceededException(memr, "HeapReader.getMapped()/check");
+        }
+
+        final byte[] keyf = new byte[this.keylength];
+        m.readFully(pos + 4, keyf, 0, keyf.length);
+        if (!this.ordering.equal(key, keyf)) throw new IOException("indexed verification access failed for " + this.heapFile.toString());
+
+        byte[] blob;
+        try {
+            blob = new byte[len];
+        } catch (final OutOfMemoryError e) {
+            throw new SpaceExceededException(len, "HeapReader.getMapped()/blob");
+        }
+        m.readFully(pos + 4 + this.keylength, blob, 0, blob.length);
+        return blob;
+    }
+
     public byte[] get(Object key) {
         if (!(key instanceof byte[])) return null;
         try {
@@ -579,17 +860,38 @@ public class HeapReader {
      * @throws IOException
      */
     public long length(byte[] key) throws IOException {
-        assert (this.index != null) : "index == null; closeDate=" + this.closeDate + ", now=" + new Date();
+        // with mapped reads the heap may be closed concurrently; a read after close answers "not found"
+        assert this.mappedRead || this.index != null : "index == null; closeDate=" + this.closeDate + ", now=" + new Date();
         if (this.index == null) {
-            log.severe("this.index == null in length(); closeDate=" + this.closeDate + ", now=" + new Date() + this.heapFile == null ? "" : (" file = " + this.heapFile.toString()));
-            return 0;
+            if (!this.mappedRead) log.severe("this.index == null in length(); closeDate=" + this.closeDate + ", now=" + new Date() + this.heapFile == null ? "" : (" file = " + this.heapFile.toString()));
+            return this.mappedRead ? -1 : 0;
         }
         key = normalizeKey(key);
+        if (!mightContainKey(key)) return -1;
 
-        synchronized (this.index) {
+        final long stamp = mappedReadLock();
+        if (stamp != 0) {
+            try {
+                final long pos = this.index.get(key);
+                if (pos < 0) countFalsePositive();
+                return pos < 0 ? -1 : this.mapped.readInt(pos) - this.keylength;
+            } catch (final IOException e) {
+                // fall back to the synchronized path
+            } finally {
+                this.mappedLock.unlockRead(stamp);
+            }
+        }
+
+        final HandleMap idx = this.index;
+        if (idx == null) return -1;
+        synchronized (idx) {
+            if (this.index != idx) return -1; // closed while waiting for the lock
             // check if the index contains the key
             final long pos = this.index.get(key);
-            if (pos < 0) return -1;
+            if (pos < 0) {
+                countFalsePositive();
+                return -1;
+            }
 
             // access the file and read the size of the container
             this.file.seek(pos);
@@ -597,11 +899,64 @@ public class HeapReader {
         }
     }
 
+    /**
+     * read the beginning of a BLOB, i.e. a header which is stored in front of the content.
+     * Only the requested bytes are read, which is much cheaper than get() for large BLOBs.
+     * @param key
+     * @param len the number of bytes to read
+     * @return the first min(len, length(key)) bytes of the BLOB or null if the BLOB does not exist
+     * @throws IOException
+     */
+    public byte[] head(byte[] key, final int len) throws IOException {
+        if (this.index == null) return null;
+        key = normalizeKey(key);
+        if (!mightContainKey(key)) return null;
+
+        final long stamp = mappedReadLock();
+        if (stamp != 0) {
+            try {
+                final long pos = this.index.get(key);
+                if (pos < 0) {
+                    countFalsePositive();
+                    return null;
+                }
+                final int l = this.mapped.readInt(pos) - this.keylength;
+                if (l < 0 || pos + 4 + this.keylength + l > this.mapped.length()) throw new IOException("file " + this.heapFile + " corrupted at " + pos);
+                final byte[] head = new byte[Math.min(len, l)];
+                this.mapped.readFully(pos + 4 + this.keylength, head, 0, head.length);
+                return head;
+            } catch (final IOException e) {
+                // fall back to the synchronized path
+            } finally {
+                this.mappedLock.unlockRead(stamp);
+            }
+        }
+
+        final HandleMap idx = this.index;
+        if (idx == null) return null;
+        synchronized (idx) {
+            if (this.index != idx) return null; // closed while waiting for the lock
+            final long pos = this.index.get(key);
+            if (pos < 0) {
+                countFalsePositive();
+                return null;
+            }
+            this.file.seek(pos);
+            final int l = this.file.readInt() - this.keylength;
+            if (l < 0) return null;
+            this.file.seek(pos + 4 + this.keylength);
+            final byte[] head = new byte[Math.min(len, l)];
+            this.file.readFully(head, 0, head.length);
+            return head;
+        }
+    }
+
     /**
      * close the BLOB table
      */
     public void close(boolean writeIDX) {
         if (this.index == null) return;
+        releaseMapping();
         synchronized (this.index) {
             try {
             if (this.file != null)
@@ -633,17 +988,26 @@ public class HeapReader {
                     this.free.clear();
                     this.free = null;
                     if (fingerprint != null) {
-                        File newFingerprintFileIdx = HeapWriter.fingerprintIndexFile(this.heapFile, fingerprint);
+                        final boolean image = this.index instanceof OffHeapHandleMap;
+                        File newFingerprintFileIdx = image ? HeapWriter.fingerprintImageFile(this.heapFile, fingerprint) : HeapWriter.fingerprintIndexFile(this.heapFile, fingerprint);
                         if (this.fingerprintFileIdx != null &&
                             this.fingerprintFileIdx.getName().equals(newFingerprintFileIdx.getName()) &&
                             this.fingerprintFileIdx.exists()) {
                             log.info("using existing idx dump instead of writing a new one: " + this.fingerprintFileIdx.getName());
                         } else {
                             long start = System.currentTimeMillis();
-                            this.index.dump(newFingerprintFileIdx);
+                            if (image) ((OffHeapHandleMap) this.index).dumpImage(newFingerprintFileIdx); else this.index.dump(newFingerprintFileIdx);
                             log.info("wrote a dump for the " + this.index.size() +  " index entries of " + this.heapFile.getName()+ " in " + (System.currentTimeMillis() - start) + " milliseconds.");
                         }
+                        final BloomFilter f = this.filter;
+                        final File newFingerprintFileFilter = HeapWriter.fingerprintFilterFile(this.heapFile, fingerprint);
+                        if (f != null && !newFingerprintFileFilter.exists()) {
+                            // the filter still contains all keys of the heap; keys which were deleted only add false positives
+                            deleteFilterDumps(this.heapFile);
+                            f.dump(newFingerprintFileFilter);
+                        }
                     }
+                    this.filter = null;
                     this.index.close();
                     this.index = null;
                 } catch (final IOException e) {
@@ -35,6 +35,7 @@ import net.yacy.cora.order.ByteOrder;
 import net.yacy.cora.storage.HandleMap;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.OffHeapHandleMap;
 import net.yacy.kelondro.index.RowHandleMap;
 import net.yacy.kelondro.util.FileUtils;
 
@@ -82,7 +83,13 @@ public final class HeapWriter {
         this.heapFileTMP = temporaryHeapFile;
         this.heapFileREADY = readyHeapFile;
         this.keylength = keylength;
-        this.index = new RowHandleMap(keylength, ordering, 8, 100000, readyHeapFile.getAbsolutePath());
+        this.index = null;
+        if (HeapReader.offHeapIndex) try {
+            this.index = new OffHeapHandleMap(keylength, ordering, 8, 100000, readyHeapFile.getAbsolutePath());
+        } catch (final SpaceExceededException e) {
+            log.warn("cannot allocate an off-heap index for " + readyHeapFile.getName() + ", using a RowHandleMap: " + e.getMessage());
+        }
+        if (this.index == null) this.index = new RowHandleMap(keylength, ordering, 8, 100000, readyHeapFile.getAbsolutePath());
         final FileOutputStream fileStream = new FileOutputStream(temporaryHeapFile);
         try {
         	try {
@@ -161,7 +168,11 @@ public final class HeapWriter {
                 log.severe("cannot write a dump for " + this.heapFileREADY.getName()+ ": fingerprint is null");
             } else {
                 new Gap().dump(fingerprintGapFile(this.heapFileREADY, fingerprint));
-                this.index.dump(fingerprintIndexFile(this.heapFileREADY, fingerprint));
+                if (this.index instanceof OffHeapHandleMap) {
+                    ((OffHeapHandleMap) this.index).dumpImage(fingerprintImageFile(this.heapFileREADY, fingerprint));
+                } else {
+                    this.index.dump(fingerprintIndexFile(this.heapFileREADY, fingerprint));
+                }
                 log.info("wrote a dump for the " + this.index.size() +  " index entries of " + this.heapFileREADY.getName()+ " in " + (System.currentTimeMillis() - start) + " milliseconds.");
             }
             this.index.close();
@@ -180,7 +191,7 @@ public final class HeapWriter {
         FileUtils.deletedelete(f);
         for (String s: l) {
             if (s.startsWith(n) &&
-                (s.endsWith(".idx") || s.endsWith(".gap")))
+                (s.endsWith(".idx") || s.endsWith(".gap") || s.endsWith(".ohi") || s.endsWith(".bloom")))
                FileUtils.deletedelete(new File(p, s));
         }
     }
@@ -194,4 +205,14 @@ public final class HeapWriter {
         assert f != null;
         return new File(f.getParentFile(), f.getName() + "." + fingerprint + ".gap");
     }
+
+    protected static File fingerprintImageFile(File f, String fingerprint) {
+        assert f != null;
+        return new File(f.getParentFile(), f.getName() + "." + fingerprint + ".ohi");
+    }
+
+    protected static File fingerprintFilterFile(File f, String fingerprint) {
+        assert f != null;
+        return new File(f.getParentFile(), f.getName() + "." + fingerprint + ".bloom");
+    }
 }
@@ -26,6 +26,9 @@
 
 package net.yacy.kelondro.data.word;
 
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.Locale;
 
@@ -70,6 +73,7 @@ public class Word {
     public  int      posInPhrase; // position of word in phrase
     public  int      numOfPhrase; // number of phrase. 'normal' phrases begin with number 100
     public  Bitfield flags;       // the flag bits for each word
+    public  byte[]   hash;        // the word hash if it has been computed by the tokenizer, or null
 
     public Word(final int handle, final int pip, final int nop) {
         this.count = 1;
@@ -77,6 +81,7 @@ public class Word {
         this.posInPhrase = pip;
         this.numOfPhrase = nop;
         this.flags = null;
+        this.hash = null;
     }
 
     public static void clearCache() {
@@ -115,7 +120,18 @@ public class Word {
     	byte[] h = hashCache.get(wordlc);
         if (h != null) return h;
         // calculate the hash
-    	h = commonHashOrder.encodeSubstring(Digest.encodeMD5Raw(wordlc), commonHashLength);
+    	h = md5ToWordHash(Digest.encodeMD5Raw(wordlc));
+        if (MemoryControl.shortStatus()) {
+            hashCache.clear();
+        } else {
+            //hashCache.putIfAbsent(wordlc, h); // prevent expensive MD5 computation and encoding
+            hashCache.insertIfAbsent(wordlc, h); // prevent expensive MD5 computation and encoding
+        }
+        return h;
+    }
+
+    private static byte[] md5ToWordHash(final byte[] md5) {
+        final byte[] h = commonHashOrder.encodeSubstring(md5, commonHashLength);
     	while (h[0] == highByte && h[1] == highByte && h[2] == highByte && h[3] == highByte && h[4] == highByte) {
     	    // ensure that word hashes do not start with hash '_____' which is a key for an extra hash range for private usage on the local peer
     	    // statistically we are inside this loop only every 2^^30 calls of word2hash (which means almost never)
@@ -123,15 +139,69 @@ public class Word {
     	    h[commonHashLength - 1] = lowByte;
     	}
         assert h[2] != '@';
-        if (MemoryControl.shortStatus()) {
-            hashCache.clear();
-        } else {
-            //hashCache.putIfAbsent(wordlc, h); // prevent expensive MD5 computation and encoding
-            hashCache.insertIfAbsent(wordlc, h); // prevent expensive MD5 computation and encoding
-        }
         return h;
     }
 
+    /**
+     * the buffers of one thread to compute word hashes from char slices
+     */
+    private static final class HashBuffer {
+        private final MessageDigest digest;
+        private final byte[] md5 = new byte[16];
+        private byte[] utf8 = new byte[96];
+        private HashBuffer() throws NoSuchAlgorithmException {
+            this.digest = MessageDigest.getInstance("MD5");
+        }
+    }
+
+    private static final ThreadLocal<HashBuffer> hashBuffers = new ThreadLocal<HashBuffer>();
+
+    /**
+     * Create a word hash from a slice of a char array. This computes the same hash as {@link #word2hash(String)}
+     * without creating a String and without using the hash cache, so it is meant for words which have been
+     * tokenized from a text.
+     * @param word chars of a lower case word
+     * @param offset the start of the word
+     * @param length the length of the word
+     * @return the word hash
+     */
+    public static final byte[] word2hash(final char[] word, final int offset, final int length) {
+        HashBuffer buffer = hashBuffers.get();
+        if (buffer == null) try {
+            buffer = new HashBuffer();
+            hashBuffers.set(buffer);
+        } catch (final NoSuchAlgorithmException e) {
+            return word2hash(new String(word, offset, length));
+        }
+        if (buffer.utf8.length < 3 * length) buffer.utf8 = new byte[3 * length];
+        final byte[] b = buffer.utf8;
+        int p = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final char c = word[i];
+            if (c < 0x80) {
+                b[p++] = (byte) c;
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xc0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // the encoding of surrogate pairs and of malformed surrogates is left to the String encoder
+                return word2hash(new String(word, offset, length));
+            } else {
+                b[p++] = (byte) (0xe0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                b[p++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        buffer.digest.update(b, 0, p);
+        try {
+            buffer.digest.digest(buffer.md5, 0, buffer.md5.length);
+        } catch (final DigestException e) {
+            buffer.digest.reset();
+            return word2hash(new String(word, offset, length));
+        }
+        return md5ToWordHash(buffer.md5);
+    }
+
     public final static byte PRIVATE_TYPE_COPY = 'C';     // used for a private local copy of the index
     public final static byte PRIVATE_TYPE_PHONETIC = 'K'; // used for ColognePhonetics
 
@@ -0,0 +1,167 @@
+/**
+ *  BloomFilter
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * A membership filter for byte[] keys: mightContain() never returns false for a key that has been added,
+ * but may return true for a key that has not been added (a false positive).
+ * The filter is used to skip BLOB files that cannot contain a key without asking their index.
+ * Keys can only be added, never removed; a filter that was built from a larger key set than the
+ * current one is still correct, it only produces more false positives.
+ * add() is not synchronized: a filter should be filled completely before it is shared with other threads;
+ * mightContain() can then be called concurrently.
+ */
+public final class BloomFilter {
+
+    private static final int MAGIC = 0x59426631; // "YBf1"
+
+    private final long[] bits;
+    private final int hashes;
+    private final long bitcount;
+
+    /**
+     * create an empty filter
+     * @param expectedKeys the number of keys that shall be added
+     * @param bitsPerKey the number of filter bits for each key; 10 bits result in a false positive rate of about 1%
+     */
+    public BloomFilter(final int expectedKeys, final int bitsPerKey) {
+        final long m = Math.max(64L, (long) Math.max(1, expectedKeys) * Math.max(1, bitsPerKey));
+        this.bits = new long[(int) Math.min(Integer.MAX_VALUE - 8, (m + 63) >>> 6)];
+        this.bitcount = (long) this.bits.length << 6;
+        // the optimal number of hash functions is ln(2) * bits per key
+        this.hashes = Math.max(1, Math.min(16, (int) Math.round(Math.log(2.0d) * bitsPerKey)));
+    }
+
+    /**
+     * read a filter from a dump that was written with dump()
+     * @param file
+     * @throws IOException if the file cannot be read or is not a filter dump
+     */
+    public BloomFilter(final File file) throws IOException {
+        final DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        try {
+            if (is.readInt() != MAGIC) throw new IOException("not a filter dump: " + file.toString());
+            this.hashes = is.readInt();
+            final int words = is.readInt();
+            if (this.hashes < 1 || this.hashes > 16 || words < 1 || (long) words * 8 + 12 != file.length()) throw new IOException("corrupted filter dump: " + file.toString());
+            this.bits = new long[words];
+            for (int i = 0; i < words; i++) this.bits[i] = is.readLong();
+            this.bitcount = (long) this.bits.length << 6;
+        } finally {
+            is.close();
+        }
+    }
+
+    public void add(final byte[] key) {
+        final long h = hash(key);
+        final long h1 = h >>> 32;
+        final long h2 = (h & 0xffffffffL) | 1L; // odd, so that the probes never collapse into one bit
+        for (int i = 0; i < this.hashes; i++) {
+            final long bit = ((h1 + i * h2) & Long.MAX_VALUE) % this.bitcount;
+            this.bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * test if the key may be contained in the filter
+     * @param key
+     * @return false if the key has certainly not been added, true if it may have been added
+     */
+    public boolean mightContain(final byte[] key) {
+        final long h = hash(key);
+        final long h1 = h >>> 32;
+        final long h2 = (h & 0xffffffffL) | 1L; // odd, so that the probes never collapse into one bit
+        for (int i = 0; i < this.hashes; i++) {
+            final long bit = ((h1 + i * h2) & Long.MAX_VALUE) % this.bitcount;
+            if ((this.bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the memory used by the filter in bytes
+     */
+    public long mem() {
+        return (long) this.bits.length * 8;
+    }
+
+    /**
+     * write the filter to a file; the file is written to a temporary file first and then renamed
+     * @param file
+     * @throws IOException
+     */
+    public void dump(final File file) throws IOException {
+        final File tmp = new File(file.getParentFile(), file.getName() + ".prt");
+        final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024));
+        try {
+            os.writeInt(MAGIC);
+            os.writeInt(this.hashes);
+            os.writeInt(this.bits.length);
+            for (final long l: this.bits) os.writeLong(l);
+            os.flush();
+        } finally {
+            os.close();
+        }
+        if (file.exists()) FileUtils.deletedelete(file);
+        if (!tmp.renameTo(file)) throw new IOException("cannot rename " + tmp.toString() + " to " + file.toString());
+    }
+
+    /**
+     * a 64 bit hash of the key (murmur3 finalizer over 8-byte blocks); the keys in the index
+     * are mostly hashes themselves, so this must only spread all bytes of the key over the result
+     */
+    private static long hash(final byte[] key) {
+        long h = 0x9E3779B97F4A7C15L ^ key.length;
+        int i = 0;
+        while (i + 8 <= key.length) {
+            long k = 0;
+            for (int j = 0; j < 8; j++) k = (k << 8) | (key[i++] & 0xff);
+            h = mix(h ^ k);
+        }
+        if (i < key.length) {
+            long k = 0;
+            while (i < key.length) k = (k << 8) | (key[i++] & 0xff);
+            h = mix(h ^ k);
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53a87c5L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
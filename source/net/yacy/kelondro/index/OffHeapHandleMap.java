@@ -0,0 +1,786 @@
+/**
+ *  OffHeapHandleMap
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.storage.HandleMap;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * A HandleMap which stores fixed-width keys and their values in direct (off-heap) memory.
+ * The entries are held in an open-addressing hash table with linear probing; each slot has
+ * one state byte, the key and the value with idxbytes bytes in big-endian order.
+ * get() and put() are O(1) and the map does not produce any Java objects for stored entries,
+ * so even very large maps do not add to the old generation of the Java heap.
+ *
+ * The memory image of the table can be written with dumpImage() and read again with the file constructor,
+ * which avoids the row-by-row insertion of a RowHandleMap dump. The file constructor also reads the
+ * dumps of a RowHandleMap, so existing .idx files can be used.
+ *
+ * In contrast to RowHandleMap the entries are not sorted: smallestKey(), largestKey(), keys() and dump() must
+ * sort all keys and are expensive; top() returns any keys. Keys are compared byte-wise, the ordering is only used for sorting.
+ */
+public final class OffHeapHandleMap implements HandleMap, Iterable<Map.Entry<byte[], Long>> {
+
+    private static final ConcurrentLog log = new ConcurrentLog("OffHeapHandleMap");
+
+    private static final int MAGIC = 0x59484d31; // "YHM1"
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 8 + 8;
+    private static final byte FREE = 0, USED = 1, DELETED = 2;
+    private static final int MAX_SEGMENT_SIZE = 1 << 30;
+    private static final int MIN_CAPACITY = 1 << 10;
+    private static final int MAX_INITIAL_CAPACITY = 1 << 20;
+    private static final double MAX_LOAD = 0.7d;
+
+    private final int keylength;
+    private final int idxbytes;
+    private final int slotsize;
+    private final ByteOrder ordering;
+    private final String name;
+    private final ReentrantReadWriteLock lock;
+    private volatile Table table;
+    private long size;     // number of USED slots
+    private long deleted;  // number of DELETED slots
+
+    /**
+     * a hash table in direct memory: a power of two number of slots, distributed over segments of at most 1 GB
+     */
+    private final class Table {
+        final long capacity;
+        final int slotsPerSegment;
+        final ByteBuffer[] segments;
+
+        Table(final long capacity) throws SpaceExceededException {
+            assert Long.bitCount(capacity) == 1;
+            this.capacity = capacity;
+            this.slotsPerSegment = (int) Math.min(capacity, MAX_SEGMENT_SIZE / OffHeapHandleMap.this.slotsize);
+            final int count = (int) ((capacity + this.slotsPerSegment - 1) / this.slotsPerSegment);
+            this.segments = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                final int bytes = (int) Math.min(this.slotsPerSegment, capacity - (long) i * this.slotsPerSegment) * OffHeapHandleMap.this.slotsize;
+                try {
+                    this.segments[i] = ByteBuffer.allocateDirect(bytes); // initialized with zero = FREE
+                } catch (final OutOfMemoryError e) {
+                    throw new SpaceExceededException(bytes, "OffHeapHandleMap.Table", e);
+                }
+            }
+        }
+
+        ByteBuffer segment(final long slot) {
+            return this.segments[(int) (slot / this.slotsPerSegment)];
+        }
+
+        int offset(final long slot) {
+            return (int) (slot % this.slotsPerSegment) * OffHeapHandleMap.this.slotsize;
+        }
+
+        /**
+         * find the slot of the key
+         * @return the slot of the key if it exists, otherwise -1 - (the first slot where the key can be inserted)
+         */
+        long find(final byte[] key) {
+            final long mask = this.capacity - 1;
+            long slot = hash(key) & mask;
+            long insert = -1;
+            while (true) {
+                final ByteBuffer b = segment(slot);
+                final int o = offset(slot);
+                final byte state = b.get(o);
+                if (state == FREE) return -1 - (insert < 0 ? slot : insert);
+                if (state == DELETED) {
+                    if (insert < 0) insert = slot;
+                } else if (keyEquals(b, o + 1, key)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        byte state(final long slot) {
+            return segment(slot).get(offset(slot));
+        }
+
+        byte[] key(final long slot) {
+            final ByteBuffer b = segment(slot);
+            final int o = offset(slot) + 1;
+            final byte[] key = new byte[OffHeapHandleMap.this.keylength];
+            for (int i = 0; i < key.length; i++) key[i] = b.get(o + i);
+            return key;
+        }
+
+        long value(final long slot) {
+            final ByteBuffer b = segment(slot);
+            final int o = offset(slot) + 1 + OffHeapHandleMap.this.keylength;
+            long v = 0;
+            for (int i = 0; i < OffHeapHandleMap.this.idxbytes; i++) v = (v << 8) | (b.get(o + i) & 0xff);
+            return v;
+        }
+
+        void setValue(final long slot, long v) {
+            final ByteBuffer b = segment(slot);
+            final int o = offset(slot) + 1 + OffHeapHandleMap.this.keylength;
+            for (int i = OffHeapHandleMap.this.idxbytes - 1; i >= 0; i--) {
+                b.put(o + i, (byte) v);
+                v >>>= 8;
+            }
+        }
+
+        void set(final long slot, final byte[] key, final long v) {
+            final ByteBuffer b = segment(slot);
+            final int o = offset(slot);
+            for (int i = 0; i < key.length; i++) b.put(o + 1 + i, key[i]);
+            setValue(slot, v);
+            b.put(o, USED); // written last, so a concurrent scan never sees a half-written slot as used
+        }
+
+        void delete(final long slot) {
+            segment(slot).put(offset(slot), DELETED);
+        }
+    }
+
+    /**
+     * initialize an empty map
+     * @param keylength the fixed length of all keys
+     * @param objectOrder the order of the keys, only used for sorted iteration
+     * @param idxbytes the number of bytes for each value
+     * @param expectedspace the expected number of entries
+     * @param name
+     * @throws SpaceExceededException if the direct memory cannot be allocated
+     */
+    public OffHeapHandleMap(final int keylength, final ByteOrder objectOrder, final int idxbytes, final int expectedspace, final String name) throws SpaceExceededException {
+        assert idxbytes > 0 && idxbytes <= 8 : "idxbytes = " + idxbytes;
+        this.keylength = keylength;
+        this.idxbytes = idxbytes;
+        this.slotsize = 1 + keylength + idxbytes;
+        this.ordering = objectOrder;
+        this.name = name;
+        this.lock = new ReentrantReadWriteLock();
+        this.table = new Table(capacityFor(Math.min(expectedspace, MAX_INITIAL_CAPACITY)));
+        this.size = 0;
+        this.deleted = 0;
+    }
+
+    /**
+     * initialize a map with the content of a file. The file may be a memory image written by dumpImage() or a
+     * dump of a RowHandleMap with the same key length and idxbytes (optionally gzipped).
+     * @param keylength
+     * @param objectOrder
+     * @param idxbytes
+     * @param file
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public OffHeapHandleMap(final int keylength, final ByteOrder objectOrder, final int idxbytes, final File file) throws IOException, SpaceExceededException {
+        this(keylength, objectOrder, idxbytes, 0, file.getAbsolutePath());
+        if (isImage(file)) {
+            readImage(file);
+        } else {
+            readRows(file);
+        }
+    }
+
+    private static long capacityFor(final long entries) {
+        long c = MIN_CAPACITY;
+        while (c * MAX_LOAD < entries) c <<= 1;
+        return c;
+    }
+
+    private static boolean isImage(final File file) throws IOException {
+        if (file.getName().endsWith(".gz") || file.length() < HEADER_SIZE) return false;
+        final DataInputStream is = new DataInputStream(new FileInputStream(file));
+        try {
+            return is.readInt() == MAGIC;
+        } finally {
+            is.close();
+        }
+    }
+
+    private void readImage(final File file) throws IOException, SpaceExceededException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) if (channel.read(header) < 0) throw new IOException("unexpected end of image " + file);
+            header.flip();
+            header.getInt(); // magic
+            final int kl = header.getInt();
+            final int ib = header.getInt();
+            final long capacity = header.getLong();
+            final long s = header.getLong();
+            final long d = header.getLong();
+            if (kl != this.keylength || ib != this.idxbytes) throw new IOException("image " + file + " has keylength " + kl + " and idxbytes " + ib + ", expected " + this.keylength + " and " + this.idxbytes);
+            if (Long.bitCount(capacity) != 1 || HEADER_SIZE + capacity * this.slotsize != channel.size()) throw new IOException("corrupted image " + file);
+            final Table t = new Table(capacity);
+            for (final ByteBuffer segment: t.segments) {
+                final ByteBuffer b = segment.duplicate();
+                while (b.hasRemaining()) if (channel.read(b) < 0) throw new IOException("unexpected end of image " + file);
+            }
+            this.table = t;
+            this.size = s;
+            this.deleted = d;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void readRows(final File file) throws IOException, SpaceExceededException {
+        final long rows = file.length() / (this.keylength + this.idxbytes);
+        this.table = new Table(capacityFor(rows));
+        InputStream is = new BufferedInputStream(new FileInputStream(file), 1024 * 1024);
+        try {
+            if (file.getName().endsWith(".gz")) is = new GZIPInputStream(is);
+            final DataInputStream dis = new DataInputStream(is);
+            final byte[] a = new byte[this.keylength + this.idxbytes];
+            while (true) {
+                try {
+                    dis.readFully(a);
+                } catch (final EOFException e) {
+                    break;
+                }
+                long v = 0;
+                for (int i = this.keylength; i < a.length; i++) v = (v << 8) | (a[i] & 0xff);
+                putUnique(Arrays.copyOf(a, this.keylength), v);
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * write the memory image of the table to a file. The image can be read with the file constructor
+     * without re-hashing the entries.
+     * @param file
+     * @throws IOException
+     */
+    public void dumpImage(final File file) throws IOException {
+        final File tmp = new File(file.getParentFile(), file.getName() + ".prt");
+        this.lock.readLock().lock();
+        try {
+            final Table t = this.table;
+            if (t == null) throw new IOException("OffHeapHandleMap " + this.name + " is closed");
+            final RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+            try {
+                raf.setLength(0);
+                final FileChannel channel = raf.getChannel();
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(this.keylength).putInt(this.idxbytes).putLong(t.capacity).putLong(this.size).putLong(this.deleted);
+                header.flip();
+                while (header.hasRemaining()) channel.write(header);
+                for (final ByteBuffer segment: t.segments) {
+                    final ByteBuffer b = segment.duplicate();
+                    b.clear();
+                    while (b.hasRemaining()) channel.write(b);
+                }
+            } finally {
+                raf.close();
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        if (file.exists()) FileUtils.deletedelete(file);
+        if (!tmp.renameTo(file)) throw new IOException("cannot rename " + tmp + " to " + file);
+    }
+
+    /**
+     * write a dump of the index to a file in the format of RowHandleMap. All entries are written in order
+     * which makes it possible to read them again in a fast way
+     * @param file
+     * @return the number of written entries
+     * @throws IOException
+     */
+    @Override
+    public int dump(final File file) throws IOException {
+        final File tmp = new File(file.getParentFile(), file.getName() + ".prt");
+        int c = 0;
+        final OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp), 4 * 1024 * 1024);
+        try {
+            this.lock.readLock().lock();
+            try {
+                final Table t = this.table;
+                if (t == null) throw new IOException("OffHeapHandleMap " + this.name + " is closed");
+                final byte[] v = new byte[this.idxbytes];
+                for (final long slot: sortedSlots(t, true)) {
+                    os.write(t.key(slot));
+                    long l = t.value(slot);
+                    for (int i = v.length - 1; i >= 0; i--) {
+                        v[i] = (byte) l;
+                        l >>>= 8;
+                    }
+                    os.write(v);
+                    c++;
+                }
+            } finally {
+                this.lock.readLock().unlock();
+            }
+        } finally {
+            os.close();
+        }
+        if (file.exists()) FileUtils.deletedelete(file);
+        if (!tmp.renameTo(file)) throw new IOException("cannot rename " + tmp + " to " + file);
+        return c;
+    }
+
+    /**
+     * the slots of all used entries, sorted by their keys. Must be called with a lock.
+     */
+    private long[] sortedSlots(final Table t, final boolean up) {
+        final int n = (int) this.size;
+        final byte[][] keys = new byte[n][];
+        final long[] slots = new long[n];
+        int c = 0;
+        for (long slot = 0; slot < t.capacity && c < n; slot++) {
+            if (t.state(slot) != USED) continue;
+            keys[c] = t.key(slot);
+            slots[c++] = slot;
+        }
+        final Integer[] order = new Integer[c];
+        for (int i = 0; i < c; i++) order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                final int r = OffHeapHandleMap.this.ordering.compare(keys[a], keys[b]);
+                return up ? r : -r;
+            }
+        });
+        final long[] sorted = new long[c];
+        for (int i = 0; i < c; i++) sorted[i] = slots[order[i]];
+        return sorted;
+    }
+
+    private byte[][] sortedKeys(final boolean up) {
+        this.lock.readLock().lock();
+        try {
+            final Table t = this.table;
+            if (t == null) return new byte[0][];
+            final long[] slots = sortedSlots(t, up);
+            final byte[][] keys = new byte[slots.length][];
+            for (int i = 0; i < slots.length; i++) keys[i] = t.key(slots[i]);
+            return keys;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private boolean keyEquals(final ByteBuffer b, final int o, final byte[] key) {
+        for (int i = 0; i < this.keylength; i++) {
+            if (b.get(o + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private byte[] normalizeKey(final byte[] key) {
+        assert key != null;
+        if (key.length == this.keylength) return key;
+        return Arrays.copyOf(key, this.keylength);
+    }
+
+    /**
+     * a 64 bit hash of the key; most keys are base64 hashes already, the mixing spreads all bytes over the result
+     */
+    private static long hash(final byte[] key) {
+        long h = 0x9E3779B97F4A7C15L ^ key.length;
+        for (int i = 0; i < key.length; i++) {
+            h = (h ^ (key[i] & 0xff)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53a87c5L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * make room for one more entry. Must be called with the write lock.
+     */
+    private void ensureCapacity() throws SpaceExceededException {
+        final Table t = this.table;
+        if (this.size + this.deleted + 1 <= t.capacity * MAX_LOAD) return;
+        // grow if the table is filled with entries, otherwise only remove the deleted slots
+        final long capacity = (this.size + 1 > t.capacity * MAX_LOAD / 2) ? t.capacity << 1 : t.capacity;
+        final Table n = new Table(capacity);
+        for (long slot = 0; slot < t.capacity; slot++) {
+            if (t.state(slot) != USED) continue;
+            final byte[] key = t.key(slot);
+            n.set(-1 - n.find(key), key, t.value(slot));
+        }
+        this.table = n;
+        this.deleted = 0;
+    }
+
+    @Override
+    public long mem() {
+        final Table t = this.table;
+        return t == null ? 0 : t.capacity * this.slotsize;
+    }
+
+    @Override
+    public void optimize() {
+        // the hash table needs no sorting
+    }
+
+    @Override
+    public void clear() {
+        this.lock.writeLock().lock();
+        try {
+            this.table = new Table(MIN_CAPACITY);
+            this.size = 0;
+            this.deleted = 0;
+        } catch (final SpaceExceededException e) {
+            log.warn("cannot allocate an empty table for " + this.name + ": " + e.getMessage());
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public byte[] smallestKey() {
+        final byte[][] keys = sortedKeys(true);
+        return keys.length == 0 ? null : keys[0];
+    }
+
+    @Override
+    public byte[] largestKey() {
+        final byte[][] keys = sortedKeys(false);
+        return keys.length == 0 ? null : keys[0];
+    }
+
+    @Override
+    public boolean has(final byte[] key) {
+        return get(key) >= 0;
+    }
+
+    @Override
+    public long get(byte[] key) {
+        key = normalizeKey(key);
+        this.lock.readLock().lock();
+        try {
+            final Table t = this.table;
+            if (t == null) return -1;
+            final long slot = t.find(key);
+            return slot < 0 ? -1 : t.value(slot);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the key-value pair to the index.
+     * @param key the index key
+     * @param l the value
+     * @return the previous entry of the index
+     * @throws SpaceExceededException
+     */
+    @Override
+    public long put(byte[] key, final long l) throws SpaceExceededException {
+        assert l >= 0 : "l = " + l;
+        key = normalizeKey(key);
+        this.lock.writeLock().lock();
+        try {
+            final Table t = openTable();
+            final long slot = t.find(key);
+            if (slot >= 0) {
+                final long old = t.value(slot);
+                t.setValue(slot, l);
+                return old;
+            }
+            insert(key, l);
+            return -1;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * the table of an open map. Must be called with a lock.
+     * @throws IllegalStateException if the map is closed
+     */
+    private Table openTable() {
+        final Table t = this.table;
+        if (t == null) throw new IllegalStateException("OffHeapHandleMap " + this.name + " is closed");
+        return t;
+    }
+
+    /**
+     * insert a key which is not in the table. Must be called with the write lock.
+     */
+    private void insert(final byte[] key, final long l) throws SpaceExceededException {
+        ensureCapacity();
+        final Table t = this.table;
+        final long slot = -1 - t.find(key);
+        if (t.state(slot) == DELETED) this.deleted--;
+        t.set(slot, key, l);
+        this.size++;
+    }
+
+    @Override
+    public void putUnique(final byte[] key, final long l) throws SpaceExceededException {
+        // a hash table cannot hold double entries, so this is the same as put
+        put(key, l);
+    }
+
+    @Override
+    public long add(byte[] key, final long a) throws SpaceExceededException {
+        key = normalizeKey(key);
+        this.lock.writeLock().lock();
+        try {
+            final Table t = openTable();
+            final long slot = t.find(key);
+            if (slot < 0) {
+                insert(key, a);
+                return a;
+            }
+            final long i = t.value(slot) + a;
+            t.setValue(slot, i);
+            return i;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long inc(final byte[] key) throws SpaceExceededException {
+        return add(key, 1);
+    }
+
+    @Override
+    public long dec(final byte[] key) throws SpaceExceededException {
+        return add(key, -1);
+    }
+
+    @Override
+    public ArrayList<long[]> removeDoubles() {
+        // every key exists only once in a hash table
+        return new ArrayList<long[]>(0);
+    }
+
+    @Override
+    public ArrayList<byte[]> top(final int count) {
+        final ArrayList<byte[]> list = new ArrayList<byte[]>();
+        this.lock.readLock().lock();
+        try {
+            final Table t = this.table;
+            if (t == null) return list;
+            for (long slot = 0; slot < t.capacity && list.size() < count; slot++) {
+                if (t.state(slot) == USED) list.add(t.key(slot));
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return list;
+    }
+
+    @Override
+    public long remove(byte[] key) {
+        key = normalizeKey(key);
+        this.lock.writeLock().lock();
+        try {
+            final Table t = this.table;
+            if (t == null) return -1;
+            final long slot = t.find(key);
+            if (slot < 0) return -1;
+            final long old = t.value(slot);
+            t.delete(slot);
+            this.size--;
+            this.deleted++;
+            return old;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long removeone() {
+        this.lock.writeLock().lock();
+        try {
+            final Table t = this.table;
+            if (t == null || this.size == 0) return -1;
+            for (long slot = 0; slot < t.capacity; slot++) {
+                if (t.state(slot) != USED) continue;
+                final long old = t.value(slot);
+                t.delete(slot);
+                this.size--;
+                this.deleted++;
+                return old;
+            }
+            return -1;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return (int) this.size;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * iterate the keys in order. This sorts a copy of all keys and should not be used for large maps in time-critical code.
+     */
+    @Override
+    public CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) {
+        return new KeyIterator(sortedKeys(up), up, firstKey);
+    }
+
+    private final class KeyIterator implements CloneableIterator<byte[]> {
+
+        private final byte[][] keys;
+        private final boolean up;
+        private int p;
+
+        public KeyIterator(final byte[][] keys, final boolean up, final byte[] firstKey) {
+            this.keys = keys;
+            this.up = up;
+            this.p = 0;
+            if (firstKey != null && firstKey.length > 0) {
+                while (this.p < keys.length) {
+                    final int c = OffHeapHandleMap.this.ordering.compare(keys[this.p], normalizeKey(firstKey));
+                    if (up ? c >= 0 : c <= 0) break;
+                    this.p++;
+                }
+            }
+        }
+
+        @Override
+        public CloneableIterator<byte[]> clone(final Object modifier) {
+            return new KeyIterator(this.keys, this.up, (byte[]) modifier);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.p < this.keys.length;
+        }
+
+        @Override
+        public byte[] next() {
+            if (this.p >= this.keys.length) throw new NoSuchElementException();
+            return this.keys[this.p++];
+        }
+
+        @Override
+        public void remove() {
+            OffHeapHandleMap.this.remove(this.keys[this.p - 1]);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * release the table. A closed map answers all lookups as empty map; modifications throw an IllegalStateException.
+     * The map can be used again after clear().
+     */
+    @Override
+    public void close() {
+        this.lock.writeLock().lock();
+        try {
+            // the direct memory is released when the buffers are collected
+            this.table = null;
+            this.size = 0;
+            this.deleted = 0;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * iterate all entries in the order of the hash table. The iteration works on the table which exists when the
+     * iterator is created; entries which are inserted concurrently may or may not be visible.
+     */
+    @Override
+    public Iterator<Map.Entry<byte[], Long>> iterator() {
+        final Table t = this.table;
+        return new Iterator<Map.Entry<byte[], Long>>() {
+            private long slot = -1;
+            private long next = advance(0);
+            private byte[] last = null;
+
+            private long advance(long s) {
+                if (t == null) return -1;
+                while (s < t.capacity) {
+                    if (t.state(s) == USED) return s;
+                    s++;
+                }
+                return -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.next >= 0;
+            }
+
+            @Override
+            public Map.Entry<byte[], Long> next() {
+                if (this.next < 0) throw new NoSuchElementException();
+                this.slot = this.next;
+                this.last = t.key(this.slot);
+                final Map.Entry<byte[], Long> entry = new AbstractMap.SimpleEntry<byte[], Long>(this.last, t.value(this.slot));
+                this.next = advance(this.slot + 1);
+                return entry;
+            }
+
+            @Override
+            public void remove() {
+                if (this.last == null) throw new IllegalStateException();
+                OffHeapHandleMap.this.remove(this.last);
+                this.last = null;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,550 @@
+/**
+ *  PooledOpenFileIndex
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.Row.Entry;
+import net.yacy.kelondro.table.Table;
+import net.yacy.kelondro.util.kelondroException;
+
+/**
+ * An index on a table file which is opened on demand like the OnDemandOpenFileIndex, but is kept open
+ * in a process-wide pool of open tables. If the pool exceeds its limit, the least recently used tables
+ * are closed and opened again with the next access. This bounds the number of open files of many small
+ * indexes, i.e. the depth stacks of the crawler host queues, without opening the file with every access.
+ */
+public class PooledOpenFileIndex implements Index, Iterable<Row.Entry> {
+
+    private final static ConcurrentLog log = new ConcurrentLog("PooledOpenFileIndex");
+
+    // the pool of open tables in the order of their last access
+    private final static LinkedHashMap<PooledOpenFileIndex, Boolean> pool = new LinkedHashMap<PooledOpenFileIndex, Boolean>(16, 0.75f, true);
+    private static volatile int maxOpen = 1000;
+    private final static AtomicLong opened = new AtomicLong(0), closed = new AtomicLong(0), reused = new AtomicLong(0);
+
+    private final File file;
+    private final Row rowdef;
+    private final boolean exceed134217727;
+    private final ReentrantLock lock;
+    private Table table; // guarded by lock
+    private int sizecache; // guarded by lock
+
+    public PooledOpenFileIndex(final File file, final Row rowdef, final boolean exceed134217727) {
+        this.file = file;
+        this.rowdef = rowdef;
+        this.exceed134217727 = exceed134217727;
+        this.lock = new ReentrantLock();
+        this.table = null;
+        this.sizecache = -1;
+    }
+
+    /**
+     * set the maximum number of tables which are open at the same time
+     * @param max the limit of open files; at least 1
+     */
+    public static void setMaxOpen(final int max) {
+        maxOpen = Math.max(1, max);
+        evict();
+    }
+
+    public static int getMaxOpen() {
+        return maxOpen;
+    }
+
+    /**
+     * @return the number of currently open tables
+     */
+    public static int openFiles() {
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+
+    /**
+     * @return the number of table files opened since start-up
+     */
+    public static long openedFiles() {
+        return opened.get();
+    }
+
+    /**
+     * @return the number of table files closed by the pool or by close() since start-up
+     */
+    public static long closedFiles() {
+        return closed.get();
+    }
+
+    /**
+     * @return the number of accesses which found the table already open
+     */
+    public static long reusedFiles() {
+        return reused.get();
+    }
+
+    /**
+     * lock this index and open the table if it is not open
+     * every call must be followed by a call to release(), also if the result is null
+     * @return the open table or null if the table cannot be opened
+     */
+    private Index acquire() {
+        this.lock.lock();
+        if (this.table == null) {
+            try {
+                this.table = new Table(this.file, this.rowdef, 1000, 0, false, this.exceed134217727, false);
+                opened.incrementAndGet();
+            } catch (final kelondroException e) {
+                ConcurrentLog.logException(e);
+                return null;
+            } catch (final SpaceExceededException e) {
+                ConcurrentLog.logException(e);
+                return null;
+            }
+        } else {
+            reused.incrementAndGet();
+        }
+        synchronized (pool) {
+            pool.put(this, Boolean.TRUE);
+        }
+        return this.table;
+    }
+
+    private void release() {
+        this.lock.unlock();
+        evict();
+    }
+
+    /**
+     * close the least recently used tables until the pool is within its limit.
+     * Tables which are in use by another thread are skipped, they are closed with a later eviction.
+     */
+    private static void evict() {
+        while (true) {
+            PooledOpenFileIndex victim = null;
+            synchronized (pool) {
+                if (pool.size() <= maxOpen) return;
+                final Iterator<PooledOpenFileIndex> i = pool.keySet().iterator();
+                while (i.hasNext()) {
+                    final PooledOpenFileIndex candidate = i.next();
+                    // tryLock does not block, so the lock order index -> pool in acquire() cannot deadlock
+                    if (candidate.lock.isHeldByCurrentThread() || !candidate.lock.tryLock()) continue;
+                    i.remove();
+                    victim = candidate;
+                    break;
+                }
+            }
+            if (victim == null) return; // all open tables are in use
+            try {
+                victim.closeTable();
+            } finally {
+                victim.lock.unlock();
+            }
+        }
+    }
+
+    // must be called while holding the lock
+    private void closeTable() {
+        if (this.table == null) return;
+        this.table.close();
+        this.table = null;
+        closed.incrementAndGet();
+        if (log.isFine()) log.fine("closed " + this.file.getName() + ", " + opened.get() + " opened, " + closed.get() + " closed");
+    }
+
+    // an index which is known to be empty is not opened for a lookup
+    private boolean knownEmpty() {
+        this.lock.lock();
+        try {
+            return this.sizecache == 0;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] smallestKey() {
+        final Index index = acquire();
+        try {
+            if (index == null) return null;
+            return index.smallestKey();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public byte[] largestKey() {
+        final Index index = acquire();
+        try {
+            if (index == null) return null;
+            return index.largestKey();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public void optimize() {
+        final Index index = acquire();
+        try {
+            if (index == null) return;
+            index.optimize();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public long mem() {
+        this.lock.lock();
+        try {
+            return this.table == null ? 0 : this.table.mem();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void addUnique(final Entry row) throws SpaceExceededException, IOException {
+        final Index index = acquire();
+        try {
+            if (index == null) return;
+            index.addUnique(row);
+            if (this.sizecache >= 0) this.sizecache++;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public void clear() throws IOException {
+        final Index index = acquire();
+        try {
+            if (index == null) return;
+            index.clear();
+            this.sizecache = 0;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * close the table and remove it from the pool; the table is opened again with the next access
+     */
+    @Override
+    public void close() {
+        this.lock.lock();
+        try {
+            synchronized (pool) {
+                pool.remove(this);
+            }
+            closeTable();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteOnExit() {
+        final Index index = acquire();
+        try {
+            if (index == null) return;
+            index.deleteOnExit();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public String filename() {
+        return this.file.toString();
+    }
+
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            if (this.sizecache >= 0) return this.sizecache;
+        } finally {
+            this.lock.unlock();
+        }
+        final Index index = acquire();
+        try {
+            if (index == null) return 0;
+            this.sizecache = index.size();
+            return this.sizecache;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public Entry get(final byte[] key, final boolean forcecopy) throws IOException {
+        if (knownEmpty()) return null;
+        final Index index = acquire();
+        try {
+            if (index == null) return null;
+            return index.get(key, forcecopy);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public Map<byte[], Row.Entry> get(final Collection<byte[]> keys, final boolean forcecopy) throws IOException, InterruptedException {
+        final Map<byte[], Row.Entry> map = new TreeMap<byte[], Row.Entry>(row().objectOrder);
+        if (knownEmpty()) return map;
+        final Index index = acquire();
+        try {
+            if (index == null) return map;
+            Row.Entry entry;
+            for (final byte[] key: keys) {
+                entry = index.get(key, forcecopy);
+                if (entry != null) map.put(key, entry);
+            }
+            return map;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public boolean has(final byte[] key) {
+        if (knownEmpty()) return false;
+        final Index index = acquire();
+        try {
+            if (index == null) return false;
+            return index.has(key);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean put(final Entry row) throws IOException, SpaceExceededException {
+        final Index index = acquire();
+        try {
+            if (index == null) return false;
+            final boolean b = index.put(row);
+            if (this.sizecache >= 0 && b) this.sizecache++;
+            return b;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public Entry remove(final byte[] key) throws IOException {
+        final Index index = acquire();
+        try {
+            if (index == null) return null;
+            final Entry e = index.remove(key);
+            if (this.sizecache >= 0 && e != null) this.sizecache--;
+            return e;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public boolean delete(final byte[] key) throws IOException {
+        final Index index = acquire();
+        try {
+            if (index == null) return false;
+            final boolean b = index.delete(key);
+            if (this.sizecache >= 0 && b) this.sizecache--;
+            return b;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public List<RowCollection> removeDoubles() throws IOException, SpaceExceededException {
+        final Index index = acquire();
+        try {
+            if (index == null) return null;
+            final List<RowCollection> l = index.removeDoubles();
+            this.sizecache = index.size();
+            return l;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public List<Row.Entry> top(final int count) throws IOException {
+        final Index index = acquire();
+        try {
+            if (index == null) return null;
+            return index.top(count);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public List<Row.Entry> random(final int count) throws IOException {
+        final Index index = acquire();
+        try {
+            if (index == null) return null;
+            return index.random(count);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public Entry removeOne() throws IOException {
+        final Index index = acquire();
+        try {
+            if (index == null) return null;
+            final Entry e = index.removeOne();
+            if (this.sizecache >= 0 && e != null) this.sizecache--;
+            return e;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public Entry replace(final Entry row) throws SpaceExceededException, IOException {
+        final Index index = acquire();
+        try {
+            if (index == null) return null;
+            final Entry e = index.replace(row);
+            if (this.sizecache >= 0 && e == null) this.sizecache++;
+            return e;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public Row row() {
+        return this.rowdef;
+    }
+
+    /*
+     * the iterators are copied because the table may be closed by the pool while the iterator is used
+     */
+
+    @Override
+    public CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) throws IOException {
+        final Index index = acquire();
+        final List<byte[]> list = new ArrayList<byte[]>();
+        try {
+            if (index == null) return null;
+            final Iterator<byte[]> i = index.keys(up, firstKey);
+            while (i.hasNext()) list.add(i.next());
+        } finally {
+            release();
+        }
+        return new ListIterator<byte[]>(list.iterator());
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        final Index index = acquire();
+        final List<Entry> list = new ArrayList<Entry>();
+        try {
+            if (index == null) return null;
+            final Iterator<Entry> i = index.iterator();
+            while (i.hasNext()) list.add(i.next());
+        } finally {
+            release();
+        }
+        return list.iterator();
+    }
+
+    @Override
+    public CloneableIterator<Entry> rows(final boolean up, final byte[] firstKey) throws IOException {
+        final Index index = acquire();
+        final List<Entry> list = new ArrayList<Entry>();
+        try {
+            if (index == null) return null;
+            final Iterator<Entry> i = index.rows(up, firstKey);
+            while (i.hasNext()) list.add(i.next());
+        } finally {
+            release();
+        }
+        return new ListIterator<Entry>(list.iterator());
+    }
+
+    @Override
+    public CloneableIterator<Entry> rows() throws IOException {
+        final Index index = acquire();
+        final List<Entry> list = new ArrayList<Entry>();
+        try {
+            if (index == null) return null;
+            final Iterator<Entry> i = index.rows();
+            while (i.hasNext()) list.add(i.next());
+        } finally {
+            release();
+        }
+        return new ListIterator<Entry>(list.iterator());
+    }
+
+    private static class ListIterator<E> implements CloneableIterator<E> {
+        private final Iterator<E> li;
+        public ListIterator(final Iterator<E> li) {
+            this.li = li;
+        }
+        @Override
+        public boolean hasNext() {
+            return this.li.hasNext();
+        }
+        @Override
+        public E next() {
+            return this.li.next();
+        }
+        @Override
+        public void remove() {
+            this.li.remove();
+        }
+        @Override
+        public CloneableIterator<E> clone(final Object modifier) {
+            return null;
+        }
+        @Override
+        public void close() {
+        }
+    }
+
+}
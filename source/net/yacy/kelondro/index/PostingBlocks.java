@@ -0,0 +1,345 @@
+/**
+ *  PostingBlocks
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.index;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.util.MemoryControl;
+
+/**
+ * A compressed encoding of sorted RowSet exports, used for the reference containers in BLOB files.
+ * The rows are sorted by their primary key and cut into blocks of BLOCK_SIZE rows. A directory holds
+ * the first key of each block, the position of the block and the maximum of a hint column (the hitcount
+ * of word references, stored for a skipping of blocks which is not implemented yet), so a lookup of
+ * single keys only decodes the blocks which can contain them.
+ * Inside a block, keys are stored with the length of the prefix they share with the previous key and
+ * b256-encoded cardinal columns as zigzag varint of the difference to the previous row; all other
+ * columns are copied.
+ *
+ * Layout:
+ * <pre>
+ * magic (4) | row count (4) | block size (2) | block count (4) | hint column (1)
+ * directory: block count * (first key (keylength) | data offset (4) | hint maximum (4))
+ * data: the encoded blocks
+ * </pre>
+ * The first byte of the magic is 0xff; in the RowSet export format this byte is the highest byte of
+ * the row count, which is never negative. Both formats can therefore be stored side by side, and
+ * both store their row count in the first HEAD_SIZE bytes.
+ */
+public final class PostingBlocks {
+
+    public static final int BLOCK_SIZE = 128;
+
+    /** if true, merges and rewrites of BLOB files write block-coded containers */
+    public static boolean writeBlocks = false;
+
+    private static final byte[] MAGIC = new byte[]{(byte) 0xff, 'P', 'B', '1'};
+    private static final int HEADER_SIZE = 15;
+
+    /** the number of bytes at the beginning of an exported collection in any format which are needed by countHead() */
+    public static final int HEAD_SIZE = HEADER_SIZE;
+    private static final String HINT_COLUMN = "hitcount";
+
+    private PostingBlocks() {}
+
+    /**
+     * @param b an exported collection
+     * @return true if the collection is block-coded
+     */
+    public static boolean isBlockCoded(final byte[] b) {
+        return b != null && b.length >= HEADER_SIZE && b[0] == MAGIC[0] && b[1] == MAGIC[1] && b[2] == MAGIC[2] && b[3] == MAGIC[3];
+    }
+
+    /**
+     * count the rows of an exported collection in any format
+     */
+    public static int count(final byte[] b, final Row rowdef) {
+        if (isBlockCoded(b)) return (int) NaturalOrder.decodeLong(b, 4, 4);
+        return RowSet.importRowCount(b.length, rowdef);
+    }
+
+    /**
+     * count the rows of an exported collection in any format from its beginning
+     * @param head the first HEAD_SIZE bytes of the collection, or the whole collection if it is shorter
+     */
+    public static int countHead(final byte[] head) {
+        if (isBlockCoded(head)) return (int) NaturalOrder.decodeLong(head, 4, 4);
+        if (head.length < RowCollection.exportOverheadSize) return 0;
+        return Math.max(0, (int) NaturalOrder.decodeLong(head, 0, 4)); // the size column of the RowSet export
+    }
+
+    /**
+     * import an exported collection in any format
+     */
+    public static RowSet importRowSet(final byte[] b, final Row rowdef) throws SpaceExceededException {
+        if (!isBlockCoded(b)) return RowSet.importRowSet(b, rowdef);
+        final Header h = new Header(b, rowdef);
+        final byte[] chunkcache = allocate(h.count, rowdef);
+        for (int block = 0; block < h.blocks; block++) {
+            h.decodeBlock(block, chunkcache, block * h.blocksize * rowdef.objectsize);
+        }
+        return new RowSet(rowdef, h.count, chunkcache, h.count);
+    }
+
+    /**
+     * import the rows of an exported collection in any format which have a key from a given set.
+     * For block-coded collections, only the blocks which may contain a selected key are decoded.
+     */
+    public static RowSet select(final byte[] b, final Row rowdef, final HandleSet selection) throws SpaceExceededException {
+        if (!isBlockCoded(b)) {
+            final RowSet all = RowSet.importRowSet(b, rowdef);
+            final RowSet selected = new RowSet(rowdef, Math.min(all.size(), selection.size()));
+            for (final byte[] key: selection) {
+                final Row.Entry entry = all.get(key, false);
+                if (entry != null) selected.addUnique(entry);
+            }
+            selected.sort();
+            return selected;
+        }
+        final Header h = new Header(b, rowdef);
+        final RowSet selected = new RowSet(rowdef, Math.min(h.count, selection.size()));
+        final Map<Integer, byte[]> decoded = new HashMap<Integer, byte[]>();
+        final byte[] row = new byte[rowdef.objectsize];
+        for (final byte[] key: selection) {
+            final int block = h.findBlock(key);
+            if (block < 0) continue;
+            byte[] rows = decoded.get(block);
+            if (rows == null) {
+                rows = new byte[h.rows(block) * rowdef.objectsize];
+                h.decodeBlock(block, rows, 0);
+                decoded.put(block, rows);
+            }
+            final int i = find(rows, h.rows(block), key, rowdef);
+            if (i < 0) continue;
+            System.arraycopy(rows, i * rowdef.objectsize, row, 0, rowdef.objectsize);
+            selected.addUnique(rowdef.newEntry(row));
+        }
+        selected.sort();
+        return selected;
+    }
+
+    /**
+     * @return the number of blocks of a block-coded collection
+     */
+    public static int blocks(final byte[] b) {
+        return (int) NaturalOrder.decodeLong(b, 10, 4);
+    }
+
+    /**
+     * encode a collection in the RowSet export format as block-coded collection
+     * @param export the result of RowCollection.exportCollection(), which is sorted
+     * @param rowdef
+     * @return the block-coded collection
+     */
+    public static byte[] encode(final byte[] export, final Row rowdef) {
+        if (isBlockCoded(export)) return export;
+        final int count = RowSet.importRowCount(export.length, rowdef);
+        final int keylength = rowdef.primaryKeyLength;
+        final int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        final int hintColumn = hintColumn(rowdef);
+        final int first = (int) RowCollection.exportOverheadSize;
+
+        final byte[] directory = new byte[blocks * (keylength + 8)];
+        final ByteArrayOutputStream data = new ByteArrayOutputStream(export.length / 2);
+        final long[] previous = new long[rowdef.columns()];
+        for (int block = 0; block < blocks; block++) {
+            final int d = block * (keylength + 8);
+            final int start = first + block * BLOCK_SIZE * rowdef.objectsize;
+            System.arraycopy(export, start, directory, d, keylength);
+            NaturalOrder.encodeLong(data.size(), directory, d + keylength, 4);
+            int previousKey = start; // the first key is stored in the directory; it is shared completely
+            long hint = 0;
+            for (int col = 1; col < previous.length; col++) previous[col] = 0;
+            final int rows = Math.min(BLOCK_SIZE, count - block * BLOCK_SIZE);
+            for (int r = 0; r < rows; r++) {
+                final int offset = start + r * rowdef.objectsize;
+                int shared = 0;
+                while (shared < keylength && export[previousKey + shared] == export[offset + shared]) shared++;
+                data.write(shared);
+                data.write(export, offset + shared, keylength - shared);
+                previousKey = offset;
+                for (int col = 1; col < previous.length; col++) {
+                    final Column column = rowdef.column(col);
+                    final int cs = offset + rowdef.colstart[col];
+                    if (numeric(column)) {
+                        final long v = NaturalOrder.decodeLong(export, cs, column.cellwidth);
+                        writeVarint(data, zigzag(v - previous[col]));
+                        previous[col] = v;
+                        if (col == hintColumn) hint = Math.max(hint, v);
+                    } else {
+                        data.write(export, cs, column.cellwidth);
+                    }
+                }
+            }
+            NaturalOrder.encodeLong(Math.min(Integer.MAX_VALUE, hint), directory, d + keylength + 4, 4);
+        }
+
+        final byte[] b = new byte[HEADER_SIZE + directory.length + data.size()];
+        System.arraycopy(MAGIC, 0, b, 0, 4);
+        NaturalOrder.encodeLong(count, b, 4, 4);
+        NaturalOrder.encodeLong(BLOCK_SIZE, b, 8, 2);
+        NaturalOrder.encodeLong(blocks, b, 10, 4);
+        b[14] = (byte) hintColumn;
+        System.arraycopy(directory, 0, b, HEADER_SIZE, directory.length);
+        System.arraycopy(data.toByteArray(), 0, b, HEADER_SIZE + directory.length, data.size());
+        return b;
+    }
+
+    private static final class Header {
+        private final byte[] b;
+        private final Row rowdef;
+        private final int count, blocksize, blocks, dataStart;
+
+        private Header(final byte[] b, final Row rowdef) {
+            this.b = b;
+            this.rowdef = rowdef;
+            this.count = (int) NaturalOrder.decodeLong(b, 4, 4);
+            this.blocksize = (int) NaturalOrder.decodeLong(b, 8, 2);
+            this.blocks = (int) NaturalOrder.decodeLong(b, 10, 4);
+            this.dataStart = HEADER_SIZE + this.blocks * (rowdef.primaryKeyLength + 8);
+        }
+
+        private int rows(final int block) {
+            return Math.min(this.blocksize, this.count - block * this.blocksize);
+        }
+
+        private int directory(final int block) {
+            return HEADER_SIZE + block * (this.rowdef.primaryKeyLength + 8);
+        }
+
+        /**
+         * find the block which may contain the key with a binary search in the directory
+         * @return the block number or -1 if the key is smaller than all keys
+         */
+        private int findBlock(final byte[] key) {
+            int lo = 0, hi = this.blocks - 1, found = -1;
+            while (lo <= hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (this.rowdef.objectOrder.compare(this.b, directory(mid), key, 0, this.rowdef.primaryKeyLength) <= 0) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        private void decodeBlock(final int block, final byte[] target, final int targetOffset) {
+            final int keylength = this.rowdef.primaryKeyLength;
+            final int objectsize = this.rowdef.objectsize;
+            final long[] previous = new long[this.rowdef.columns()];
+            final int[] pos = new int[]{this.dataStart + (int) NaturalOrder.decodeLong(this.b, directory(block) + keylength, 4)};
+            int previousKey = -1;
+            final int rows = rows(block);
+            for (int r = 0; r < rows; r++) {
+                final int offset = targetOffset + r * objectsize;
+                final int shared = this.b[pos[0]++] & 0xff;
+                if (previousKey < 0) {
+                    System.arraycopy(this.b, directory(block), target, offset, shared);
+                } else {
+                    System.arraycopy(target, previousKey, target, offset, shared);
+                }
+                System.arraycopy(this.b, pos[0], target, offset + shared, keylength - shared);
+                pos[0] += keylength - shared;
+                previousKey = offset;
+                for (int col = 1; col < previous.length; col++) {
+                    final Column column = this.rowdef.column(col);
+                    final int cs = offset + this.rowdef.colstart[col];
+                    if (numeric(column)) {
+                        previous[col] += unzigzag(readVarint(this.b, pos));
+                        NaturalOrder.encodeLong(previous[col], target, cs, column.cellwidth);
+                    } else {
+                        System.arraycopy(this.b, pos[0], target, cs, column.cellwidth);
+                        pos[0] += column.cellwidth;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int find(final byte[] rows, final int count, final byte[] key, final Row rowdef) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int c = rowdef.objectOrder.compare(rows, mid * rowdef.objectsize, key, 0, rowdef.primaryKeyLength);
+            if (c == 0) return mid;
+            if (c < 0) lo = mid + 1; else hi = mid - 1;
+        }
+        return -1;
+    }
+
+    private static byte[] allocate(final int count, final Row rowdef) throws SpaceExceededException {
+        final long alloc = ((long) count) * ((long) rowdef.objectsize);
+        if (alloc > Integer.MAX_VALUE) throw new SpaceExceededException((int) alloc, "PostingBlocks: alloc > Integer.MAX_VALUE");
+        MemoryControl.request((int) alloc, true);
+        try {
+            return new byte[(int) alloc];
+        } catch (final OutOfMemoryError e) {
+            throw new SpaceExceededException((int) alloc, "PostingBlocks: OutOfMemoryError");
+        }
+    }
+
+    private static boolean numeric(final Column column) {
+        return column.celltype == Column.celltype_cardinal && column.encoder == Column.encoder_b256 && column.cellwidth <= 8;
+    }
+
+    private static int hintColumn(final Row rowdef) {
+        for (int col = 1; col < rowdef.columns(); col++) {
+            if (HINT_COLUMN.equals(rowdef.column(col).description) && numeric(rowdef.column(col))) return col;
+        }
+        return -1;
+    }
+
+    private static long zigzag(final long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(final long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream os, long v) {
+        while ((v & ~0x7fL) != 0) {
+            os.write((int) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        os.write((int) v);
+    }
+
+    private static long readVarint(final byte[] b, final int[] pos) {
+        long v = 0;
+        int shift = 0;
+        byte x;
+        do {
+            x = b[pos[0]++];
+            v |= (long) (x & 0x7f) << shift;
+            shift += 7;
+        } while ((x & 0x80) != 0);
+        return v;
+    }
+
+}
@@ -353,6 +353,36 @@ public class RowSet extends RowCollection implements Index, Iterable<Row.Entry>,
         return l;
     }
 
+    /**
+     * find the position of the first row with a key that is not smaller than a given key, starting at a
+     * given position. The step width doubles until the key is passed and the remaining range is searched
+     * binary, so a sequence of ascending lookups costs O(log d) for a distance d between the positions.
+     * The set must be sorted.
+     * @param key an array which holds the key
+     * @param astart the start of the key in the array
+     * @param from the position where the search starts; all keys before that position must be smaller than the key
+     * @return the position of the key, of the next larger key or size() if all keys are smaller
+     */
+    public final synchronized int gallop(final byte[] key, final int astart, final int from) {
+        assert this.sortBound == this.chunkcount : "gallop on unsorted set";
+        final int bound = this.sortBound;
+        int l = from;
+        int r = from;
+        int step = 1;
+        while (r < bound && compare(key, astart, r) > 0) {
+            l = r + 1;
+            r += step;
+            step <<= 1;
+        }
+        if (r > bound) r = bound;
+        int p;
+        while (l < r) {
+            p = (l + r) >> 1;
+            if (compare(key, astart, p) > 0) l = p + 1; else r = p;
+        }
+        return l;
+    }
+
     public final synchronized Iterator<byte[]> keys() {
         sort();
         return super.keys(true);
@@ -0,0 +1,112 @@
+// MappedFileReader.java
+// ---------------------------------
+// part of The Kelondro Database
+// first published 17.10.2026 on http://yacy.net
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only view on a file which is memory-mapped in segments.
+ * All read methods take an absolute file position and do not change any shared state,
+ * so they can be called concurrently from any number of threads without synchronization.
+ * The file must not be shortened while it is mapped; the content of the mapping is not
+ * copied, so changes to the file are visible to the reader.
+ * There is no explicit unmap: the mapping is released when the reader becomes unreachable.
+ */
+public final class MappedFileReader {
+
+    /** size of a mapped segment; records may span segment boundaries */
+    public static final int SEGMENT_SIZE = 1 << 30;
+
+    private final File file;
+    private final long length;
+    private final MappedByteBuffer[] segments;
+
+    public MappedFileReader(final File file) throws IOException {
+        this.file = file;
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            this.length = channel.size();
+            final int count = (int) ((this.length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            this.segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                final long start = (long) i * SEGMENT_SIZE;
+                this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, this.length - start));
+            }
+        } finally {
+            // the mapping stays valid after the channel is closed
+            raf.close();
+        }
+    }
+
+    public File file() {
+        return this.file;
+    }
+
+    public long length() {
+        return this.length;
+    }
+
+    /**
+     * read a big-endian int at the given position, like RandomAccessFile.readInt()
+     * @param pos the absolute position in the file
+     * @return the int value
+     * @throws IOException if the position is outside of the mapped file
+     */
+    public int readInt(final long pos) throws IOException {
+        if (pos < 0 || pos + 4 > this.length) throw new IOException("EOF in " + this.file.getName() + " at " + pos + ", length = " + this.length);
+        final int segment = (int) (pos / SEGMENT_SIZE);
+        final int offset = (int) (pos % SEGMENT_SIZE);
+        if (offset + 4 <= SEGMENT_SIZE) return this.segments[segment].getInt(offset);
+        final byte[] b = new byte[4];
+        readFully(pos, b, 0, 4);
+        return ((b[0] & 0xff) << 24) | ((b[1] & 0xff) << 16) | ((b[2] & 0xff) << 8) | (b[3] & 0xff);
+    }
+
+    /**
+     * copy bytes from the given position into an array
+     * @param pos the absolute position in the file
+     * @param b the target array
+     * @param off the offset in the target array
+     * @param len the number of bytes to read
+     * @throws IOException if the requested range is outside of the mapped file
+     */
+    public void readFully(long pos, final byte[] b, int off, int len) throws IOException {
+        if (pos < 0 || pos + len > this.length) throw new IOException("EOF in " + this.file.getName() + ", requested = " + len + " at " + pos + ", length = " + this.length);
+        while (len > 0) {
+            final int segment = (int) (pos / SEGMENT_SIZE);
+            final int offset = (int) (pos % SEGMENT_SIZE);
+            final int chunk = Math.min(len, SEGMENT_SIZE - offset);
+            // a duplicate has its own position, the shared buffer is never moved
+            final ByteBuffer view = this.segments[segment].duplicate();
+            view.position(offset);
+            view.get(b, off, chunk);
+            pos += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+}
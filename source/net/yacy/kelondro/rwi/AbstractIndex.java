@@ -94,6 +94,30 @@ public abstract class AbstractIndex <ReferenceType extends Reference> implements
      */
     @Override
     public TreeMap<byte[], ReferenceContainer<ReferenceType>> searchConjunction(final HandleSet wordHashes, final HandleSet urlselection) {
+        return searchConjunction(wordHashes, urlselection, Long.MAX_VALUE);
+    }
+
+    /**
+     * get the references of a term within a time budget. Indexes which do not read files ignore the time budget.
+     * @param termHash
+     * @param urlselection
+     * @param maxtime the time budget in milliseconds
+     * @return the references or null if there are none
+     * @throws IOException
+     */
+    public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection, final long maxtime) throws IOException {
+        return get(termHash, urlselection);
+    }
+
+    /**
+     * collect containers for given word hashes within a time budget for all of them
+     * @param wordHashes
+     * @param urlselection
+     * @param maxtime the time budget in milliseconds, Long.MAX_VALUE for the default time budget of each lookup
+     * @return map of wordhash:indexContainer
+     */
+    public TreeMap<byte[], ReferenceContainer<ReferenceType>> searchConjunction(final HandleSet wordHashes, final HandleSet urlselection, final long maxtime) {
+        final long timeout = maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + maxtime;
     	// first check if there is any entry that has no match; this uses only operations in ram
     	/*
     	Iterator<byte[]> i = wordHashes.iterator();
@@ -113,7 +137,7 @@ public abstract class AbstractIndex <ReferenceType extends Reference> implements
 
             // retrieve index
             try {
-                singleContainer = get(singleHash, urlselection);
+                singleContainer = get(singleHash, urlselection, timeout == Long.MAX_VALUE ? Long.MAX_VALUE : timeout - System.currentTimeMillis());
             } catch (final IOException e) {
                 ConcurrentLog.logException(e);
                 continue;
@@ -136,6 +160,20 @@ public abstract class AbstractIndex <ReferenceType extends Reference> implements
         return new TermSearch<ReferenceType>(this, queryHashes, excludeHashes, urlselection, termFactory, maxDistance);
     }
 
+    /**
+     * search the index within a time budget for the lookup of the containers
+     * @param maxtime the time budget in milliseconds
+     */
+    public TermSearch<ReferenceType> query(
+            final HandleSet queryHashes,
+            final HandleSet excludeHashes,
+            final HandleSet urlselection,
+            final ReferenceFactory<ReferenceType> termFactory,
+            final int maxDistance,
+            final long maxtime) throws SpaceExceededException {
+        return new TermSearch<ReferenceType>(this, queryHashes, excludeHashes, urlselection, termFactory, maxDistance, maxtime);
+    }
+
     @Override
     public Row referenceRow() {
         return this.factory.getRow();
@@ -50,12 +50,27 @@ public class IODispatcher extends Thread {
 
     private static final ConcurrentLog log = new ConcurrentLog("IODispatcher");
 
+    /**
+     * the selection of the files which are merged into a new one
+     */
+    public enum MergePolicy {
+        PAIRWISE, // merge the best matching pair of small files
+        TIERED,   // merge groups of files with a similar size in one pass
+        LEVELED;  // merge the small files together with the next larger file in one pass
+
+        public static MergePolicy parse(final String name) {
+            for (final MergePolicy policy: values()) if (policy.name().equalsIgnoreCase(name)) return policy;
+            return PAIRWISE;
+        }
+    }
+
     private   Semaphore                    controlQueue; // controls that only one io job is running
     private   final Semaphore              termination; // released if thread is safe to terminate
     private   ArrayBlockingQueue<MergeJob> mergeQueue;
     private   ArrayBlockingQueue<DumpJob<? extends Reference>> dumpQueue;
     private   boolean                      terminate;
     private final int                      writeBufferSize;
+    private volatile long                  maxMergeRate; // bytes per second, 0 if merges are not throttled
 
     public IODispatcher(final int dumpQueueLength, final int mergeQueueLength, final int writeBufferSize) {
     	super("IODispatcher");
@@ -67,6 +82,15 @@ public class IODispatcher extends Thread {
         this.terminate = false;
     }
 
+    /**
+     * throttle merge jobs to the given write rate, so they do not use all IO bandwidth of the disk.
+     * dump jobs are never throttled because they free memory.
+     * @param bytesPerSecond the maximum rate, 0 for no limit
+     */
+    public void setMaxMergeRate(final long bytesPerSecond) {
+        this.maxMergeRate = Math.max(0, bytesPerSecond);
+    }
+
     public void terminate() {
         this.terminate = true; // asure current run() loop will termiate
         if (this.termination != null && this.controlQueue != null && isAlive()) {
@@ -111,23 +135,31 @@ public class IODispatcher extends Thread {
         return (this.controlQueue == null || !isAlive()) ? 0 : this.controlQueue.availablePermits();
     }
 
-    protected synchronized void merge(final File f1, final File f2, final ReferenceFactory<? extends Reference> factory, final ArrayStack array, final File newFile) {
+    protected void merge(final File f1, final File f2, final ReferenceFactory<? extends Reference> factory, final ArrayStack array, final File newFile) {
+        merge(f2 == null ? new File[]{f1} : new File[]{f1, f2}, factory, array, newFile);
+    }
+
+    /**
+     * merge a number of files into one; a single file is rewritten
+     * @param files the files to merge, the oldest first
+     */
+    protected synchronized void merge(final File[] files, final ReferenceFactory<? extends Reference> factory, final ArrayStack array, final File newFile) {
         if (this.mergeQueue == null || this.controlQueue == null || !isAlive()) {
-            if (f2 == null) {
-                log.warn("emergency rewrite of file " + f1.getName() + " to " + newFile.getName());
+            if (files.length == 1) {
+                log.warn("emergency rewrite of file " + files[0].getName() + " to " + newFile.getName());
             } else {
-                log.warn("emergency merge of files " + f1.getName() + ", " + f2.getName() + " to " + newFile.getName());
+                log.warn("emergency merge of files " + names(files) + " to " + newFile.getName());
             }
-            array.mergeMount(f1, f2, factory, newFile, (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize));
+            array.mergeMount(files, factory, newFile, (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize), 0);
         } else {
-            final MergeJob job = new MergeJob(f1, f2, factory, array, newFile);
+            final MergeJob job = new MergeJob(files, factory, array, newFile);
             if (isAlive()) {
                 try {
                     this.mergeQueue.add(job);
-                    if (f2 == null) {
-                        log.info("appended rewrite job of file " + f1.getName() + " to " + newFile.getName());
+                    if (files.length == 1) {
+                        log.info("appended rewrite job of file " + files[0].getName() + " to " + newFile.getName());
                     } else {
-                        log.info("appended merge job of files " + f1.getName() + ", " + f2.getName() + " to " + newFile.getName());
+                        log.info("appended merge job of files " + names(files) + " to " + newFile.getName());
                     }
                 } catch (final IllegalStateException e) { // because mergeQueue size is 1, IllegalStateException could happen frequently (serial execution ensured in run() )
                 	log.warn("Could not add merge job to queue: " + e.getMessage());
@@ -136,15 +168,21 @@ public class IODispatcher extends Thread {
                 }
             } else {
                 job.merge();
-                if (f2 == null) {
-                    log.warn("dispatcher not running, merged files " + f1.getName() + " to " + newFile.getName());
+                if (files.length == 1) {
+                    log.warn("dispatcher not running, rewrote file " + files[0].getName() + " to " + newFile.getName());
                 } else {
-                    log.warn("dispatcher not running, rewrote file " + f1.getName() + ", " + f2.getName() + " to " + newFile.getName());
+                    log.warn("dispatcher not running, merged files " + names(files) + " to " + newFile.getName());
                 }
             }
         }
     }
 
+    private static String names(final File[] files) {
+        final StringBuilder sb = new StringBuilder();
+        for (final File f: files) sb.append(sb.length() == 0 ? "" : ", ").append(f.getName());
+        return sb.toString();
+    }
+
     @Override
     public void run() {
         MergeJob mergeJob;
@@ -173,20 +211,20 @@ public class IODispatcher extends Thread {
 
                 // otherwise do a merge operation
                 if (!this.mergeQueue.isEmpty() && !MemoryControl.shortStatus()) {
-                	File f = null, f1 = null, f2 = null;
+                	File f = null;
+                	File[] ff = null;
                     try {
                         mergeJob = this.mergeQueue.take();
                         f = mergeJob.newFile;
-                        f1 = mergeJob.f1;
-                        f2 = mergeJob.f2;
+                        ff = mergeJob.files;
                         mergeJob.merge();
                     } catch (final InterruptedException e) {
                         log.severe("main run job was interrupted (2)", e);
                     } catch (final Throwable e) {
-                        if (f2 == null) {
-                            log.severe("main run job had errors (2), dump to " + f + " failed. Input file is " + f1, e);
+                        if (ff == null) {
+                            log.severe("main run job had errors (2), dump to " + f + " failed.", e);
                         } else {
-                            log.severe("main run job had errors (2), dump to " + f + " failed. Input files are " + f1 + " and " + f2, e);
+                            log.severe("main run job had errors (2), dump to " + f + " failed. Input files are " + names(ff), e);
                         }
                     } finally {
                         // make sure (on error) loop never hangs on controlQueue.acquire() (after/on error)
@@ -237,33 +275,30 @@ public class IODispatcher extends Thread {
 
     private class MergeJob {
 
-        private final File f1, f2, newFile;
+        private final File[] files;
+        private final File newFile;
         private final ArrayStack array;
         private final ReferenceFactory<? extends Reference> factory;
 
         private MergeJob(
-                final File f1,
-                final File f2,
+                final File[] files,
                 final ReferenceFactory<? extends Reference> factory,
                 final ArrayStack array,
                 final File newFile) {
-            this.f1 = f1;
-            this.f2 = f2;
+            this.files = files;
             this.factory = factory;
             this.newFile = newFile;
             this.array = array;
         }
 
         private File merge() {
-        	if (!this.f1.exists()) {
-        	    log.warn("merge of file (1) " + this.f1.getName() + " failed: file does not exists");
-        		return null;
-        	}
-        	if (this.f2 != null && !this.f2.exists()) {
-        	    log.warn("merge of file (2) " + this.f2.getName() + " failed: file does not exists");
-        		return null;
-        	}
-            return this.array.mergeMount(this.f1, this.f2, this.factory, this.newFile, (int) Math.min(MemoryControl.available() / 3, IODispatcher.this.writeBufferSize));
+            for (final File f: this.files) {
+                if (!f.exists()) {
+                    log.warn("merge of file " + f.getName() + " failed: file does not exists");
+                    return null;
+                }
+            }
+            return this.array.mergeMount(this.files, this.factory, this.newFile, (int) Math.min(MemoryControl.available() / 3, IODispatcher.this.writeBufferSize), IODispatcher.this.maxMergeRate);
         }
     }
 
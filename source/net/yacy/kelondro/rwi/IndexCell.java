@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -43,6 +44,7 @@ import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ByteArray;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.blob.ArrayStack;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.util.MemoryControl;
@@ -69,17 +71,17 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
 
     // class variables
     private final ReferenceContainerArray<ReferenceType> array;
-    private       ReferenceContainerCache<ReferenceType> ram;
+    private final StripedReferenceContainerCache<ReferenceType> ram;
     private final ComparableARC<byte[], Integer>         countCache;
     private       int                                    maxRamEntries;
     private       IODispatcher                           merger; // pointer to shared merger
     private       long                                   lastCleanup;
-    private long  lastDump;
     private final long                                   targetFileSize, maxFileSize;
     private final int                                    writeBufferSize;
     private final Map<byte[], HandleSet>                 removeDelayedURLs; // mapping from word hashes to a list of url hashes
     private       boolean                                flushShallRun;
     private final Thread                                 flushThread;
+    private volatile IODispatcher.MergePolicy            mergePolicy;
 
     public IndexCell(
             final File cellPath,
@@ -91,21 +93,23 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
             final long targetFileSize,
             final long maxFileSize,
             final int writeBufferSize,
-            final IODispatcher merger
+            final IODispatcher merger,
+            final boolean mappedRead,
+            final int writeBufferStripes
             ) throws IOException {
         super(factory);
 
         this.merger = merger;
-        this.array = new ReferenceContainerArray<ReferenceType>(cellPath, prefix, factory, termOrder, termSize);
-        this.ram = new ReferenceContainerCache<ReferenceType>(factory, termOrder, termSize);
+        this.array = new ReferenceContainerArray<ReferenceType>(cellPath, prefix, factory, termOrder, termSize, mappedRead);
+        this.ram = new StripedReferenceContainerCache<ReferenceType>(factory, termOrder, termSize, writeBufferStripes);
         this.countCache = new ComparableARC<byte[], Integer>(1000, termOrder);
         this.maxRamEntries = maxRamEntries;
         this.lastCleanup = System.currentTimeMillis();
-        this.lastDump = System.currentTimeMillis();
         this.targetFileSize = targetFileSize;
         this.maxFileSize = maxFileSize;
         this.writeBufferSize = writeBufferSize;
         this.removeDelayedURLs = new TreeMap<byte[], HandleSet>(Word.commonHashOrder);
+        this.mergePolicy = IODispatcher.MergePolicy.PAIRWISE;
         this.flushShallRun = true;
         this.flushThread = new FlushThread(cellPath.toString());
         this.flushThread.start();
@@ -130,34 +134,29 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
 
         private void flushBuffer() {
 
-            // dump the cache if necessary
-            final long t = System.currentTimeMillis();
-            if ((IndexCell.this.ram.size() >= IndexCell.this.maxRamEntries ||
-                (IndexCell.this.ram.size() > 3000 && !MemoryControl.request(80L * 1024L * 1024L, false)) ||
-                (!IndexCell.this.ram.isEmpty() && IndexCell.this.lastDump + dumpCycle < t))) {
+            // dump the cache if necessary; each stripe is dumped on its own, with a share of the limits
+            final int stripes = IndexCell.this.ram.stripes();
+            final int maxStripeEntries = Math.max(1, IndexCell.this.maxRamEntries / stripes);
+            final int minStripeEntries = Math.max(1, 3000 / stripes);
+            boolean removedDelayed = false;
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                final long t = System.currentTimeMillis();
+                if (!dumpRequired(stripe, maxStripeEntries, minStripeEntries, t)) continue;
                 synchronized (IndexCell.this.merger) {
-                    if (IndexCell.this.ram.size() >= IndexCell.this.maxRamEntries ||
-                        (IndexCell.this.ram.size() > 3000 && !MemoryControl.request(80L * 1024L * 1024L, false)) ||
-                        (!IndexCell.this.ram.isEmpty() && IndexCell.this.lastDump + dumpCycle < t)) try {
-                            IndexCell.this.lastDump = System.currentTimeMillis();
+                    if (dumpRequired(stripe, maxStripeEntries, minStripeEntries, t)) try {
                         // removed delayed
-                        try {removeDelayed();} catch (final IOException e) {}
+                        if (!removedDelayed) {
+                            try {removeDelayed();} catch (final IOException e) {}
+                            removedDelayed = true;
+                        }
                         // dump the ram
                         final File dumpFile = IndexCell.this.array.newContainerBLOBFile();
                         // a critical point: when the ram is handed to the dump job,
-                        // don't write into it any more. Use a fresh one instead
-                        ReferenceContainerCache<ReferenceType> ramdump;
-                        final ByteOrder termOrder = IndexCell.this.ram.termKeyOrdering();
-                        final int termSize = IndexCell.this.ram.termKeyLength();
-                        synchronized (this) {
-                            ramdump = IndexCell.this.ram;
-                            // get a fresh ram cache
-                            IndexCell.this.ram = new ReferenceContainerCache<ReferenceType>(IndexCell.this.factory, termOrder, termSize);
-                        }
+                        // don't write into it any more. The stripe gets a fresh one instead
+                        final ReferenceContainerCache<ReferenceType> ramdump = IndexCell.this.ram.swap(stripe);
                         // WARNING : if this cell is queried before this dump termination, terms are no longer in the cache and would therefore not be found
                         // dump the buffer
                         IndexCell.this.merger.dump(ramdump, dumpFile, IndexCell.this.array);
-                        IndexCell.this.lastDump = System.currentTimeMillis();
                     } catch (final Throwable e) {
                         // catch all exceptions
                         ConcurrentLog.logException(e);
@@ -166,6 +165,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
             }
 
             // clean-up the cache
+            final long t = System.currentTimeMillis();
             if ((IndexCell.this.array.entries() > 50 ||
                  IndexCell.this.lastCleanup + cleanupCycle < t)) {
                 synchronized (IndexCell.this.array) {
@@ -181,12 +181,38 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
             }
         }
 
+        private boolean dumpRequired(final int stripe, final int maxStripeEntries, final int minStripeEntries, final long t) {
+            final ReferenceContainerCache<ReferenceType> cache = IndexCell.this.ram.stripe(stripe);
+            return cache.size() >= maxStripeEntries ||
+                   (cache.size() > minStripeEntries && !MemoryControl.request(80L * 1024L * 1024L, false)) ||
+                   (!cache.isEmpty() && IndexCell.this.ram.lastDump(stripe) + dumpCycle < t);
+        }
+
     }
 
     private boolean shrink(final long targetFileSize, final long maxFileSize) {
         if (this.array.entries() < 2) return false;
         boolean donesomething = false;
 
+        if (this.mergePolicy != IODispatcher.MergePolicy.PAIRWISE) {
+            // merge groups of files in one pass each
+            int term = 10;
+            while (term-- > 0 && (this.merger.queueLength() < 2 || this.array.entries() >= 50)) {
+                if (this.mergePolicy == IODispatcher.MergePolicy.TIERED ?
+                        !this.array.shrinkTiered(this.merger, targetFileSize, maxFileSize) :
+                        !this.array.shrinkLeveled(this.merger, targetFileSize, maxFileSize)) break;
+                donesomething = true;
+            }
+
+            // rewrite old files
+            term = 10;
+            while (term-- > 0 && (this.merger.queueLength() < 1)) {
+                if (!this.array.shrinkOldFiles(this.merger)) break;
+                donesomething = true;
+            }
+            return donesomething;
+        }
+
         // first try to merge small files that match
         int term = 10;
         while (term-- > 0 && (this.merger.queueLength() < 3 || this.array.entries() >= 50)) {
@@ -237,10 +263,13 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
     private Collection<byte[]> keys4LargeReferences(int minsize, long maxtime) throws IOException {
         long timeout = System.currentTimeMillis() + maxtime;
         ArrayList<byte[]> keys = new ArrayList<byte[]>();
-        Iterator<ByteArray> ci = this.ram.keys();
-        while (ci.hasNext()) {
-            byte[] k = ci.next().asBytes();
-            if (this.ram.count(k) >= minsize) keys.add(k);
+        for (int stripe = 0; stripe < this.ram.stripes(); stripe++) {
+            final ReferenceContainerCache<ReferenceType> cache = this.ram.stripe(stripe);
+            Iterator<ByteArray> ci = cache.keys();
+            while (ci.hasNext()) {
+                byte[] k = ci.next().asBytes();
+                if (cache.count(k) >= minsize) keys.add(k);
+            }
         }
         CloneableIterator<byte[]> ki = this.array.keys(true, false);
         while (ki.hasNext()) {
@@ -275,7 +304,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         try {
             this.ram.add(newEntries);
             final long t = System.currentTimeMillis();
-            if (this.ram.size() % 1000 == 0 || this.lastCleanup + cleanupCycle < t || this.lastDump + dumpCycle < t) {
+            if (this.ram.size() % 1000 == 0 || this.lastCleanup + cleanupCycle < t) {
                 EventTracker.update(EventTracker.EClass.WORDCACHE, Long.valueOf(this.ram.size()), true);
             }
         } catch (final SpaceExceededException e) {
@@ -290,7 +319,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         try {
             this.ram.add(termHash, entry);
             final long t = System.currentTimeMillis();
-            if (this.ram.size() % 1000 == 0 || this.lastCleanup + cleanupCycle < t || this.lastDump + dumpCycle < t) {
+            if (this.ram.size() % 1000 == 0 || this.lastCleanup + cleanupCycle < t) {
                 EventTracker.update(EventTracker.EClass.WORDCACHE, Long.valueOf(this.ram.size()), true);
             }
         } catch (final SpaceExceededException e) {
@@ -351,10 +380,23 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
      */
     @Override
     public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection) throws IOException {
-        final ReferenceContainer<ReferenceType> c0 = this.ram.get(termHash, null);
+        return get(termHash, urlselection, Long.MAX_VALUE);
+    }
+
+    /**
+     * get the merged containers from the RAM and the file array, reading the BLOB files within a time budget
+     * @param termHash
+     * @param urlselection
+     * @param maxtime the time budget in milliseconds for the file array; the RAM is always read
+     * @return a container with merged ReferenceContainer from RAM and the file array or null if there is no data to be returned
+     * @throws IOException
+     */
+    @Override
+    public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection, final long maxtime) throws IOException {
+        final ReferenceContainer<ReferenceType> c0 = this.ram.get(termHash, urlselection);
         ReferenceContainer<ReferenceType> c1 = null;
         try {
-            c1 = this.array.get(termHash);
+            c1 = this.array.get(termHash, urlselection, maxtime);
         } catch (final SpaceExceededException e2) {
             ConcurrentLog.logException(e2);
         }
@@ -481,37 +523,37 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
     public int remove(final byte[] termHash, final HandleSet urlHashes) throws IOException {
         this.countCache.remove(termHash);
         final int removed = this.ram.remove(termHash, urlHashes);
-        int reduced;
+        // the removed references are counted by the reducer: the size of a block-coded container may grow
+        final RemoveReducer<ReferenceType> reducer = new RemoveReducer<ReferenceType>(urlHashes);
         //final long am = this.array.mem();
         try {
-            reduced = this.array.reduce(termHash, new RemoveReducer<ReferenceType>(urlHashes));
+            this.array.reduce(termHash, reducer);
         } catch (final SpaceExceededException e) {
-            reduced = 0;
             ConcurrentLog.warn("IndexCell", "not possible to remove urlHashes from a RWI because of too low memory. Remove was not applied. Please increase RAM assignment");
         }
         //assert this.array.mem() <= am : "am = " + am + ", array.mem() = " + this.array.mem();
-        return removed + (reduced / this.array.rowdef().objectsize);
+        return removed + reducer.removed;
     }
 
     @Override
     public boolean remove(final byte[] termHash, final byte[] urlHashBytes) throws IOException {
         this.countCache.remove(termHash);
         final boolean removed = this.ram.remove(termHash, urlHashBytes);
-        int reduced;
+        final RemoveReducer<ReferenceType> reducer = new RemoveReducer<ReferenceType>(urlHashBytes);
         //final long am = this.array.mem();
         try {
-            reduced = this.array.reduce(termHash, new RemoveReducer<ReferenceType>(urlHashBytes));
+            this.array.reduce(termHash, reducer);
         } catch (final SpaceExceededException e) {
-            reduced = 0;
             ConcurrentLog.warn("IndexCell", "not possible to remove urlHashes from a RWI because of too low memory. Remove was not applied. Please increase RAM assignment");
         }
         //assert this.array.mem() <= am : "am = " + am + ", array.mem() = " + this.array.mem();
-        return removed || (reduced > 0);
+        return removed || reducer.removed > 0;
     }
 
     private static class RemoveReducer<ReferenceType extends Reference> implements ReferenceContainerArray.ContainerReducer<ReferenceType> {
 
         HandleSet urlHashes;
+        int removed = 0; // the number of references removed in all BLOBs
 
         public RemoveReducer(final HandleSet urlHashes) {
             this.urlHashes = urlHashes;
@@ -529,7 +571,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         @Override
         public ReferenceContainer<ReferenceType> reduce(final ReferenceContainer<ReferenceType> container) {
             container.sort();
-            container.removeEntries(this.urlHashes);
+            this.removed += container.removeEntries(this.urlHashes);
             return container;
         }
 
@@ -552,7 +594,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
 
     @Override
     public CloneableIterator<ReferenceContainer<ReferenceType>> referenceContainerIterator(final byte[] startTermHash, final boolean rot, final boolean excludePrivate, final boolean ram) {
-        final Order<ReferenceContainer<ReferenceType>> containerOrder = new ReferenceContainerOrder<ReferenceType>(this.factory, this.ram.rowdef().getOrdering().clone());
+        final Order<ReferenceContainer<ReferenceType>> containerOrder = new ReferenceContainerOrder<ReferenceType>(this.factory, this.ram.termKeyOrdering().clone());
         containerOrder.rotate(new ReferenceContainer<ReferenceType>(this.factory, startTermHash));
         if (ram) {
             return this.ram.referenceContainerIterator(startTermHash, rot, excludePrivate);
@@ -598,7 +640,10 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
     public synchronized void close() {
         this.countCache.clear();
         try {removeDelayed();} catch (final IOException e) {}
-        if (!this.ram.isEmpty()) this.ram.dump(this.array.newContainerBLOBFile(), (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize), true);
+        for (int stripe = 0; stripe < this.ram.stripes(); stripe++) {
+            final ReferenceContainerCache<ReferenceType> cache = this.ram.swap(stripe);
+            if (!cache.isEmpty()) cache.dump(this.array.newContainerBLOBFile(), (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize), true);
+        }
         // close all
         this.flushShallRun = false;
         if (this.flushThread != null) try { this.flushThread.join(); } catch (final InterruptedException e) {}
@@ -640,6 +685,37 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         return this.array.entries();
     }
 
+    /**
+     * switch the concurrent reading of all BLOB files on or off
+     * @param concurrentLookup
+     */
+    public void setConcurrentLookup(final boolean concurrentLookup) {
+        this.array.setConcurrentLookup(concurrentLookup);
+    }
+
+    /**
+     * set the selection of files which are merged in the background
+     * @param mergePolicy
+     */
+    public void setMergePolicy(final IODispatcher.MergePolicy mergePolicy) {
+        this.mergePolicy = mergePolicy;
+    }
+
+    /**
+     * switch the membership filters on or off which skip BLOB files that cannot contain a term
+     * @param keyFilter
+     */
+    public void setKeyFilter(final boolean keyFilter) {
+        this.array.setKeyFilter(keyFilter);
+    }
+
+    /**
+     * @return the lookup statistics of all BLOB files, the oldest file first
+     */
+    public List<ArrayStack.GenerationStatistics> getSegmentStatistics() {
+        return this.array.generationStatistics();
+    }
+
     @Override
     public int minMem() {
         return 10 * 1024 * 1024;
@@ -31,6 +31,8 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
@@ -42,6 +44,7 @@ import net.yacy.cora.order.ByteOrder;
 import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.PostingBlocks;
 import net.yacy.kelondro.index.Row;
 import net.yacy.kelondro.index.RowSet;
 
@@ -175,6 +178,17 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         return this.factory.produceSlow(entry);
     }
 
+    /**
+     * get the reference at a position of the container
+     * @param index the position
+     * @return the reference or null if the position is outside of the container
+     */
+    public ReferenceType getReference(final int index) {
+        final Row.Entry entry = super.get(index, false);
+        if (entry == null) return null;
+        return this.factory.produceSlow(entry);
+    }
+
     /**
      * remove a url reference from the container.
      * if the url hash was found, return the entry, but delete the entry from the container
@@ -215,6 +229,16 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
     	return oldsize - size();
     }
 
+    /**
+     * export the container for a BLOB file; the format is the block-coded format of
+     * PostingBlocks if PostingBlocks.writeBlocks is set and the RowSet export format otherwise
+     * @return the exported container
+     */
+    public byte[] exportBLOB() {
+        final byte[] export = exportCollection();
+        return PostingBlocks.writeBlocks ? PostingBlocks.encode(export, this.rowdef) : export;
+    }
+
     private int[] oldPostions(final int count) {
     	final int[] indexes = new int[count];
     	int i = 0;
@@ -317,14 +341,108 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         // since this is a conjunction we return an empty entity if any word is not known
         if (includeContainers == null) return ReferenceContainer.emptyContainer(factory, null, 0);
 
-        // join the result
-        final ReferenceContainer<ReferenceType> rcLocal = ReferenceContainer.joinContainers(factory, includeContainers, maxDistance);
+        // join the result and remove the excluded references in the same pass
+        final ReferenceContainer<ReferenceType> rcLocal = ReferenceContainer.joinAdaptive(factory, includeContainers, excludeContainers, maxDistance);
         if (rcLocal == null) return ReferenceContainer.emptyContainer(factory, null, 0);
-        excludeContainers(factory, rcLocal, excludeContainers);
 
         return rcLocal;
     }
 
+    /**
+     * Join all include containers and remove the references of the exclude containers in one pass.
+     * The include containers are ordered by their size; each reference of the smallest container is
+     * looked up in the other containers with a galloping search which starts at the position of the
+     * previous match, so a container is never scanned completely if the other containers are small.
+     * If a larger container does not hold a reference, the smallest container skips forward to the next
+     * reference of the larger container. The cost is therefore close to O(n * log(N/n)) for a smallest
+     * container size n and a largest container size N, also for very skewed term frequencies.
+     * @param factory
+     * @param includeContainers the containers of the terms which must appear
+     * @param excludeContainers the containers of the terms which must not appear, may be null
+     * @param maxDistance the maximum word distance of a joined reference
+     * @return the joined references or null if the conjunction is empty
+     * @throws SpaceExceededException
+     */
+    public static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> joinAdaptive(
+            final ReferenceFactory<ReferenceType> factory,
+            final Collection<ReferenceContainer<ReferenceType>> includeContainers,
+            final Collection<ReferenceContainer<ReferenceType>> excludeContainers,
+            final int maxDistance) throws SpaceExceededException {
+
+        // order include containers by their size; the sort is stable so equal sizes keep their order
+        final List<ReferenceContainer<ReferenceType>> include = new ArrayList<ReferenceContainer<ReferenceType>>(includeContainers.size());
+        for (final ReferenceContainer<ReferenceType> c: includeContainers) {
+            if (c == null || c.isEmpty()) return null; // as this is a conjunction of searches, we have no result if any word is not known
+            c.sort();
+            include.add(c);
+        }
+        if (include.isEmpty()) return null;
+        Collections.sort(include, new Comparator<ReferenceContainer<ReferenceType>>() {
+            @Override
+            public int compare(final ReferenceContainer<ReferenceType> c1, final ReferenceContainer<ReferenceType> c2) {
+                return c1.size() < c2.size() ? -1 : c1.size() == c2.size() ? 0 : 1;
+            }
+        });
+        final List<ReferenceContainer<ReferenceType>> exclude = new ArrayList<ReferenceContainer<ReferenceType>>();
+        if (excludeContainers != null) for (final ReferenceContainer<ReferenceType> c: excludeContainers) {
+            if (c == null || c.isEmpty()) continue;
+            c.sort();
+            exclude.add(c);
+        }
+
+        final ReferenceContainer<ReferenceType> pivot = include.get(0);
+        final int objectsize = pivot.rowdef.objectsize;
+        final int[] includePos = new int[include.size()];
+        final int[] excludePos = new int[exclude.size()];
+        final ReferenceContainer<ReferenceType> conj = new ReferenceContainer<ReferenceType>(factory, null, 0); // start with empty search result
+        final int pivotSize = pivot.size();
+        int p = 0;
+        candidates: while (p < pivotSize) {
+            final int key = p * objectsize;
+
+            // find the reference in all other include containers
+            for (int j = 1; j < include.size(); j++) {
+                final ReferenceContainer<ReferenceType> c = include.get(j);
+                final int pos = c.gallop(pivot.chunkcache, key, includePos[j]);
+                includePos[j] = pos;
+                if (pos >= c.size()) break candidates; // all other keys are larger than the keys of c
+                if (c.compare(pivot.chunkcache, key, pos) != 0) {
+                    // skip all references of the pivot which are smaller than the next key of c
+                    p = pivot.gallop(c.chunkcache, pos * objectsize, p + 1);
+                    continue candidates;
+                }
+            }
+
+            // check that the reference is not excluded
+            boolean excluded = false;
+            for (int j = 0; j < exclude.size(); j++) {
+                final ReferenceContainer<ReferenceType> c = exclude.get(j);
+                if (excludePos[j] >= c.size()) continue;
+                final int pos = c.gallop(pivot.chunkcache, key, excludePos[j]);
+                excludePos[j] = pos;
+                if (pos < c.size() && c.compare(pivot.chunkcache, key, pos) == 0) {
+                    excluded = true;
+                    break;
+                }
+            }
+
+            if (!excluded) {
+                // we have found the same urls in all searches; join the references
+                final ReferenceType ie = factory.produceFast(pivot.getReference(p), true);
+                boolean near = true;
+                for (int j = 1; j < include.size() && near; j++) {
+                    ie.join(include.get(j).getReference(includePos[j]));
+                    near = ie.distance() <= maxDistance;
+                }
+                if (near) conj.add(ie);
+            }
+            p++;
+        }
+
+        if (conj.isEmpty()) return null;
+        return conj;
+    }
+
     public static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> joinContainers(
             final ReferenceFactory<ReferenceType> factory,
             final Collection<ReferenceContainer<ReferenceType>> containers,
@@ -28,25 +28,32 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import net.yacy.cora.order.ByteOrder;
 import net.yacy.cora.order.CloneableIterator;
 import net.yacy.cora.sorting.Rating;
+import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.blob.ArrayStack;
 import net.yacy.kelondro.blob.BLOB;
 import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.index.PostingBlocks;
 import net.yacy.kelondro.index.Row;
-import net.yacy.kelondro.index.RowSet;
 
 
 public final class ReferenceContainerArray<ReferenceType extends Reference> {
 
     private final static long METHOD_MAXRUNTIME = 5000L;
+    private final static int  MERGE_WIDTH_MIN   = 4; // the minimum number of files in a tiered or leveled merge
+    private final static int  MERGE_WIDTH_MAX   = 8; // the maximum number of files that are merged in one pass
 
     private final ReferenceFactory<ReferenceType> factory;
     private final ArrayStack array;
+    private       boolean concurrentLookup; // if true, get() reads all BLOBs concurrently
 
     /**
      * open a index container array based on BLOB dumps. The content of the BLOBs will not be read
@@ -56,6 +63,7 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
      * is still possible
      * @param payloadrow the row definition for the BLOB data structure
      * @param log
+     * @param mappedRead if true, the BLOB files are memory-mapped and read without locking
      * @throws IOException
      */
     public ReferenceContainerArray(
@@ -63,8 +71,10 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
     		final String prefix,
     		final ReferenceFactory<ReferenceType> factory,
     		final ByteOrder termOrder,
-    		final int termSize) throws IOException {
+    		final int termSize,
+    		final boolean mappedRead) throws IOException {
         this.factory = factory;
+        this.concurrentLookup = false;
         this.array = new ArrayStack(
             heapLocation,
             prefix,
@@ -72,7 +82,8 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
             termSize,
             0,
             true,
-            true);
+            true,
+            mappedRead);
     }
 
     public synchronized void close() {
@@ -303,49 +314,156 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
      * @throws SpaceExceededException
      */
     public ReferenceContainer<ReferenceType> get(final byte[] termHash) throws IOException, SpaceExceededException {
-        final long timeout = System.currentTimeMillis() + METHOD_MAXRUNTIME;
+        return get(termHash, METHOD_MAXRUNTIME);
+    }
+
+    /**
+     * get a indexContainer from a heap within a given time budget.
+     * If the time budget is exhausted, the references from the BLOBs which had been read so far are returned.
+     * @param termHash
+     * @param maxtime the time budget in milliseconds
+     * @return the indexContainer if one exist, null otherwise
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public ReferenceContainer<ReferenceType> get(final byte[] termHash, final long maxtime) throws IOException, SpaceExceededException {
+        if (this.concurrentLookup && this.array.entries() > 2) return getConcurrently(termHash, maxtime);
+        final long timeout = System.currentTimeMillis() + maxtime;
         final Iterator<byte[]> entries = this.array.getAll(termHash).iterator();
     	if (entries == null || !entries.hasNext()) return null;
     	final byte[] a = entries.next();
     	int k = 1;
-    	ReferenceContainer<ReferenceType> c = new ReferenceContainer<ReferenceType>(this.factory, termHash, RowSet.importRowSet(a, this.factory.getRow()));
+    	ReferenceContainer<ReferenceType> c = new ReferenceContainer<ReferenceType>(this.factory, termHash, PostingBlocks.importRowSet(a, this.factory.getRow()));
     	if (System.currentTimeMillis() > timeout) {
-    	    ConcurrentLog.warn("ReferenceContainerArray", "timout in get() (1): " + k + " tables searched. timeout = " + METHOD_MAXRUNTIME);
+    	    ConcurrentLog.warn("ReferenceContainerArray", "timout in get() (1): " + k + " tables searched. timeout = " + maxtime);
     	    return c;
     	}
     	while (entries.hasNext()) {
-    		c = c.merge(new ReferenceContainer<ReferenceType>(this.factory, termHash, RowSet.importRowSet(entries.next(), this.factory.getRow())));
+    		c = c.merge(new ReferenceContainer<ReferenceType>(this.factory, termHash, PostingBlocks.importRowSet(entries.next(), this.factory.getRow())));
     		k++;
     		if (System.currentTimeMillis() > timeout) {
-    		    ConcurrentLog.warn("ReferenceContainerArray", "timout in get() (2): " + k + " tables searched. timeout = " + METHOD_MAXRUNTIME);
+    		    ConcurrentLog.warn("ReferenceContainerArray", "timout in get() (2): " + k + " tables searched. timeout = " + maxtime);
     		    return c;
             }
     	}
     	return c;
     }
 
-    public int count(final byte[] termHash) throws IOException {
-        final long timeout = System.currentTimeMillis() + METHOD_MAXRUNTIME;
-        final Iterator<Long> entries = this.array.lengthAll(termHash).iterator();
-        if (entries == null || !entries.hasNext()) return 0;
-        final Long a = entries.next();
-        int k = 1;
-        int c = RowSet.importRowCount(a, this.factory.getRow());
-        assert c >= 0;
-        if (System.currentTimeMillis() > timeout) {
-            ConcurrentLog.warn("ReferenceContainerArray", "timout in count() (1): " + k + " tables searched. timeout = " + METHOD_MAXRUNTIME);
-            return c;
+    /**
+     * get the references of a term which point to a given set of urls. For block-coded containers,
+     * only the blocks which may contain one of the urls are decoded.
+     * @param termHash
+     * @param urlselection the url hashes of the references which are returned; if null, all references are returned
+     * @return the indexContainer if one exist, null otherwise
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection) throws IOException, SpaceExceededException {
+        return get(termHash, urlselection, METHOD_MAXRUNTIME);
+    }
+
+    /**
+     * get the references of a term which point to a given set of urls within a given time budget
+     * @param termHash
+     * @param urlselection the url hashes of the references which are returned; if null, all references are returned
+     * @param maxtime the time budget in milliseconds; it is not extended beyond the default budget of a lookup
+     * @return the indexContainer if one exist, null otherwise
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection, long maxtime) throws IOException, SpaceExceededException {
+        maxtime = Math.max(0, Math.min(maxtime, METHOD_MAXRUNTIME));
+        if (urlselection == null) return get(termHash, maxtime);
+        final long timeout = System.currentTimeMillis() + maxtime;
+        ReferenceContainer<ReferenceType> c = null;
+        int k = 0;
+        for (final byte[] a: this.array.getAll(termHash)) {
+            final ReferenceContainer<ReferenceType> n = new ReferenceContainer<ReferenceType>(this.factory, termHash, PostingBlocks.select(a, this.factory.getRow(), urlselection));
+            c = c == null ? n : c.merge(n);
+            k++;
+            if (System.currentTimeMillis() > timeout) {
+                ConcurrentLog.warn("ReferenceContainerArray", "timout in get() (3): " + k + " tables searched. timeout = " + maxtime);
+                break;
+            }
         }
+        return c;
+    }
+
+    /**
+     * get a indexContainer by reading all BLOBs concurrently. The containers are merged while they arrive;
+     * a container that arrives ahead of an older BLOB is kept back until all older BLOBs are merged, so the
+     * result is the same as that of the sequential lookup.
+     * @param termHash
+     * @param maxtime the time budget in milliseconds
+     * @return the indexContainer if one exist, null otherwise
+     * @throws SpaceExceededException
+     */
+    private ReferenceContainer<ReferenceType> getConcurrently(final byte[] termHash, final long maxtime) throws SpaceExceededException {
+        final Iterator<Map.Entry<Integer, byte[]>> entries = this.array.getAllConcurrently(termHash, maxtime).iterator();
+        final TreeMap<Integer, byte[]> early = new TreeMap<Integer, byte[]>(); // results which arrived before an older BLOB was read
+        ReferenceContainer<ReferenceType> c = null;
+        int next = 0; // the position of the oldest BLOB which has not been merged
         while (entries.hasNext()) {
-            c += RowSet.importRowCount(entries.next(), this.factory.getRow());
+            final Map.Entry<Integer, byte[]> entry = entries.next();
+            early.put(entry.getKey(), entry.getValue());
+            while (!early.isEmpty() && early.firstKey().intValue() == next) {
+                c = merge(c, termHash, early.remove(early.firstKey()));
+                next++;
+            }
+        }
+        // merge everything that arrived within the time budget
+        for (final byte[] a: early.values()) c = merge(c, termHash, a);
+        return c;
+    }
+
+    private ReferenceContainer<ReferenceType> merge(final ReferenceContainer<ReferenceType> c, final byte[] termHash, final byte[] a) throws SpaceExceededException {
+        if (a == null) return c;
+        final ReferenceContainer<ReferenceType> n = new ReferenceContainer<ReferenceType>(this.factory, termHash, PostingBlocks.importRowSet(a, this.factory.getRow()));
+        return c == null ? n : c.merge(n);
+    }
+
+    /**
+     * switch the concurrent reading of all BLOBs in get() on or off
+     * @param concurrentLookup
+     */
+    public void setConcurrentLookup(final boolean concurrentLookup) {
+        this.concurrentLookup = concurrentLookup;
+    }
+
+    /**
+     * switch the membership filters for the keys of the BLOB files on or off
+     * @param keyFilter
+     */
+    public void setKeyFilter(final boolean keyFilter) {
+        this.array.setKeyFilter(keyFilter);
+    }
+
+    /**
+     * @return the lookup statistics of all BLOB files, the oldest file first
+     */
+    public List<ArrayStack.GenerationStatistics> generationStatistics() {
+        return this.array.generationStatistics();
+    }
+
+    /**
+     * count the references of a term. Both container formats store their row count at the beginning of
+     * the record, so only the first PostingBlocks.HEAD_SIZE bytes of each container are read.
+     * @param termHash
+     * @return the number of references
+     * @throws IOException
+     */
+    public int count(final byte[] termHash) throws IOException {
+        final long timeout = System.currentTimeMillis() + METHOD_MAXRUNTIME;
+        int c = 0, k = 0;
+        for (final byte[] head: this.array.headAll(termHash, PostingBlocks.HEAD_SIZE)) {
+            c += PostingBlocks.countHead(head);
             assert c >= 0;
             k++;
             if (System.currentTimeMillis() > timeout) {
-                ConcurrentLog.warn("ReferenceContainerArray", "timout in count() (2): " + k + " tables searched. timeout = " + METHOD_MAXRUNTIME);
-                return c;
+                ConcurrentLog.warn("ReferenceContainerArray", "timout in count(): " + k + " tables searched. timeout = " + METHOD_MAXRUNTIME);
+                break;
             }
         }
-        assert c >= 0;
         return c;
     }
 
@@ -377,11 +495,28 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
         @Override
         public byte[] rewrite(final byte[] b) throws SpaceExceededException {
             if (b == null) return null;
-            final ReferenceContainer<ReferenceType> c = this.rewriter.reduce(new ReferenceContainer<ReferenceType>(ReferenceContainerArray.this.factory, this.wordHash, RowSet.importRowSet(b, ReferenceContainerArray.this.factory.getRow())));
+            final ReferenceContainer<ReferenceType> c = this.rewriter.reduce(new ReferenceContainer<ReferenceType>(ReferenceContainerArray.this.factory, this.wordHash, PostingBlocks.importRowSet(b, ReferenceContainerArray.this.factory.getRow())));
             if (c == null) return null;
             final byte bb[] = c.exportCollection();
-            assert bb.length <= b.length;
-            return bb;
+            if (!PostingBlocks.isBlockCoded(b)) {
+                assert bb.length <= b.length;
+                return bb;
+            }
+            // the deltas of a block-coded container may grow if rows are removed; a record which grows is
+            // moved to the end of the BLOB file, so the shorter format is used. A record which shrinks by
+            // less than 4 bytes cannot be written in place (there is no room for the gap record), then
+            // the other format is used if it fits.
+            final byte[] blocks = PostingBlocks.encode(bb, c.row());
+            final byte[] shorter = blocks.length <= bb.length ? blocks : bb;
+            final byte[] longer = shorter == blocks ? bb : blocks;
+            return fitsInPlace(shorter.length, b.length) || !fitsInPlace(longer.length, b.length) ? shorter : longer;
+        }
+
+        /**
+         * @return true if a record of length newLength can replace a record of length oldLength in a heap file
+         */
+        private boolean fitsInPlace(final int newLength, final int oldLength) {
+            return newLength >= oldLength || newLength <= oldLength - 4;
         }
     }
 
@@ -407,6 +542,30 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
         return true;
     }
 
+    /**
+     * merge a group of files with a similar size in one pass
+     * @return true if a merge job was created
+     */
+    public boolean shrinkTiered(final IODispatcher merger, final long targetFileSize, final long maxFileSize) {
+        final File[] ff = this.array.unmountTier(MERGE_WIDTH_MIN, MERGE_WIDTH_MAX, targetFileSize, maxFileSize);
+        if (ff == null) return false;
+        ConcurrentLog.info("RICELL-shrink-tiered", "unmountTier(" + ff.length + " files, " + maxFileSize + ")");
+        merger.merge(ff, this.factory, this.array, newContainerBLOBFile());
+        return true;
+    }
+
+    /**
+     * merge the files below the target size together with the next larger file in one pass
+     * @return true if a merge job was created
+     */
+    public boolean shrinkLeveled(final IODispatcher merger, final long targetFileSize, final long maxFileSize) {
+        final File[] ff = this.array.unmountLevel(MERGE_WIDTH_MIN, MERGE_WIDTH_MAX, targetFileSize, maxFileSize);
+        if (ff == null) return false;
+        ConcurrentLog.info("RICELL-shrink-leveled", "unmountLevel(" + ff.length + " files, " + targetFileSize + ")");
+        merger.merge(ff, this.factory, this.array, newContainerBLOBFile());
+        return true;
+    }
+
     public boolean shrinkAnySmallFiles(final IODispatcher merger, final long targetFileSize) {
         final File[] ff = this.array.unmountSmallest(targetFileSize);
         if (ff == null) return false;
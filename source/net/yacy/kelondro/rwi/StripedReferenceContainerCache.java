@@ -0,0 +1,258 @@
+/**
+ *  StripedReferenceContainerCache
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.rwi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.util.MergeIterator;
+
+/**
+ * The write buffer of an IndexCell, split into stripes. Each stripe is a ReferenceContainerCache
+ * which holds the terms of one range of the first term hash character, so that the stripes hold
+ * disjoint term sets. Several indexing threads can write into different stripes at the same time,
+ * and each stripe can be handed to a dump job independently of the others.
+ *
+ * A stripe is exchanged with swap(). Writers hold the read lock of the stripe while they modify
+ * its containers and swap() takes the write lock, so no container is modified any more once the
+ * cache has been handed to a dump job.
+ */
+public final class StripedReferenceContainerCache<ReferenceType extends Reference> {
+
+    private final ReferenceFactory<ReferenceType> factory;
+    private final ByteOrder termOrder;
+    private final int termSize;
+    private final Stripe<ReferenceType>[] stripes;
+
+    private static final class Stripe<ReferenceType extends Reference> {
+        private final ReentrantReadWriteLock lock;
+        private volatile ReferenceContainerCache<ReferenceType> cache;
+        private volatile long lastDump;
+
+        private Stripe(final ReferenceContainerCache<ReferenceType> cache) {
+            this.lock = new ReentrantReadWriteLock();
+            this.cache = cache;
+            this.lastDump = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * @param factory the factory for payload reference objects
+     * @param termOrder the order on search terms
+     * @param termSize the fixed size of search terms
+     * @param stripes the number of stripes; values below 1 and above 64 are limited to this range
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public StripedReferenceContainerCache(final ReferenceFactory<ReferenceType> factory, final ByteOrder termOrder, final int termSize, final int stripes) {
+        this.factory = factory;
+        this.termOrder = termOrder;
+        this.termSize = termSize;
+        this.stripes = new Stripe[Math.max(1, Math.min(64, stripes))];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe<ReferenceType>(new ReferenceContainerCache<ReferenceType>(factory, termOrder, termSize));
+        }
+    }
+
+    public int stripes() {
+        return this.stripes.length;
+    }
+
+    /**
+     * compute the stripe of a term: the 64 values of the first base64 character of the term hash
+     * are divided into equal ranges
+     * @param termHash
+     * @return the stripe number
+     */
+    public int stripeOf(final byte[] termHash) {
+        if (this.stripes.length == 1) return 0;
+        final byte b = termHash[0];
+        int v = b < 0 ? -1 : Base64Order.enhancedCoder.decodeByte(b);
+        if (v < 0) v = b & 0x3f;
+        return v * this.stripes.length / 64;
+    }
+
+    /**
+     * get the current cache of a stripe; the cache must not be modified while the stripe is swapped
+     * @param stripe
+     * @return the cache of the stripe
+     */
+    public ReferenceContainerCache<ReferenceType> stripe(final int stripe) {
+        return this.stripes[stripe].cache;
+    }
+
+    /**
+     * @param stripe
+     * @return the time of the latest swap of the stripe
+     */
+    public long lastDump(final int stripe) {
+        return this.stripes[stripe].lastDump;
+    }
+
+    /**
+     * replace the cache of a stripe with a fresh one. Writers which are modifying the stripe
+     * are waited for, so the returned cache is not modified any more and can be dumped.
+     * @param stripe
+     * @return the cache that was used by the stripe until now
+     */
+    public ReferenceContainerCache<ReferenceType> swap(final int stripe) {
+        final Stripe<ReferenceType> s = this.stripes[stripe];
+        s.lock.writeLock().lock();
+        try {
+            final ReferenceContainerCache<ReferenceType> old = s.cache;
+            s.cache = new ReferenceContainerCache<ReferenceType>(this.factory, this.termOrder, this.termSize);
+            s.lastDump = System.currentTimeMillis();
+            return old;
+        } finally {
+            s.lock.writeLock().unlock();
+        }
+    }
+
+    public int termKeyLength() {
+        return this.termSize;
+    }
+
+    public ByteOrder termKeyOrdering() {
+        return this.termOrder;
+    }
+
+    public void add(final ReferenceContainer<ReferenceType> container) throws SpaceExceededException {
+        if (container == null || container.isEmpty()) return;
+        final Stripe<ReferenceType> s = this.stripes[stripeOf(container.getTermHash())];
+        s.lock.readLock().lock();
+        try {
+            s.cache.add(container);
+        } finally {
+            s.lock.readLock().unlock();
+        }
+    }
+
+    public void add(final byte[] termHash, final ReferenceType entry) throws SpaceExceededException {
+        final Stripe<ReferenceType> s = this.stripes[stripeOf(termHash)];
+        s.lock.readLock().lock();
+        try {
+            s.cache.add(termHash, entry);
+        } finally {
+            s.lock.readLock().unlock();
+        }
+    }
+
+    public boolean has(final byte[] termHash) {
+        return this.stripes[stripeOf(termHash)].cache.has(termHash);
+    }
+
+    public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection) {
+        return this.stripes[stripeOf(termHash)].cache.get(termHash, urlselection);
+    }
+
+    public int count(final byte[] termHash) {
+        return this.stripes[stripeOf(termHash)].cache.count(termHash);
+    }
+
+    public ReferenceContainer<ReferenceType> remove(final byte[] termHash) {
+        final Stripe<ReferenceType> s = this.stripes[stripeOf(termHash)];
+        s.lock.readLock().lock();
+        try {
+            return s.cache.remove(termHash);
+        } finally {
+            s.lock.readLock().unlock();
+        }
+    }
+
+    public void delete(final byte[] termHash) {
+        final Stripe<ReferenceType> s = this.stripes[stripeOf(termHash)];
+        s.lock.readLock().lock();
+        try {
+            s.cache.delete(termHash);
+        } finally {
+            s.lock.readLock().unlock();
+        }
+    }
+
+    public boolean remove(final byte[] termHash, final byte[] urlHashBytes) {
+        final Stripe<ReferenceType> s = this.stripes[stripeOf(termHash)];
+        s.lock.readLock().lock();
+        try {
+            return s.cache.remove(termHash, urlHashBytes);
+        } finally {
+            s.lock.readLock().unlock();
+        }
+    }
+
+    public int remove(final byte[] termHash, final HandleSet urlHashes) {
+        final Stripe<ReferenceType> s = this.stripes[stripeOf(termHash)];
+        s.lock.readLock().lock();
+        try {
+            return s.cache.remove(termHash, urlHashes);
+        } finally {
+            s.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * iterate the containers of all stripes in term order
+     */
+    public CloneableIterator<ReferenceContainer<ReferenceType>> referenceContainerIterator(final byte[] startTermHash, final boolean rot, final boolean excludePrivate) {
+        if (this.stripes.length == 1) return this.stripes[0].cache.referenceContainerIterator(startTermHash, rot, excludePrivate);
+        final List<CloneableIterator<ReferenceContainer<ReferenceType>>> iterators = new ArrayList<CloneableIterator<ReferenceContainer<ReferenceType>>>(this.stripes.length);
+        for (final Stripe<ReferenceType> s: this.stripes) iterators.add(s.cache.referenceContainerIterator(startTermHash, rot, excludePrivate));
+        final ReferenceContainerOrder<ReferenceType> containerOrder = new ReferenceContainerOrder<ReferenceType>(this.factory, this.termOrder.clone());
+        containerOrder.rotate(new ReferenceContainer<ReferenceType>(this.factory, startTermHash));
+        return MergeIterator.cascade(iterators, containerOrder, ReferenceContainer.containerMergeMethod, true);
+    }
+
+    public int size() {
+        int size = 0;
+        for (final Stripe<ReferenceType> s: this.stripes) size += s.cache.size();
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (final Stripe<ReferenceType> s: this.stripes) if (!s.cache.isEmpty()) return false;
+        return true;
+    }
+
+    public long usedMemory() {
+        long mem = 0;
+        for (final Stripe<ReferenceType> s: this.stripes) mem += s.cache.usedMemory();
+        return mem;
+    }
+
+    public int maxReferences() {
+        int max = 0;
+        for (final Stripe<ReferenceType> s: this.stripes) max = Math.max(max, s.cache.maxReferences());
+        return max;
+    }
+
+    public void clear() {
+        for (final Stripe<ReferenceType> s: this.stripes) s.cache.clear();
+    }
+
+    public void close() {
+        for (final Stripe<ReferenceType> s: this.stripes) s.cache.close();
+    }
+
+}
@@ -46,20 +46,36 @@ public class TermSearch <ReferenceType extends Reference> {
             final HandleSet urlselection,
             ReferenceFactory<ReferenceType> termFactory,
             int maxDistance) throws SpaceExceededException {
+        this(base, queryHashes, excludeHashes, urlselection, termFactory, maxDistance, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxtime the time budget in milliseconds for the lookup of the containers of the query terms and, separately,
+     *   for the lookup of the containers of the excluded terms; Long.MAX_VALUE for the default time budget of each lookup
+     */
+    public TermSearch(
+            Index<ReferenceType> base,
+            final HandleSet queryHashes,
+            final HandleSet excludeHashes,
+            final HandleSet urlselection,
+            ReferenceFactory<ReferenceType> termFactory,
+            int maxDistance,
+            final long maxtime) throws SpaceExceededException {
 
         this.inclusionContainers =
             (queryHashes.isEmpty()) ?
                 new TreeMap<byte[], ReferenceContainer<ReferenceType>>(Base64Order.enhancedCoder) :
-                base.searchConjunction(queryHashes, urlselection);
+                searchConjunction(base, queryHashes, urlselection, maxtime);
 
         if (!this.inclusionContainers.isEmpty() &&
             (this.inclusionContainers.size() < queryHashes.size()))
             this.inclusionContainers = new TreeMap<byte[], ReferenceContainer<ReferenceType>>(Base64Order.enhancedCoder); // prevent that only a subset is returned
 
+        // the exclusion has its own budget: excluded terms which are not found would not exclude anything
         TreeMap<byte[], ReferenceContainer<ReferenceType>> exclusionContainers =
             (this.inclusionContainers.isEmpty()) ?
                 new TreeMap<byte[], ReferenceContainer<ReferenceType>>(Base64Order.enhancedCoder) :
-                base.searchConjunction(excludeHashes, urlselection);
+                searchConjunction(base, excludeHashes, urlselection, maxtime);
 
         // join and exclude the result
         this.joinResult = ReferenceContainer.joinExcludeContainers(
@@ -69,6 +85,12 @@ public class TermSearch <ReferenceType extends Reference> {
                 maxDistance);
     }
 
+    private static <ReferenceType extends Reference> TreeMap<byte[], ReferenceContainer<ReferenceType>> searchConjunction(
+            final Index<ReferenceType> base, final HandleSet wordHashes, final HandleSet urlselection, final long maxtime) {
+        if (maxtime == Long.MAX_VALUE || !(base instanceof AbstractIndex)) return base.searchConjunction(wordHashes, urlselection);
+        return ((AbstractIndex<ReferenceType>) base).searchConjunction(wordHashes, urlselection, maxtime);
+    }
+
     public ReferenceContainer<ReferenceType> joined() {
         return this.joinResult;
     }
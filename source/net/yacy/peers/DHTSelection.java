@@ -27,10 +27,12 @@ package net.yacy.peers;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
@@ -139,32 +141,72 @@ public class DHTSelection {
      * @return a list of matching candidate seeds for remote RWI search
      */
     public static Set<Seed> selectDHTSearchTargets(final SeedDB seedDB, final HandleSet wordhashes, final int minage, final int minWordCount, final int redundancy, final int maxredundancy, final Random random) {
+        return selectDHTSearchTargets(seedDB, wordhashes, minage, minWordCount, redundancy, maxredundancy, random, null, null);
+    }
+
+    /**
+     * @param seedDB the seeds database.
+     * @param wordhashes hashes of the words we are searching for
+     * @param minage the minimum age of each seed in days
+     * @param minWordCount the minimum RWI words count of each seed
+     * @param random a random generator instance
+     * @param latency if not null, fast and reliable peers are preferred within each vertical partition
+     * @param alternatives if not null, this map is filled with the next-best peer of the same vertical partition for each selected seed hash
+     * @return a list of matching candidate seeds for remote RWI search
+     */
+    public static Set<Seed> selectDHTSearchTargets(final SeedDB seedDB, final HandleSet wordhashes, final int minage, final int minWordCount, final int redundancy, final int maxredundancy, final Random random,
+            final PeerLatency latency, final Map<String, Seed> alternatives) {
 
         // put in seeds according to dht
         Set<Seed> seeds = new LinkedHashSet<>(); // dht position seeds
         if (seedDB != null) {
             Iterator<byte[]> iter = wordhashes.iterator();
             while (iter.hasNext()) {
-                seeds.addAll(collectHorizontalDHTPositions(seedDB, iter.next(), minage, minWordCount, redundancy, maxredundancy, random));
+                seeds.addAll(collectHorizontalDHTPositions(seedDB, iter.next(), minage, minWordCount, redundancy, maxredundancy, random, latency, alternatives));
             }
         }
+        if (alternatives != null) {
+            // an alternative must not be a target itself
+            Iterator<Map.Entry<String, Seed>> i = alternatives.entrySet().iterator();
+            while (i.hasNext()) if (seeds.contains(i.next().getValue())) i.remove();
+        }
         
         return seeds;
     }
 
-    private static ArrayList<Seed> collectHorizontalDHTPositions(final SeedDB seedDB, final byte[] wordhash, final int minage, final int minWordCount, final int redundancy, final int maxredundancy, final Random random) {
+    private static ArrayList<Seed> collectHorizontalDHTPositions(final SeedDB seedDB, final byte[] wordhash, final int minage, final int minWordCount, final int redundancy, final int maxredundancy, final Random random,
+            final PeerLatency latency, final Map<String, Seed> alternatives) {
         // this method is called from the search target computation
         ArrayList<Seed> collectedSeeds = new ArrayList<>(redundancy * seedDB.scheme.verticalPartitions());
         for (int verticalPosition = 0; verticalPosition < seedDB.scheme.verticalPartitions(); verticalPosition++) {
-            ArrayList<Seed> seeds = selectVerticalDHTPositions(seedDB, wordhash, minage, minWordCount, maxredundancy, verticalPosition);
+            // for the alternatives we look at one more position than the targets of the partition
+            ArrayList<Seed> seeds = selectVerticalDHTPositions(seedDB, wordhash, minage, minWordCount, alternatives == null ? maxredundancy : maxredundancy + 1, verticalPosition);
+            List<Seed> spare = new ArrayList<>();
+            if (seeds.size() > maxredundancy) spare.add(seeds.remove(seeds.size() - 1));
+            List<Seed> picked;
             if (seeds.size() <= redundancy) {
-                collectedSeeds.addAll(seeds);
+                picked = seeds;
             } else {
                 // we pick some random peers from the vertical position.
                 // All of them should be valid, but picking a random subset is a distributed load balancing on the whole YaCy network.
                 // without picking a random subset, always the same peers would be targeted for the same word resulting in (possible) DoS on the target.
+                // With a latency statistic, the random choice is weighted to prefer fast and reliable peers.
+                picked = new ArrayList<>(redundancy);
                 for (int i = 0; i < redundancy; i++) {
-                    collectedSeeds.add(seeds.remove(random.nextInt(seeds.size())));
+                    picked.add(latency == null ? seeds.remove(random.nextInt(seeds.size())) : latency.pick(seeds, random));
+                }
+                spare.addAll(seeds);
+            }
+            collectedSeeds.addAll(picked);
+            if (alternatives != null && spare.size() > 0) {
+                // the best remaining peer of the partition is the alternative for the slowest target
+                if (latency != null) {
+                    spare = latency.rank(spare);
+                    picked = latency.rank(picked);
+                    Collections.reverse(picked);
+                }
+                for (int i = 0; i < Math.min(picked.size(), spare.size()); i++) {
+                    alternatives.put(picked.get(i).hash, spare.get(i));
                 }
             }
         }
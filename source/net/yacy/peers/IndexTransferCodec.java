@@ -0,0 +1,275 @@
+/**
+ *  IndexTransferCodec
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.peers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
+
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.ReferenceFactory;
+
+/**
+ * The binary format of the DHT index transfer. One transfer contains reference containers and the
+ * metadata of the referenced urls in a single LZ4 compressed stream:
+ * <pre>
+ * version(1) rowsize(2)
+ * { CONTAINER termhash(12) count(varint) { prefix(1) urlhash-suffix(12-prefix) row-tail(rowsize-12) }* }*
+ * { METADATA length(varint) metadata(length, UTF-8) }*
+ * END
+ * </pre>
+ * The rows of a container are written as they are stored in the RowSet, only the url hash at the start
+ * of each row is delta-encoded: the rows are sorted by url hash and each hash is written as the length of
+ * the prefix which it shares with the previous hash and the remaining bytes.
+ * The metadata are the property strings of {@link net.yacy.kelondro.data.meta.URIMetadataNode}.
+ */
+public class IndexTransferCodec {
+
+    public static final byte VERSION = 1;
+
+    /** the maximum number of references in one transfer; a protection against flooding with the limit of /yacy/transferRWI.html */
+    public static final int MAX_REFERENCES = 1000;
+
+    /** the maximum number of metadata entries in one transfer */
+    public static final int MAX_METADATA = 10000;
+
+    /** the maximum length of one metadata entry */
+    public static final int MAX_METADATA_LENGTH = 1 << 20;
+
+    /**
+     * the result of a transfer which could not be decoded completely, i.e. because it was truncated on the way;
+     * the receiver keeps the references which it decoded before, their number is in the response line "accepted"
+     */
+    public static final String RESULT_DECODE_ERROR = "decode_error";
+
+    private static final byte END = 0, CONTAINER = 1, METADATA = 2;
+
+    private static final Row row = WordReferenceRow.urlEntryRow;
+    private static final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+    private static final int hashLength = Word.commonHashLength;
+
+    private static void writeVarInt(final DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(final DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * writes containers and then metadata to a compressed stream
+     */
+    public static class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private final byte[] current, previous;
+        private boolean metadata;
+        private int references, metadataCount;
+
+        public Writer(final OutputStream os) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FramedLZ4CompressorOutputStream(os)));
+            this.out.writeByte(VERSION);
+            this.out.writeShort(row.objectsize);
+            this.current = new byte[row.objectsize];
+            this.previous = new byte[hashLength];
+            this.metadata = false;
+            this.references = 0;
+            this.metadataCount = 0;
+        }
+
+        /**
+         * write a reference container; the container is sorted by url hash
+         * @param container a container with at least one reference
+         */
+        public void write(final ReferenceContainer<WordReference> container) throws IOException {
+            if (this.metadata) throw new IOException("containers must be written before the metadata");
+            if (container.isEmpty()) return;
+            container.sort();
+            final int size = container.size();
+            this.out.writeByte(CONTAINER);
+            this.out.write(container.getTermHash(), 0, hashLength);
+            writeVarInt(this.out, size);
+            for (int i = 0; i < size; i++) {
+                container.get(i, false).writeToArray(this.current, 0);
+                int prefix = 0;
+                if (i > 0) while (prefix < hashLength && this.current[prefix] == this.previous[prefix]) prefix++;
+                this.out.writeByte(prefix);
+                this.out.write(this.current, prefix, row.objectsize - prefix);
+                System.arraycopy(this.current, 0, this.previous, 0, hashLength);
+            }
+            this.references += size;
+        }
+
+        /**
+         * write the metadata of an url
+         * @param properties the property string of the metadata
+         */
+        public void writeMetadata(final String properties) throws IOException {
+            final byte[] b = UTF8.getBytes(properties);
+            this.metadata = true;
+            this.out.writeByte(METADATA);
+            writeVarInt(this.out, b.length);
+            this.out.write(b);
+            this.metadataCount++;
+        }
+
+        /**
+         * @return the number of references written so far
+         */
+        public int references() {
+            return this.references;
+        }
+
+        /**
+         * @return the number of metadata entries written so far
+         */
+        public int metadata() {
+            return this.metadataCount;
+        }
+
+        /**
+         * terminate the stream and finish the compression
+         */
+        @Override
+        public void close() throws IOException {
+            this.out.writeByte(END);
+            this.out.close();
+        }
+    }
+
+    /**
+     * reads containers and then metadata from a compressed stream
+     */
+    public static class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private final byte[] previous;
+        private final int maxReferences;
+        private int tag, references, metadataCount;
+
+        public Reader(final InputStream is) throws IOException {
+            this(is, MAX_REFERENCES);
+        }
+
+        /**
+         * @param is the compressed stream
+         * @param maxReferences the maximum number of references which are accepted
+         */
+        public Reader(final InputStream is, final int maxReferences) throws IOException {
+            this.in = new DataInputStream(new FramedLZ4CompressorInputStream(new BufferedInputStream(is)));
+            final int version = this.in.readUnsignedByte();
+            if (version != VERSION) throw new IOException("unsupported index transfer version " + version);
+            final int rowsize = this.in.readUnsignedShort();
+            if (rowsize != row.objectsize) throw new IOException("wrong row size " + rowsize + ", expected " + row.objectsize);
+            this.previous = new byte[hashLength];
+            this.maxReferences = maxReferences;
+            this.tag = -1;
+            this.references = 0;
+            this.metadataCount = 0;
+        }
+
+        private int tag() throws IOException {
+            if (this.tag < 0) this.tag = this.in.readUnsignedByte();
+            return this.tag;
+        }
+
+        /**
+         * @return the next container or null if all containers have been read
+         * @throws IOException if the stream is malformed or contains more than the maximum number of references
+         */
+        public ReferenceContainer<WordReference> next() throws IOException, SpaceExceededException {
+            if (tag() != CONTAINER) return null;
+            this.tag = -1;
+            final byte[] termHash = new byte[hashLength];
+            this.in.readFully(termHash);
+            final int size = readVarInt(this.in);
+            if (size < 0 || this.references + size > this.maxReferences) throw new IOException("too many references: " + (this.references + size));
+            final ReferenceContainer<WordReference> container = new ReferenceContainer<WordReference>(factory, termHash, size);
+            for (int i = 0; i < size; i++) {
+                final int prefix = this.in.readUnsignedByte();
+                if (prefix > hashLength || (i == 0 && prefix > 0)) throw new IOException("malformed url hash prefix " + prefix);
+                final byte[] b = new byte[row.objectsize];
+                System.arraycopy(this.previous, 0, b, 0, prefix);
+                this.in.readFully(b, prefix, row.objectsize - prefix);
+                System.arraycopy(b, 0, this.previous, 0, hashLength);
+                container.add(factory.produceSlow(row.newEntry(b)));
+            }
+            this.references += size;
+            return container;
+        }
+
+        /**
+         * @return the next metadata property string or null if the stream is at its end
+         * @throws IOException if the stream is malformed or contains more than MAX_METADATA metadata entries
+         */
+        public String nextMetadata() throws IOException {
+            while (tag() == CONTAINER) {
+                // skip containers which have not been read
+                try {
+                    next();
+                } catch (final SpaceExceededException e) {
+                    throw new IOException(e.getMessage());
+                }
+            }
+            if (this.tag == END) return null;
+            if (this.tag != METADATA) throw new IOException("unknown tag " + this.tag);
+            this.tag = -1;
+            if (++this.metadataCount > MAX_METADATA) throw new IOException("too many metadata entries");
+            final int length = readVarInt(this.in);
+            if (length < 0 || length > MAX_METADATA_LENGTH) throw new IOException("metadata too long: " + length);
+            final byte[] b = new byte[length];
+            this.in.readFully(b);
+            return UTF8.String(b);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+
+    private IndexTransferCodec() {}
+}
@@ -37,17 +37,20 @@ public class PeerActions {
     private final SeedDB seedDB;
     private Map<String, String> userAgents;
     private final NewsPool newsPool;
+    private final PeerLatency latency;
 
     public PeerActions(final SeedDB seedDB, final NewsPool newsPool) {
         this.seedDB = seedDB;
         this.newsPool = newsPool;
         this.userAgents = new ConcurrentARC<String, String>(10000, Runtime.getRuntime().availableProcessors() + 1);
+        this.latency = new PeerLatency();
     }
 
     public void close() {
         // the seedDB and newsPool should be cleared elsewhere
         if (this.userAgents != null) this.userAgents.clear();
         this.userAgents = null;
+        this.latency.clear();
     }
 
     public boolean connectPeer(final Seed seed, final boolean direct) {
@@ -271,6 +274,24 @@ public class PeerActions {
         }
     }
 
+    /**
+     * record the response time of a remote search request
+     * @param peer the peer which has been asked
+     * @param time the time in milliseconds until the answer was received or the request failed
+     * @param answered true if the peer sent an answer
+     */
+    public void searchResponse(final Seed peer, final long time, final boolean answered) {
+        if (peer == null) return;
+        this.latency.update(peer.hash, time, answered);
+    }
+
+    /**
+     * @return the response time and answer statistic of remote search requests
+     */
+    public PeerLatency getLatency() {
+        return this.latency;
+    }
+
     public int sizeConnected() {
         return this.seedDB.sizeConnected();
     }
@@ -0,0 +1,232 @@
+/**
+ *  PeerLatency
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.peers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import net.yacy.cora.storage.ConcurrentARC;
+
+/**
+ * Records the response time and the answer quality of remote search requests for each peer.
+ * The latency of a peer is a moving average of its response times, the reliability is the share
+ * of requests which have been answered; a failed request counts as a response time of FAILURE_LATENCY
+ * in the average. Peers which have not been asked yet get a neutral score,
+ * so they are still selected and their statistic is learned. The statistic is kept in memory only.
+ */
+public class PeerLatency {
+
+    /** the latency which is assumed for peers without statistic */
+    public static final long DEFAULT_LATENCY = 3000;
+
+    /** the response time which is counted for a failed request, like a timeout of the request */
+    public static final long FAILURE_LATENCY = 2 * DEFAULT_LATENCY;
+
+    /** the number of response times which are kept for the percentile computation */
+    private static final int SAMPLES = 256;
+
+    /** a percentile is only computed if at least this number of response times are known */
+    private static final int MIN_SAMPLES = 10;
+
+    /** the weight of a new response time in the moving average */
+    private static final double ALPHA = 0.3d;
+
+    /**
+     * the statistic of one peer
+     */
+    public static class Stats {
+        private double latency; // the exponentially weighted moving average of the response time
+        private int answered, failed;
+        private long lastAccess;
+
+        private Stats() {
+            this.latency = -1.0d;
+            this.answered = 0;
+            this.failed = 0;
+            this.lastAccess = 0;
+        }
+
+        private synchronized void update(final long time, final boolean answer) {
+            // a failure counts as a timeout, so an unreliable peer is not ranked before a peer without statistic
+            final long t = answer ? time : Math.max(time, FAILURE_LATENCY);
+            this.latency = this.latency < 0 ? t : ALPHA * t + (1.0d - ALPHA) * this.latency;
+            if (answer) {
+                this.answered++;
+            } else {
+                this.failed++;
+            }
+            this.lastAccess = System.currentTimeMillis();
+        }
+
+        /**
+         * @return the average response time in milliseconds or DEFAULT_LATENCY if the peer was never asked
+         */
+        public synchronized long getLatency() {
+            return this.latency < 0 ? DEFAULT_LATENCY : (long) this.latency;
+        }
+
+        /**
+         * @return the share of answered requests; with one virtual answer and one virtual failure, so a single failure does not exclude a peer
+         */
+        public synchronized double getReliability() {
+            return (this.answered + 1.0d) / (this.answered + this.failed + 2.0d);
+        }
+
+        public synchronized int getAnswered() {
+            return this.answered;
+        }
+
+        public synchronized int getFailed() {
+            return this.failed;
+        }
+
+        public synchronized long getLastAccess() {
+            return this.lastAccess;
+        }
+
+        /**
+         * @return the expected time to get an answer from the peer; smaller is better
+         */
+        public double score() {
+            return getLatency() / getReliability();
+        }
+    }
+
+    private final Map<String, Stats> stats;
+    private final long[] samples; // a ring of the latest response times of all peers
+    private int sampleCount;
+
+    public PeerLatency() {
+        this.stats = new ConcurrentARC<String, Stats>(1000, Runtime.getRuntime().availableProcessors() + 1);
+        this.samples = new long[SAMPLES];
+        this.sampleCount = 0;
+    }
+
+    /**
+     * record the result of a request to a peer
+     * @param peerhash the hash of the peer
+     * @param time the time in milliseconds until the response was received or the request failed
+     * @param answer true if the peer sent an answer
+     */
+    public void update(final String peerhash, final long time, final boolean answer) {
+        if (peerhash == null) return;
+        Stats s = this.stats.get(peerhash);
+        if (s == null) {
+            // concurrent first updates of a peer must use the same statistic
+            s = new Stats();
+            final Stats previous = this.stats.putIfAbsent(peerhash, s);
+            if (previous != null) s = previous;
+        }
+        s.update(time, answer);
+        if (answer) synchronized (this.samples) {
+            this.samples[this.sampleCount % SAMPLES] = time;
+            this.sampleCount++;
+        }
+    }
+
+    /**
+     * @param peerhash the hash of a peer
+     * @return the statistic of the peer or null if the peer has not been asked yet
+     */
+    public Stats get(final String peerhash) {
+        return this.stats.get(peerhash);
+    }
+
+    /**
+     * @param seed a peer
+     * @return the expected time to get an answer from the peer; smaller is better
+     */
+    public double score(final Seed seed) {
+        final Stats s = this.stats.get(seed.hash);
+        return s == null ? DEFAULT_LATENCY : s.score();
+    }
+
+    /**
+     * compute a percentile of the latest response times of all peers
+     * @param percentile the percentile, i.e. 90
+     * @return the response time in milliseconds or -1 if not enough response times are known
+     */
+    public long percentile(final int percentile) {
+        final long[] sorted;
+        synchronized (this.samples) {
+            if (this.sampleCount < MIN_SAMPLES) return -1;
+            sorted = Arrays.copyOf(this.samples, Math.min(this.sampleCount, SAMPLES));
+        }
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+
+    /**
+     * sort peers by their score
+     * @param seeds a collection of peers
+     * @return a new list with the best peers first
+     */
+    public List<Seed> rank(final Collection<Seed> seeds) {
+        final List<Seed> ranked = new ArrayList<Seed>(seeds);
+        Collections.sort(ranked, new Comparator<Seed>() {
+            @Override
+            public int compare(final Seed s1, final Seed s2) {
+                return Double.compare(score(s1), score(s2));
+            }
+        });
+        return ranked;
+    }
+
+    /**
+     * Pick a random peer from a list, where the chance to be picked is inverse to the score of the peer.
+     * Fast and reliable peers are preferred, but all peers still get requests which is a load balancing
+     * on the network and renews the statistic of the peers.
+     * @param seeds a non-empty list of peers; the picked peer is removed from the list
+     * @param random the random generator
+     * @return the picked peer
+     */
+    public Seed pick(final List<Seed> seeds, final Random random) {
+        final double[] weights = new double[seeds.size()];
+        double sum = 0.0d;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 1.0d / Math.max(1.0d, score(seeds.get(i)));
+            sum += weights[i];
+        }
+        double r = random.nextDouble() * sum;
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r < 0.0d) return seeds.remove(i);
+        }
+        return seeds.remove(seeds.size() - 1);
+    }
+
+    public int size() {
+        return this.stats.size();
+    }
+
+    public void clear() {
+        this.stats.clear();
+        synchronized (this.samples) {
+            this.sampleCount = 0;
+        }
+    }
+}
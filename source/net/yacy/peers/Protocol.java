@@ -66,6 +66,8 @@ import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.content.ByteArrayBody;
 import org.apache.http.entity.mime.content.ContentBody;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.response.FacetField;
@@ -94,6 +96,7 @@ import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.protocol.http.HTTPClient;
 import net.yacy.cora.sorting.ClusteredScoreMap;
 import net.yacy.cora.sorting.ReversibleScoreMap;
+import net.yacy.cora.storage.ConcurrentARC;
 import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ByteBuffer;
 import net.yacy.cora.util.CommonPattern;
@@ -125,6 +128,7 @@ import net.yacy.search.Switchboard;
 import net.yacy.search.SwitchboardConstants;
 import net.yacy.search.index.Segment;
 import net.yacy.search.query.SearchEvent;
+import net.yacy.search.query.SearchExecutor;
 import net.yacy.search.query.SecondarySearchSuperviser;
 import net.yacy.search.schema.CollectionSchema;
 import net.yacy.search.snippet.TextSnippet;
@@ -486,6 +490,17 @@ public final class Protocol {
         return feed;
     }
 
+    /**
+     * @return a client for a search request to a remote peer
+     */
+    protected static HTTPClient searchClient() {
+        return new HTTPClient(ClientIdentification.yacyInternetCrawlerAgent, 8000);
+    }
+
+    /**
+     * @param httpClient the client for the request; it may be aborted by another thread to cancel the search
+     * @throws InterruptedException if the search has been interrupted or its request has been aborted
+     */
     protected static int primarySearch(
         final SearchEvent event,
         final String wordhashes,
@@ -499,7 +514,8 @@ public final class Protocol {
         final int partitions,
         final Seed target,
         final SecondarySearchSuperviser secondarySearchSuperviser,
-        final Blacklist blacklist) throws InterruptedException {
+        final Blacklist blacklist,
+        final HTTPClient httpClient) throws InterruptedException {
         // send a search request to peer with remote Hash
 
         // INPUT:
@@ -545,10 +561,13 @@ public final class Protocol {
                         partitions,
                         target.getHexHash() + ".yacyh",
                         targetBaseURL,
-                        secondarySearchSuperviser
+                        secondarySearchSuperviser,
+                        httpClient
                         );
                 break;
             } catch (final IOException e ) {
+                // an aborted request is no failure of the peer
+                if (httpClient.isAborted()) throw new InterruptedException("search request to " + target.getName() + " aborted");
                 Network.log.info("SEARCH failed, Peer: " + target.hash + ":" + target.getName() + " (" + e.getMessage() + ")");
                 if(targetBaseURL.startsWith("https")) {
                 	/* First mark https unavailable on this peer before removing any interface */
@@ -638,7 +657,8 @@ public final class Protocol {
                         partitions,
                         target.getHexHash() + ".yacyh",
                         targetBaseURL,
-                        null
+                        null,
+                        searchClient()
                         );
                 break;
             } catch (final IOException e ) {
@@ -787,14 +807,14 @@ public final class Protocol {
 			if (Thread.interrupted()) {
 				throw new InterruptedException("solrQuery interrupted");
 			}
-			WriteMetadataNodeToLocalIndexThread writerToLocalIndex = new WriteMetadataNodeToLocalIndexThread(event.query.getSegment(), storeDocs);
-			writerToLocalIndex.start();
+			WriteMetadataNodeToLocalIndexTask writerToLocalIndex = new WriteMetadataNodeToLocalIndexTask(event.query.getSegment(), storeDocs);
+			final SearchExecutor.Task writer = SearchExecutor.getExecutor().execute("WriteMetadataNodeToLocalIndexTask", writerToLocalIndex, true);
 			try {
-				writerToLocalIndex.join();
+				writer.join();
 			} catch(InterruptedException e) {
 				/*
 				 * Current thread interruption might happen while waiting
-				 * for writeToLocalIndexThread.
+				 * for the writer task.
 				 */
 				writerToLocalIndex.stopWriting();
 				throw new InterruptedException("remoteProcess stopped!");
@@ -830,14 +850,14 @@ public final class Protocol {
     }
     
     /**
-     * This thread is used to write a collection of URIMetadataNode documents to a segment allowing to be safely stopped.
+     * This task is used to write a collection of URIMetadataNode documents to a segment allowing to be safely stopped.
      * Indeed, if one interrupt a thread while commiting to Solr index, the index is closed and will be no more writable 
      * (later calls would throw a org.apache.lucene.store.AlreadyClosedException) because Solr IndexWriter uses an InterruptibleChanel.
-     * This thread allow to safely stop writing operation using an AtomicBoolean.
+     * This task allows to safely stop writing operation using an AtomicBoolean.
      * @author luc
      *
      */
-    private static class WriteMetadataNodeToLocalIndexThread extends Thread {
+    private static class WriteMetadataNodeToLocalIndexTask implements Runnable {
     	
     	private AtomicBoolean stop = new AtomicBoolean(false);
     	
@@ -850,8 +870,7 @@ public final class Protocol {
     	 * @param segment solr segment to write
     	 * @param storeDocs solr documents collection to put to segment
     	 */
-    	public WriteMetadataNodeToLocalIndexThread(Segment segment, Collection<URIMetadataNode> storeDocs) {
-    		super("WriteMetadataNodeToLocalIndexThread");
+    	public WriteMetadataNodeToLocalIndexTask(Segment segment, Collection<URIMetadataNode> storeDocs) {
     		this.segment = segment;
     		this.storeDocs = storeDocs;
     	}
@@ -904,7 +923,8 @@ public final class Protocol {
             final int partitions,
             final String hostname,
             final String targetBaseURL,
-            final SecondarySearchSuperviser secondarySearchSuperviser
+            final SecondarySearchSuperviser secondarySearchSuperviser,
+            final HTTPClient httpClient
             ) throws IOException {
             // send a search request to peer with remote Hash
 
@@ -962,7 +982,6 @@ public final class Protocol {
                 //resultMap = FileUtils.table(HTTPConnector.getConnector(MultiProtocolURI.crawlerUserAgent).post(new MultiProtocolURI("http://" + target.getClusterAddress() + "/yacy/search.html"), 60000, target.getHexHash() + ".yacyh", parts));
             }
 
-            final HTTPClient httpClient = new HTTPClient(ClientIdentification.yacyInternetCrawlerAgent, 8000);
             byte[] a = httpClient.POSTbytes(new MultiProtocolURL(targetBaseURL + "/yacy/search.html"), hostname, parts, false, true);
             if (a != null && a.length > 200000) {
                 // there is something wrong. This is too large, maybe a hack on the other side?
@@ -1027,7 +1046,7 @@ public final class Protocol {
     /**
      * A task dedicated to requesting a Solr instance
      */
-    protected static class SolrRequestTask extends Thread {
+    protected static class SolrRequestTask implements Runnable {
     	
     	/** Maximum length of detailed log error message */
     	private final static int MAX_ERROR_MESSAGE_LENGTH = 500;
@@ -1074,7 +1093,6 @@ public final class Protocol {
     	 */
 		protected SolrRequestTask(final SolrQuery solrQuery, final String targetBaseURL, final Seed target,
 				final boolean mySeed, final int timeout, final QueryResponse[] rsp, final SolrDocumentList[] docList) {
-			super("Protocol.solrQuery(" + solrQuery.getQuery() + " to " + target.hash + ")");
 			this.solrQuery = solrQuery;
 			this.targetBaseURL = targetBaseURL;
 			this.target = target;
@@ -1254,15 +1272,26 @@ public final class Protocol {
                     }
                     final int solrtimeout = Switchboard.getSwitchboard().getConfigInt(SwitchboardConstants.FEDERATED_SERVICE_SOLR_INDEXING_TIMEOUT, 6000);
                     SolrRequestTask remoteRequest = new SolrRequestTask(solrQuery, targetBaseURL, target, myseed, solrtimeout, rsp, docList);
-                    remoteRequest.start();
-                    remoteRequest.join(solrtimeout); // just wait until timeout appears
-                    if (remoteRequest.isAlive()) {
+                    final SearchExecutor.Task request = SearchExecutor.getExecutor().execute("Protocol.solrQuery(" + solrQuery.getQuery() + " to " + target.hash + ")", remoteRequest);
+                    request.join(solrtimeout); // just wait until timeout appears
+                    // the timeout counts from the start of the request: the time in the queue of the executor is not counted
+                    long started;
+                    while (request.isAlive() && (started = request.getStartTime()) > 0 && started + solrtimeout > System.currentTimeMillis()) {
+                        request.join(started + solrtimeout - System.currentTimeMillis());
+                    }
+                    if (request.isAlive()) {
+                        final boolean notStarted = request.getStartTime() == 0;
                     	/* Try to free the request thread resources properly */
                     	remoteRequest.close();
-                    	if(remoteRequest.isAlive()) {
+                    	if(request.isAlive()) {
                     		/* Thread still running : try also with interrupt*/
-                    		remoteRequest.interrupt();
+                    		request.interrupt();
                     	}
+                        if (notStarted) {
+                            /* the request never reached the peer : this is no failure of the peer */
+                            Network.log.info("SEARCH skip (solr), request to remote Peer: " + target.getName() + " was not started within the time-out (search executor busy)");
+                            return -1;
+                        }
                         Network.log.info("SEARCH failed (solr), remote Peer: " + target.getName() + "/" + targetBaseURL + " does not answer (time-out)");
                         target.setFlagSolrAvailable(false || myseed);
                         return -1; // give up, leave remoteRequest abandoned.
@@ -1448,9 +1477,8 @@ public final class Protocol {
                 if (Thread.interrupted()) {
                     throw new InterruptedException("solrQuery interrupted");
                 }
-                WriteToLocalIndexThread writeToLocalIndexThread = new WriteToLocalIndexThread(event.query.getSegment(),
-                        docs); // will clear docs on return
-                writeToLocalIndexThread.start();
+                SearchExecutor.getExecutor().execute("WriteToLocalIndexTask", new WriteToLocalIndexTask(event.query.getSegment(),
+                        docs), true); // will clear docs on return
             }
             event.addNodes(resultContainer, facets, snippets, false, target.getName() + "/" + target.hash, numFound, incrementNavigators);
             event.addFinalize();
@@ -1461,14 +1489,14 @@ public final class Protocol {
     }
     
     /**
-     * This thread is used to write a collection of Solr documents to a segment allowing to be safely stopped.
+     * This task is used to write a collection of Solr documents to a segment allowing to be safely stopped.
      * Indeed, if one interrupt a thread while commiting to Solr index, the index is closed and will be no more writable 
      * (later calls would throw a org.apache.lucene.store.AlreadyClosedException) because Solr IndexWriter uses an InterruptibleChanel.
-     * This thead allow to safely stop writing operation using an AtomicBoolean.
+     * This task allows to safely stop writing operation using an AtomicBoolean.
      * @author luc
      *
      */
-    private static class WriteToLocalIndexThread extends Thread {
+    private static class WriteToLocalIndexTask implements Runnable {
     	
     	private AtomicBoolean stop = new AtomicBoolean(false);
     	
@@ -1482,8 +1510,7 @@ public final class Protocol {
     	 * @param segment solr segment to write
     	 * @param docs solr documents collection to put to segment
     	 */
-    	public WriteToLocalIndexThread(Segment segment, Collection<SolrInputDocument> docs) {
-    		super("WriteToLocalIndexThread");
+    	public WriteToLocalIndexTask(Segment segment, Collection<SolrInputDocument> docs) {
     		this.segment = segment;
     		this.docs = docs;
     	}
@@ -1659,6 +1686,9 @@ public final class Protocol {
 
     public static AtomicInteger metadataRetrievalRunning = new AtomicInteger(0);
 
+    /** the URL metadata which have been sent to a peer with a binary index transfer; the key is the peer hash followed by the URL hash */
+    private static final Map<String, Boolean> transferredMetadata = new ConcurrentARC<String, Boolean>(100000, Runtime.getRuntime().availableProcessors() + 1);
+
     /**
 	 * transfer the index. If the transmission fails, return a string describing the
 	 * cause. If everything is ok, return null.
@@ -1706,6 +1736,23 @@ public final class Protocol {
 		final boolean preferHttps = sb.getConfigBool(SwitchboardConstants.NETWORK_PROTOCOL_HTTPS_PREFERRED,
 				SwitchboardConstants.NETWORK_PROTOCOL_HTTPS_PREFERRED_DEFAULT);
         
+        // transfer the RWI together with the URLs in one binary request
+        if (targetSeed.getFlagIndexTransferBinary()
+                && sb.getConfigBool(SwitchboardConstants.INDEX_DIST_BINARY, SwitchboardConstants.INDEX_DIST_BINARY_DEFAULT)) {
+            final Map<String, String> in = transferIndexBinary(targetSeed, indexes, urlRefs, segment, timeout, preferHttps);
+            if (in != null && IndexTransferCodec.RESULT_DECODE_ERROR.equals(in.get("result"))) {
+                // the stream was broken on the way, the peer still accepts our index: send the chunk again with transferRWI,
+                // the references which the peer accepted before are merged with the same entries
+                Network.log.info("binary index transfer to " + targetSeed.getName() + " broken after " + in.get("accepted")
+                        + " accepted references, using transferRWI");
+            } else if (in != null && in.get("result") != null) {
+                return transferUnknownURLs(sb, targetSeed, indexes, in, urlRefs, segment, gzipBody, timeout, preferHttps);
+            } else {
+                // the peer does not understand the binary transfer, use the transferRWI and transferURL requests
+                Network.log.info("binary index transfer to " + targetSeed.getName() + " failed, using transferRWI");
+            }
+        }
+
         // transfer the RWI without the URLs
         Map<String, String> in = transferRWI(targetSeed, indexes, gzipBody, timeout, preferHttps);
 
@@ -1723,6 +1770,27 @@ public final class Protocol {
             return errorCause;
         }
 
+        return transferUnknownURLs(sb, targetSeed, indexes, in, urlRefs, segment, gzipBody, timeout, preferHttps);
+    }
+
+    /**
+     * evaluate the response of an index transfer and send the URLs which are unknown to the target peer
+     *
+     * @param in the response of the index transfer, containing a result
+     * @return null if everything is ok, otherwise a string describing the error
+     */
+    private static String transferUnknownURLs(
+        final Switchboard sb,
+        final Seed targetSeed,
+        final ReferenceContainerCache<WordReference> indexes,
+        Map<String, String> in,
+        final HandleSet urlRefs,
+        final Segment segment,
+        final boolean gzipBody,
+        final int timeout,
+        final boolean preferHttps) {
+
+        String result = in.get("result");
         if ( !(result.equals("ok")) ) {
             targetSeed.setFlagAcceptRemoteIndex(false); // the peer does not want our index
             sb.peers.addConnected(targetSeed); // update the peer
@@ -1774,6 +1842,103 @@ public final class Protocol {
         return null;
     }
 
+    /**
+     * Transfer Reverse Word Index entries together with the metadata of the referenced URLs to the remote peer in
+     * the binary format of {@link IndexTransferCodec}. The metadata of URLs which have been sent to the peer recently
+     * are not sent again. The remote peer responds with the list of URLs which are still unknown.
+     *
+     * @param targetSeed the target peer, which supports the binary index transfer
+     * @param indexes the index entries to transfer
+     * @param urlRefs the URLs which are referenced by the index entries
+     * @param segment the segment containing the URL metadata
+     * @param timeout the maximum time in milliseconds to wait for a success of the http(s) request to the remote peer
+     * @param preferHttps when true, use https when available on the target peer
+     * @return peer response or null if the transfer failed and shall be repeated with transferRWI
+     */
+    private static Map<String, String> transferIndexBinary(
+        final Seed targetSeed,
+        final ReferenceContainerCache<WordReference> indexes,
+        final HandleSet urlRefs,
+        final Segment segment,
+        final int timeout,
+        final boolean preferHttps) {
+
+        // encode the index and the metadata
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream(indexes.size() * 256 + 1024);
+        final List<String> sentMetadata = new ArrayList<String>();
+        try (final IndexTransferCodec.Writer writer = new IndexTransferCodec.Writer(payload)) {
+            for (final ReferenceContainer<WordReference> ic : indexes) {
+                if (writer.references() + ic.size() > IndexTransferCodec.MAX_REFERENCES) return null;
+                writer.write(ic);
+            }
+            if (writer.references() == 0) {
+                // nothing to do but everything ok
+                final Map<String, String> result = new HashMap<String, String>(2);
+                result.put("result", "ok");
+                result.put("unknownURL", "");
+                return result;
+            }
+            metadataRetrievalRunning.incrementAndGet();
+            try {
+                for (final byte[] urlhash : urlRefs) {
+                    final String key = targetSeed.hash + ASCII.String(urlhash);
+                    if (transferredMetadata.containsKey(key)) continue;
+                    final URIMetadataNode url = segment.fulltext().getMetadata(urlhash);
+                    if (url == null) continue;
+                    final String resource = url.toString();
+                    if (resource == null || resource.indexOf(0) >= 0) continue;
+                    writer.writeMetadata(resource);
+                    sentMetadata.add(key);
+                    if (writer.metadata() >= IndexTransferCodec.MAX_METADATA) break;
+                }
+            } finally {
+                metadataRetrievalRunning.decrementAndGet();
+            }
+        } catch (final IOException e) {
+            Network.log.warn("yacyClient.transferIndex encoding error: " + e.getMessage());
+            return null;
+        }
+
+        final byte[] body = payload.toByteArray();
+        for (final String ip : targetSeed.getIPs()) {
+            try {
+                MultiProtocolURL targetBaseURL = targetSeed.getPublicMultiprotocolURL(ip, preferHttps);
+                final Map<String, ContentBody> parts = basicRequestParts(Switchboard.getSwitchboard(), targetSeed.hash, crypt.randomSalt());
+                parts.put("index", new ByteArrayBody(body, ContentType.APPLICATION_OCTET_STREAM, "index.lz4"));
+                final HTTPClient httpClient = new HTTPClient(ClientIdentification.yacyInternetCrawlerAgent, timeout);
+                byte[] content = null;
+                try {
+                    content = httpClient.POSTbytes(new MultiProtocolURL(targetBaseURL, "/yacy/transferIndex"),
+                            targetSeed.getHexHash() + ".yacyh", parts, false, true);
+                } catch (final IOException e) {
+                    if (!targetBaseURL.isHTTPS()) throw e;
+                    /* Failed with https : retry with http on the same address */
+                    targetBaseURL = targetSeed.getPublicMultiprotocolURL(ip, false);
+                    content = httpClient.POSTbytes(new MultiProtocolURL(targetBaseURL, "/yacy/transferIndex"),
+                            targetSeed.getHexHash() + ".yacyh", parts, false, true);
+                }
+                if (content == null) return null; // the peer does not provide the binary transfer
+
+                final Map<String, String> result = FileUtils.table(FileUtils.strings(content));
+                if ("ok".equals(result.get("result"))) {
+                    // remember the sent metadata, but not those which the peer did not accept
+                    for (final String key : sentMetadata) transferredMetadata.put(key, Boolean.TRUE);
+                    final String uhss = result.get("unknownURL");
+                    if (uhss != null && !uhss.trim().isEmpty()) {
+                        for (final String uh : CommonPattern.COMMA.split(uhss.trim())) transferredMetadata.remove(targetSeed.hash + uh);
+                    }
+                }
+                // return the transfered index data in bytes (for debugging only)
+                result.put("indexPayloadSize", Integer.toString(body.length));
+                result.put(Seed.IP, ip);
+                return result;
+            } catch (final IOException e) {
+                Network.log.info("yacyClient.transferIndex to " + ip + " error: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
     /**
 	 * Transfer Reverse Word Index entries to remote peer. If the used IP is not
 	 * responding, this IP (interface) is removed from targtSeed IP list. Remote
@@ -26,8 +26,11 @@ package net.yacy.peers;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
@@ -37,6 +40,7 @@ import org.apache.solr.client.solrj.SolrQuery;
 import net.yacy.cora.document.analysis.Classification.ContentDomain;
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.protocol.Domains;
+import net.yacy.cora.protocol.http.HTTPClient;
 import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.Memory;
@@ -48,14 +52,14 @@ import net.yacy.search.SwitchboardConstants;
 import net.yacy.search.index.Segment;
 import net.yacy.search.query.QueryParams;
 import net.yacy.search.query.SearchEvent;
+import net.yacy.search.query.SearchExecutor;
 import net.yacy.search.query.SecondarySearchSuperviser;
 
 /**
  * Handle remote YaCy peers selection and search requests on them, targeting either their Solr index or RWI (Reverse Word Index)
  */
-public class RemoteSearch extends Thread {
+public class RemoteSearch implements Runnable {
 
-    private static final ThreadGroup ysThreadGroup = new ThreadGroup("yacySearchThreadGroup");
     public static final ConcurrentLog log = new ConcurrentLog("DHT");
     
     final private SearchEvent event;
@@ -72,6 +76,16 @@ public class RemoteSearch extends Thread {
     private final int count, maxDistance;
     private final long time;
     final private String language;
+    
+    /** a search with the same query to another peer of the same vertical partition; the first one which answers cancels the other one */
+    private volatile RemoteSearch rival;
+    private volatile boolean cancelled;
+    
+    /** the task which executes this search, null until the search is started */
+    private volatile SearchExecutor.Task task;
+
+    /** the client of the search request; it is aborted when the search is stopped */
+    private final HTTPClient httpClient;
 
     public RemoteSearch(
               final SearchEvent event,
@@ -87,7 +101,6 @@ public class RemoteSearch extends Thread {
               final Seed targetPeer,
               final SecondarySearchSuperviser secondarySearchSuperviser,
               final Blacklist blacklist) {
-        super(ysThreadGroup, "yacySearch_" + targetPeer.getName());
         this.event = event;
         this.wordhashes = wordhashes;
         this.excludehashes = excludehashes;
@@ -102,6 +115,49 @@ public class RemoteSearch extends Thread {
         this.count = count;
         this.time = time;
         this.maxDistance = maxDistance;
+        this.rival = null;
+        this.cancelled = false;
+        this.task = null;
+        this.httpClient = Protocol.searchClient();
+    }
+
+    /**
+     * start the search with the search executor
+     */
+    public void start() {
+        this.task = SearchExecutor.getExecutor().execute("yacySearch_" + this.targetPeer.getName(), this);
+    }
+
+    /**
+     * @return true if the search has been started and is not yet terminated
+     */
+    public boolean isAlive() {
+        final SearchExecutor.Task t = this.task;
+        return t != null && t.isAlive();
+    }
+
+    /**
+     * stop the search and abort its request to the remote peer
+     */
+    public void interrupt() {
+        this.httpClient.abort();
+        final SearchExecutor.Task t = this.task;
+        if (t != null) t.interrupt();
+    }
+
+    /**
+     * Create a hedged search: the same request is sent to an alternative peer, because this search is late.
+     * The search which answers first cancels the other one.
+     * @param alternative the next-best peer of the same vertical partition
+     * @return the new search thread, not yet started
+     */
+    private RemoteSearch hedge(final Seed alternative) {
+        final RemoteSearch hedge = new RemoteSearch(
+                this.event, this.wordhashes, this.excludehashes, this.language, this.contentdom, this.strictContentDom,
+                this.count, this.time, this.maxDistance, this.partitions, alternative, this.secondarySearchSuperviser, this.blacklist);
+        hedge.rival = this;
+        this.rival = hedge;
+        return hedge;
     }
 
     /**
@@ -110,6 +166,7 @@ public class RemoteSearch extends Thread {
     @Override
     public void run() {
         this.event.oneFeederStarted();
+        final long timestamp = System.currentTimeMillis();
         try {
             this.urls = Protocol.primarySearch(
                         this.event,
@@ -124,16 +181,30 @@ public class RemoteSearch extends Thread {
                         this.partitions,
                         this.targetPeer,
                         this.secondarySearchSuperviser,
-                        this.blacklist);
+                        this.blacklist,
+                        this.httpClient);
+            this.event.peers.peerActions.searchResponse(this.targetPeer, System.currentTimeMillis() - timestamp, this.urls >= 0);
             if (this.urls >= 0) {
                 // urls is an array of url hashes. this is only used for log output
                 this.event.peers.mySeed().incRI(this.urls);
                 this.event.peers.mySeed().incRU(this.urls);
+                // cancel the loser of a hedged search
+                final RemoteSearch loser = this.rival;
+                if (loser != null && loser.isAlive()) {
+                    loser.cancelled = true;
+                    loser.interrupt();
+                }
             } else {
                 Network.log.info("REMOTE SEARCH - no answer from remote peer " + this.targetPeer.hash + ":" + this.targetPeer.getName());
             }
         } catch(InterruptedException e) {
-        	Network.log.info("REMOTE SEARCH - interrupted search to remote peer " + this.targetPeer.hash + ":" + this.targetPeer.getName());
+            if (this.cancelled) {
+                // the rival search answered first; this peer was too slow
+                this.event.peers.peerActions.searchResponse(this.targetPeer, System.currentTimeMillis() - timestamp, false);
+                Network.log.info("REMOTE SEARCH - cancelled hedged search to remote peer " + this.targetPeer.hash + ":" + this.targetPeer.getName());
+            } else {
+                Network.log.info("REMOTE SEARCH - interrupted search to remote peer " + this.targetPeer.hash + ":" + this.targetPeer.getName());
+            }
         } catch (final Exception e) {
             ConcurrentLog.logException(e);
         } finally {
@@ -201,6 +272,8 @@ public class RemoteSearch extends Thread {
         
         // prepare seed targets and threads
         Random random = new Random(System.currentTimeMillis());
+        final PeerLatency latency = sb.getConfigBool(SwitchboardConstants.REMOTESEARCH_LATENCY_SELECTION, SwitchboardConstants.REMOTESEARCH_LATENCY_SELECTION_DEFAULT) ? event.peers.peerActions.getLatency() : null;
+        final Map<String, Seed> alternatives = sb.getConfigBool(SwitchboardConstants.REMOTESEARCH_HEDGING, SwitchboardConstants.REMOTESEARCH_HEDGING_DEFAULT) ? new HashMap<String, Seed>() : null;
         Collection<Seed> dhtPeers = null;
         if (clusterselection != null) {
             dhtPeers = DHTSelection.selectClusterPeers(event.peers, clusterselection);
@@ -215,7 +288,7 @@ public class RemoteSearch extends Thread {
                             minage,
                             minRWIWordCount,
                             redundancy, event.peers.redundancy(),
-                            random);
+                            random, latency, alternatives);
                 } else {
                     // select just random peers
                     dhtPeers = DHTSelection.seedsByAge(event.peers, false, event.peers.redundancy(), minRWIWordCount).values();
@@ -227,7 +300,7 @@ public class RemoteSearch extends Thread {
                                 minage,
                                 minRWIWordCount,
                                 redundancy, event.peers.redundancy(),
-                                random);
+                                random, latency, alternatives);
                 // this set of peers may be too large and consume too many threads if more than one word is searched.
                 // to prevent overloading, we do a subset collection based on random to prevent the death of the own peer
                 // and to do a distributed load-balancing on the target peers
@@ -279,12 +352,13 @@ public class RemoteSearch extends Thread {
 								SwitchboardConstants.REMOTESEARCH_MAXLOAD_SOLR_DEFAULT)) {
 					continue;
 				}
-                Thread t = solrRemoteSearch(event, solrQuery, start, count, s, targets, blacklist, useFacets, true);
+                SearchExecutor.Task t = solrRemoteSearch(event, solrQuery, start, count, s, targets, blacklist, useFacets, true);
                 event.nodeSearchThreads.add(t);
             }
         }
         
         // start search to YaCy DHT peers
+        final List<RemoteSearch> started = new ArrayList<RemoteSearch>(dhtPeers.size());
         if (!sb.getConfigBool(SwitchboardConstants.DEBUG_SEARCH_REMOTE_DHT_OFF, false)) {
             for (Seed dhtPeer: dhtPeers) {
                 if (dhtPeer == null || dhtPeer.hash == null) continue;
@@ -310,15 +384,60 @@ public class RemoteSearch extends Thread {
                         blacklist);
                     rs.start();
                     event.primarySearchThreadsL.add(rs);
+                    started.add(rs);
                 } catch (final OutOfMemoryError e) {
                     ConcurrentLog.logException(e);
                     break;
                 }
             }
         }
+
+        // send hedged requests to the alternative peers for all searches which are later than the p90 of the response time
+        final long p90 = event.peers.peerActions.getLatency().percentile(90);
+        if (alternatives != null && !alternatives.isEmpty() && !started.isEmpty() && p90 > 0 && p90 < time) {
+            SearchExecutor.getExecutor().schedule("RemoteSearch.hedgedSearches", new Runnable() {
+                @Override
+                public void run() {
+                    hedgedSearches(event, started, alternatives, p90);
+                }
+            }, p90);
+        }
+    }
+
+    /**
+     * Start a search to the alternative peer for each search which is still running; this is scheduled after the given delay.
+     * @param event the origin search event
+     * @param searches the started primary searches
+     * @param alternatives the next-best peer of the same vertical partition for each target peer hash
+     * @param delay the time in milliseconds after which a search is late
+     */
+    private static void hedgedSearches(final SearchEvent event, final List<RemoteSearch> searches, final Map<String, Seed> alternatives, final long delay) {
+        final Set<String> asked = new HashSet<String>();
+        for (final RemoteSearch search: searches) asked.add(search.targetPeer.hash);
+        int hedged = 0;
+        for (final RemoteSearch search: searches) {
+            if (event.isClosed()) break;
+            if (!search.isAlive()) continue;
+            final Seed alternative = alternatives.get(search.targetPeer.hash);
+            if (alternative == null || asked.contains(alternative.hash)) continue;
+            if (MemoryControl.shortStatus()) break;
+            asked.add(alternative.hash);
+            try {
+                final RemoteSearch hedge = search.hedge(alternative);
+                hedge.start();
+                event.primarySearchThreadsL.add(hedge);
+                // the event may have been closed after the check above, then its cleanup did not see the hedge
+                if (event.isClosed()) hedge.interrupt();
+                hedged++;
+            } catch (final OutOfMemoryError e) {
+                ConcurrentLog.logException(e);
+                break;
+            }
+        }
+        if (hedged > 0) log.info("hedged remote search: " + hedged + " searches are later than " + delay + " milliseconds, asked alternative peers");
     }
 
-    public static Thread secondaryRemoteSearch(
+    public static SearchExecutor.Task secondaryRemoteSearch(
     		final SearchEvent event,
             final Set<String> wordhashes,
             final String urlhashes,
@@ -334,7 +453,7 @@ public class RemoteSearch extends Thread {
         // prepare seed targets and threads
         final Seed targetPeer = event.peers.getConnected(targethash);
         if (targetPeer == null || targetPeer.hash == null) return null;
-        Thread secondary = new Thread("RemoteSearch.secondaryRemoteSearch(" + wordhashes + " to " + targethash + ")") {
+        return SearchExecutor.getExecutor().execute("RemoteSearch.secondaryRemoteSearch(" + wordhashes + " to " + targethash + ")", new Runnable() {
             @Override
             public void run() {
                 event.oneFeederStarted();
@@ -367,9 +486,7 @@ public class RemoteSearch extends Thread {
                     event.oneFeederTerminated();
                 }
             }
-        };
-        secondary.start();
-        return secondary;
+        });
     }
 
     /**
@@ -383,9 +500,9 @@ public class RemoteSearch extends Thread {
      * @param blacklist the blacklist to use. Can be empty but must not be null.
      * @param useSolrFacets when true, use Solr computed facets when possible to update the event navigators counters
      * @param incrementNavigators when true, increment event navigators either with facet counts or with individual results
-     * @return the created and running Thread instance
+     * @return the started task
      */
-    public static Thread solrRemoteSearch(
+    public static SearchExecutor.Task solrRemoteSearch(
                     final SearchEvent event,
                     final SolrQuery solrQuery,
                     final int start,
@@ -402,10 +519,11 @@ public class RemoteSearch extends Thread {
         // check own peer status
         if (event.peers.mySeed() == null) { return null; }
         // prepare threads
-        Thread solr = new Thread("RemoteSearch.solrRemoteSearch(" + solrQuery.getQuery() + " to " + (targetPeer == null ? "myself" : targetPeer.hash) + ")") {
+        return SearchExecutor.getExecutor().execute("RemoteSearch.solrRemoteSearch(" + solrQuery.getQuery() + " to " + (targetPeer == null ? "myself" : targetPeer.hash) + ")", new Runnable() {
             @Override
             public void run() {
                     int urls = 0;
+                    final long timestamp = System.currentTimeMillis();
                     try {
                         event.oneFeederStarted();
                         urls = Protocol.solrQuery(
@@ -418,6 +536,7 @@ public class RemoteSearch extends Thread {
                                         blacklist,
                                         useSolrFacets,
                                         incrementNavigators);
+                        if (targetPeer != null) event.peers.peerActions.searchResponse(targetPeer, System.currentTimeMillis() - timestamp, urls >= 0);
                         if (urls >= 0) {
                             // urls is an array of url hashes. this is only used for log output
                             event.peers.mySeed().incRI(urls);
@@ -435,9 +554,7 @@ public class RemoteSearch extends Thread {
                         event.oneFeederTerminated();
                     }
             }
-        };
-        /*if (targetPeer == null) solr.run(); else*/ solr.start();
-        return solr;
+        });
     }
 
     public static int remainingWaiting(final RemoteSearch[] searchThreads) {
@@ -214,6 +214,7 @@ public class Seed implements Cloneable, Comparable<Seed>, Comparator<Seed>
     private static final int FLAG_ACCEPT_REMOTE_INDEX = 2;
     private static final int FLAG_ROOT_NODE = 3;
     private static final int FLAG_SSL_AVAILABLE = 4;
+    private static final int FLAG_INDEX_TRANSFER_BINARY = 5;
 
     public static final String DFLT_NETWORK_UNIT = "freeworld";
     public static final String DFLT_NETWORK_GROUP = "";
@@ -1059,6 +1060,17 @@ public class Seed implements Cloneable, Comparable<Seed>, Comparator<Seed>
         return getFlag(FLAG_SSL_AVAILABLE);
     }
 
+    /**
+     * @param value true if the peer receives index transfers in the binary format of {@link IndexTransferCodec}
+     */
+    public final void setFlagIndexTransferBinary(final boolean value) {
+        setFlag(FLAG_INDEX_TRANSFER_BINARY, value);
+    }
+
+    public final boolean getFlagIndexTransferBinary() {
+        return getFlag(FLAG_INDEX_TRANSFER_BINARY);
+    }
+
     /**
      * remembers status of remote Solr interface dynamicly
      * should not be used for the local peer
@@ -1086,10 +1098,10 @@ public class Seed implements Cloneable, Comparable<Seed>, Comparator<Seed>
 
     /**
      * set unused flags to zero
-     * currently last used flag is FLAG_SSL_AVAILABLE=4 (2015-10-24)
+     * currently last used flag is FLAG_INDEX_TRANSFER_BINARY=5 (2019-10-17)
      */
     public final void setUnusedFlags() {
-        for ( int i = 5; i < 20; i++ ) {
+        for ( int i = 6; i < 20; i++ ) {
             setFlag(i, false);
         }
     }
@@ -106,6 +106,7 @@ public class Blacklist {
     private final ConcurrentMap<BlacklistType, HandleSet> cachedUrlHashs;
     private final ConcurrentMap<BlacklistType, Map<String, Set<Pattern>>> hostpaths_matchable; // key=host, value=path; mapped url is http://host/path; path does not start with '/' here
     private final ConcurrentMap<BlacklistType, Map<String, Set<Pattern>>> hostpaths_notmatchable; // key=host, value=path; mapped url is http://host/path; path does not start with '/' here
+    private final ConcurrentMap<BlacklistType, BlacklistMatcher> compiled; // the compiled form of the maps above, used for the lookups
 
     public Blacklist(final File rootPath) {
 
@@ -115,10 +116,12 @@ public class Blacklist {
         this.hostpaths_matchable = new ConcurrentHashMap<BlacklistType, Map<String, Set<Pattern>>>();
         this.hostpaths_notmatchable = new ConcurrentHashMap<BlacklistType, Map<String, Set<Pattern>>>();
         this.cachedUrlHashs = new ConcurrentHashMap<BlacklistType, HandleSet>();
+        this.compiled = new ConcurrentHashMap<BlacklistType, BlacklistMatcher>();
 
         for (final BlacklistType blacklistType : BlacklistType.values()) {
             this.hostpaths_matchable.put(blacklistType, new ConcurrentHashMap<String, Set<Pattern>>());
             this.hostpaths_notmatchable.put(blacklistType, new ConcurrentHashMap<String, Set<Pattern>>());
+            compile(blacklistType);
             loadDHTCache(blacklistType);
         }
     }
@@ -155,6 +158,14 @@ public class Blacklist {
         return (matchable) ? this.hostpaths_matchable.get(blacklistType) : this.hostpaths_notmatchable.get(blacklistType);
     }
 
+    /**
+     * compile the blacklist maps of a blacklist type; must be called after each change of the maps
+     * @param blacklistType the type of the blacklist which has been changed
+     */
+    private final synchronized void compile(final BlacklistType blacklistType) {
+        this.compiled.put(blacklistType, new BlacklistMatcher(getBlacklistMap(blacklistType, true), getBlacklistMap(blacklistType, false)));
+    }
+
     protected final HandleSet getCacheUrlHashsSet(final BlacklistType blacklistType) {
         return this.cachedUrlHashs.get(blacklistType);
     }
@@ -173,6 +184,9 @@ public class Blacklist {
         for (final HandleSet entry : this.cachedUrlHashs.values()) {
             entry.clear();
         }
+        for (final BlacklistType blacklistType : BlacklistType.values()) {
+            compile(blacklistType);
+        }
     }
 
     public final int size() {
@@ -256,6 +270,7 @@ public class Blacklist {
                 }
             }
         }
+        compile(blFile.getType());
     }
 
     public final void loadList(final BlacklistType blacklistType, final String fileNames, final String sep) {
@@ -279,6 +294,7 @@ public class Blacklist {
 
         final Map<String, Set<Pattern>> blacklistMapNotMatch = getBlacklistMap(blacklistType, false);
         removePatternFromMap(host, path, blacklistMapNotMatch);
+        compile(blacklistType);
 
         //TODO: check if delete from blacklist is desired, on reload entry will not be available in any blacklist
         //      even if remove (above) from internal maps (at runtime) is only done for given blacklistType
@@ -430,6 +446,7 @@ public class Blacklist {
 						log.warn("could not close stream to " + blacklistToUse + "! ");
 					}
 				}
+				compile(blacklistType);
 			}
 		}
 	}
@@ -489,6 +506,7 @@ public class Blacklist {
                     blacklistMap.put(h, (hostList = new HashSet<Pattern>()));
                 }
                 hostList.add(pattern);
+                compile(supportedBlacklistType);
             }
         }
 
@@ -633,12 +651,8 @@ public class Blacklist {
             throw new IllegalArgumentException("path may not be null");
         }
 
-        // getting the proper blacklists
-        final Map<String, Set<Pattern>> blacklistMapMatched = getBlacklistMap(blacklistType, true);
-        
-        final Map<String, Set<Pattern>> blacklistMapNotMatched = getBlacklistMap(blacklistType, false);
-
-        return Blacklist.isListed(hostlow, path, blacklistMapMatched, blacklistMapNotMatched);
+        // the compiled form of the proper blacklists
+        return this.compiled.get(blacklistType).isListed(hostlow, path);
     }
 
     /**
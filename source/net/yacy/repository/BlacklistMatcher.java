@@ -0,0 +1,306 @@
+/**
+ *  BlacklistMatcher
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A compiled form of the blacklist of one blacklist type, with the same answers as
+ * {@link Blacklist#isListed(String, String, Map, Map)}. It is built once when the blacklist changes.
+ * <ul>
+ * <li>the matchable host keys are stored in two tries of host labels: a trie of the reversed labels for the
+ * keys "host" and "*.host", which match a host and its sub-domains, and a trie of the labels for the keys
+ * "host.*" and "host", which match hosts starting with the key</li>
+ * <li>the path patterns of one host key are combined into one pattern</li>
+ * <li>the regular expressions of the not matchable host keys are compiled</li>
+ * </ul>
+ * The trie is walked on the host string without creating substrings and the matchers are re-used in each thread,
+ * so a check does not allocate memory after the matchers of a thread have been created.
+ */
+public final class BlacklistMatcher {
+
+    /** a pattern which contains a back reference can not be combined with other patterns */
+    private static final Pattern BACK_REFERENCE = Pattern.compile(".*\\\\([1-9]|k<).*");
+
+    /**
+     * the combined path patterns of one host key
+     */
+    private static final class PathMatcher {
+
+        private final Pattern[] patterns; // one combined pattern for each set of flags
+        private final ThreadLocal<Matcher[]> matchers;
+
+        private PathMatcher(final Set<Pattern> pathPatterns) {
+            final Map<Integer, StringBuilder> combined = new LinkedHashMap<>();
+            final List<Pattern> single = new ArrayList<>();
+            for (final Pattern p: pathPatterns.toArray(new Pattern[pathPatterns.size()])) {
+                if (".*".equals(p.pattern())) {
+                    // the pattern of a host which is blacklisted completely, no need to check other patterns
+                    combined.clear();
+                    single.clear();
+                    single.add(p);
+                    break;
+                }
+                if (BACK_REFERENCE.matcher(p.pattern()).matches()) {
+                    single.add(p);
+                    continue;
+                }
+                final StringBuilder sb = combined.get(p.flags());
+                if (sb == null) {
+                    combined.put(p.flags(), new StringBuilder(p.pattern().length() + 4).append("(?:").append(p.pattern()).append(')'));
+                } else {
+                    sb.append("|(?:").append(p.pattern()).append(')');
+                }
+            }
+            for (final Map.Entry<Integer, StringBuilder> entry: combined.entrySet()) {
+                try {
+                    single.add(Pattern.compile(entry.getValue().toString(), entry.getKey()));
+                } catch (final PatternSyntaxException e) {
+                    // i.e. a named group which appears in two patterns; keep the patterns separated
+                    for (final Pattern p: pathPatterns) if (p.flags() == entry.getKey() && !BACK_REFERENCE.matcher(p.pattern()).matches()) single.add(p);
+                }
+            }
+            this.patterns = single.toArray(new Pattern[single.size()]);
+            this.matchers = new ThreadLocal<Matcher[]>() {
+                @Override
+                protected Matcher[] initialValue() {
+                    return new Matcher[PathMatcher.this.patterns.length];
+                }
+            };
+        }
+
+        /**
+         * @param path the path
+         * @param start the start of the path pattern in path, 1 to skip the leading '/'
+         * @return true if one of the patterns matches the path
+         */
+        private boolean matches(final String path, final int start) {
+            final Matcher[] m = this.matchers.get();
+            for (int i = 0; i < this.patterns.length; i++) {
+                if (m[i] == null) m[i] = this.patterns[i].matcher(path); else m[i].reset(path);
+                if (m[i].region(start, path.length()).matches()) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * a node of a trie of host labels; the children are stored in an open addressing hash table, so a child can
+     * be found with a part of the host string
+     */
+    private static final class Node {
+
+        private String[] labels = null;
+        private Node[] children = null;
+        private int size = 0;
+        private PathMatcher self = null;   // reversed trie: key "host", matches the host and its sub-domains
+        private PathMatcher below = null;  // reversed trie: key "*.host", matches the sub-domains of the host
+        private PathMatcher prefix = null; // trie: keys "host.*" and "host", matches hosts which start with the key
+
+        private static int hash(final String s, final int start, final int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) h = 31 * h + s.charAt(i);
+            return h ^ (h >>> 16);
+        }
+
+        private Node child(final String host, final int start, final int end) {
+            if (this.labels == null) return null;
+            final int mask = this.labels.length - 1;
+            final int length = end - start;
+            for (int i = hash(host, start, end) & mask;; i = (i + 1) & mask) {
+                final String label = this.labels[i];
+                if (label == null) return null;
+                if (label.length() == length && host.regionMatches(start, label, 0, length)) return this.children[i];
+            }
+        }
+
+        private Node getOrCreate(final String label) {
+            Node child = child(label, 0, label.length());
+            if (child != null) return child;
+            if (this.labels == null || (this.size + 1) * 2 > this.labels.length) {
+                final String[] oldLabels = this.labels;
+                final Node[] oldChildren = this.children;
+                this.labels = new String[oldLabels == null ? 2 : oldLabels.length * 2];
+                this.children = new Node[this.labels.length];
+                this.size = 0;
+                if (oldLabels != null) for (int i = 0; i < oldLabels.length; i++) {
+                    if (oldLabels[i] != null) put(oldLabels[i], oldChildren[i]);
+                }
+            }
+            child = new Node();
+            put(label, child);
+            return child;
+        }
+
+        private void put(final String label, final Node child) {
+            final int mask = this.labels.length - 1;
+            int i = hash(label, 0, label.length()) & mask;
+            while (this.labels[i] != null) i = (i + 1) & mask;
+            this.labels[i] = label;
+            this.children[i] = child;
+            this.size++;
+        }
+    }
+
+    /**
+     * a not matchable host key, which is a regular expression
+     */
+    private static final class RegexHost {
+        private final Pattern host;
+        private final PathMatcher paths;
+        private final ThreadLocal<Matcher> matcher;
+
+        private RegexHost(final Pattern host, final PathMatcher paths) {
+            this.host = host;
+            this.paths = paths;
+            this.matcher = new ThreadLocal<Matcher>();
+        }
+
+        private boolean matches(final String hostlow) {
+            Matcher m = this.matcher.get();
+            if (m == null) {
+                m = this.host.matcher(hostlow);
+                this.matcher.set(m);
+            } else {
+                m.reset(hostlow);
+            }
+            return m.matches();
+        }
+    }
+
+    private final Node suffixes; // the trie of reversed host labels
+    private final Node prefixes; // the trie of host labels
+    private final RegexHost[] regexHosts;
+
+    /**
+     * compile the blacklist maps of a blacklist type
+     * @param blacklistMapMatched blacklist patterns indexed by matchable hosts
+     * @param blacklistMapNotMatched blacklist patterns indexed by host regular expressions
+     */
+    public BlacklistMatcher(final Map<String, Set<Pattern>> blacklistMapMatched, final Map<String, Set<Pattern>> blacklistMapNotMatched) {
+        this.suffixes = new Node();
+        this.prefixes = new Node();
+        final Map<String, Set<Pattern>> prefixPatterns = new HashMap<>(); // the keys "host" and "host.*" share one node
+        for (final Map.Entry<String, Set<Pattern>> entry: blacklistMapMatched.entrySet()) {
+            final String key = entry.getKey();
+            if (entry.getValue().isEmpty()) continue;
+            if (key.startsWith("*.")) {
+                reversed(key.substring(2)).below = new PathMatcher(entry.getValue());
+                continue;
+            }
+            final String prefix;
+            if (key.endsWith(".*")) {
+                prefix = key.substring(0, key.length() - 2);
+            } else {
+                reversed(key).self = new PathMatcher(entry.getValue());
+                prefix = key;
+            }
+            Set<Pattern> patterns = prefixPatterns.get(prefix);
+            if (patterns == null) prefixPatterns.put(prefix, patterns = new HashSet<>());
+            patterns.addAll(entry.getValue());
+        }
+        for (final Map.Entry<String, Set<Pattern>> entry: prefixPatterns.entrySet()) {
+            forward(entry.getKey()).prefix = new PathMatcher(entry.getValue());
+        }
+        final List<RegexHost> regex = new ArrayList<>();
+        for (final Map.Entry<String, Set<Pattern>> entry: blacklistMapNotMatched.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            try {
+                regex.add(new RegexHost(Pattern.compile(entry.getKey()), new PathMatcher(entry.getValue())));
+            } catch (final PatternSyntaxException e) {
+                // such a key never matches
+            }
+        }
+        this.regexHosts = regex.toArray(new RegexHost[regex.size()]);
+    }
+
+    private Node reversed(final String host) {
+        Node node = this.suffixes;
+        int end = host.length();
+        while (true) {
+            final int dot = host.lastIndexOf('.', end - 1);
+            node = node.getOrCreate(host.substring(dot + 1, end));
+            if (dot < 0) return node;
+            end = dot;
+        }
+    }
+
+    private Node forward(final String host) {
+        Node node = this.prefixes;
+        int start = 0;
+        while (true) {
+            final int dot = host.indexOf('.', start);
+            if (dot < 0) return node.getOrCreate(host.substring(start));
+            node = node.getOrCreate(host.substring(start, dot));
+            start = dot + 1;
+        }
+    }
+
+    /**
+     * Check if the URL made of the specified host and path is blacklisted. All parameters must not be null.
+     * @param hostlow host part, lower case
+     * @param path path on the host
+     * @return true when host/path is blacklisted
+     */
+    public boolean isListed(final String hostlow, final String path) {
+        final int pathStart = (!path.isEmpty() && path.charAt(0) == '/') ? 1 : 0;
+
+        // the host, its parent domains and the wildcards of parent domains
+        Node node = this.suffixes;
+        int end = hostlow.length();
+        while (true) {
+            final int dot = hostlow.lastIndexOf('.', end - 1);
+            node = node.child(hostlow, dot + 1, end);
+            if (node == null) break;
+            if (node.self != null && node.self.matches(path, pathStart)) return true;
+            if (dot < 0) break;
+            if (node.below != null && node.below.matches(path, pathStart)) return true;
+            end = dot;
+        }
+
+        // the host prefixes and wildcards of host prefixes
+        node = this.prefixes;
+        int start = 0;
+        while (true) {
+            final int dot = hostlow.indexOf('.', start);
+            if (dot < 0) break;
+            node = node.child(hostlow, start, dot);
+            if (node == null) break;
+            if (dot > 0 && node.prefix != null && node.prefix.matches(path, pathStart)) return true;
+            start = dot + 1;
+        }
+
+        // the regular expressions
+        for (final RegexHost regex: this.regexHosts) {
+            if (regex.matches(hostlow) && regex.paths.matches(path, pathStart)) return true;
+        }
+        return false;
+    }
+}
@@ -77,8 +77,12 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -116,6 +120,7 @@ import net.yacy.cora.document.id.MultiProtocolURL;
 import net.yacy.cora.federate.solr.FailCategory;
 import net.yacy.cora.federate.solr.Ranking;
 import net.yacy.cora.federate.solr.connector.ShardSelection;
+import net.yacy.cora.federate.solr.connector.SolrConnector;
 import net.yacy.cora.federate.solr.connector.SolrConnector.LoadTimeURL;
 import net.yacy.cora.federate.solr.instance.EmbeddedInstance;
 import net.yacy.cora.federate.solr.instance.RemoteInstance;
@@ -140,6 +145,8 @@ import net.yacy.cora.util.Memory;
 import net.yacy.crawler.CrawlStacker;
 import net.yacy.crawler.CrawlSwitchboard;
 import net.yacy.crawler.HarvestProcess;
+import net.yacy.crawler.HostBalancer;
+import net.yacy.crawler.HostQueue;
 import net.yacy.crawler.data.Cache;
 import net.yacy.crawler.data.CrawlProfile;
 import net.yacy.crawler.data.CrawlProfile.CrawlAttribute;
@@ -176,10 +183,13 @@ import net.yacy.document.TextParser;
 import net.yacy.document.Tokenizer;
 import net.yacy.document.VocabularyScraper;
 import net.yacy.document.content.DCEntry;
+import net.yacy.document.content.SplitLineReader;
+import net.yacy.document.content.SurrogateCheckpoint;
 import net.yacy.document.content.SurrogateReader;
 import net.yacy.document.importer.OAIListFriendsLoader;
 import net.yacy.document.importer.WarcImporter;
 import net.yacy.document.parser.audioTagParser;
+import net.yacy.document.parser.htmlParser;
 import net.yacy.document.parser.pdfParser;
 import net.yacy.document.parser.html.Evaluation;
 import net.yacy.gui.Audio;
@@ -187,14 +197,19 @@ import net.yacy.gui.Tray;
 import net.yacy.http.YaCyHttpServer;
 import net.yacy.kelondro.blob.ArrayStack;
 import net.yacy.kelondro.blob.BEncodedHeap;
+import net.yacy.kelondro.blob.HeapReader;
 import net.yacy.kelondro.blob.Tables;
 import net.yacy.kelondro.blob.Tables.SortDirection;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
 import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.index.PooledOpenFileIndex;
+import net.yacy.kelondro.index.PostingBlocks;
 import net.yacy.kelondro.logging.GuiHandler;
+import net.yacy.kelondro.rwi.IODispatcher;
 import net.yacy.kelondro.rwi.ReferenceContainer;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
 import net.yacy.kelondro.util.OS;
 import net.yacy.kelondro.util.SetTools;
 import net.yacy.kelondro.workflow.BusyThread;
@@ -227,6 +242,7 @@ import net.yacy.search.index.SingleDocumentMatcher;
 import net.yacy.search.query.AccessTracker;
 import net.yacy.search.query.SearchEvent;
 import net.yacy.search.query.SearchEventCache;
+import net.yacy.search.query.SearchExecutor;
 import net.yacy.search.ranking.RankingProfile;
 import net.yacy.search.schema.CollectionConfiguration;
 import net.yacy.search.schema.CollectionSchema;
@@ -271,6 +287,8 @@ public final class Switchboard extends serverSwitch {
     public File networkRoot;
     public File queuesRoot;
     public File surrogatesInPath;
+    private final Set<String> surrogatesInProcess = ConcurrentHashMap.newKeySet(); // names of the surrogate files which are processed concurrently
+    private final ExecutorService surrogateExecutor = Executors.newCachedThreadPool(new NamePrefixThreadFactory("Switchboard.surrogateProcess")); // threads for the concurrent surrogate files
     public File surrogatesOutPath;
     public Segment index;
     public LoaderDispatcher loader;
@@ -417,6 +435,8 @@ public final class Switchboard extends serverSwitch {
         if (!this.classificationPath.exists()) this.classificationPath.mkdirs();
 
         CollectionConfiguration.UNIQUE_HEURISTIC_PREFER_HTTPS = this.getConfigBool("search.ranking.uniqueheuristic.preferhttps", false);
+        CollectionConfiguration.CITATION_RANK_GRAPH = this.getConfigBool(SwitchboardConstants.POSTPROCESSING_CITATIONRANK_GRAPH, false);
+        CollectionConfiguration.POSTPROCESSING_CONCURRENCY = this.getConfigInt(SwitchboardConstants.POSTPROCESSING_CONCURRENCY, 0);
         CollectionConfiguration.UNIQUE_HEURISTIC_PREFER_WWWPREFIX = this.getConfigBool("search.ranking.uniqueheuristic.preferwwwprefix", true);
         
         
@@ -579,6 +599,19 @@ public final class Switchboard extends serverSwitch {
 
         // initialize index
         ReferenceContainer.maxReferences = getConfigInt("index.maxReferences", 0);
+        Segment.mappedHeapRead = getConfigBool(SwitchboardConstants.INDEX_HEAP_MAPPED_READ, false);
+        Segment.concurrentHeapLookup = getConfigBool(SwitchboardConstants.INDEX_HEAP_CONCURRENT_LOOKUP, false);
+        Segment.heapKeyFilter = getConfigBool(SwitchboardConstants.INDEX_HEAP_KEY_FILTER, false);
+        HeapReader.offHeapIndex = getConfigBool(SwitchboardConstants.INDEX_HEAP_OFFHEAP_INDEX, false);
+        Segment.writeBufferStripes = getConfigInt(SwitchboardConstants.INDEX_WRITEBUFFER_STRIPES, 1);
+        Segment.mergePolicy = IODispatcher.MergePolicy.parse(getConfig(SwitchboardConstants.INDEX_MERGE_POLICY, "pairwise"));
+        Segment.mergeMaxMBps = getConfigInt(SwitchboardConstants.INDEX_MERGE_MAX_MBPS, 0);
+        PostingBlocks.writeBlocks = getConfigBool(SwitchboardConstants.INDEX_POSTINGS_BLOCKS, false);
+        HostBalancer.setOffHeapDepthCache(getConfigBool(SwitchboardConstants.CRAWLER_DEPTHCACHE_OFFHEAP, false));
+        HostBalancer.readinessSchedule = getConfigBool(SwitchboardConstants.CRAWLER_BALANCER_READINESS, false);
+        final int stacksMaxOpenFiles = getConfigInt(SwitchboardConstants.CRAWLER_STACKS_MAXOPENFILES, 0);
+        HostQueue.pooledStacks = stacksMaxOpenFiles > 0;
+        if (stacksMaxOpenFiles > 0) PooledOpenFileIndex.setMaxOpen(stacksMaxOpenFiles);
         final File segmentsPath = new File(new File(indexPath, networkName), "SEGMENTS");
         try {this.index = new Segment(this.log, segmentsPath, archivePath, solrCollectionConfigurationWork, solrWebgraphConfigurationWork);} catch (IOException e) {ConcurrentLog.logException(e);}
         if (this.getConfigBool(SwitchboardConstants.CORE_SERVICE_RWI, true)) try {
@@ -676,6 +709,12 @@ public final class Switchboard extends serverSwitch {
         this.adminAuthenticationLastAccess = 0; // timestamp last admin authentication (as not autenticated here, stamp with 0)
         this.optimizeLastRun = System.currentTimeMillis();
         this.webStructure = new WebStructureGraph(new File(this.queuesRoot, "webStructure.map"));
+        SearchEventCache.openResultCache(new File(this.queuesRoot, "searchResultCache.heap"),
+                this.getConfigInt(SwitchboardConstants.SEARCH_RESULTCACHE_MAXENTRIES, 500),
+                this.getConfigLong(SwitchboardConstants.SEARCH_RESULTCACHE_TTL, 3600000),
+                this.getConfigLong(SwitchboardConstants.SEARCH_RESULTCACHE_REFRESH, 60000));
+        SearchExecutor.configure(this.getConfig(SwitchboardConstants.SEARCH_EXECUTOR, SearchExecutor.MODE_VIRTUAL),
+                this.getConfigInt(SwitchboardConstants.SEARCH_EXECUTOR_MAXTHREADS, 200));
 
         // configuring list path
         if ( !(this.listsPath.exists()) ) {
@@ -901,6 +940,7 @@ public final class Switchboard extends serverSwitch {
     	TextParser.setDenyMime(getConfig(SwitchboardConstants.PARSER_MIME_DENY, ""));
         TextParser.setDenyExtension(getConfig(SwitchboardConstants.PARSER_EXTENSIONS_DENY, ""));
         pdfParser.individualPages = getConfigBool(SwitchboardConstants.PARSER_PDF_INDIVIDUALPAGES, false);
+        htmlParser.bulkScraper = getConfigBool(SwitchboardConstants.PARSER_HTML_BULKSCRAPER, true);
         pdfParser.individualPagePropertyname = getConfig(SwitchboardConstants.PARSER_PDF_INDIVIDUALPAGES_KEY, "page");
 
         // start a loader
@@ -1046,7 +1086,7 @@ public final class Switchboard extends serverSwitch {
 				},
                 2,
                 null,
-                1);
+                Math.max(1, Math.min(Segment.writeBufferStripes, WorkflowProcessor.availableCPU))); // one worker unless the write buffer is striped
         this.indexingAnalysisProcessor =
             new WorkflowProcessor<IndexingQueueEntry>(
                 "webStructureAnalysis",
@@ -1474,6 +1514,7 @@ public final class Switchboard extends serverSwitch {
         this.log.info("SWITCH NETWORK: SHUT DOWN OF OLD INDEX DATABASE...");
         // clean search events which have cached relations to the old index
         SearchEventCache.cleanupEvents(true);
+        SearchEventCache.closeResultCache();
 
         // switch the networks
         synchronized ( this ) {
@@ -1568,6 +1609,10 @@ public final class Switchboard extends serverSwitch {
 
             // create new web structure
             this.webStructure = new WebStructureGraph(new File(this.queuesRoot, "webStructure.map"));
+            SearchEventCache.openResultCache(new File(this.queuesRoot, "searchResultCache.heap"),
+                    this.getConfigInt(SwitchboardConstants.SEARCH_RESULTCACHE_MAXENTRIES, 500),
+                    this.getConfigLong(SwitchboardConstants.SEARCH_RESULTCACHE_TTL, 3600000),
+                    this.getConfigLong(SwitchboardConstants.SEARCH_RESULTCACHE_REFRESH, 60000));
 
             // load domainList
             try {
@@ -2016,6 +2061,12 @@ public final class Switchboard extends serverSwitch {
         this.crawlStacker.announceClose();
         this.crawlStacker.close();
         this.crawlQueues.close();
+        this.surrogateExecutor.shutdownNow(); // interrupts the import of concurrent surrogate files
+        try {
+            if (!this.surrogateExecutor.awaitTermination(10, TimeUnit.SECONDS)) this.log.warn("surrogate import threads did not terminate");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         this.robots.close();
         this.indexingDocumentProcessor.shutdown();
         this.indexingCondensementProcessor.shutdown();
@@ -2034,6 +2085,8 @@ public final class Switchboard extends serverSwitch {
         }
         this.messageDB.close();
         this.webStructure.close();
+        SearchEventCache.closeResultCache();
+        SearchExecutor.getExecutor().shutdown();
         this.crawler.close();
         this.log.config("SWITCHBOARD SHUTDOWN STEP 3: sending termination signal to database manager (stand by...)");
         this.index.close();
@@ -2044,6 +2097,7 @@ public final class Switchboard extends serverSwitch {
         AccessTracker.dumpLog();
         Switchboard.urlBlacklist.close();
         ArrayStack.shutdownDeleteService();
+        ArrayStack.shutdownLookupService();
         UPnP.deletePortMappings();
         this.tray.remove();
         try {
@@ -2182,105 +2236,12 @@ public final class Switchboard extends serverSwitch {
         } else if (s.endsWith(".jsonlist") || s.endsWith(".flatjson")) {
             // parse a file that can be generated with yacy_grid_parser
             // see https://github.com/yacy/yacy_grid_parser/blob/master/README.md
-        	FileInputStream fis = null;
-        	BufferedReader br = null;
             try {
-            	fis = new FileInputStream(infile);
-                InputStream is = new BufferedInputStream(fis);
-                br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
-                String line;
-                while ((line = br.readLine()) != null) {
-                    JSONTokener jt = new JSONTokener(line);
-                    JSONObject json = new JSONObject(jt);
-                    if ((json.has("index") && json.length() == 1) || json.length() == 0) continue;
-                    SolrInputDocument surrogate = new SolrInputDocument();
-                    for (String key: json.keySet()) {
-                        Object o = json.get(key);
-                        if (o instanceof JSONArray) {
-                            // transform this into a list
-                            JSONArray a = (JSONArray) o;
-                            // patch altered yacy grid schema (yacy grid does not split url lists into protocol and urlstub)
-                            if (key.equals("inboundlinks_sxt")) {
-                                // compute inboundlinks_urlstub_sxt and inboundlinks_protocol_sxt
-                                List<Object> urlstub = new ArrayList<>();
-                                List<Object> protocol = new ArrayList<>();
-                                for (int i = 0; i < a.length(); i++) {
-                                    AnchorURL b = new AnchorURL((String) a.get(i));
-                                    urlstub.add(b.urlstub(true, true));
-                                    protocol.add(b.getProtocol());
-                                }
-                                CollectionSchema.inboundlinks_urlstub_sxt.add(surrogate, urlstub);
-                                CollectionSchema.inboundlinks_protocol_sxt.add(surrogate, protocol);
-                            } else if (key.equals("outboundlinks_sxt")) {
-                                // compute outboundlinks_urlstub_sxt and outboundlinks_protocol_sxt
-                                List<Object> urlstub = new ArrayList<>();
-                                List<Object> protocol = new ArrayList<>();
-                                for (int i = 0; i < a.length(); i++) {
-                                    AnchorURL b = new AnchorURL((String) a.get(i));
-                                    urlstub.add(b.urlstub(true, true));
-                                    protocol.add(b.getProtocol());
-                                }
-                                CollectionSchema.outboundlinks_urlstub_sxt.add(surrogate, urlstub);
-                                CollectionSchema.outboundlinks_protocol_sxt.add(surrogate, protocol);
-                            } else if (key.equals("images_sxt")) {
-                                // compute images_urlstub_sxt and images_protocol_sxt
-                                List<Object> urlstub = new ArrayList<>();
-                                List<Object> protocol = new ArrayList<>();
-                                for (int i = 0; i < a.length(); i++) {
-                                    AnchorURL b = new AnchorURL((String) a.get(i));
-                                    urlstub.add(b.urlstub(true, true));
-                                    protocol.add(b.getProtocol());
-                                }
-                                CollectionSchema.images_urlstub_sxt.add(surrogate, urlstub);
-                                CollectionSchema.images_protocol_sxt.add(surrogate, protocol);
-                            } else {
-                                List<Object> list = new ArrayList<>();
-                                for (int i = 0; i < a.length(); i++) list.add(a.get(i));
-                                CollectionSchema schema = CollectionSchema.valueOf(key);
-                                schema.add(surrogate, list);
-                            }
-                        } else {
-                            // patch yacy grid altered schema (yacy grid does not have IDs any more, but they can be re-computed here)
-                            if (key.equals("url_s")) {
-                                DigestURL durl = new DigestURL(o.toString());
-                                String id = ASCII.String(durl.hash());
-                                surrogate.setField(CollectionSchema.sku.getSolrFieldName(), durl.toNormalform(true));
-                                surrogate.setField(CollectionSchema.id.getSolrFieldName(), id);
-                                surrogate.setField(CollectionSchema.host_id_s.getSolrFieldName(), id.substring(6));
-                            } else if (key.equals("referrer_url_s")) {
-                                DigestURL durl = new DigestURL(o.toString());
-                                String id = ASCII.String(durl.hash());
-                                surrogate.setField(CollectionSchema.referrer_id_s.getSolrFieldName(), id);
-                            } else {
-                                surrogate.setField(key, o.toString());
-                            }
-                        }
-                    }
-                    Switchboard.this.index.putDocument(surrogate);
+                if (processJsonlistSurrogate(infile)) {
+                    moved = infile.renameTo(outfile);
                 }
-                br.close();
-                br = null;
-                fis = null;
-                moved = infile.renameTo(outfile);
             } catch (IOException ex) {
-                log.warn("IO Error processing flatjson file " + infile);
-            } finally {
-            	/* Properly release file system resources even in failure cases */
-            	if(br != null) {
-            		/* buffered reader was successfully created : close it and its underlying streams */
-            		try {
-						br.close();
-					} catch (IOException e) {
-						log.warn("Could not close reader on file " + infile);
-					}
-            	} else if(fis != null) {
-            		/* no buffered reader : maybe a case of exhausted memory. Anyway file input stream has to be closed. */
-            		try {
-						fis.close();
-					} catch (IOException e) {
-						log.warn("Could not close input stream on file " + infile);
-					}
-            	}
+                log.warn("IO Error processing flatjson file " + infile + ": " + ex.getMessage());
             }
             return moved;
         }
@@ -2327,6 +2288,168 @@ public final class Switchboard extends serverSwitch {
         return moved;
     }
 
+    /**
+     * Import a jsonlist or flatjson surrogate file. A large file is split into ranges of lines which are
+     * imported in parallel. The progress of each range is stored in a checkpoint file, so an interrupted
+     * import is resumed where it stopped. If the calling thread is interrupted, the import threads are
+     * stopped and the interrupt flag is set again.
+     * @param infile the surrogate file
+     * @return true if the file has been imported completely
+     * @throws IOException
+     */
+    private boolean processJsonlistSurrogate(final File infile) throws IOException {
+        final long minSplitSize = this.getConfigLong(SwitchboardConstants.SURROGATES_SPLIT_MINSIZE, SwitchboardConstants.SURROGATES_SPLIT_MINSIZE_DEFAULT);
+        int threads = this.getConfigInt(SwitchboardConstants.SURROGATES_SPLIT_THREADS, 0);
+        if (threads <= 0) threads = WorkflowProcessor.availableCPU;
+        final SurrogateCheckpoint checkpoint = SurrogateCheckpoint.open(infile, infile.length() < minSplitSize ? 1 : threads);
+        if (checkpoint.ranges() > 1) log.info("importing surrogate " + infile + " in " + checkpoint.ranges() + " parts");
+
+        final AtomicInteger failed = new AtomicInteger(0);
+        final Thread[] importer = new Thread[checkpoint.ranges()];
+        for (int r = 0; r < importer.length; r++) {
+            final int range = r;
+            importer[r] = new Thread("Switchboard.processJsonlistSurrogate-" + r) {
+                @Override
+                public void run() {
+                    try (final SplitLineReader reader = new SplitLineReader(infile, checkpoint.position(range), checkpoint.end(range))) {
+                        String line;
+                        while (!shallTerminate() && !isInterrupted() && (line = reader.readLine()) != null) {
+                            try {
+                                final SolrInputDocument surrogate = jsonlistToSurrogate(line);
+                                if (surrogate != null) Switchboard.this.index.putDocument(surrogate);
+                            } catch (final MalformedURLException | RuntimeException e) {
+                                // JSONException, IllegalArgumentException or ClassCastException of unexpected value types
+                                log.warn("skipping bad line in surrogate " + infile + ": " + e.getMessage());
+                            }
+                            checkpoint.update(range, reader.position());
+                        }
+                    } catch (final IOException e) {
+                        log.warn("IO Error processing flatjson file " + infile + ": " + e.getMessage());
+                        failed.incrementAndGet();
+                    }
+                }
+            };
+            importer[r].start();
+        }
+
+        // wait for the importer threads and store the progress from time to time
+        try {
+            for (final Thread t: importer) {
+                while (t.isAlive()) {
+                    t.join(60000);
+                    storeCheckpoint(checkpoint);
+                }
+            }
+        } catch (final InterruptedException e) {
+            // stop the importer threads, each one stops after its current line
+            for (final Thread t: importer) t.interrupt();
+            for (final Thread t: importer) {
+                while (t.isAlive()) try {
+                    t.join();
+                } catch (final InterruptedException ee) {}
+            }
+            storeCheckpoint(checkpoint);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (failed.get() == 0 && checkpoint.isComplete()) {
+            checkpoint.delete();
+            return true;
+        }
+        storeCheckpoint(checkpoint);
+        return false;
+    }
+
+    /**
+     * Store the progress of a surrogate import. The positions are taken before the imported documents are
+     * flushed and committed, so a checkpoint never points behind a document which is not in the index yet;
+     * documents which are imported during the commit are imported again after a restart.
+     * @param checkpoint the progress of the import
+     * @throws IOException
+     */
+    private void storeCheckpoint(final SurrogateCheckpoint checkpoint) throws IOException {
+        final long[] positions = checkpoint.positions();
+        final SolrConnector connector = this.index.fulltext().getDefaultConnector();
+        if (connector != null) connector.commit(false);
+        checkpoint.store(positions);
+    }
+
+    /**
+     * Convert a line of a jsonlist or flatjson surrogate file into a document
+     * @param line a json object
+     * @return the document or null if the line has no document
+     * @throws MalformedURLException
+     */
+    private static SolrInputDocument jsonlistToSurrogate(final String line) throws MalformedURLException {
+        JSONTokener jt = new JSONTokener(line);
+        JSONObject json = new JSONObject(jt);
+        if ((json.has("index") && json.length() == 1) || json.length() == 0) return null;
+        SolrInputDocument surrogate = new SolrInputDocument();
+        for (String key: json.keySet()) {
+            Object o = json.get(key);
+            if (o instanceof JSONArray) {
+                // transform this into a list
+                JSONArray a = (JSONArray) o;
+                // patch altered yacy grid schema (yacy grid does not split url lists into protocol and urlstub)
+                if (key.equals("inboundlinks_sxt")) {
+                    // compute inboundlinks_urlstub_sxt and inboundlinks_protocol_sxt
+                    List<Object> urlstub = new ArrayList<>();
+                    List<Object> protocol = new ArrayList<>();
+                    for (int i = 0; i < a.length(); i++) {
+                        AnchorURL b = new AnchorURL((String) a.get(i));
+                        urlstub.add(b.urlstub(true, true));
+                        protocol.add(b.getProtocol());
+                    }
+                    CollectionSchema.inboundlinks_urlstub_sxt.add(surrogate, urlstub);
+                    CollectionSchema.inboundlinks_protocol_sxt.add(surrogate, protocol);
+                } else if (key.equals("outboundlinks_sxt")) {
+                    // compute outboundlinks_urlstub_sxt and outboundlinks_protocol_sxt
+                    List<Object> urlstub = new ArrayList<>();
+                    List<Object> protocol = new ArrayList<>();
+                    for (int i = 0; i < a.length(); i++) {
+                        AnchorURL b = new AnchorURL((String) a.get(i));
+                        urlstub.add(b.urlstub(true, true));
+                        protocol.add(b.getProtocol());
+                    }
+                    CollectionSchema.outboundlinks_urlstub_sxt.add(surrogate, urlstub);
+                    CollectionSchema.outboundlinks_protocol_sxt.add(surrogate, protocol);
+                } else if (key.equals("images_sxt")) {
+                    // compute images_urlstub_sxt and images_protocol_sxt
+                    List<Object> urlstub = new ArrayList<>();
+                    List<Object> protocol = new ArrayList<>();
+                    for (int i = 0; i < a.length(); i++) {
+                        AnchorURL b = new AnchorURL((String) a.get(i));
+                        urlstub.add(b.urlstub(true, true));
+                        protocol.add(b.getProtocol());
+                    }
+                    CollectionSchema.images_urlstub_sxt.add(surrogate, urlstub);
+                    CollectionSchema.images_protocol_sxt.add(surrogate, protocol);
+                } else {
+                    List<Object> list = new ArrayList<>();
+                    for (int i = 0; i < a.length(); i++) list.add(a.get(i));
+                    CollectionSchema schema = CollectionSchema.valueOf(key);
+                    schema.add(surrogate, list);
+                }
+            } else {
+                // patch yacy grid altered schema (yacy grid does not have IDs any more, but they can be re-computed here)
+                if (key.equals("url_s")) {
+                    DigestURL durl = new DigestURL(o.toString());
+                    String id = ASCII.String(durl.hash());
+                    surrogate.setField(CollectionSchema.sku.getSolrFieldName(), durl.toNormalform(true));
+                    surrogate.setField(CollectionSchema.id.getSolrFieldName(), id);
+                    surrogate.setField(CollectionSchema.host_id_s.getSolrFieldName(), id.substring(6));
+                } else if (key.equals("referrer_url_s")) {
+                    DigestURL durl = new DigestURL(o.toString());
+                    String id = ASCII.String(durl.hash());
+                    surrogate.setField(CollectionSchema.referrer_id_s.getSolrFieldName(), id);
+                } else {
+                    surrogate.setField(key, o.toString());
+                }
+            }
+        }
+        return surrogate;
+    }
+
     public void processSurrogate(final InputStream is, final String name) throws IOException {
         final int concurrency = Runtime.getRuntime().availableProcessors();
 
@@ -2445,6 +2568,7 @@ public final class Switchboard extends serverSwitch {
             return false;
         }
 
+        final int maxFiles = this.getConfigInt(SwitchboardConstants.SURROGATES_CONCURRENT_FILES, SwitchboardConstants.SURROGATES_CONCURRENT_FILES_DEFAULT);
         try {
             // check surrogates
             final String[] surrogatelist = this.surrogatesInPath.list();
@@ -2462,6 +2586,25 @@ public final class Switchboard extends serverSwitch {
                         || surrogate.endsWith(".warc.gz")
                         || surrogate.endsWith(".jsonlist")
                         || surrogate.endsWith(".flatjson") ) {
+                        if (maxFiles > 1) {
+                            // process several files concurrently, each in a thread of the surrogate executor; this job only
+                            // submits the files and returns false, so it checks for free slots again after the idle sleep
+                            if (this.surrogatesInProcess.size() >= maxFiles) return false;
+                            if (!this.surrogatesInProcess.add(surrogate)) continue; // already in process
+                            try {
+                                this.surrogateExecutor.execute(() -> {
+                                    try {
+                                        processSurrogate(surrogate);
+                                    } finally {
+                                        Switchboard.this.surrogatesInProcess.remove(surrogate);
+                                    }
+                                });
+                            } catch (final RejectedExecutionException e) {
+                                this.surrogatesInProcess.remove(surrogate); // the switchboard is closing
+                                return false;
+                            }
+                            continue;
+                        }
                         // read the surrogate file and store entry in index
                         if ( processSurrogate(surrogate) ) {
                             return true;
@@ -2860,6 +3003,7 @@ public final class Switchboard extends serverSwitch {
                 if (allCrawlsFinished) {
                     // refresh the search cache
                     SearchEventCache.cleanupEvents(true);
+                    SearchEventCache.clearResultCache();
                     sb.index.clearCaches(); // every time the ranking is changed we need to remove old orderings
                     
                     if (postprocessing) {
@@ -4424,6 +4568,7 @@ public final class Switchboard extends serverSwitch {
         mySeed.setFlagAcceptRemoteIndex(getConfigBool(SwitchboardConstants.INDEX_RECEIVE_ALLOW, true));
         mySeed.setFlagSSLAvailable(this.getHttpServer() != null && this.getHttpServer().withSSL() && getConfigBool("server.https", false));
         if (mySeed.getFlagSSLAvailable()) mySeed.put(Seed.PORTSSL, Integer.toString(getPublicPort(SwitchboardConstants.SERVER_SSLPORT, 8443)));
+        mySeed.setFlagIndexTransferBinary(true);
 
         // set local ips
         String staticIP = this.getConfig(SwitchboardConstants.SERVER_STATICIP, "");
@@ -193,6 +193,12 @@ public final class SwitchboardConstants {
      * <p>Name of the setting whether DHT chunks shall be transferred gzip-encodedly</p>
      */
     public static final String INDEX_DIST_GZIP_BODY             = "indexDistribution.gzipBody";
+    /**
+     * <p><code>public static final String <strong>INDEX_DIST_BINARY</strong> = "indexDistribution.binary"</code></p>
+     * <p>Name of the setting whether DHT chunks shall be transferred in the compressed binary format to peers which support it</p>
+     */
+    public static final String INDEX_DIST_BINARY                = "indexDistribution.binary";
+    public static final boolean INDEX_DIST_BINARY_DEFAULT       = true;
     /**
      * <p><code>public static final String <strong>INDEX_DIST_ALLOW</strong> = "allowDistributeIndex"</code></p>
      * <p>Name of the setting whether Index Distribution shall be allowed (and the DHT-thread therefore started) or not</p>
@@ -220,6 +226,12 @@ public final class SwitchboardConstants {
     public static final String PARSER_EXTENSIONS_DENY           = "parser.extensions.deny";
     public static final String PARSER_PDF_INDIVIDUALPAGES       = "parser.pdf.individualpages";
     public static final String PARSER_PDF_INDIVIDUALPAGES_KEY   = "parser.pdf.individualpages.key";
+    /**
+     * <p><code>public static final String <strong>PARSER_HTML_BULKSCRAPER</strong> = "parser.html.bulkScraper"</code></p>
+     * <p>Name of the setting to scrape html documents with the bulk tokenizer, which scans runs of characters
+     * and parses the tag attributes only when they are used</p>
+     */
+    public static final String PARSER_HTML_BULKSCRAPER          = "parser.html.bulkScraper";
     /**
      * <p><code>public static final String <strong>PROXY_ONLINE_CAUTION_DELAY</strong> = "onlineCautionDelay"</code></p>
      * <p>Name of the setting how long indexing should pause after the last time the proxy was used in milliseconds</p>
@@ -296,6 +308,18 @@ public final class SwitchboardConstants {
     /** Default setting value controlling whether https should be preferred for remote searches, when available on the target peer */
     public static final boolean REMOTESEARCH_HTTPS_PREFERRED_DEFAULT = false;
     
+    /** Key of the setting controlling whether the DHT search targets of a vertical partition are chosen by their response time and answer statistic */
+    public static final String REMOTESEARCH_LATENCY_SELECTION = "remotesearch.latency.selection";
+    
+    /** Default setting value controlling whether fast and reliable peers are preferred as DHT search targets */
+    public static final boolean REMOTESEARCH_LATENCY_SELECTION_DEFAULT = true;
+    
+    /** Key of the setting controlling whether a late remote search is repeated on the next-best peer of the same vertical partition */
+    public static final String REMOTESEARCH_HEDGING = "remotesearch.hedging";
+    
+    /** Default setting value controlling whether hedged remote searches are sent */
+    public static final boolean REMOTESEARCH_HEDGING_DEFAULT = true;
+    
 	/**
 	 * Setting key to configure whether responses from remote Solr instances
 	 * should be binary encoded :
@@ -346,6 +370,11 @@ public final class SwitchboardConstants {
     public static final String CRAWLER_THREADS_ACTIVE_MAX       = "crawler.MaxActiveThreads";
     public static final String CRAWLER_LATENCY_FACTOR           = "crawler.latencyFactor";
     public static final String CRAWLER_MAX_SAME_HOST_IN_QUEUE   = "crawler.MaxSameHostInQueue";
+    public static final String CRAWLER_DEPTHCACHE_OFFHEAP       = "crawler.depthCache.offHeap";
+    /** Key of the setting controlling whether the crawl balancer selects hosts from a schedule of their next access time */
+    public static final String CRAWLER_BALANCER_READINESS       = "crawler.balancer.readinessSchedule";
+    /** Key of the setting for the maximum number of crawl depth stack files which are open at the same time; 0 opens the stacks without a limit */
+    public static final String CRAWLER_STACKS_MAXOPENFILES      = "crawler.stacks.maxOpenFiles";
     public static final String CRAWLER_FOLLOW_REDIRECTS         = "crawler.http.FollowRedirects"; // ignore the target url and follow to the redirect
     public static final String CRAWLER_RECORD_REDIRECTS         = "crawler.http.RecordRedirects"; // record the ignored redirected page to the index store
     
@@ -392,6 +421,36 @@ public final class SwitchboardConstants {
      * cache has reached this limit will slow down the indexing process by flushing some of it's entries</p>
      */
     public static final String WORDCACHE_MAX_COUNT              = "wordCacheMaxCount";
+    /** Key of the setting controlling whether the RWI and citation BLOB files are memory-mapped and read without locking */
+    public static final String INDEX_HEAP_MAPPED_READ           = "index.heap.mappedRead";
+    /** Key of the setting controlling whether all BLOB files of the RWI and citation index are read concurrently for a term */
+    public static final String INDEX_HEAP_CONCURRENT_LOOKUP     = "index.heap.concurrentLookup";
+    /** Key of the setting controlling whether the RWI and citation BLOB files get a membership filter for their terms */
+    public static final String INDEX_HEAP_KEY_FILTER            = "index.heap.keyFilter";
+    /** Key of the setting controlling whether the indexes of BLOB files are held in off-heap memory */
+    public static final String INDEX_HEAP_OFFHEAP_INDEX         = "index.heap.offHeapIndex";
+    /** Key of the setting for the number of stripes of the RWI and citation write buffer; more stripes allow concurrent index storage */
+    public static final String INDEX_WRITEBUFFER_STRIPES        = "index.writeBuffer.stripes";
+    /** Key of the setting for the merge policy of the RWI and citation BLOB files: pairwise, tiered or leveled */
+    public static final String INDEX_MERGE_POLICY               = "index.merge.policy";
+    /** Key of the setting for the maximum write rate of BLOB file merges in MB/s, 0 for no limit */
+    public static final String INDEX_MERGE_MAX_MBPS             = "index.merge.maxMBps";
+    /** Key of the setting controlling whether the RWI and citation BLOB files are written in the block-coded posting format */
+    public static final String INDEX_POSTINGS_BLOCKS            = "index.postings.blocks";
+    /** Key of the setting for the maximum size in MB of the cache of query results of the default solr core, 0 to switch the cache off */
+    public static final String INDEX_SOLR_RESULTCACHE_MAXMB     = "index.solr.resultCache.maxMB";
+    /** Key of the setting for the maximum age in milliseconds of a cached query result of the default solr core */
+    public static final String INDEX_SOLR_RESULTCACHE_MAXAGE    = "index.solr.resultCache.maxAge";
+    /** Key of the setting for the number of documents which are written to a solr core in one batch by a background thread, 0 to write each document directly */
+    public static final String INDEX_SOLR_WRITEBEHIND_BATCHSIZE = "index.solr.writeBehind.batchSize";
+    /** Key of the setting for the maximum time in milliseconds a document waits for its batch */
+    public static final String INDEX_SOLR_WRITEBEHIND_MAXDELAY  = "index.solr.writeBehind.maxDelay";
+    /** Key of the setting for the maximum number of documents waiting to be written; further writes are blocked */
+    public static final String INDEX_SOLR_WRITEBEHIND_MAXPENDING = "index.solr.writeBehind.maxPending";
+    /** Key of the setting controlling whether the citation rank of a host is computed on a link graph in memory during postprocessing */
+    public static final String POSTPROCESSING_CITATIONRANK_GRAPH = "postprocessing.citationrank.graph";
+    /** Key of the setting for the maximum number of concurrent postprocessing tasks; 0 for the number of processors */
+    public static final String POSTPROCESSING_CONCURRENCY = "postprocessing.concurrency";
     public static final String HTTPC_NAME_CACHE_CACHING_PATTERNS_NO = "httpc.nameCacheNoCachingPatterns";
     public static final String ROBOTS_TXT                       = "httpd.robots.txt";
     public static final String ROBOTS_TXT_DEFAULT               = RobotsTxtConfig.LOCKED + "," + RobotsTxtConfig.DIRS;
@@ -437,6 +496,19 @@ public final class SwitchboardConstants {
     public static final String SURROGATES_OUT_PATH         = "surrogates.out";
     public static final String SURROGATES_OUT_PATH_DEFAULT = "DATA/SURROGATES/out";
 
+    /** the number of surrogate files which are imported concurrently */
+    public static final String SURROGATES_CONCURRENT_FILES = "surrogates.concurrentFiles";
+    public static final int    SURROGATES_CONCURRENT_FILES_DEFAULT = 2;
+    /** the size in bytes from which a jsonlist or flatjson surrogate file is split into parts which are imported in parallel */
+    public static final String SURROGATES_SPLIT_MINSIZE    = "surrogates.split.minSize";
+    public static final long   SURROGATES_SPLIT_MINSIZE_DEFAULT = 64L * 1024L * 1024L;
+    /** the number of parts of a split surrogate file, 0 for the number of processors */
+    public static final String SURROGATES_SPLIT_THREADS    = "surrogates.split.threads";
+
+    /** the number of threads which decode and index the responses of a warc import, 0 to process them in the importer thread */
+    public static final String WARC_IMPORT_THREADS         = "warcimport.threads";
+    public static final int    WARC_IMPORT_THREADS_DEFAULT = 4;
+
     public static final String DICTIONARY_SOURCE_PATH         = "dictionaries";
     public static final String DICTIONARY_SOURCE_PATH_DEFAULT = "DATA/DICTIONARIES";
     
@@ -497,6 +569,12 @@ public final class SwitchboardConstants {
     /** Default setting value controlling whether HTTP responses should be compressed */
     public static final boolean SERVER_RESPONSE_COMPRESS_GZIP_DEFAULT = true;
     
+    /** Key of the setting controlling whether servlet templates are parsed once and rendered from a cache of compiled templates */
+    public static final String SERVER_TEMPLATES_COMPILED = "server.templates.compiled";
+    
+    /** Default setting value controlling whether servlet templates are rendered from compiled templates */
+    public static final boolean SERVER_TEMPLATES_COMPILED_DEFAULT = false;
+    
     
     /** Key of the setting controlling the maximum number of simultaneously open outgoing HTTP connections in the general pool (net.yacy.cora.protocol.http.HTTPClient) */
     public static final String HTTP_OUTGOING_POOL_GENERAL_MAX_TOTAL = "http.outgoing.pool.general.maxTotal";
@@ -622,6 +700,16 @@ public final class SwitchboardConstants {
     public static final String SEARCH_TARGET_SPECIAL_PATTERN  = "search.target.special.pattern"; // ie 'own' addresses in topframe, 'other' in iframe
     public static final String SEARCH_VERIFY  = "search.verify";
     public static final String SEARCH_VERIFY_DELETE = "search.verify.delete";
+    /** the maximum number of queries in the on-disk search result cache; 0 disables the cache */
+    public static final String SEARCH_RESULTCACHE_MAXENTRIES = "search.resultcache.maxEntries";
+    /** the time in milliseconds a result from the search result cache is used */
+    public static final String SEARCH_RESULTCACHE_TTL = "search.resultcache.ttl";
+    /** the age in milliseconds of a cached result after which the search is repeated in the background */
+    public static final String SEARCH_RESULTCACHE_REFRESH = "search.resultcache.refresh";
+    /** the execution of search tasks: 'virtual' for virtual threads if the JVM supports them, otherwise 'pool' */
+    public static final String SEARCH_EXECUTOR = "search.executor";
+    /** the maximum number of platform threads for search tasks if virtual threads are not used */
+    public static final String SEARCH_EXECUTOR_MAXTHREADS = "search.executor.maxThreads";
     
 	/**
 	 * Key of the setting controlling whether content domain filtering is strict :
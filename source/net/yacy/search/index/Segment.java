@@ -118,6 +118,19 @@ public class Segment {
     public static final ReferenceFactory<CitationReference> citationReferenceFactory = new CitationReferenceFactory();
     public static final ByteOrder wordOrder = Base64Order.enhancedCoder;
 
+    // if true, the BLOB files of the RWI and citation index are memory-mapped and read without locking
+    public static boolean mappedHeapRead = false;
+    // if true, the BLOB files of the RWI and citation index are read concurrently for each term
+    public static boolean concurrentHeapLookup = false;
+    // if true, the BLOB files of the RWI and citation index get a membership filter to skip files that cannot contain a term
+    public static boolean heapKeyFilter = false;
+    // the number of stripes of the RWI and citation write buffer; each stripe can be written and dumped independently
+    public static int writeBufferStripes = 1;
+    // the selection of RWI and citation BLOB files which are merged in the background
+    public static IODispatcher.MergePolicy mergePolicy = IODispatcher.MergePolicy.PAIRWISE;
+    // the maximum write rate of merges in MB/s; 0 if merges are not throttled
+    public static int mergeMaxMBps = 0;
+
     private   final ConcurrentLog                  log;
     private   final File                           segmentPath;
     protected final Fulltext                       fulltext;
@@ -154,6 +167,7 @@ public class Segment {
         
         if (this.merger == null) { // init shared iodispatcher if none running
             this.merger = new IODispatcher(2, 2, writeBufferSize);
+            this.merger.setMaxMergeRate(mergeMaxMBps * 1024L * 1024L);
             this.merger.start();
         }
         this.termIndex = new IndexCell<WordReference>(
@@ -166,7 +180,12 @@ public class Segment {
                         targetFileSize,
                         maxFileSize,
                         writeBufferSize,
-                        merger);
+                        merger,
+                        mappedHeapRead,
+                        writeBufferStripes);
+        this.termIndex.setConcurrentLookup(concurrentHeapLookup);
+        this.termIndex.setKeyFilter(heapKeyFilter);
+        this.termIndex.setMergePolicy(mergePolicy);
     }
 
     public void disconnectRWI() {
@@ -184,6 +203,7 @@ public class Segment {
 
         if (this.merger == null) { // init shared iodispatcher if none running
             this.merger = new IODispatcher(2,2,writeBufferSize);
+            this.merger.setMaxMergeRate(mergeMaxMBps * 1024L * 1024L);
             this.merger.start();
         }
         this.urlCitationIndex = new IndexCell<CitationReference>(
@@ -196,7 +216,12 @@ public class Segment {
                         targetFileSize,
                         maxFileSize,
                         writeBufferSize,
-                        merger);
+                        merger,
+                        mappedHeapRead,
+                        writeBufferStripes);
+        this.urlCitationIndex.setConcurrentLookup(concurrentHeapLookup);
+        this.urlCitationIndex.setKeyFilter(heapKeyFilter);
+        this.urlCitationIndex.setMergePolicy(mergePolicy);
     }
 
     public void disconnectCitation() {
@@ -738,7 +763,7 @@ public class Segment {
                 wprop = wentry.getValue();
                 assert (wprop.flags != null);
                 ientry.setWord(wprop);
-                wordhash = Word.word2hash(word);
+                wordhash = wprop.hash == null ? Word.word2hash(word) : wprop.hash;
                 if (this.termIndex != null && storeToRWI) try {
                     this.termIndex.add(wordhash, ientry);
                 } catch (final Exception e) {
@@ -83,7 +83,7 @@ import net.yacy.search.ranking.RankingProfile;
 import net.yacy.search.schema.CollectionConfiguration;
 import net.yacy.search.schema.CollectionSchema;
 
-public final class QueryParams {
+public final class QueryParams implements Cloneable {
 
 	/** The default max count of item lines in navigator */
     public static final int FACETS_STANDARD_MAXCOUNT_DEFAULT = 100;
@@ -180,6 +180,9 @@ public final class QueryParams {
 	 * the first search results page
 	 */
     private int maxSuggestions = 0;
+
+    /** true if the query was received from another peer */
+    private boolean remoteRequest = false;
     
     public final String targetlang;
     protected final Collection<Tagging.Metatag> metatags;
@@ -462,6 +465,35 @@ public final class QueryParams {
 		this.maxSuggestions = maxSuggestions;
 	}
 
+    /**
+     * @return true if the query was received from another peer
+     */
+    public boolean isRemoteRequest() {
+        return this.remoteRequest;
+    }
+
+    /**
+     * @param remoteRequest true if the query was received from another peer
+     */
+    public void setRemoteRequest(final boolean remoteRequest) {
+        this.remoteRequest = remoteRequest;
+    }
+
+    /**
+     * @return a copy of this query for another search event; the values which are changed
+     * by a search event are copied, all others are shared
+     */
+    public QueryParams copy() {
+        try {
+            final QueryParams copy = (QueryParams) super.clone();
+            copy.facetfields = new HashMap<>(this.facetfields);
+            copy.cachedQuery = null;
+            return copy;
+        } catch (final CloneNotSupportedException e) {
+            throw new AssertionError(e); // this class is Cloneable
+        }
+    }
+
     public static HandleSet hashes2Set(final String query) {
         final HandleSet keyhashes = new RowHandleSet(WordReferenceRow.urlEntryRow.primaryKeyLength, WordReferenceRow.urlEntryRow.objectOrder, 0);
         if (query != null) {
@@ -43,6 +43,7 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -136,20 +137,21 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
     private static final int MAX_TOPWORDS = 12;
 
     private long eventTime;
+    private volatile boolean closed;
     public QueryParams query;
     public final SeedDB peers;
     final WorkTables workTables;
     public final SecondarySearchSuperviser secondarySearchSuperviser;
     public final List<RemoteSearch> primarySearchThreadsL;
-    public final List<Thread> nodeSearchThreads;
-    public Thread[] secondarySearchThreads;
+    public final List<SearchExecutor.Task> nodeSearchThreads;
+    public SearchExecutor.Task[] secondarySearchThreads;
     public final SortedSet<byte[]> preselectedPeerHashes;
     private final SortedMap<byte[], Integer> IACount;
     private final SortedMap<byte[], String> IAResults;
     private final SortedMap<byte[], HeuristicResult> heuristics;
     private byte[] IAmaxcounthash, IAneardhthash;
-    public Thread rwiProcess;
-    public Thread localsolrsearch;
+    public SearchExecutor.Task rwiProcess;
+    public SearchExecutor.Task localsolrsearch;
     
     /** Offset of the next local Solr index request
      * Example : last local request with offset=10 and itemsPerPage=20, sets this attribute to 30. */
@@ -190,6 +192,10 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
     private long                                          snippetComputationAllTime;
     private ConcurrentHashMap<String, LinkedHashSet<String>> snippets;
     private final boolean remote;
+    /** true if the results of this event are taken from the search result cache */
+    private final boolean cached;
+    /** the result number of the first entry in the result list */
+    private final int resultOffset;
     
     /** add received results to local index (defult=true) */
     public final boolean addResultsToLocalIndex;
@@ -320,7 +326,8 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         final int remote_maxcount,
         final long remote_maxtime,
         final boolean deleteIfSnippetFail,
-        final boolean addResultsToLocalIdx) {
+        final boolean addResultsToLocalIdx,
+        final SearchResultCache.Entry cachedResults) {
 
         long ab = MemoryControl.available();
         if (ab < 1024 * 1024 * 200) {
@@ -387,7 +394,8 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         }
 
         this.snippets = new ConcurrentHashMap<String, LinkedHashSet<String>>(); 
-        this.secondarySearchSuperviser = (this.query.getQueryGoal().getIncludeHashes().size() > 1) ? new SecondarySearchSuperviser(this) : null; // generate abstracts only for combined searches
+        this.cached = cachedResults != null;
+        this.secondarySearchSuperviser = (!this.cached && this.query.getQueryGoal().getIncludeHashes().size() > 1) ? new SecondarySearchSuperviser(this) : null; // generate abstracts only for combined searches
         if (this.secondarySearchSuperviser != null) this.secondarySearchSuperviser.start();
         this.secondarySearchThreads = null;
         this.preselectedPeerHashes = preselectedPeerHashes;
@@ -396,7 +404,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         this.heuristics = new TreeMap<byte[], HeuristicResult>(Base64Order.enhancedCoder);
         this.IAmaxcounthash = null;
         this.IAneardhthash = null;
-        this.remote = (peers != null && peers.sizeConnected() > 0) && (this.query.domType == QueryParams.Searchdom.CLUSTER || (this.query.domType == QueryParams.Searchdom.GLOBAL && Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.INDEX_RECEIVE_ALLOW_SEARCH, false)));
+        this.remote = !this.cached && (peers != null && peers.sizeConnected() > 0) && (this.query.domType == QueryParams.Searchdom.CLUSTER || (this.query.domType == QueryParams.Searchdom.GLOBAL && Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.INDEX_RECEIVE_ALLOW_SEARCH, false)));
         this.addResultsToLocalIndex = addResultsToLocalIdx;
         /* Défault : no size limit to store remote result documents to local index. Use setter to eventually modify it. */
         this.remoteStoredDocMaxSize = -1;
@@ -440,21 +448,21 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
             this.taggingPredicates.put(t.getName(), t.getPredicate());
         }
 
-        // start a local solr search
-        if (!Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.DEBUG_SEARCH_LOCAL_SOLR_OFF, false)) {
+        // start a local solr search; a search from the result cache starts no search at all
+        if (!this.cached && !Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.DEBUG_SEARCH_LOCAL_SOLR_OFF, false)) {
         	final boolean useSolrFacets = true;
 			this.localsolrsearch = RemoteSearch.solrRemoteSearch(this,
 					this.query.solrQuery(this.query.contentdom, this.query.isStrictContentDom(), useSolrFacets, this.excludeintext_image), this.query.offset,
 					this.query.itemsPerPage, null /* this peer */, 0, Switchboard.urlBlacklist, useSolrFacets, true);
         }
         this.localsolroffset = this.query.offset + this.query.itemsPerPage;
+        this.resultOffset = this.remote || this.cached ? 0 : this.query.offset;
         
         // start a local RWI search concurrently
         this.rwiProcess = null;
-        if (query.getSegment().connectedRWI() && !Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.DEBUG_SEARCH_LOCAL_DHT_OFF, false)) {
+        if (!this.cached && query.getSegment().connectedRWI() && !Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.DEBUG_SEARCH_LOCAL_DHT_OFF, false)) {
             // we start the local search only if this peer is doing a remote search or when it is doing a local search and the peer is old
-            rwiProcess = new RWIProcess(this.localsolrsearch);
-            rwiProcess.start();
+            rwiProcess = SearchExecutor.getExecutor().execute("SearchEvent.RWIProcess(" + (this.localsolrsearch != null ? this.localsolrsearch.getName() : "") + ")", new RWIProcess(this.localsolrsearch));
         }
 
         if (this.remote) {
@@ -465,12 +473,13 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                 this.primarySearchThreadsL = null;
                 this.nodeSearchThreads = null;
             } else {
-                this.primarySearchThreadsL = new ArrayList<RemoteSearch>();
-                this.nodeSearchThreads = new ArrayList<Thread>();
+                // hedged searches are added concurrently while the list is iterated
+                this.primarySearchThreadsL = new CopyOnWriteArrayList<RemoteSearch>();
+                this.nodeSearchThreads = new ArrayList<SearchExecutor.Task>();
                 // start this concurrently because the remote search needs an enumeration
                 // of the remote peers which may block in some cases when i.e. DHT is active
                 // at the same time.
-                new Thread("SearchEvent.primaryRemoteSearches") {
+                SearchExecutor.getExecutor().execute("SearchEvent.primaryRemoteSearches", new Runnable() {
                     @Override
                     public void run() {
                         RemoteSearch.primaryRemoteSearches(
@@ -480,7 +489,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                             Switchboard.urlBlacklist,
                             (SearchEvent.this.query.domType == QueryParams.Searchdom.GLOBAL) ? null : preselectedPeerHashes);
                     }
-                }.start();
+                });
             }
             if ( this.primarySearchThreadsL != null ) {
                 ConcurrentLog.fine("SEARCH_EVENT", "STARTING "
@@ -548,6 +557,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         this.urlRetrievalAllTime = 0;
         this.snippetComputationAllTime = 0;
         this.resultList = new WeakPriorityBlockingQueue<URIMetadataNode>(Math.max(max_results_node, 10 * query.itemsPerPage()), true); // this is the result, enriched with snippets, ranked and ordered by ranking
+        if (this.cached) this.addCachedResults(cachedResults);
 
         // snippets do not need to match with the complete query hashes,
         // only with the query minus the stopwords which had not been used for the search 
@@ -585,14 +595,21 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
     /**
      * A concurrent task to perform the current search query on the local RWI.
      */
-    private class RWIProcess extends Thread {
+    private class RWIProcess implements Runnable {
     
-        final Thread waitForThread;
+        final SearchExecutor.Task waitForThread;
         
-        public RWIProcess(final Thread waitForThread) {
-            super("SearchEvent.RWIProcess(" + (waitForThread != null ? waitForThread.getName() : "") + ")");
+        public RWIProcess(final SearchExecutor.Task waitForThread) {
             this.waitForThread = waitForThread;
         }
+
+        /**
+         * @return the time in milliseconds which is left for the search, the time budget for the lookup of the index files
+         */
+        private long remainingTime() {
+            if (SearchEvent.this.maxtime == Long.MAX_VALUE) return Long.MAX_VALUE;
+            return Math.max(0, SearchEvent.this.query.starttime + SearchEvent.this.maxtime - System.currentTimeMillis());
+        }
         
         /**
          * Query the local RWI and feed the search event with the obtained results.
@@ -618,7 +635,8 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                                 SearchEvent.this.query.getQueryGoal().getExcludeHashes(),
                             null,
                             Segment.wordReferenceFactory,
-                            SearchEvent.this.query.maxDistance);
+                            SearchEvent.this.query.maxDistance,
+                            remainingTime());
                 SearchEvent.this.localSearchInclusion = search.inclusion();
                 ReferenceContainer<WordReference> index = search.joined();
                 if ( !index.isEmpty() ) {
@@ -644,7 +662,8 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                                             SearchEvent.this.query.getQueryGoal().getExcludeHashes(),
                                         null,
                                         Segment.wordReferenceFactory,
-                                        SearchEvent.this.query.maxDistance);
+                                        SearchEvent.this.query.maxDistance,
+                                        remainingTime());
                         SearchEvent.this.localSearchInclusion = search.inclusion();
                         index = search.joined();
                         if (!index.isEmpty()) {
@@ -843,14 +862,22 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         this.eventTime = System.currentTimeMillis();
     }
 
+    /**
+     * @return true if the event has been cleaned up; no more searches shall be started for it
+     */
+    public boolean isClosed() {
+        return this.closed;
+    }
+
     protected void cleanup() {
+        this.closed = true;
 
         // stop all threads
         if (this.localsolrsearch != null) {
             if (localsolrsearch.isAlive()) synchronized (this.localsolrsearch) {this.localsolrsearch.interrupt();}
         }
         if (this.nodeSearchThreads != null) {
-            for (final Thread search : this.nodeSearchThreads) {
+            for (final SearchExecutor.Task search : this.nodeSearchThreads) {
                 if (search != null) {
                     synchronized (search) {if (search.isAlive()) {search.interrupt();}}
                 }
@@ -864,7 +891,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
             }
         }
         if (this.secondarySearchThreads != null) {
-            for (final Thread search : this.secondarySearchThreads ) {
+            for (final SearchExecutor.Task search : this.secondarySearchThreads ) {
                 if (search != null) {
                     synchronized (search) {if (search.isAlive()) {search.interrupt();}}
                 }
@@ -909,7 +936,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         return this.primarySearchThreadsL;
     }
 
-    public Thread[] getSecondarySearchThreads() {
+    public SearchExecutor.Task[] getSecondarySearchThreads() {
         return this.secondarySearchThreads;
     }
 
@@ -1857,7 +1884,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                 success = true;
             }
         } else {
-            Thread t = new Thread("SearchEvent.drainStacksToResult.oneFilteredFromRWI") {
+            final Runnable t = new Runnable() {
                 @Override
                 public void run() {
                     SearchEvent.this.oneFeederStarted();
@@ -1878,7 +1905,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                     }
                 }
             };
-            if (SearchEvent.this.query.snippetCacheStrategy == null) t.run(); else t.start(); //no need for concurrency if there is no latency
+            if (SearchEvent.this.query.snippetCacheStrategy == null) t.run(); else SearchExecutor.getExecutor().execute("SearchEvent.drainStacksToResult.oneFilteredFromRWI", t); //no need for concurrency if there is no latency
         }
         return success;
 	}
@@ -1919,7 +1946,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                     success = true;
                 } else {
 
-                    new Thread("SearchEvent.drainStacksToResult.getSnippet") {
+                    SearchExecutor.getExecutor().execute("SearchEvent.drainStacksToResult.getSnippet", new Runnable() {
                         @Override
                         public void run() {
                             SearchEvent.this.oneFeederStarted();
@@ -1934,7 +1961,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                                 SearchEvent.this.oneFeederTerminated();
                             }
                         }
-                    }.start();
+                    });
                 }
             }
         }
@@ -1960,6 +1987,99 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         this.addTopics(resultEntry);
     }
 
+    /**
+     * fill the result list and the navigators with the results of a previous search from the search result cache
+     * @param entry the cached results
+     */
+    private void addCachedResults(final SearchResultCache.Entry entry) {
+        for (int i = 0; i < entry.size(); i++) {
+            final URIMetadataNode node;
+            try {
+                node = new URIMetadataNode(entry.getDocument(i));
+            } catch (final MalformedURLException e) {
+                continue;
+            }
+            final String line = entry.getSnippet(i);
+            node.makeResultEntry(this.query.getSegment(), this.peers, line == null ? null : new TextSnippet(node.url(), line, entry.isMarked(i), ResultClass.SOURCE_CACHE, ""));
+            node.setScore(entry.getWeight(i));
+            try {
+                this.urlhashes.put(node.hash());
+            } catch (final SpaceExceededException e) {
+                break;
+            }
+            this.resultList.put(new ReverseElement<URIMetadataNode>(node, entry.getWeight(i)));
+        }
+        for (final Map.Entry<String, Map<String, Integer>> navigator: entry.getNavigators().entrySet()) {
+            final String name = navigator.getKey();
+            ScoreMap<String> target = null;
+            if (name.startsWith("plugin:")) {
+                target = this.navigatorPlugins == null ? null : this.navigatorPlugins.get(name.substring(7));
+            } else if (name.startsWith("vocabulary:")) {
+                target = new ConcurrentScoreMap<String>(this);
+                this.vocabularyNavigator.put(name.substring(11), target);
+            } else if ("protocol".equals(name)) {
+                target = this.protocolNavigator;
+            } else if ("date".equals(name)) {
+                target = this.dateNavigator;
+            } else if ("location".equals(name)) {
+                target = this.locationNavigator;
+            } else if ("topics".equals(name)) {
+                target = this.ref;
+            }
+            if (target == null) continue;
+            for (final Map.Entry<String, Integer> count: navigator.getValue().entrySet()) target.inc(count.getKey(), count.getValue().intValue());
+        }
+        this.local_solr_stored.set(entry.getResultCount());
+        this.feedersTerminated.incrementAndGet();
+    }
+
+    /**
+     * @return true if the results of this event are taken from the search result cache
+     */
+    public boolean isCached() {
+        return this.cached;
+    }
+
+    /**
+     * @return the number of results which can be shown from the result list, counted from the first result
+     */
+    public int resultsAvailable() {
+        return this.resultOffset + this.resultList.sizeAvailable();
+    }
+
+    /**
+     * @return true if the ranked results of this event start with the first result and can be stored to the search result cache
+     */
+    protected boolean isStorable() {
+        return !this.cached && this.resultOffset == 0 && this.resultList.sizeAvailable() > 0;
+    }
+
+    /**
+     * @param max the maximum number of results
+     * @return a copy of the best ranked results
+     */
+    protected List<Element<URIMetadataNode>> rankedResults(final int max) {
+        final int count = Math.min(max, this.resultList.sizeAvailable());
+        final List<Element<URIMetadataNode>> list = this.resultList.list(count);
+        return list == null ? new ArrayList<Element<URIMetadataNode>>(0) : new ArrayList<Element<URIMetadataNode>>(list.subList(0, Math.min(count, list.size())));
+    }
+
+    /**
+     * @return all navigators of this event by their name in the search result cache
+     */
+    protected Map<String, ScoreMap<String>> cacheableNavigators() {
+        final Map<String, ScoreMap<String>> navigators = new HashMap<String, ScoreMap<String>>();
+        if (this.navigatorPlugins != null) {
+            for (final Map.Entry<String, Navigator> navigator: this.navigatorPlugins.entrySet()) navigators.put("plugin:" + navigator.getKey(), navigator.getValue());
+        }
+        for (final Map.Entry<String, ScoreMap<String>> navigator: this.vocabularyNavigator.entrySet()) navigators.put("vocabulary:" + navigator.getKey(), navigator.getValue());
+        if (this.protocolNavigator != null) navigators.put("protocol", this.protocolNavigator);
+        if (this.dateNavigator != null) navigators.put("date", this.dateNavigator);
+        if (this.locationNavigator != null) navigators.put("location", this.locationNavigator);
+        navigators.put("topics", this.ref);
+        return navigators;
+    }
+
     private long postRanking(final URIMetadataNode rentry, final ScoreMap<String> topwords) {
         long r = 0;
 
@@ -2130,7 +2250,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
 		}
 		
         final int resultListIndex;
-        if (this.remote) {
+        if (this.remote || this.cached) {
         	resultListIndex = item;
         } else {
         	resultListIndex = item - (this.localsolroffset - this.query.itemsPerPage);
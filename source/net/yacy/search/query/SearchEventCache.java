@@ -26,11 +26,18 @@
 
 package net.yacy.search.query;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
 
+import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.data.WorkTables;
 import net.yacy.kelondro.util.MemoryControl;
@@ -50,6 +57,15 @@ public class SearchEventCache {
     public volatile static String lastEventID = "";
     public static long cacheInsert = 0, cacheHit = 0, cacheMiss = 0, cacheDelete = 0;
 
+    /** the maximum number of results which are stored for a query in the search result cache */
+    private static final int resultCacheMaxResults = 100;
+    /** the second-level cache which keeps the results of events which left this cache, null if not enabled */
+    private volatile static SearchResultCache resultCache = null;
+    /** the age in milliseconds of a result from the search result cache after which a new search is started in the background */
+    private static long resultCacheRefresh = 60000;
+    /** the ids of the queries for which a refresh of cached results is running */
+    private static final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
     public static int size() {
         return lastEvents.size();
     }
@@ -63,7 +79,62 @@ public class SearchEventCache {
         }
     }
 
+    /**
+     * open the search result cache; a cache which is already open is closed
+     * @param location the file of the cache
+     * @param maxEntries the maximum number of cached queries, 0 disables the cache
+     * @param ttl the time in milliseconds a cached result is used
+     * @param refresh the age in milliseconds of a cached result after which a new search is started in the background
+     */
+    public static void openResultCache(final File location, final int maxEntries, final long ttl, final long refresh) {
+        closeResultCache();
+        if (maxEntries <= 0) return;
+        try {
+            resultCache = new SearchResultCache(location, maxEntries, resultCacheMaxResults, ttl);
+            resultCacheRefresh = refresh;
+        } catch (final IOException e) {
+            ConcurrentLog.warn("SearchEventCache", "cannot open search result cache " + location.toString() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the search result cache or null if it is not enabled
+     */
+    public static SearchResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * remove all results from the search result cache, i.e. when the ranking changed
+     */
+    public static void clearResultCache() {
+        final SearchResultCache cache = resultCache;
+        if (cache != null) cache.clear();
+    }
+
+    /**
+     * store all events to the search result cache and close the cache
+     */
+    public static void closeResultCache() {
+        final SearchResultCache cache = resultCache;
+        if (cache == null) return;
+        final List<SearchEvent> events;
+        synchronized (lastEvents) {
+            events = new ArrayList<SearchEvent>(lastEvents.values());
+        }
+        for (final SearchEvent event: events) store(cache, event);
+        resultCache = null;
+        cache.close();
+    }
+
+    private static void store(final SearchResultCache cache, final SearchEvent event) {
+        if (cache == null || event == null || !event.isStorable() || event.query.isRemoteRequest()) return;
+        cache.put(event.query.id(false), event.getResultCount(), event.rankedResults(resultCacheMaxResults), event.cacheableNavigators());
+    }
+
     public static boolean delete(final String urlhash) {
+        final SearchResultCache cache = resultCache;
+        if (cache != null) cache.delete(ASCII.getBytes(urlhash));
         synchronized (lastEvents) {
             for (final SearchEvent event: lastEvents.values()) {
                 if (event.delete(urlhash)) return true;
@@ -79,6 +150,7 @@ public class SearchEventCache {
         final long memx = MemoryControl.available();
         final long acceptTime = memx > memlimitHigh ? eventLifetimeBigMem : memx > memlimitMedium ? eventLifetimeMediumMem : eventLifetimeShortMem;
         Map.Entry<String, SearchEvent> eventEntry;
+        final List<SearchEvent> removed = new ArrayList<SearchEvent>();
         synchronized (lastEvents) {
             final Iterator<Map.Entry<String, SearchEvent>> i = lastEvents.entrySet().iterator();
             SearchEvent event;
@@ -87,18 +159,24 @@ public class SearchEventCache {
                 event = eventEntry.getValue();
                 if (event == null) continue;
                 if (all || event.getEventTime() + acceptTime < System.currentTimeMillis()) {
-                    event.cleanup();
                     i.remove();
                     cacheDelete++;
+                    removed.add(event);
                 }
             }
         }
+        // events which are removed because of their age are kept in the search result cache
+        for (final SearchEvent event: removed) {
+            if (!all) store(resultCache, event);
+            event.cleanup();
+        }
     }
     
     public static void cleanupEvents(int maxsize) {
         // remove old events in the event cache
         if (MemoryControl.shortStatus()) {cleanupEvents(true); return;}
         Map.Entry<String, SearchEvent> eventEntry;
+        final List<SearchEvent> removed = new ArrayList<SearchEvent>();
         synchronized (lastEvents) {
             final Iterator<Map.Entry<String, SearchEvent>> i = lastEvents.entrySet().iterator(); // iterates in order of entry
             int dc = lastEvents.size() - maxsize;
@@ -108,13 +186,17 @@ public class SearchEventCache {
                 eventEntry = i.next();
                 event = eventEntry.getValue();
                 if (event == null) continue;
-                event.cleanup();
                 i.remove();
                 cacheDelete++;
+                removed.add(event);
                 dc--;
                 if (dc <= 0) break;            
             }
         }
+        for (final SearchEvent event: removed) {
+            store(resultCache, event);
+            event.cleanup();
+        }
     }
 
     public static SearchEvent getEvent(final String eventID) {
@@ -164,8 +246,16 @@ public class SearchEventCache {
                             lastEvents.remove(id);
                         }
                         cacheDelete++;
+                        store(resultCache, event);
                         event = null;
             		}
+            	} else if (event.isCached() && query.offset + query.itemsPerPage > event.resultsAvailable() && event.getResultCount() > event.resultsAvailable()) {
+            	    // the requested page is not in the search result cache
+                    synchronized (lastEvents) {
+                        lastEvents.remove(id);
+                    }
+                    cacheDelete++;
+                    event = null;
             	} else {
             		//re-new the event time for this event, so it is not deleted next time too early
             		event.resetEventTime();
@@ -186,7 +276,30 @@ public class SearchEventCache {
             final boolean delete = sb == null || Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.SEARCH_VERIFY_DELETE, true)
                     || (sb.getConfigBool(SwitchboardConstants.NETWORK_SEARCHVERIFY, false) && sb.peers.mySeed().getFlagAcceptRemoteIndex());
             final boolean addToLocalIdx = sb == null || Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.REMOTESEARCH_RESULT_STORE, true);
-            event = new SearchEvent(query, peers, workTables, preselectedPeerHashes, generateAbstracts, loader, remote_maxcount, remote_maxtime, delete, addToLocalIdx);
+
+            // try to serve the first pages from the search result cache; requests of other peers and
+            // requests for index abstracts need the references of the index and are not served from the cache
+            final SearchResultCache cache = resultCache;
+            final SearchResultCache.Entry cachedResults = cache == null || generateAbstracts || query.isRemoteRequest() || MemoryControl.shortStatus() ? null : cache.get(id);
+            if (cachedResults != null && (query.offset + query.itemsPerPage <= cachedResults.size() || cachedResults.getResultCount() <= cachedResults.size())) {
+                event = new SearchEvent(query, peers, workTables, preselectedPeerHashes, generateAbstracts, loader, remote_maxcount, remote_maxtime, delete, addToLocalIdx, cachedResults);
+                if (System.currentTimeMillis() - cachedResults.getTime() > resultCacheRefresh && refreshing.add(id)) {
+                    // refresh the results in the background; the new event replaces the cached event in this cache.
+                    // Only one refresh runs for a query, it uses an own copy of the query because the cached event changes it
+                    final QueryParams refreshQuery = query.copy();
+                    SearchExecutor.getExecutor().execute("SearchEventCache.refresh", () -> {
+                        try {
+                            final SearchEvent refresh = new SearchEvent(refreshQuery, peers, workTables, preselectedPeerHashes, generateAbstracts, loader, remote_maxcount, remote_maxtime, delete, addToLocalIdx, null);
+                            if (sb != null) refresh.setRemoteDocStoredMaxSize(sb.getConfigLong(SwitchboardConstants.REMOTESEARCH_RESULT_STORE_MAXSIZE, -1));
+                        } finally {
+                            refreshing.remove(id);
+                        }
+                    });
+                }
+                return event;
+            }
+
+            event = new SearchEvent(query, peers, workTables, preselectedPeerHashes, generateAbstracts, loader, remote_maxcount, remote_maxtime, delete, addToLocalIdx, null);
             /* Optional config option may be valued to limit size of remote documents added to local index */
             if(sb != null) {
             	event.setRemoteDocStoredMaxSize(sb.getConfigLong(SwitchboardConstants.REMOTESEARCH_RESULT_STORE_MAXSIZE, -1));
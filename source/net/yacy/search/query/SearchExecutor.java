@@ -0,0 +1,357 @@
+/**
+ *  SearchExecutor
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.query;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * Executes the concurrent tasks of a search: the local and remote searches, the snippet fetches and the
+ * storage of remote results. If the JVM supports virtual threads, each task runs in its own virtual thread.
+ * Otherwise the tasks run on a bounded pool of platform threads; tasks which do not find a free thread are queued.
+ * The queue is bounded as well; a task which does not fit into the queue runs in an own platform thread, so a search
+ * never waits for a queue slot.
+ * The returned {@link Task} has the methods of a thread that the search uses to supervise its tasks.
+ */
+public class SearchExecutor {
+
+    private final static ConcurrentLog log = new ConcurrentLog("SearchExecutor");
+
+    /** mode: one virtual thread for each task, if supported by the JVM */
+    public static final String MODE_VIRTUAL = "virtual";
+
+    /** mode: a bounded pool of platform threads */
+    public static final String MODE_POOL = "pool";
+
+    private static final int DEFAULT_MAX_THREADS = 200;
+
+    /** the capacity of the queue of the pool for each thread */
+    private static final int QUEUE_PER_THREAD = 10;
+
+    private static SearchExecutor executor = null;
+
+    /**
+     * a task of the search; queued until a thread is available, then running and finally done
+     */
+    public static final class Task implements Runnable {
+
+        private static final int QUEUED = 0, RUNNING = 1, DONE = 2;
+
+        private final SearchExecutor owner;
+        private final String name;
+        private final Runnable runnable;
+        private final boolean isolated;
+        private final AtomicInteger state;
+        private Thread thread; // the thread which runs the task
+        private volatile long startTime; // the time when the task started running, 0 while it is queued
+
+        private Task(final SearchExecutor owner, final String name, final Runnable runnable, final boolean isolated) {
+            this.owner = owner;
+            this.name = name;
+            this.runnable = runnable;
+            this.isolated = isolated;
+            this.state = new AtomicInteger(QUEUED);
+            this.thread = null;
+            this.startTime = 0;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * @return true if the task is queued or running
+         */
+        public boolean isAlive() {
+            return this.state.get() != DONE;
+        }
+
+        /**
+         * @return the time in milliseconds when the task started running, 0 if it has not started
+         */
+        public long getStartTime() {
+            return this.startTime;
+        }
+
+        /**
+         * Interrupt the thread which runs the task; a queued task is removed and will not run.
+         */
+        public synchronized void interrupt() {
+            if (this.state.compareAndSet(QUEUED, DONE)) {
+                this.owner.queued.decrementAndGet();
+                this.owner.cancelled.incrementAndGet();
+                if (this.owner.pool != null) this.owner.pool.remove(this); // free the slot in the queue
+                this.notifyAll();
+            } else if (this.state.get() == RUNNING && this.thread != null) {
+                this.thread.interrupt();
+            }
+        }
+
+        /**
+         * wait until the task is done; a task which is still queued is executed in the calling thread,
+         * so a task never waits for a task which is queued behind it in a saturated pool
+         */
+        public void join() throws InterruptedException {
+            if (!this.isolated && this.state.get() == QUEUED) {
+                run();
+                if (Thread.interrupted()) throw new InterruptedException();
+                return;
+            }
+            join(0);
+        }
+
+        /**
+         * wait until the task is done or the time is over
+         * @param millis the maximum waiting time in milliseconds, 0 to wait forever
+         */
+        public void join(final long millis) throws InterruptedException {
+            final long timeout = millis <= 0 ? Long.MAX_VALUE : System.currentTimeMillis() + millis;
+            synchronized (this) {
+                while (this.state.get() != DONE) {
+                    final long wait = timeout - System.currentTimeMillis();
+                    if (wait <= 0) return;
+                    this.wait(wait);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            final Thread current = Thread.currentThread();
+            final String threadName = current.getName();
+            // the state and the thread are set together, so an interrupt() never sees a running task without its thread
+            synchronized (this) {
+                if (!this.state.compareAndSet(QUEUED, RUNNING)) return; // cancelled or already executed by a joining thread
+                this.thread = current;
+                this.startTime = System.currentTimeMillis();
+            }
+            this.owner.queued.decrementAndGet();
+            final int running = this.owner.running.incrementAndGet();
+            int peak;
+            while (running > (peak = this.owner.peak.get()) && !this.owner.peak.compareAndSet(peak, running)) {}
+            try {
+                if (this.owner.pool != null) current.setName(this.name);
+                this.runnable.run();
+            } catch (final Throwable e) {
+                ConcurrentLog.logException(e);
+            } finally {
+                if (this.owner.pool != null) current.setName(threadName);
+                this.owner.running.decrementAndGet();
+                this.owner.completed.incrementAndGet();
+                synchronized (this) {
+                    this.thread = null;
+                    this.state.set(DONE);
+                    this.notifyAll();
+                }
+            }
+        }
+    }
+
+    private final ThreadFactory virtualThreads; // null if virtual threads are not used
+    private final ThreadPoolExecutor pool; // null if virtual threads are used
+    private final ScheduledThreadPoolExecutor timer; // starts the delayed tasks
+    private final AtomicInteger queued, running, peak;
+    private final AtomicLong submitted, completed, cancelled;
+
+    /**
+     * @param mode MODE_VIRTUAL or MODE_POOL; the pool is used if virtual threads are not supported
+     * @param maxThreads the maximum number of threads of the pool
+     */
+    public SearchExecutor(final String mode, final int maxThreads) {
+        this.virtualThreads = MODE_VIRTUAL.equals(mode) ? virtualThreadFactory() : null;
+        if (this.virtualThreads == null) {
+            final int threads = Math.max(1, maxThreads);
+            this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(threads * QUEUE_PER_THREAD), new NamePrefixThreadFactory("SearchExecutor"));
+            this.pool.allowCoreThreadTimeOut(true);
+        } else {
+            this.pool = null;
+        }
+        this.timer = new ScheduledThreadPoolExecutor(1, new NamePrefixThreadFactory("SearchExecutor.timer"));
+        this.timer.setKeepAliveTime(60, TimeUnit.SECONDS);
+        this.timer.allowCoreThreadTimeOut(true);
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.queued = new AtomicInteger(0);
+        this.running = new AtomicInteger(0);
+        this.peak = new AtomicInteger(0);
+        this.submitted = new AtomicLong(0);
+        this.completed = new AtomicLong(0);
+        this.cancelled = new AtomicLong(0);
+    }
+
+    /**
+     * Get the factory of virtual threads with reflection, because they are only available since Java 21.
+     * @return the factory or null if the JVM does not support virtual threads
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (final Throwable e) {
+            log.info("virtual threads are not supported by this JVM, using a thread pool for the search");
+            return null;
+        }
+    }
+
+    /**
+     * configure the executor of the search; the previous executor finishes its tasks
+     * @param mode MODE_VIRTUAL or MODE_POOL
+     * @param maxThreads the maximum number of threads of the pool
+     */
+    public static synchronized void configure(final String mode, final int maxThreads) {
+        final SearchExecutor previous = executor;
+        executor = new SearchExecutor(mode, maxThreads);
+        log.info("search tasks are executed " + (executor.isVirtual() ? "in virtual threads" : "on a pool of " + maxThreads + " threads"));
+        if (previous != null) previous.shutdown();
+    }
+
+    /**
+     * @return the executor of the search
+     */
+    public static synchronized SearchExecutor getExecutor() {
+        if (executor == null) executor = new SearchExecutor(MODE_VIRTUAL, DEFAULT_MAX_THREADS);
+        return executor;
+    }
+
+    /**
+     * start a task
+     * @param name the name of the task, used as thread name
+     * @param runnable the work of the task
+     * @return the task
+     */
+    public Task execute(final String name, final Runnable runnable) {
+        return execute(name, runnable, false);
+    }
+
+    /**
+     * start a task
+     * @param name the name of the task, used as thread name
+     * @param runnable the work of the task
+     * @param isolated true if the task must not run in the thread of a task which joins it, because an interrupt of
+     *   that thread would break the work, i.e. a write to the index. An isolated task is not queued: if the pool has no
+     *   free thread, it runs in an own platform thread.
+     * @return the task
+     */
+    public Task execute(final String name, final Runnable runnable, final boolean isolated) {
+        final Task task = new Task(this, name, runnable, isolated);
+        this.submitted.incrementAndGet();
+        this.queued.incrementAndGet();
+        if (this.pool != null && isolated && this.pool.getActiveCount() >= this.pool.getMaximumPoolSize()) {
+            new Thread(task, name).start();
+        } else if (this.pool == null) {
+            final Thread t = this.virtualThreads.newThread(task);
+            t.setName(name);
+            t.start();
+        } else {
+            try {
+                this.pool.execute(task);
+            } catch (final RejectedExecutionException e) {
+                // the queue is full or the executor has been replaced or shut down
+                new Thread(task, name).start();
+            }
+        }
+        return task;
+    }
+
+    /**
+     * start a task after a delay; no thread is blocked during the delay
+     * @param name the name of the task, used as thread name
+     * @param runnable the work of the task
+     * @param delay the delay in milliseconds
+     * @return a future which can be cancelled to prevent the start of the task
+     */
+    public ScheduledFuture<?> schedule(final String name, final Runnable runnable, final long delay) {
+        return this.timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                execute(name, runnable);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return true if the tasks run in virtual threads
+     */
+    public boolean isVirtual() {
+        return this.pool == null;
+    }
+
+    /**
+     * @return the number of tasks which wait for a thread
+     */
+    public int getQueued() {
+        return this.queued.get();
+    }
+
+    /**
+     * @return the number of tasks which are running
+     */
+    public int getRunning() {
+        return this.running.get();
+    }
+
+    /**
+     * @return the maximum number of tasks which have been running at the same time
+     */
+    public int getPeakRunning() {
+        return this.peak.get();
+    }
+
+    /**
+     * @return the number of platform threads of the pool; for virtual threads the number of running tasks
+     */
+    public int getThreads() {
+        return this.pool == null ? this.running.get() : this.pool.getPoolSize();
+    }
+
+    public long getSubmitted() {
+        return this.submitted.get();
+    }
+
+    public long getCompleted() {
+        return this.completed.get();
+    }
+
+    /**
+     * @return the number of tasks which have been interrupted before they started
+     */
+    public long getCancelled() {
+        return this.cancelled.get();
+    }
+
+    /**
+     * stop accepting new tasks; the running and queued tasks are finished
+     */
+    public void shutdown() {
+        this.timer.shutdown();
+        if (this.pool != null) this.pool.shutdown();
+    }
+}
@@ -0,0 +1,397 @@
+/**
+ *  SearchResultCache
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.query;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.JavaBinCodec;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.sorting.ScoreMap;
+import net.yacy.cora.sorting.WeakPriorityBlockingQueue.Element;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.blob.BEncodedHeap;
+import net.yacy.kelondro.data.meta.URIMetadataNode;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.util.BDecoder;
+import net.yacy.kelondro.util.BDecoder.BObject;
+import net.yacy.kelondro.util.BEncoder;
+
+/**
+ * A second-level cache for search results. When a search event leaves the SearchEventCache,
+ * the ranked result documents, their snippets and the navigator counts are stored in a
+ * BEncodedHeap on disk, keyed by the query id. A new search for the same query can show
+ * the first result pages from this cache immediately; the cache survives a restart.
+ */
+public class SearchResultCache {
+
+    private final static ConcurrentLog log = new ConcurrentLog("SearchResultCache");
+
+    private final static String TIME = "t", COUNT = "c", IDS = "i", WEIGHTS = "w", SNIPPETS = "s", DOCUMENTS = "d", NAVIGATORS = "n";
+
+    private final BEncodedHeap heap;
+    private final int maxEntries, maxResults;
+    private final long ttl;
+    // the time and the url hashes of all entries in the order of insertion
+    private final LinkedHashMap<String, Index> index;
+    private long hits, misses, stores;
+
+    private static class Index {
+        private final long time;
+        private final byte[] ids;
+        private Index(final long time, final byte[] ids) {
+            this.time = time;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * a cached search result
+     */
+    public static class Entry {
+        private final long time;
+        private final int resultCount;
+        private final List<SolrDocument> documents;
+        private final List<Long> weights;
+        private final List<String> snippets;
+        private final List<Boolean> marked;
+        private final Map<String, Map<String, Integer>> navigators;
+
+        private Entry(final long time, final int resultCount) {
+            this.time = time;
+            this.resultCount = resultCount;
+            this.documents = new ArrayList<SolrDocument>();
+            this.weights = new ArrayList<Long>();
+            this.snippets = new ArrayList<String>();
+            this.marked = new ArrayList<Boolean>();
+            this.navigators = new HashMap<String, Map<String, Integer>>();
+        }
+
+        /**
+         * @return the time when the result was stored
+         */
+        public long getTime() {
+            return this.time;
+        }
+
+        /**
+         * @return the total number of results of the search
+         */
+        public int getResultCount() {
+            return this.resultCount;
+        }
+
+        /**
+         * @return the number of stored result documents
+         */
+        public int size() {
+            return this.documents.size();
+        }
+
+        public SolrDocument getDocument(final int i) {
+            return this.documents.get(i);
+        }
+
+        public long getWeight(final int i) {
+            return this.weights.get(i).longValue();
+        }
+
+        /**
+         * @return the snippet line of the result or null if the result had no snippet
+         */
+        public String getSnippet(final int i) {
+            return this.snippets.get(i);
+        }
+
+        /**
+         * @return true if the query words are marked in the snippet line
+         */
+        public boolean isMarked(final int i) {
+            return this.marked.get(i).booleanValue();
+        }
+
+        /**
+         * @return a map from the navigator names to the counts of the navigator keys
+         */
+        public Map<String, Map<String, Integer>> getNavigators() {
+            return this.navigators;
+        }
+    }
+
+    /**
+     * open a result cache
+     * @param location the heap file
+     * @param maxEntries the maximum number of cached queries
+     * @param maxResults the maximum number of results which are stored for one query
+     * @param ttl the time in milliseconds a cached result can be used
+     */
+    public SearchResultCache(final File location, final int maxEntries, final int maxResults, final long ttl) throws IOException {
+        location.getParentFile().mkdirs();
+        this.heap = new BEncodedHeap(location, Word.commonHashLength);
+        this.maxEntries = maxEntries;
+        this.maxResults = maxResults;
+        this.ttl = ttl;
+        this.index = new LinkedHashMap<String, Index>();
+        this.hits = 0;
+        this.misses = 0;
+        this.stores = 0;
+
+        // read the index of the entries which are still valid
+        final long now = System.currentTimeMillis();
+        final List<byte[]> expired = new ArrayList<byte[]>();
+        final Map<String, Index> entries = new HashMap<String, Index>();
+        final Iterator<Map.Entry<byte[], Map<String, byte[]>>> i = this.heap.iterator();
+        while (i.hasNext()) {
+            final Map.Entry<byte[], Map<String, byte[]>> entry = i.next();
+            final Map<String, byte[]> row = entry.getValue();
+            final long time = row == null || row.get(TIME) == null ? 0 : Long.parseLong(ASCII.String(row.get(TIME)));
+            if (time + this.ttl < now || row.get(IDS) == null) {
+                expired.add(entry.getKey());
+            } else {
+                entries.put(ASCII.String(entry.getKey()), new Index(time, row.get(IDS)));
+            }
+        }
+        for (final byte[] pk: expired) this.heap.delete(pk);
+        // insert the entries in the order of their time, so the oldest entries are evicted first
+        final List<Map.Entry<String, Index>> sorted = new ArrayList<Map.Entry<String, Index>>(entries.entrySet());
+        sorted.sort((a, b) -> Long.compare(a.getValue().time, b.getValue().time));
+        for (final Map.Entry<String, Index> entry: sorted) this.index.put(entry.getKey(), entry.getValue());
+        log.info("opened search result cache with " + this.index.size() + " entries, " + expired.size() + " expired entries removed");
+    }
+
+    /**
+     * store the results of a search event
+     * @param queryID the id of the query of the search, see QueryParams.id(false)
+     * @param resultCount the total number of results
+     * @param results the ranked results with their ranking weight
+     * @param navigators the navigators of the search
+     */
+    public void put(final String queryID, final int resultCount, final List<Element<URIMetadataNode>> results, final Map<String, ScoreMap<String>> navigators) {
+        if (results.isEmpty()) return;
+        final byte[] pk = this.heap.encodedKey(queryID);
+        final Map<String, byte[]> row = new HashMap<String, byte[]>();
+        final int count = Math.min(this.maxResults, results.size());
+        final ByteArrayOutputStream ids = new ByteArrayOutputStream(count * Word.commonHashLength);
+        final StringBuilder weights = new StringBuilder(count * 12);
+        final Map<String, byte[]> snippets = new HashMap<String, byte[]>();
+        final SolrDocumentList documents = new SolrDocumentList();
+        for (int i = 0; i < count; i++) {
+            final Element<URIMetadataNode> element = results.get(i);
+            final URIMetadataNode node = element.getElement();
+            final int p = documents.size();
+            ids.write(node.hash(), 0, Word.commonHashLength);
+            if (p > 0) weights.append(',');
+            weights.append(element.getWeight());
+            if (node.hasTextSnippet()) snippets.put(Integer.toString(p), UTF8.getBytes((node.textSnippet().isMarked() ? "m" : "u") + node.textSnippet().getLineRaw()));
+            documents.add(node);
+        }
+        if (documents.isEmpty()) return;
+        final Map<String, byte[]> navs = new HashMap<String, byte[]>();
+        for (final Map.Entry<String, ScoreMap<String>> navigator: navigators.entrySet()) {
+            if (navigator.getValue() == null || navigator.getValue().isEmpty()) continue;
+            final Map<String, byte[]> counts = new HashMap<String, byte[]>();
+            final Iterator<String> keys = navigator.getValue().keys(false);
+            while (keys.hasNext()) {
+                final String key = keys.next();
+                counts.put(key, ASCII.getBytes(Integer.toString(navigator.getValue().get(key))));
+            }
+            navs.put(navigator.getKey(), BEncoder.encode(BEncoder.transcode(counts)));
+        }
+        try {
+            final ByteArrayOutputStream docs = new ByteArrayOutputStream();
+            final GZIPOutputStream zip = new GZIPOutputStream(docs);
+            new JavaBinCodec().marshal(documents, zip);
+            zip.close();
+            final long now = System.currentTimeMillis();
+            row.put(TIME, ASCII.getBytes(Long.toString(now)));
+            row.put(COUNT, ASCII.getBytes(Integer.toString(resultCount)));
+            row.put(IDS, ids.toByteArray());
+            row.put(WEIGHTS, ASCII.getBytes(weights.toString()));
+            row.put(SNIPPETS, BEncoder.encode(BEncoder.transcode(snippets)));
+            row.put(NAVIGATORS, BEncoder.encode(BEncoder.transcode(navs)));
+            row.put(DOCUMENTS, docs.toByteArray());
+            synchronized (this) {
+                this.heap.insert(pk, row);
+                final String key = ASCII.String(pk);
+                this.index.remove(key);
+                this.index.put(key, new Index(now, row.get(IDS)));
+                this.stores++;
+                // evict the oldest entries
+                final Iterator<Map.Entry<String, Index>> i = this.index.entrySet().iterator();
+                while (i.hasNext() && this.index.size() > this.maxEntries) {
+                    this.heap.delete(ASCII.getBytes(i.next().getKey()));
+                    i.remove();
+                }
+            }
+        } catch (final IOException e) {
+            log.warn("cannot store search result: " + e.getMessage());
+        }
+    }
+
+    /**
+     * get the cached results of a query
+     * @param queryID the id of the query, see QueryParams.id(false)
+     * @return the cached results or null if there is no valid entry for the query
+     */
+    public Entry get(final String queryID) {
+        final byte[] pk = this.heap.encodedKey(queryID);
+        final Map<String, byte[]> row;
+        synchronized (this) {
+            final Index idx = this.index.get(ASCII.String(pk));
+            if (idx == null) {
+                this.misses++;
+                return null;
+            }
+            if (idx.time + this.ttl < System.currentTimeMillis()) {
+                remove(pk);
+                this.misses++;
+                return null;
+            }
+            try {
+                row = this.heap.get(pk);
+            } catch (final IOException e) {
+                log.warn("cannot read search result: " + e.getMessage());
+                return null;
+            } catch (final SpaceExceededException e) {
+                return null;
+            }
+            if (row == null) {
+                this.index.remove(ASCII.String(pk));
+                this.misses++;
+                return null;
+            }
+            this.hits++;
+        }
+        try {
+            final Entry entry = new Entry(Long.parseLong(ASCII.String(row.get(TIME))), Integer.parseInt(ASCII.String(row.get(COUNT))));
+            final Object docs = new JavaBinCodec().unmarshal(new GZIPInputStream(new ByteArrayInputStream(row.get(DOCUMENTS))));
+            if (!(docs instanceof SolrDocumentList)) return null;
+            final String[] weights = ASCII.String(row.get(WEIGHTS)).split(",");
+            final Map<String, byte[]> snippets = decode(row.get(SNIPPETS));
+            final SolrDocumentList documents = (SolrDocumentList) docs;
+            for (int i = 0; i < documents.size() && i < weights.length; i++) {
+                entry.documents.add(documents.get(i));
+                entry.weights.add(Long.parseLong(weights[i]));
+                final byte[] snippet = snippets.get(Integer.toString(i));
+                entry.snippets.add(snippet == null || snippet.length == 0 ? null : UTF8.String(snippet).substring(1));
+                entry.marked.add(snippet != null && snippet.length > 0 && snippet[0] == 'm');
+            }
+            for (final Map.Entry<String, byte[]> navigator: decode(row.get(NAVIGATORS)).entrySet()) {
+                final Map<String, Integer> counts = new HashMap<String, Integer>();
+                for (final Map.Entry<String, byte[]> count: decode(navigator.getValue()).entrySet()) {
+                    counts.put(count.getKey(), Integer.parseInt(ASCII.String(count.getValue())));
+                }
+                entry.navigators.put(navigator.getKey(), counts);
+            }
+            return entry;
+        } catch (final IOException | RuntimeException e) {
+            log.warn("cannot decode search result: " + e.getMessage());
+            synchronized (this) {
+                remove(pk);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * remove all entries which contain a result
+     * @param urlhash the hash of the result
+     */
+    public synchronized void delete(final byte[] urlhash) {
+        final String hash = ASCII.String(urlhash);
+        final Iterator<Map.Entry<String, Index>> i = this.index.entrySet().iterator();
+        while (i.hasNext()) {
+            final Map.Entry<String, Index> entry = i.next();
+            final byte[] ids = entry.getValue().ids;
+            for (int p = 0; p + Word.commonHashLength <= ids.length; p += Word.commonHashLength) {
+                if (ASCII.String(ids, p, Word.commonHashLength).equals(hash)) {
+                    try {
+                        this.heap.delete(ASCII.getBytes(entry.getKey()));
+                    } catch (final IOException e) {
+                        ConcurrentLog.logException(e);
+                    }
+                    i.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void remove(final byte[] pk) {
+        this.index.remove(ASCII.String(pk));
+        try {
+            this.heap.delete(pk);
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+        }
+    }
+
+    private static Map<String, byte[]> decode(final byte[] b) {
+        final Map<String, byte[]> m = new HashMap<String, byte[]>();
+        if (b == null) return m;
+        final BObject bobj = new BDecoder(b).parse();
+        if (bobj == null || bobj.getType() != BDecoder.BType.dictionary) return m;
+        for (final Map.Entry<String, BObject> entry: bobj.getMap().entrySet()) {
+            if (entry.getValue() != null && entry.getValue().getType() == BDecoder.BType.string) m.put(entry.getKey(), entry.getValue().getString());
+        }
+        return m;
+    }
+
+    public synchronized void clear() {
+        this.heap.clear();
+        this.index.clear();
+    }
+
+    public synchronized int size() {
+        return this.index.size();
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    public synchronized long getStores() {
+        return this.stores;
+    }
+
+    public synchronized void close() {
+        this.heap.close();
+    }
+}
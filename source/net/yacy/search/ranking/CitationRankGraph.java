@@ -0,0 +1,252 @@
+/**
+ *  CitationRankGraph
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.ranking;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The link graph of the documents of one host for the citation rank computation.
+ * The nodes are numbered from 0 to size - 1; the incoming links of all nodes are stored in a compressed
+ * sparse row format: the sources of the links to node t are sources[offsets[t]] .. sources[offsets[t + 1] - 1].
+ * The citation rank of a node is the damped sum of the ranks of the nodes linking to it, each divided
+ * by the number of internal links of the linking node. The iteration is computed in parallel over ranges of nodes.
+ */
+public class CitationRankGraph {
+
+    /** the minimum number of nodes which are computed in one task */
+    private final static int TASK_SIZE = 2048;
+
+    private final int size;
+    private final int[] offsets; // the start of the incoming links of each node in sources; offsets[size] is the number of links
+    private final int[] sources; // the source nodes of the incoming links
+    private final int[] linkcount; // the number of internal links of each node
+    private int steps;
+
+    private CitationRankGraph(final int size, final int[] offsets, final int[] sources, final int[] linkcount) {
+        this.size = size;
+        this.offsets = offsets;
+        this.sources = sources;
+        this.linkcount = linkcount;
+        this.steps = 0;
+    }
+
+    /**
+     * collect the nodes and links of a graph
+     */
+    public static class Builder {
+
+        private int size, edges;
+        private int[] linkcount, edgeSource, edgeTarget;
+
+        public Builder(final int expectedNodes) {
+            this.size = 0;
+            this.edges = 0;
+            this.linkcount = new int[Math.max(16, expectedNodes)];
+            this.edgeSource = new int[Math.max(16, expectedNodes)];
+            this.edgeTarget = new int[this.edgeSource.length];
+        }
+
+        /**
+         * add a node
+         * @param links the number of internal links of the document
+         * @return the number of the node
+         */
+        public int addNode(final int links) {
+            if (this.size == this.linkcount.length) this.linkcount = Arrays.copyOf(this.linkcount, this.size * 2);
+            this.linkcount[this.size] = links;
+            return this.size++;
+        }
+
+        /**
+         * add a link from one node to another node
+         * @param source the number of the node which contains the link
+         * @param target the number of the node which is referenced by the link
+         */
+        public void addLink(final int source, final int target) {
+            if (source < 0 || source >= this.size || target < 0 || target >= this.size) throw new IndexOutOfBoundsException("link " + source + " -> " + target + ", size = " + this.size);
+            if (this.edges == this.edgeSource.length) {
+                this.edgeSource = Arrays.copyOf(this.edgeSource, this.edges * 2);
+                this.edgeTarget = Arrays.copyOf(this.edgeTarget, this.edges * 2);
+            }
+            this.edgeSource[this.edges] = source;
+            this.edgeTarget[this.edges] = target;
+            this.edges++;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * sort the links by their target; double links between the same nodes are counted once
+         * @return the graph
+         */
+        public CitationRankGraph build() {
+            final int[] offsets = new int[this.size + 1];
+            for (int e = 0; e < this.edges; e++) offsets[this.edgeTarget[e] + 1]++;
+            for (int t = 0; t < this.size; t++) offsets[t + 1] += offsets[t];
+            final int[] sources = new int[this.edges];
+            final int[] fill = Arrays.copyOf(offsets, this.size);
+            for (int e = 0; e < this.edges; e++) sources[fill[this.edgeTarget[e]]++] = this.edgeSource[e];
+            this.edgeSource = null;
+            this.edgeTarget = null;
+
+            // remove double links
+            int p = 0;
+            for (int t = 0; t < this.size; t++) {
+                final int start = offsets[t], end = offsets[t + 1];
+                Arrays.sort(sources, start, end);
+                offsets[t] = p;
+                for (int k = start; k < end; k++) {
+                    if (k > start && sources[k] == sources[k - 1]) continue;
+                    sources[p++] = sources[k];
+                }
+            }
+            offsets[this.size] = p;
+            return new CitationRankGraph(this.size, offsets, p == sources.length ? sources : Arrays.copyOf(sources, p), Arrays.copyOf(this.linkcount, this.size));
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int links() {
+        return this.offsets[this.size];
+    }
+
+    /**
+     * @return the number of iteration steps of the last rank computation
+     */
+    public int steps() {
+        return this.steps;
+    }
+
+    /**
+     * compute the citation rank of all nodes
+     * @param damping the damping factor
+     * @param convergeDigits the number of digits which must be equal in two steps for all nodes to stop the iteration
+     * @param maxSteps the maximum number of iteration steps
+     * @param pool the pool which computes the steps
+     * @return the ranks of the nodes
+     */
+    public double[] rank(final double damping, final int convergeDigits, final int maxSteps, final ForkJoinPool pool) {
+        double[] cr = new double[this.size];
+        double[] next = new double[this.size];
+        final double[] contribution = new double[this.size];
+        this.steps = 0;
+        if (this.size == 0) return cr;
+        Arrays.fill(cr, 1.0d / this.size);
+        final double df = (1.0d - damping) / this.size;
+        final int factor = (int) Math.pow(10.0d, convergeDigits);
+        while (this.steps < maxSteps) {
+            this.steps++;
+            // the contribution of each node to its link targets must be complete before the new ranks are summed up
+            pool.invoke(new Contribution(cr, contribution, 0, this.size));
+            final boolean convergence = pool.invoke(new Step(contribution, cr, next, damping, df, factor, 0, this.size)).booleanValue();
+            final double[] t = cr; cr = next; next = t;
+            if (convergence) break;
+        }
+        return cr;
+    }
+
+    /**
+     * compute the part of the rank of a range of nodes which is passed to each of its link targets
+     */
+    private class Contribution extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] cr, contribution;
+        private final int from, to;
+
+        private Contribution(final double[] cr, final double[] contribution, final int from, final int to) {
+            this.cr = cr;
+            this.contribution = contribution;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > TASK_SIZE) {
+                final int middle = (this.from + this.to) >>> 1;
+                invokeAll(new Contribution(this.cr, this.contribution, this.from, middle), new Contribution(this.cr, this.contribution, middle, this.to));
+                return;
+            }
+            for (int s = this.from; s < this.to; s++) {
+                final int lc = CitationRankGraph.this.linkcount[s];
+                this.contribution[s] = lc > 0 ? this.cr[s] / lc : 0.0d; // if the link count is 0 then the link is not counted
+            }
+        }
+    }
+
+    /**
+     * compute the new rank of a range of nodes
+     * @return true if the rank of all nodes in the range has converged
+     */
+    private class Step extends RecursiveTask<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] contribution, cr, next;
+        private final double damping, df;
+        private final int factor, from, to;
+
+        private Step(final double[] contribution, final double[] cr, final double[] next, final double damping, final double df, final int factor, final int from, final int to) {
+            this.contribution = contribution;
+            this.cr = cr;
+            this.next = next;
+            this.damping = damping;
+            this.df = df;
+            this.factor = factor;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (this.to - this.from > TASK_SIZE) {
+                final int middle = (this.from + this.to) >>> 1;
+                final Step left = new Step(this.contribution, this.cr, this.next, this.damping, this.df, this.factor, this.from, middle);
+                final Step right = new Step(this.contribution, this.cr, this.next, this.damping, this.df, this.factor, middle, this.to);
+                left.fork();
+                final boolean convergence = right.compute().booleanValue();
+                return Boolean.valueOf(left.join().booleanValue() && convergence);
+            }
+            boolean convergence = true;
+            for (int t = this.from; t < this.to; t++) {
+                double ncr = 0.0d;
+                for (int k = CitationRankGraph.this.offsets[t]; k < CitationRankGraph.this.offsets[t + 1]; k++) {
+                    ncr += this.contribution[CitationRankGraph.this.sources[k]];
+                }
+                ncr = this.df + this.damping * ncr;
+                if (convergence && ((int) (ncr * this.factor)) != ((int) (this.cr[t] * this.factor))) convergence = false;
+                this.next[t] = ncr;
+            }
+            return Boolean.valueOf(convergence);
+        }
+    }
+
+}
@@ -33,6 +33,7 @@ import java.net.MalformedURLException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -46,6 +47,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
@@ -84,6 +86,7 @@ import net.yacy.cora.protocol.ResponseHeader;
 import net.yacy.cora.sorting.ClusteredScoreMap;
 import net.yacy.cora.sorting.ReversibleScoreMap;
 import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.util.ByteBuffer;
 import net.yacy.cora.util.CommonPattern;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
@@ -106,6 +109,7 @@ import net.yacy.search.index.Segment;
 import net.yacy.search.index.Segment.ReferenceReport;
 import net.yacy.search.index.Segment.ReferenceReportCache;
 import net.yacy.search.query.QueryParams;
+import net.yacy.search.ranking.CitationRankGraph;
 
 
 public class CollectionConfiguration extends SchemaConfiguration implements Serializable {
@@ -114,6 +118,8 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
 
     public static boolean UNIQUE_HEURISTIC_PREFER_HTTPS = false;
     public static boolean UNIQUE_HEURISTIC_PREFER_WWWPREFIX = true;
+    public static boolean CITATION_RANK_GRAPH = false; // compute the citation rank on a link graph in memory instead of the CRHost
+    public static int POSTPROCESSING_CONCURRENCY = 0; // the maximum number of concurrent postprocessing tasks; 0 for the number of processors
     
     private final ArrayList<Ranking> rankings;
     
@@ -1262,6 +1268,9 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
             postprocessingWebgraphCount = -1;
         }
 
+        // the postprocessing is partitioned into tasks; completed partitions are stored in a checkpoint to resume an interrupted postprocessing
+        final PostprocessingScheduler scheduler = new PostprocessingScheduler(new File(segment.getLocation(), "postprocessing_" + (harvestkey == null ? "all" : harvestkey) + ".checkpoint"), POSTPROCESSING_CONCURRENCY);
+
         postprocessingActivity = "create ranking map";
         ConcurrentLog.info("CollectionConfiguration", postprocessingActivity);
         boolean shallComputeCR = (segment.fulltext().useWebgraph() &&
@@ -1285,21 +1294,26 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                 collection1hosts = new ClusteredScoreMap<String>(true);
             }
         	
-        	rankings = createRankingMap(segment, rrCache, collectionConnector, collection1hosts);
+        	rankings = createRankingMap(segment, rrCache, collectionConnector, collection1hosts, byPartialUpdate, scheduler);
         } else {
         	rankings = new ConcurrentHashMap<String, CRV>();
         }
         
-        // process all documents at the webgraph for the outgoing links of this document
         final AtomicInteger allcount = new AtomicInteger(0);
-        if (segment.fulltext().useWebgraph() && shallComputeCR) {
-            postprocessWebgraph(segment, webgraph, webgraphquery, rankings, allcount);
+        if (rankings == null) {
+            // the documents are not rewritten without their ranking; the checkpoint is kept to resume the postprocessing
+            ConcurrentLog.warn("CollectionConfiguration", "postprocessing stopped after a failed citation rank computation");
+        } else {
+            // process all documents at the webgraph for the outgoing links of this document
+            if (segment.fulltext().useWebgraph() && shallComputeCR) {
+                postprocessWebgraph(segment, webgraph, webgraphquery, rankings, allcount, scheduler);
+            }
+
+            // process all documents in collection
+            postprocessDocuments(segment, rrCache, harvestkey, byPartialUpdate, collectionConnector, collection,
+                    collection1query, rankings, allcount, scheduler);
         }
-        
-        // process all documents in collection
-        postprocessDocuments(segment, rrCache, harvestkey, byPartialUpdate, collectionConnector, collection,
-				collection1query, rankings, allcount);
-        
+        scheduler.close();
         
         postprocessingCollection1Count = 0;
         postprocessingWebgraphCount = 0;
@@ -1320,12 +1334,13 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
      * @param collection1query query used to harvest items to postprocess in the main collection
      * @param rankings postprocessed rankings
      * @param allcount global postprocessed documents count
+     * @param scheduler the scheduler for the rewrite tasks; each task rewrites the documents of a group of partitions
      */
 	private void postprocessDocuments(final Segment segment, final ReferenceReportCache rrCache,
 			final String harvestkey, final boolean byPartialUpdate, final SolrConnector collectionConnector,
 			final CollectionConfiguration collection, final String collection1query, final Map<String, CRV> rankings,
-			final AtomicInteger allcount) {
-		final Map<String, Long> hostExtentCache = new HashMap<String, Long>(); // a mapping from the host id to the number of documents which contain this host-id
+			final AtomicInteger allcount, final PostprocessingScheduler scheduler) {
+		final Map<String, Long> hostExtentCache = new ConcurrentHashMap<String, Long>(); // a mapping from the host id to the number of documents which contain this host-id
         final Set<String> uniqueURLs = ConcurrentHashMap.newKeySet(); // will be used in a concurrent environment
         final Set<String> localOmitFields = new HashSet<String>();
         localOmitFields.add(CollectionSchema.process_sxt.getSolrFieldName());
@@ -1346,29 +1361,16 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                 long emptyCount = collectionConnector.getCountByQuery("{!cache=false}" + "-" + partitioningKey + AbstractSolrConnector.CATCHALL_DTERM + " AND (" + collection1query + ")");
                 if (emptyCount > 0) partitioning.inc("", (int) emptyCount);
                 final long start = System.currentTimeMillis();
-                List<String> querystrings = new ArrayList<>(partitioning.size());
-                for (String partitioningValue: partitioning) {
-                    String partitioningQuery = "{!cache=false}" + ((partitioningValue.length() == 0) ?
-                            "-" + partitioningKey + AbstractSolrConnector.CATCHALL_DTERM + " AND (" + collection1query + ")" :
-                            partitioningKey + ":" + partitioningValue + " AND (" + collection1query + ")");
-                    querystrings.add(partitioningQuery);
-                }
-                // start collection of documents 
-                final int concurrency = Math.max(1, Math.min((int) (MemoryControl.available() / (100L * 1024L * 1024L)), Runtime.getRuntime().availableProcessors()));
-                //final int concurrency = 1;
                 final boolean reference_computation = this.contains(CollectionSchema.references_i) &&
                         this.contains(CollectionSchema.references_internal_i) &&
                         this.contains(CollectionSchema.references_external_i) &&
                         this.contains(CollectionSchema.references_exthosts_i);
                 ConcurrentLog.info("CollectionConfiguration", postprocessingActivity);
-                final BlockingQueue<SolrDocument> docs = collectionConnector.concurrentDocumentsByQueries(
-                        querystrings,
-                        (this.contains(CollectionSchema.http_unique_b) || this.contains(CollectionSchema.www_unique_b)) ?
+                final String sort = (this.contains(CollectionSchema.http_unique_b) || this.contains(CollectionSchema.www_unique_b)) ?
                         CollectionSchema.host_subdomain_s.getSolrFieldName() + " asc," + // sort on subdomain to get hosts without subdomain first; that gives an opportunity to set www_unique_b flag to false
                         CollectionSchema.url_protocol_s.getSolrFieldName() + " asc" // sort on protocol to get http before https; that gives an opportunity to set http_unique_b flag to false
-                        : null, // null sort is faster!
-                        0, 100000000, Long.MAX_VALUE, concurrency + 1, concurrency, true,
-                        byPartialUpdate ? 
+                        : null; // null sort is faster!
+                final String[] fields = byPartialUpdate ? 
                         new String[]{
                         // the following fields are needed to perform the postprocessing
                         // and should only be used for partial updates; for full updates use a
@@ -1391,108 +1393,140 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                         CollectionSchema.httpstatus_i.getSolrFieldName(),
                         CollectionSchema.inboundlinkscount_i.getSolrFieldName(),
                         CollectionSchema.robots_i.getSolrFieldName()} :
-                        this.allFields());
-                final Thread rewriteThread[] = new Thread[concurrency];
-                for (int rewrite_start = 0; rewrite_start < concurrency; rewrite_start++) {
-                    rewriteThread[rewrite_start] = new Thread("CollectionConfiguration.postprocessing.rewriteThread-" + rewrite_start) {
+                        this.allFields();
+
+                // group the partitions into tasks of similar size; partitions which are completed in an interrupted postprocessing are left out
+                final long taskSize = Math.max(1000L, count / (scheduler.getConcurrency() * 4L));
+                final List<List<String>> taskQuerystrings = new ArrayList<>();
+                final List<List<String>> taskPartitions = new ArrayList<>();
+                List<String> querystrings = new ArrayList<>();
+                List<String> partitions = new ArrayList<>();
+                long taskCount = 0;
+                for (String partitioningValue: partitioning) {
+                    final String partition = "documents:" + partitioningKey + ":" + partitioningValue;
+                    if (scheduler.isCompleted(partition)) continue;
+                    String partitioningQuery = "{!cache=false}" + ((partitioningValue.length() == 0) ?
+                            "-" + partitioningKey + AbstractSolrConnector.CATCHALL_DTERM + " AND (" + collection1query + ")" :
+                            partitioningKey + ":" + partitioningValue + " AND (" + collection1query + ")");
+                    querystrings.add(partitioningQuery);
+                    partitions.add(partition);
+                    taskCount += partitioning.get(partitioningValue);
+                    if (taskCount < taskSize) continue;
+                    taskQuerystrings.add(querystrings);
+                    taskPartitions.add(partitions);
+                    querystrings = new ArrayList<>();
+                    partitions = new ArrayList<>();
+                    taskCount = 0;
+                }
+                if (querystrings.size() > 0) {
+                    taskQuerystrings.add(querystrings);
+                    taskPartitions.add(partitions);
+                }
+
+                // start the rewrite tasks, each with its own collection of documents
+                for (int t = 0; t < taskQuerystrings.size(); t++) {
+                    final List<String> taskQueries = taskQuerystrings.get(t);
+                    scheduler.submit("rewrite documents " + (t + 1) + "/" + taskQuerystrings.size() + " for harvestkey " + harvestkey, taskPartitions.get(t), new PostprocessingScheduler.Work() {
                         @Override
-                        public void run() {
+                        public int process() throws Exception {
+                            final BlockingQueue<SolrDocument> docs = collectionConnector.concurrentDocumentsByQueries(
+                                    taskQueries, sort, 0, 100000000, Long.MAX_VALUE, 100, 1, true, fields);
+                            int taskcount = 0;
                             SolrDocument doc;
-                            try {
-                                while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
-                                    // for each to-be-processed entry work on the process tag
-                                    Collection<Object> proctags = doc.getFieldValues(CollectionSchema.process_sxt.getSolrFieldName());
-                                    final String u = (String) doc.getFieldValue(CollectionSchema.sku.getSolrFieldName());
-                                    final String i = (String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName());
-                                    if (proctags == null || proctags.size() == 0) {
-                                        // this should not happen since we collected the documents using a process_sxt:[* TO *] term
-                                        ConcurrentLog.warn("CollectionConfiguration", "no process_sxt entry for url " + u + ", id=" + i);
-                                        continue;
-                                    }
-                                    try {
-                                        DigestURL url = new DigestURL(u, ASCII.getBytes(i));
-                                        byte[] id = url.hash();
-                                        SolrInputDocument sid = byPartialUpdate ? new SolrInputDocument() : collection.toSolrInputDocument(doc, localOmitFields);
-                                        sid.setField(CollectionSchema.id.getSolrFieldName(), i);
-                                        for (Object tag: proctags) try {
-                                            
-                                            // switch over tag types
-                                            ProcessType tagtype = ProcessType.valueOf((String) tag);
-        
-                                            if (tagtype == ProcessType.CITATION &&
-                                                collection.contains(CollectionSchema.cr_host_count_i) &&
-                                                collection.contains(CollectionSchema.cr_host_chance_d) &&
-                                                collection.contains(CollectionSchema.cr_host_norm_i)) {
-                                                CRV crv = rankings.remove(ASCII.String(id)); // instead of 'get'ting the CRV, we also remove it because we will not need it again and free some memory here
-                                                if (crv != null) {
+                            while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
+                                // for each to-be-processed entry work on the process tag
+                                Collection<Object> proctags = doc.getFieldValues(CollectionSchema.process_sxt.getSolrFieldName());
+                                final String u = (String) doc.getFieldValue(CollectionSchema.sku.getSolrFieldName());
+                                final String i = (String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName());
+                                if (proctags == null || proctags.size() == 0) {
+                                    // this should not happen since we collected the documents using a process_sxt:[* TO *] term
+                                    ConcurrentLog.warn("CollectionConfiguration", "no process_sxt entry for url " + u + ", id=" + i);
+                                    continue;
+                                }
+                                try {
+                                    DigestURL url = new DigestURL(u, ASCII.getBytes(i));
+                                    byte[] id = url.hash();
+                                    SolrInputDocument sid = byPartialUpdate ? new SolrInputDocument() : collection.toSolrInputDocument(doc, localOmitFields);
+                                    sid.setField(CollectionSchema.id.getSolrFieldName(), i);
+                                    for (Object tag: proctags) try {
+                                        
+                                        // switch over tag types
+                                        ProcessType tagtype = ProcessType.valueOf((String) tag);
+    
+                                        if (tagtype == ProcessType.CITATION &&
+                                            collection.contains(CollectionSchema.cr_host_count_i) &&
+                                            collection.contains(CollectionSchema.cr_host_chance_d) &&
+                                            collection.contains(CollectionSchema.cr_host_norm_i)) {
+                                            CRV crv = rankings.remove(ASCII.String(id)); // instead of 'get'ting the CRV, we also remove it because we will not need it again and free some memory here
+                                            if (crv != null) {
+                                                // with partial updates, createRankingMap has written the ranking values already
+                                                if (!byPartialUpdate) {
                                                     sid.setField(CollectionSchema.cr_host_count_i.getSolrFieldName(), crv.count);
                                                     sid.setField(CollectionSchema.cr_host_chance_d.getSolrFieldName(), crv.cr);
                                                     sid.setField(CollectionSchema.cr_host_norm_i.getSolrFieldName(), crv.crn);
-                                                    proccount_citationchange.incrementAndGet();
                                                 }
+                                                proccount_citationchange.incrementAndGet();
                                             }
-        
-                                            if (tagtype == ProcessType.UNIQUE) {
-                                                postprocessing_http_unique(segment, doc, sid, url);
-                                                postprocessing_www_unique(segment, doc, sid, url);
-                                                postprocessing_doublecontent(segment, uniqueURLs, doc, sid, url);
-                                            }
-                                            
-                                        } catch (IllegalArgumentException e) {}
-                                        
-                                        // compute references
-                                        if (reference_computation) {
-                                            String hosthash = url.hosthash();
-                                            if (!hostExtentCache.containsKey(hosthash)) {
-                                                StringBuilder q = new StringBuilder();
-                                                q.append(CollectionSchema.host_id_s.getSolrFieldName()).append(":\"").append(hosthash).append("\" AND ").append(CollectionSchema.httpstatus_i.getSolrFieldName()).append(":200");
-                                                long hostExtentCount = segment.fulltext().getDefaultConnector().getCountByQuery(q.toString());
-                                                hostExtentCache.put(hosthash, hostExtentCount);
-                                            }
-                                            if (postprocessing_references(rrCache, sid, url, hostExtentCache)) proccount_referencechange.incrementAndGet();
                                         }
-                                        
-                                        // all processing steps checked, remove the processing and harvesting key
-                                        if (byPartialUpdate) {
-                                            sid.setField(CollectionSchema.process_sxt.getSolrFieldName(), null); // setting this to null will cause a removal when doing a partial update
-                                            sid.setField(CollectionSchema.harvestkey_s.getSolrFieldName(), null);
-                                        } /*else { // fields are omitted on sid creation
-                                            sid.removeField(CollectionSchema.process_sxt.getSolrFieldName());
-                                            sid.removeField(CollectionSchema.harvestkey_s.getSolrFieldName());
-                                        }*/
-                                        // with standard solr fields selected, the sid now contains the fields
-                                        // id, http_unique_b, www_unique_b, references_i, references_internal_i, references_external_i, references_exthosts_i, host_extent_i
-                                        // and the value for host_extent_i is by default 2147483647
-                                        
-                                        // send back to index
-                                        //collectionConnector.deleteById(i);
-                                        if (byPartialUpdate) {
-                                            collectionConnector.update(sid);
-                                        } else {
-                                            collectionConnector.add(sid);
+    
+                                        if (tagtype == ProcessType.UNIQUE) {
+                                            postprocessing_http_unique(segment, doc, sid, url);
+                                            postprocessing_www_unique(segment, doc, sid, url);
+                                            postprocessing_doublecontent(segment, uniqueURLs, doc, sid, url);
                                         }
-                                        long thiscount = proccount.incrementAndGet(); allcount.incrementAndGet();
-                                        if (thiscount % 100 == 0) {
-                                            postprocessingActivity = "postprocessed " + thiscount + " from " + count + " collection documents; " +
-                                                (thiscount * 60000L / (System.currentTimeMillis() - start)) + " ppm; " +
-                                                ((System.currentTimeMillis() - start) * (count - thiscount) / thiscount / 60000) + " minutes remaining";
-                                            ConcurrentLog.info("CollectionConfiguration", postprocessingActivity);
+                                        
+                                    } catch (IllegalArgumentException e) {}
+                                    
+                                    // compute references
+                                    if (reference_computation) {
+                                        String hosthash = url.hosthash();
+                                        if (!hostExtentCache.containsKey(hosthash)) {
+                                            StringBuilder q = new StringBuilder();
+                                            q.append(CollectionSchema.host_id_s.getSolrFieldName()).append(":\"").append(hosthash).append("\" AND ").append(CollectionSchema.httpstatus_i.getSolrFieldName()).append(":200");
+                                            long hostExtentCount = segment.fulltext().getDefaultConnector().getCountByQuery(q.toString());
+                                            hostExtentCache.put(hosthash, hostExtentCount);
                                         }
-                                    } catch (final Throwable e1) {
-                                        ConcurrentLog.logException(e1);
-                                        failids.add(i);
+                                        if (postprocessing_references(rrCache, sid, url, hostExtentCache)) proccount_referencechange.incrementAndGet();
+                                    }
+                                    
+                                    // all processing steps checked, remove the processing and harvesting key
+                                    if (byPartialUpdate) {
+                                        sid.setField(CollectionSchema.process_sxt.getSolrFieldName(), null); // setting this to null will cause a removal when doing a partial update
+                                        sid.setField(CollectionSchema.harvestkey_s.getSolrFieldName(), null);
+                                    } /*else { // fields are omitted on sid creation
+                                        sid.removeField(CollectionSchema.process_sxt.getSolrFieldName());
+                                        sid.removeField(CollectionSchema.harvestkey_s.getSolrFieldName());
+                                    }*/
+                                    // with standard solr fields selected, the sid now contains the fields
+                                    // id, http_unique_b, www_unique_b, references_i, references_internal_i, references_external_i, references_exthosts_i, host_extent_i
+                                    // and the value for host_extent_i is by default 2147483647
+                                    
+                                    // send back to index
+                                    //collectionConnector.deleteById(i);
+                                    if (byPartialUpdate) {
+                                        collectionConnector.update(sid);
+                                    } else {
+                                        collectionConnector.add(sid);
                                     }
-                                    countcheck.incrementAndGet();
+                                    long thiscount = proccount.incrementAndGet(); allcount.incrementAndGet();
+                                    if (thiscount % 100 == 0) {
+                                        postprocessingActivity = "postprocessed " + thiscount + " from " + count + " collection documents; " +
+                                            (thiscount * 60000L / (System.currentTimeMillis() - start)) + " ppm; " +
+                                            ((System.currentTimeMillis() - start) * (count - thiscount) / thiscount / 60000) + " minutes remaining";
+                                        ConcurrentLog.info("CollectionConfiguration", postprocessingActivity);
+                                    }
+                                } catch (final Throwable e1) {
+                                    ConcurrentLog.logException(e1);
+                                    failids.add(i);
                                 }
-                            } catch (InterruptedException e) {
-                                ConcurrentLog.logException(e);
+                                countcheck.incrementAndGet();
+                                taskcount++;
                             }
+                            return taskcount;
                         }
-                    };
-                    rewriteThread[rewrite_start].start();
+                    });
                 }
-                // wait for termination
-                for (int rewrite_start = 0; rewrite_start < concurrency; rewrite_start++) rewriteThread[rewrite_start].join();
+                if (!scheduler.awaitPhase()) ConcurrentLog.warn("CollectionConfiguration", "postprocessing of documents for harvestkey " + harvestkey + " is not complete, the postprocessing is resumed later");
                 
                 if (failids.size() > 0) {
                     ConcurrentLog.info("CollectionConfiguration", "cleanup_processing: deleting " + failids.size() + " documents which have permanent execution fails");
@@ -1504,8 +1538,6 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                             proccount_citationchange + " citation ranking changes.");
             }
             
-        } catch (final InterruptedException e2) {
-            ConcurrentLog.warn("CollectionConfiguration", e2.getMessage(), e2);
         } catch (IOException e3) {
             ConcurrentLog.warn("CollectionConfiguration", e3.getMessage(), e3);
         }
@@ -1519,9 +1551,10 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
 	 * @param webgraphquery query used to harvest items to postprocess in the webgraph collection
 	 * @param rankings postprocessed rankings
 	 * @param allcount global postprocessed documents count
+	 * @param scheduler the scheduler for the webgraph tasks; each task processes the edges of one host
 	 */
 	private void postprocessWebgraph(final Segment segment, final WebgraphConfiguration webgraph, String webgraphquery,
-			final Map<String, CRV> rankings, final AtomicInteger allcount) {
+			final Map<String, CRV> rankings, final AtomicInteger allcount, final PostprocessingScheduler scheduler) {
 		postprocessingActivity = "collecting host facets for webgraph cr calculation";
 		ConcurrentLog.info("CollectionConfiguration", postprocessingActivity);
 		final Set<String> omitFields = new HashSet<String>();
@@ -1537,104 +1570,102 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
 		    ConcurrentLog.logException(e2);
 		    webgraphhosts = new ClusteredScoreMap<String>(true);
 		}
-		try {
-		    final long start = System.currentTimeMillis();
-		    for (String host: webgraphhosts.keyList(true)) {
-		        if (webgraphhosts.get(host) <= 0) continue;
-		        final String hostfinal = host;
-		        // select all webgraph edges and modify their cr value
-		        postprocessingActivity = "writing cr values to webgraph for host " + host;
-		        ConcurrentLog.info("CollectionConfiguration", postprocessingActivity);
-		        String patchquery = WebgraphSchema.source_host_s.getSolrFieldName() + ":\"" + host + "\" AND " + WebgraphSchema.process_sxt.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM;
-		        final long count = segment.fulltext().getWebgraphConnector().getCountByQuery("{!cache=false}" + patchquery);
-		        int concurrency = Math.min((int) count, Math.max(1, Runtime.getRuntime().availableProcessors() / 4));
-		        ConcurrentLog.info("CollectionConfiguration", "collecting " + count + " documents from the webgraph, concurrency = " + concurrency);
-		        final BlockingQueue<SolrDocument> docs = segment.fulltext().getWebgraphConnector().concurrentDocumentsByQuery(
-		                patchquery,
-		                WebgraphSchema.source_chars_i.getSolrFieldName() + " asc",
-		                0, 100000000, Long.MAX_VALUE, concurrency + 1, concurrency, true
-		                // TODO: add field list and do partial updates
-		                );
-		        final AtomicInteger proccount = new AtomicInteger(0);
-		        Thread[] t = new Thread[concurrency];
-		        for (int i = 0; i < t.length; i++) {
-		            t[i] = new Thread("CollectionConfiguration.postprocessing.webgraph-" + i) {
-		                @Override
-		                public void run() {
-		                    SolrDocument doc; String id;
-		                    try {
-		                        processloop: while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
-		                            try {
-		                                SolrInputDocument sid = webgraph.toSolrInputDocument(doc, omitFields);
-		                                Collection<Object> proctags = doc.getFieldValues(WebgraphSchema.process_sxt.getSolrFieldName());
-   
-		                                for (Object tag: proctags) try {
-		                                    
-		                                    // switch over tag types
-		                                    ProcessType tagtype = ProcessType.valueOf((String) tag);
-		                                        
-		                                    // set cr values
-		                                    if (tagtype == ProcessType.CITATION) {
-		                                        if (segment.fulltext().useWebgraph() && webgraph.contains(WebgraphSchema.source_id_s) && webgraph.contains(WebgraphSchema.source_cr_host_norm_i)) {
-		                                            id = (String) doc.getFieldValue(WebgraphSchema.source_id_s.getSolrFieldName());
-		                                            CRV crv = rankings.get(id);
-		                                            if (crv != null) {
-		                                                sid.setField(WebgraphSchema.source_cr_host_norm_i.getSolrFieldName(), crv.crn);
-		                                            }
-		                                        }
-		                                        if (webgraph.contains(WebgraphSchema.target_id_s) && webgraph.contains(WebgraphSchema.target_cr_host_norm_i)) {
-		                                            id = (String) doc.getFieldValue(WebgraphSchema.target_id_s.getSolrFieldName());
-		                                            CRV crv = rankings.get(id);
-		                                            if (crv != null) {
-		                                                sid.setField(WebgraphSchema.target_cr_host_norm_i.getSolrFieldName(), crv.crn);
-		                                            }
-		                                        }
-		                                    }
-		                                } catch (IllegalArgumentException e) {
-		                                    ConcurrentLog.logException(e);
-		                                }
-		                                
-		                                // write document back to index
-		                                try {
-		                                    sid.removeField(WebgraphSchema.process_sxt.getSolrFieldName());
-		                                    sid.removeField(WebgraphSchema.harvestkey_s.getSolrFieldName());
-		                                    //segment.fulltext().getWebgraphConnector().deleteById((String) sid.getFieldValue(WebgraphSchema.id.getSolrFieldName()));
-		                                    segment.fulltext().getWebgraphConnector().add(sid);
-		                                } catch (SolrException e) {
-		                                    ConcurrentLog.logException(e);
-		                                } catch (IOException e) {
-		                                    ConcurrentLog.logException(e);
-		                                }
-		                                proccount.incrementAndGet();
-		                                allcount.incrementAndGet();
-		                                if (proccount.get() % 1000 == 0) {
-		                                    postprocessingActivity = "writing cr values to webgraph for host " + hostfinal + "postprocessed " + proccount + " from " + count + " documents; " +
-		                                        (proccount.get() * 1000 / (System.currentTimeMillis() - start)) + " docs/second; " +
-		                                        ((System.currentTimeMillis() - start) * (count - proccount.get()) / proccount.get() / 60000) + " minutes remaining";
-		                                    ConcurrentLog.info("CollectionConfiguration", postprocessingActivity);
-		                                }
-		                            } catch (Throwable e) {
-		                                ConcurrentLog.logException(e);
-		                                continue processloop;
-		                            }
-		                        }
-		                    } catch (InterruptedException e) {
-		                        ConcurrentLog.warn("CollectionConfiguration", e.getMessage(), e);
-		                    }
-		                }
-		            };
-		            t[i].start();
+		final long start = System.currentTimeMillis();
+		for (final String host: webgraphhosts.keyList(true)) {
+		    if (webgraphhosts.get(host) <= 0) continue;
+		    final String partition = "webgraph:" + host;
+		    if (scheduler.isCompleted(partition)) continue;
+		    scheduler.submit(partition, Collections.singletonList(partition), new PostprocessingScheduler.Work() {
+		        @Override
+		        public int process() throws Exception {
+		            return postprocessWebgraphHost(segment, webgraph, host, omitFields, rankings, allcount, start);
 		        }
-		        for (int i = 0; i < t.length; i++) try {
-		            t[i].join(10000);
-		            if (t[i].isAlive()) t[i].interrupt();
-		        } catch (InterruptedException e) {}
-		        
-		        if (count != proccount.get()) ConcurrentLog.warn("CollectionConfiguration", "ambiguous webgraph document count for host " + host + ": expected=" + count + ", counted=" + proccount);
-		    }
-		} catch (final IOException e2) {
-		    ConcurrentLog.warn("CollectionConfiguration", e2.getMessage(), e2);
+		    });
 		}
+		if (!scheduler.awaitPhase()) ConcurrentLog.warn("CollectionConfiguration", "webgraph postprocessing is not complete, the postprocessing is resumed later");
+	}
+
+	/**
+	 * Write the cr values to the webgraph edges of a host
+	 * @param segment Solr segment.
+	 * @param webgraph webgraph schema configuration
+	 * @param host the source host of the edges
+	 * @param omitFields fields which are removed from the edges
+	 * @param rankings postprocessed rankings
+	 * @param allcount global postprocessed documents count
+	 * @param start the start time of the webgraph postprocessing
+	 * @return the number of processed edges
+	 */
+	private int postprocessWebgraphHost(final Segment segment, final WebgraphConfiguration webgraph, final String host, final Set<String> omitFields,
+	        final Map<String, CRV> rankings, final AtomicInteger allcount, final long start) throws IOException, InterruptedException {
+	    // select all webgraph edges and modify their cr value
+	    postprocessingActivity = "writing cr values to webgraph for host " + host;
+	    ConcurrentLog.info("CollectionConfiguration", postprocessingActivity);
+	    String patchquery = WebgraphSchema.source_host_s.getSolrFieldName() + ":\"" + host + "\" AND " + WebgraphSchema.process_sxt.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM;
+	    final long count = segment.fulltext().getWebgraphConnector().getCountByQuery("{!cache=false}" + patchquery);
+	    ConcurrentLog.info("CollectionConfiguration", "collecting " + count + " documents from the webgraph for host " + host);
+	    final BlockingQueue<SolrDocument> docs = segment.fulltext().getWebgraphConnector().concurrentDocumentsByQuery(
+	            patchquery,
+	            WebgraphSchema.source_chars_i.getSolrFieldName() + " asc",
+	            0, 100000000, Long.MAX_VALUE, 100, 1, true
+	            );
+	    int proccount = 0;
+	    SolrDocument doc; String id;
+	    processloop: while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
+	        try {
+	            SolrInputDocument sid = webgraph.toSolrInputDocument(doc, omitFields);
+	            Collection<Object> proctags = doc.getFieldValues(WebgraphSchema.process_sxt.getSolrFieldName());
+
+	            for (Object tag: proctags) try {
+	                
+	                // switch over tag types
+	                ProcessType tagtype = ProcessType.valueOf((String) tag);
+	                    
+	                // set cr values
+	                if (tagtype == ProcessType.CITATION) {
+	                    if (segment.fulltext().useWebgraph() && webgraph.contains(WebgraphSchema.source_id_s) && webgraph.contains(WebgraphSchema.source_cr_host_norm_i)) {
+	                        id = (String) doc.getFieldValue(WebgraphSchema.source_id_s.getSolrFieldName());
+	                        CRV crv = rankings.get(id);
+	                        if (crv != null) {
+	                            sid.setField(WebgraphSchema.source_cr_host_norm_i.getSolrFieldName(), crv.crn);
+	                        }
+	                    }
+	                    if (webgraph.contains(WebgraphSchema.target_id_s) && webgraph.contains(WebgraphSchema.target_cr_host_norm_i)) {
+	                        id = (String) doc.getFieldValue(WebgraphSchema.target_id_s.getSolrFieldName());
+	                        CRV crv = rankings.get(id);
+	                        if (crv != null) {
+	                            sid.setField(WebgraphSchema.target_cr_host_norm_i.getSolrFieldName(), crv.crn);
+	                        }
+	                    }
+	                }
+	            } catch (IllegalArgumentException e) {
+	                ConcurrentLog.logException(e);
+	            }
+	            
+	            // write document back to index
+	            try {
+	                sid.removeField(WebgraphSchema.process_sxt.getSolrFieldName());
+	                sid.removeField(WebgraphSchema.harvestkey_s.getSolrFieldName());
+	                segment.fulltext().getWebgraphConnector().add(sid);
+	            } catch (SolrException e) {
+	                ConcurrentLog.logException(e);
+	            } catch (IOException e) {
+	                ConcurrentLog.logException(e);
+	            }
+	            proccount++;
+	            final int allproccount = allcount.incrementAndGet();
+	            if (proccount % 1000 == 0) {
+	                postprocessingActivity = "writing cr values to webgraph for host " + host + " postprocessed " + proccount + " from " + count + " documents; " +
+	                    (allproccount * 1000L / Math.max(1, System.currentTimeMillis() - start)) + " docs/second";
+	                ConcurrentLog.info("CollectionConfiguration", postprocessingActivity);
+	            }
+	        } catch (Throwable e) {
+	            ConcurrentLog.logException(e);
+	            continue processloop;
+	        }
+	    }
+	    if (count != proccount) ConcurrentLog.warn("CollectionConfiguration", "ambiguous webgraph document count for host " + host + ": expected=" + count + ", counted=" + proccount);
+	    return proccount;
 	}
 
 	/**
@@ -1643,90 +1674,291 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
 	 * @param rrCache reference report cache for the segment
 	 * @param collectionConnector default connector to the Solr segment
 	 * @param collection1hosts hosts from index which shall take part in citation computation
-	 * @return the ranking map 
+	 * @param byPartialUpdate when true, the ranking values are written to the documents of each host with a partial update
+	 * @param scheduler the scheduler for the citation tasks; each task computes the ranking of one host
+	 * @return the ranking map or null if a phase of the computation failed or was terminated
 	 */
 	private Map<String, CRV> createRankingMap(final Segment segment, final ReferenceReportCache rrCache,
-			final SolrConnector collectionConnector, ReversibleScoreMap<String> collection1hosts) {
+			final SolrConnector collectionConnector, final ReversibleScoreMap<String> collection1hosts, final boolean byPartialUpdate,
+			final PostprocessingScheduler scheduler) {
 		final Map<String, CRV> rankings = new ConcurrentHashMap<String, CRV>();
+		final ForkJoinPool pool = CITATION_RANK_GRAPH ? new ForkJoinPool(Runtime.getRuntime().availableProcessors()) : null;
+		// the ranking of a host can only be resumed after an interruption if it has been written to the index
+		final boolean writeRanking = byPartialUpdate &&
+		        this.contains(CollectionSchema.cr_host_count_i) &&
+		        this.contains(CollectionSchema.cr_host_chance_d) &&
+		        this.contains(CollectionSchema.cr_host_norm_i);
         try {
-            int concurrency = Math.min(collection1hosts.size(), Runtime.getRuntime().availableProcessors());
-            postprocessingActivity = "collecting cr for " + collection1hosts.size() + " hosts, concurrency = " + concurrency;
+            postprocessingActivity = "collecting cr for " + collection1hosts.size() + " hosts, concurrency = " + scheduler.getConcurrency();
             ConcurrentLog.info("CollectionConfiguration", postprocessingActivity);
-            int countcheck = 0;
-            for (String host: collection1hosts.keyList(true)) {
-                // Patch the citation index for links with canonical tags.
-                // This shall fulfill the following requirement:
-                // If a document A links to B and B contains a 'canonical C', then the citation rank computation shall consider that A links to C and B does not link to C.
-                // To do so, we first must collect all canonical links, find all references to them, get the anchor list of the documents and patch the citation reference of these links
-                String patchquery = CollectionSchema.host_s.getSolrFieldName() + ":" + host + " AND " + CollectionSchema.canonical_s.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM;
-                long patchquerycount = collectionConnector.getCountByQuery("{!cache=false}" + patchquery);
-                BlockingQueue<SolrDocument> documents_with_canonical_tag = collectionConnector.concurrentDocumentsByQuery(patchquery, CollectionSchema.url_chars_i.getSolrFieldName() + " asc", 0, 100000000, Long.MAX_VALUE, 20, 1, true,
-                        CollectionSchema.id.getSolrFieldName(), CollectionSchema.sku.getSolrFieldName(), CollectionSchema.canonical_s.getSolrFieldName());
-                SolrDocument doc_B;
-                int patchquerycountcheck = 0;
-                try {
-                    while ((doc_B = documents_with_canonical_tag.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
-                        // find all documents which link to the canonical doc
-                        DigestURL doc_C_url = new DigestURL((String) doc_B.getFieldValue(CollectionSchema.canonical_s.getSolrFieldName()));
-                        byte[] doc_B_id = ASCII.getBytes(((String) doc_B.getFieldValue(CollectionSchema.id.getSolrFieldName())));
-                        // we remove all references to B, because these become references to C
-                        if (segment.connectedCitation()) {
-                            ReferenceContainer<CitationReference> doc_A_ids = segment.urlCitation().remove(doc_B_id);
-                            if (doc_A_ids == null) {
-                                //System.out.println("*** document with canonical but no referrer: " + doc_B.getFieldValue(CollectionSchema.sku.getSolrFieldName()));
-                                continue; // the document has a canonical tag but no referrer?
+            final AtomicInteger countcheck = new AtomicInteger(0);
+            final Collection<String> hosts = collection1hosts.keyList(true);
+
+            // the canonical patches move references in the citation index, which is shared by all hosts:
+            // they are done one after another in an own phase before the concurrent ranking of the hosts
+            final List<String> patchHosts = new ArrayList<String>();
+            for (final String host: hosts) if (!scheduler.isCompleted("citation:" + host)) patchHosts.add(host);
+            final Set<String> patchFailed = ConcurrentHashMap.newKeySet();
+            if (!patchHosts.isEmpty()) {
+                scheduler.submit("patch canonicals of " + patchHosts.size() + " hosts", Collections.<String>emptyList(), new PostprocessingScheduler.Work() {
+                    @Override
+                    public int process() throws Exception {
+                        for (final String host: patchHosts) {
+                            if (scheduler.isTerminated()) break;
+                            try {
+                                patchCanonicals(segment, collectionConnector, host);
+                            } catch (final IOException e) {
+                                ConcurrentLog.warn("CollectionConfiguration", "patch of canonicals failed for host " + host + ": " + e.getMessage());
+                                patchFailed.add(host);
                             }
-                            Iterator<CitationReference> doc_A_ids_iterator = doc_A_ids.entries();
-                            // for each of the referrer A of B, set A as a referrer of C
-                            while (doc_A_ids_iterator.hasNext()) {
-                                CitationReference doc_A_citation = doc_A_ids_iterator.next();
-                                segment.urlCitation().add(doc_C_url.hash(), doc_A_citation);
+                        }
+                        return patchHosts.size();
+                    }
+                });
+                if (!scheduler.awaitPhase()) {
+                    ConcurrentLog.warn("CollectionConfiguration", "patch of canonicals is not complete, the citation rank computation is resumed later");
+                    return null;
+                }
+            }
+
+            for (final String host: hosts) {
+                final String partition = "citation:" + host;
+                if (scheduler.isCompleted(partition)) {
+                    // the ranking of this host has been computed before the postprocessing was interrupted; it is needed again for the webgraph
+                    scheduler.submit("load " + partition, Collections.<String>emptyList(), new PostprocessingScheduler.Work() {
+                        @Override
+                        public int process() throws Exception {
+                            final int count = loadRanking(collectionConnector, host, rankings);
+                            countcheck.incrementAndGet();
+                            return count;
+                        }
+                    });
+                    continue;
+                }
+                scheduler.submit(partition, writeRanking ? Collections.singletonList(partition) : Collections.<String>emptyList(), new PostprocessingScheduler.Work() {
+                    @Override
+                    public int process() throws Exception {
+                        if (patchFailed.contains(host)) throw new IOException("the canonicals of host " + host + " are not patched");
+                        
+                        // do the citation rank computation
+                        if (collection1hosts.get(host) <= 0) return 0;
+                        Map<String, CRV> crn;
+                        if (pool != null) {
+                            crn = citationRankGraph(segment, collectionConnector, host, pool);
+                        } else {
+                            // select all documents for each host
+                            CRHost crh = new CRHost(segment, rrCache, host, 0.85d, 6);
+                            int convergence_attempts = 0;
+                            while (convergence_attempts++ < 30) {
+                                ConcurrentLog.info("CollectionConfiguration", "convergence step " + convergence_attempts + " for host " + host + " ...");
+                                if (crh.convergenceStep()) break;
+                                if (MemoryControl.shortStatus()) {
+                                    ConcurrentLog.warn("CollectionConfiguration", "terminated convergenceStep during postprocessing because of short memory");
+                                    break;
+                                }
                             }
+                            ConcurrentLog.info("CollectionConfiguration", "convergence for host " + host + " after " + convergence_attempts + " steps");
+                            // we have now the cr for all documents of a specific host; we store them for later use
+                            crn = crh.normalize();
                         }
-                        patchquerycountcheck++;
+                        //crh.log(crn);
+                        if (writeRanking) writeRanking(collectionConnector, crn);
+                        rankings.putAll(crn); // accumulate this here for usage in document update later
                         if (MemoryControl.shortStatus()) {
-                            ConcurrentLog.warn("CollectionConfiguration", "terminated canonical collection during postprocessing because of short memory");
-                            break;
+                            ConcurrentLog.warn("CollectionConfiguration", "terminated crn akkumulation during postprocessing because of short memory");
+                            scheduler.terminate();
                         }
+                        countcheck.incrementAndGet();
+                        return crn.size();
                     }
-                } catch (InterruptedException e) {
-                    ConcurrentLog.logException(e);
-                } catch (SpaceExceededException e) {
-                    ConcurrentLog.logException(e);
-                }
-                if (patchquerycount != patchquerycountcheck) ConcurrentLog.warn("CollectionConfiguration", "ambiguous patchquery count for host " + host + ": expected=" + patchquerycount + ", counted=" + patchquerycountcheck);
-                
-                // do the citation rank computation
-                if (collection1hosts.get(host) <= 0) continue;
-                // select all documents for each host
-                CRHost crh = new CRHost(segment, rrCache, host, 0.85d, 6);
-                int convergence_attempts = 0;
-                while (convergence_attempts++ < 30) {
-                    ConcurrentLog.info("CollectionConfiguration", "convergence step " + convergence_attempts + " for host " + host + " ...");
-                    if (crh.convergenceStep()) break;
-                    if (MemoryControl.shortStatus()) {
-                        ConcurrentLog.warn("CollectionConfiguration", "terminated convergenceStep during postprocessing because of short memory");
-                        break;
+                });
+            }
+            if (!scheduler.awaitPhase()) {
+                ConcurrentLog.warn("CollectionConfiguration", "citation rank computation is not complete, the postprocessing is resumed later");
+                return null;
+            }
+            if (collection1hosts.size() != countcheck.get()) ConcurrentLog.warn("CollectionConfiguration", "ambiguous host count: expected=" + collection1hosts.size() + ", counted=" + countcheck);
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+		return rankings;
+	}
+
+    /**
+     * Patch the citation index for links with canonical tags.
+     * This shall fulfill the following requirement:
+     * If a document A links to B and B contains a 'canonical C', then the citation rank computation shall consider that A links to C and B does not link to C.
+     * To do so, we first must collect all canonical links, find all references to them, get the anchor list of the documents and patch the citation reference of these links
+     * @param segment Solr segment
+     * @param collectionConnector default connector to the Solr segment
+     * @param host the host of the documents with canonical tags
+     */
+    private void patchCanonicals(final Segment segment, final SolrConnector collectionConnector, final String host) throws IOException {
+        String patchquery = CollectionSchema.host_s.getSolrFieldName() + ":" + host + " AND " + CollectionSchema.canonical_s.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM;
+        long patchquerycount = collectionConnector.getCountByQuery("{!cache=false}" + patchquery);
+        BlockingQueue<SolrDocument> documents_with_canonical_tag = collectionConnector.concurrentDocumentsByQuery(patchquery, CollectionSchema.url_chars_i.getSolrFieldName() + " asc", 0, 100000000, Long.MAX_VALUE, 20, 1, true,
+                CollectionSchema.id.getSolrFieldName(), CollectionSchema.sku.getSolrFieldName(), CollectionSchema.canonical_s.getSolrFieldName());
+        SolrDocument doc_B;
+        int patchquerycountcheck = 0;
+        try {
+            while ((doc_B = documents_with_canonical_tag.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
+                // find all documents which link to the canonical doc
+                DigestURL doc_C_url = new DigestURL((String) doc_B.getFieldValue(CollectionSchema.canonical_s.getSolrFieldName()));
+                byte[] doc_B_id = ASCII.getBytes(((String) doc_B.getFieldValue(CollectionSchema.id.getSolrFieldName())));
+                // we remove all references to B, because these become references to C
+                if (segment.connectedCitation()) {
+                    ReferenceContainer<CitationReference> doc_A_ids = segment.urlCitation().remove(doc_B_id);
+                    if (doc_A_ids == null) {
+                        //System.out.println("*** document with canonical but no referrer: " + doc_B.getFieldValue(CollectionSchema.sku.getSolrFieldName()));
+                        continue; // the document has a canonical tag but no referrer?
+                    }
+                    Iterator<CitationReference> doc_A_ids_iterator = doc_A_ids.entries();
+                    // for each of the referrer A of B, set A as a referrer of C
+                    while (doc_A_ids_iterator.hasNext()) {
+                        CitationReference doc_A_citation = doc_A_ids_iterator.next();
+                        segment.urlCitation().add(doc_C_url.hash(), doc_A_citation);
                     }
                 }
-                ConcurrentLog.info("CollectionConfiguration", "convergence for host " + host + " after " + convergence_attempts + " steps");
-                // we have now the cr for all documents of a specific host; we store them for later use
-                Map<String, CRV> crn = crh.normalize();
-                //crh.log(crn);
-                rankings.putAll(crn); // accumulate this here for usage in document update later
+                patchquerycountcheck++;
                 if (MemoryControl.shortStatus()) {
-                    ConcurrentLog.warn("CollectionConfiguration", "terminated crn akkumulation during postprocessing because of short memory");
+                    ConcurrentLog.warn("CollectionConfiguration", "terminated canonical collection during postprocessing because of short memory");
                     break;
                 }
-                countcheck++;
             }
-            if (collection1hosts.size() != countcheck) ConcurrentLog.warn("CollectionConfiguration", "ambiguous host count: expected=" + collection1hosts.size() + ", counted=" + countcheck);
-        } catch (final IOException e2) {
-            ConcurrentLog.logException(e2);
-            collection1hosts = new ClusteredScoreMap<String>(true);
+        } catch (InterruptedException e) {
+            ConcurrentLog.logException(e);
+        } catch (SpaceExceededException e) {
+            ConcurrentLog.logException(e);
+        }
+        if (patchquerycount != patchquerycountcheck) ConcurrentLog.warn("CollectionConfiguration", "ambiguous patchquery count for host " + host + ": expected=" + patchquerycount + ", counted=" + patchquerycountcheck);
+    }
+
+    /**
+     * Write the ranking values of the documents of a host with one batched partial update
+     * @param collectionConnector default connector to the Solr segment
+     * @param crn the ranking values of the documents
+     */
+    private static void writeRanking(final SolrConnector collectionConnector, final Map<String, CRV> crn) throws IOException {
+        if (crn.size() == 0) return;
+        final List<SolrInputDocument> updates = new ArrayList<SolrInputDocument>(crn.size());
+        for (final Map.Entry<String, CRV> entry: crn.entrySet()) {
+            final SolrInputDocument sid = new SolrInputDocument();
+            sid.setField(CollectionSchema.id.getSolrFieldName(), entry.getKey());
+            sid.setField(CollectionSchema.cr_host_count_i.getSolrFieldName(), entry.getValue().count);
+            sid.setField(CollectionSchema.cr_host_chance_d.getSolrFieldName(), entry.getValue().cr);
+            sid.setField(CollectionSchema.cr_host_norm_i.getSolrFieldName(), entry.getValue().crn);
+            updates.add(sid);
+        }
+        collectionConnector.update(updates);
+    }
+
+    /**
+     * Read the ranking values of the documents of a host which have been written by {@link #writeRanking(SolrConnector, Map)}
+     * @param collectionConnector default connector to the Solr segment
+     * @param host the host
+     * @param rankings the map which receives the ranking values
+     * @return the number of documents with ranking values
+     */
+    private static int loadRanking(final SolrConnector collectionConnector, final String host, final Map<String, CRV> rankings) throws InterruptedException {
+        final BlockingQueue<SolrDocument> docs = collectionConnector.concurrentDocumentsByQuery(
+                "{!cache=false raw f=" + CollectionSchema.host_s.getSolrFieldName() + "}" + host, null, 0, 100000000, Long.MAX_VALUE, 200, 1, false,
+                CollectionSchema.id.getSolrFieldName(), CollectionSchema.cr_host_count_i.getSolrFieldName(),
+                CollectionSchema.cr_host_chance_d.getSolrFieldName(), CollectionSchema.cr_host_norm_i.getSolrFieldName());
+        int count = 0;
+        SolrDocument doc;
+        while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
+            final Object c = doc.getFieldValue(CollectionSchema.cr_host_count_i.getSolrFieldName());
+            final Object cr = doc.getFieldValue(CollectionSchema.cr_host_chance_d.getSolrFieldName());
+            final Object crn = doc.getFieldValue(CollectionSchema.cr_host_norm_i.getSolrFieldName());
+            if (!(c instanceof Number) || !(cr instanceof Number) || !(crn instanceof Number)) continue;
+            rankings.put((String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName()), new CRV(((Number) c).intValue(), ((Number) cr).doubleValue(), ((Number) crn).intValue()));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Compute the citation rank of all documents of a host on a link graph in memory.
+     * The graph is built in one pass over the documents of the host and their references in the citation index,
+     * or in the webgraph if the citation index is not connected. This replaces the repeated lookups of the CRHost.
+     * @param segment Solr segment
+     * @param collectionConnector default connector to the Solr segment
+     * @param host the host
+     * @param pool the pool for the parallel computation of the iteration steps
+     * @return the ranking values of the documents of the host
+     */
+    private Map<String, CRV> citationRankGraph(final Segment segment, final SolrConnector collectionConnector, final String host, final ForkJoinPool pool) {
+        // collect the documents of the host together with their number of internal links
+        final List<String> ids = new ArrayList<String>();
+        final Map<String, Integer> nodes = new HashMap<String, Integer>();
+        final CitationRankGraph.Builder builder = new CitationRankGraph.Builder(1000);
+        final BlockingQueue<SolrDocument> docs = collectionConnector.concurrentDocumentsByQuery("{!cache=false raw f=" + CollectionSchema.host_s.getSolrFieldName() + "}" + host,
+                CollectionSchema.url_chars_i.getSolrFieldName() + " asc", 0, 100000000, 86400000, 200, 1, false,
+                CollectionSchema.id.getSolrFieldName(), CollectionSchema.inboundlinkscount_i.getSolrFieldName());
+        try {
+            SolrDocument doc;
+            while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
+                final String id = (String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName());
+                if (id == null || nodes.containsKey(id)) continue;
+                final Object x = doc.getFieldValue(CollectionSchema.inboundlinkscount_i.getSolrFieldName());
+                nodes.put(id, builder.addNode(x instanceof Number ? ((Number) x).intValue() : 0));
+                ids.add(id);
+                if (MemoryControl.shortStatus()) {
+                    ConcurrentLog.warn("CollectionConfiguration", "terminated citation graph collection during postprocessing because of short memory");
+                    break;
+                }
+            }
+        } catch (final InterruptedException e) {
+        }
+
+        // collect the links between the documents of the host; self-links are left out with both sources
+        // like in the reference reports of the CRHost, which do not accept self references
+        if (segment.connectedCitation()) {
+            for (int target = 0; target < ids.size(); target++) {
+                final byte[] id = ASCII.getBytes(ids.get(target));
+                try {
+                    final ReferenceContainer<CitationReference> references = segment.urlCitation().get(id, null);
+                    if (references == null) continue;
+                    final Iterator<CitationReference> ri = references.entries();
+                    while (ri.hasNext()) {
+                        final CitationReference ref = ri.next();
+                        if (!ByteBuffer.equals(ref.hosthash(), 0, id, 6, 6)) continue; // only links within the host are counted
+                        final Integer source = nodes.get(ASCII.String(ref.urlhash()));
+                        if (source != null && source.intValue() != target) builder.addLink(source.intValue(), target);
+                    }
+                } catch (final IOException e) {
+                    ConcurrentLog.logException(e);
+                } catch (final SpaceExceededException e) {
+                    ConcurrentLog.logException(e);
+                }
+            }
+        } else if (segment.fulltext().useWebgraph()) {
+            final BlockingQueue<SolrDocument> edges = segment.fulltext().getWebgraphConnector().concurrentDocumentsByQuery(
+                    "{!cache=false raw f=" + WebgraphSchema.target_host_s.getSolrFieldName() + "}" + host, null, 0, 100000000, 86400000, 200, 1, false,
+                    WebgraphSchema.source_id_s.getSolrFieldName(), WebgraphSchema.target_id_s.getSolrFieldName());
+            try {
+                SolrDocument edge;
+                while ((edge = edges.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
+                    final Integer source = nodes.get(edge.getFieldValue(WebgraphSchema.source_id_s.getSolrFieldName()));
+                    final Integer target = nodes.get(edge.getFieldValue(WebgraphSchema.target_id_s.getSolrFieldName()));
+                    if (source != null && target != null && !source.equals(target)) builder.addLink(source.intValue(), target.intValue());
+                }
+            } catch (final InterruptedException e) {
+            }
         }
-		return rankings;
-	}
+
+        // compute the citation rank
+        final CitationRankGraph graph = builder.build();
+        final double[] cr = graph.rank(0.85d, 6, 30, pool);
+        ConcurrentLog.info("CollectionConfiguration", "convergence for host " + host + " after " + graph.steps() + " steps, " + graph.size() + " documents, " + graph.links() + " links");
+        final TreeMap<Double, List<byte[]>> reorder = new TreeMap<Double, List<byte[]>>();
+        for (int i = 0; i < cr.length; i++) {
+            List<byte[]> ds = reorder.get(cr[i]);
+            if (ds == null) {ds = new ArrayList<byte[]>(); reorder.put(cr[i], ds);}
+            ds.add(ASCII.getBytes(ids.get(i)));
+        }
+        return normalize(reorder, graph.size());
+    }
 
 	/**
 	 * Search in the segment any document having the same url as doc but with the opposite secure/unsecure (https or http) version of the protocol.
@@ -1936,6 +2168,34 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
     
     
     
+    /**
+     * compute the integer ranking values of the documents of a host from their citation rank
+     * @param reorder the IDs of the documents ordered by their citation rank
+     * @param cr_host_count the number of documents of the host
+     * @return a map from IDs to CRV records
+     */
+    private static Map<String, CRV> normalize(final TreeMap<Double, List<byte[]>> reorder, final int cr_host_count) {
+        int nextcount = (cr_host_count + 1) / 2;
+        int nextcrn = 0;
+        Map<String, CRV> r = new HashMap<String, CRV>();
+        while (reorder.size() > 0) {
+            int count = nextcount;
+            while (reorder.size() > 0 && count > 0) {
+                Map.Entry<Double, List<byte[]>> next = reorder.pollFirstEntry();
+                List<byte[]> ids = next.getValue();
+                count -= ids.size();
+                double cr = next.getKey();
+                for (byte[] id: ids) r.put(ASCII.String(id), new CRV(cr_host_count, cr, nextcrn));
+            }
+            nextcrn++;
+            nextcount = Math.max(1, (nextcount + count + 1) / 2);
+        }
+        // finally, increase the crn number in such a way that the maximum is always 10
+        int inc = 11 - nextcrn; // nextcrn is +1
+        for (Map.Entry<String, CRV> entry: r.entrySet()) entry.getValue().crn += inc;
+        return r;
+    }
+
     private static final class CRV {
         public double cr;
         public int crn, count;
@@ -1999,25 +2259,7 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                 if (ds == null) {ds = new ArrayList<byte[]>(); reorder.put(d, ds);}
                 ds.add(ASCII.getBytes(entry.getKey()));
             }
-            int nextcount = (this.cr_host_count + 1) / 2;
-            int nextcrn = 0;
-            Map<String, CRV> r = new HashMap<String, CRV>();
-            while (reorder.size() > 0) {
-                int count = nextcount;
-                while (reorder.size() > 0 && count > 0) {
-                    Map.Entry<Double, List<byte[]>> next = reorder.pollFirstEntry();
-                    List<byte[]> ids = next.getValue();
-                    count -= ids.size();
-                    double cr = next.getKey();
-                    for (byte[] id: ids) r.put(ASCII.String(id), new CRV(this.cr_host_count, cr, nextcrn));
-                }
-                nextcrn++;
-                nextcount = Math.max(1, (nextcount + count + 1) / 2);
-            }
-            // finally, increase the crn number in such a way that the maximum is always 10
-            int inc = 11 - nextcrn; // nextcrn is +1
-            for (Map.Entry<String, CRV> entry: r.entrySet()) entry.getValue().crn += inc;
-            return r;
+            return CollectionConfiguration.normalize(reorder, this.cr_host_count);
         }
         /**
          * log out a complete CRHost set of urls and ranking values
@@ -0,0 +1,360 @@
+/**
+ *  PostprocessingScheduler
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.schema;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * The postprocessing work is partitioned into tasks, e.g. the citation rank computation of one host or the
+ * rewrite of a part of the documents. The tasks of a phase run on a bounded pool; the size of the pool depends
+ * on the number of processors and the available memory. Each completed partition is written to a checkpoint file,
+ * so a postprocessing which was interrupted by a crash or a restart continues with the partitions that are not
+ * completed. The checkpoint file is deleted when the postprocessing terminates.
+ */
+public class PostprocessingScheduler {
+
+    private final static ConcurrentLog log = new ConcurrentLog("PostprocessingScheduler");
+
+    /** memory which shall be available for each concurrent task */
+    private final static long MEMORY_PER_TASK = 100L * 1024L * 1024L;
+
+    /** the number of finished tasks which are kept for the monitoring */
+    private final static int MAX_REPORTED_TASKS = 1000;
+
+    /** a checkpoint which is older than this is not used to resume a postprocessing */
+    private final static long MAX_CHECKPOINT_AGE = 24L * 60L * 60L * 1000L;
+
+    public enum State {waiting, running, finished, failed, skipped}
+
+    /**
+     * the work of a task
+     */
+    public interface Work {
+        /**
+         * @return the number of processed documents
+         */
+        public int process() throws Exception;
+    }
+
+    /**
+     * a task of the postprocessing together with its timing for the monitoring
+     */
+    public static class Task {
+        private final String name;
+        private volatile State state;
+        private volatile long submitTime, startTime, endTime;
+        private volatile int count;
+
+        private Task(final String name) {
+            this.name = name;
+            this.state = State.waiting;
+            this.submitTime = System.currentTimeMillis();
+            this.startTime = 0;
+            this.endTime = 0;
+            this.count = 0;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public State getState() {
+            return this.state;
+        }
+
+        /**
+         * @return the time in milliseconds the task waited for execution
+         */
+        public long getWaitTime() {
+            return (this.startTime == 0 ? System.currentTimeMillis() : this.startTime) - this.submitTime;
+        }
+
+        /**
+         * @return the time in milliseconds the task was running
+         */
+        public long getExecTime() {
+            return this.startTime == 0 ? 0 : (this.endTime == 0 ? System.currentTimeMillis() : this.endTime) - this.startTime;
+        }
+
+        /**
+         * @return the number of documents which have been processed by the task
+         */
+        public int getCount() {
+            return this.count;
+        }
+    }
+
+    // the running schedulers and the latest closed scheduler, for the monitoring
+    private static final List<PostprocessingScheduler> running = new CopyOnWriteArrayList<PostprocessingScheduler>();
+    private static volatile PostprocessingScheduler latestClosed = null;
+
+    /**
+     * @return a copy of the list of tasks of the running postprocessings and the latest finished postprocessing
+     */
+    public static List<Task> getTasks() {
+        final List<Task> all = new ArrayList<Task>();
+        final PostprocessingScheduler closed = latestClosed;
+        if (closed != null) all.addAll(closed.copyTasks());
+        for (final PostprocessingScheduler scheduler: running) all.addAll(scheduler.copyTasks());
+        return all;
+    }
+
+    private final List<Task> tasks; // the tasks of this postprocessing
+    private final File checkpointFile;
+    private final Set<String> completed;
+    private final int concurrency;
+    private final ExecutorService executor;
+    private final List<Future<?>> phase;
+    private final List<Task> phaseTasks;
+    private Writer checkpoint;
+    private volatile boolean terminated, complete;
+
+    /**
+     * @param checkpointFile the file which stores the completed partitions
+     * @param maxConcurrency the maximum number of tasks which run at the same time; 0 for the number of processors
+     */
+    public PostprocessingScheduler(final File checkpointFile, final int maxConcurrency) {
+        this.tasks = Collections.synchronizedList(new ArrayList<Task>());
+        this.checkpointFile = checkpointFile;
+        this.completed = Collections.synchronizedSet(new HashSet<String>());
+        this.concurrency = concurrency(maxConcurrency);
+        this.executor = new ThreadPoolExecutor(this.concurrency, this.concurrency, 1000, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamePrefixThreadFactory("CollectionConfiguration.postprocessing"));
+        this.phase = new ArrayList<Future<?>>();
+        this.phaseTasks = new ArrayList<Task>();
+        this.checkpoint = null;
+        this.terminated = false;
+        this.complete = true;
+
+        // read the partitions which have been completed in an interrupted postprocessing
+        if (this.checkpointFile.exists() && System.currentTimeMillis() - this.checkpointFile.lastModified() > MAX_CHECKPOINT_AGE) {
+            log.info("ignoring outdated postprocessing checkpoint " + this.checkpointFile.toString());
+            this.checkpointFile.delete();
+        }
+        if (this.checkpointFile.exists()) {
+            BufferedReader reader = null;
+            try {
+                reader = new BufferedReader(new InputStreamReader(new FileInputStream(this.checkpointFile), StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.length() > 0) this.completed.add(line);
+                }
+                log.info("resuming postprocessing with " + this.completed.size() + " completed partitions from " + this.checkpointFile.toString());
+            } catch (final IOException e) {
+                log.warn("cannot read postprocessing checkpoint " + this.checkpointFile.toString() + ": " + e.getMessage());
+            } finally {
+                if (reader != null) try {reader.close();} catch (final IOException e) {}
+            }
+        }
+        try {
+            this.checkpointFile.getParentFile().mkdirs();
+            this.checkpoint = new OutputStreamWriter(new FileOutputStream(this.checkpointFile, true), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            log.warn("cannot write postprocessing checkpoint " + this.checkpointFile.toString() + ": " + e.getMessage());
+        }
+        latestClosed = null;
+        running.add(this);
+    }
+
+    /**
+     * compute the number of tasks which may run at the same time
+     * @param maxConcurrency the maximum; 0 for the number of processors
+     * @return the number of processors, but not more than fit into the available memory and not less than one
+     */
+    public static int concurrency(final int maxConcurrency) {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min((int) (MemoryControl.available() / MEMORY_PER_TASK), maxConcurrency <= 0 ? processors : Math.min(maxConcurrency, processors)));
+    }
+
+    public int getConcurrency() {
+        return this.concurrency;
+    }
+
+    /**
+     * @param partition the name of a partition
+     * @return true if the partition has been completed in an interrupted postprocessing
+     */
+    public boolean isCompleted(final String partition) {
+        return this.completed.contains(partition);
+    }
+
+    /**
+     * @return true if the postprocessing has been terminated because of short memory or a shutdown
+     */
+    public boolean isTerminated() {
+        return this.terminated;
+    }
+
+    /**
+     * Stop the execution of all tasks which did not yet start. The checkpoint is kept,
+     * so the next postprocessing continues with the remaining partitions.
+     */
+    public void terminate() {
+        this.terminated = true;
+    }
+
+    /**
+     * submit a task to the current phase
+     * @param name the name of the task for the monitoring
+     * @param partitions the partitions which are written to the checkpoint when the task succeeds;
+     *   empty if the result of the task is not stored in the index and the task must be repeated after an interruption
+     * @param work the work of the task
+     */
+    public void submit(final String name, final Collection<String> partitions, final Work work) {
+        final Task task = new Task(name);
+        if (this.tasks.size() >= MAX_REPORTED_TASKS) removeFinished();
+        this.tasks.add(task);
+        synchronized (this.phase) {
+            this.phaseTasks.add(task);
+            this.phase.add(this.executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (PostprocessingScheduler.this.terminated || MemoryControl.shortStatus()) {
+                        if (!PostprocessingScheduler.this.terminated) log.warn("terminated postprocessing because of short memory");
+                        PostprocessingScheduler.this.terminated = true;
+                        task.state = State.skipped;
+                        return;
+                    }
+                    task.state = State.running;
+                    task.startTime = System.currentTimeMillis();
+                    try {
+                        task.count = work.process();
+                        task.state = State.finished;
+                        for (final String partition: partitions) complete(partition);
+                    } catch (final Throwable e) {
+                        task.state = State.failed;
+                        log.warn("postprocessing task " + name + " failed: " + e.getMessage(), e);
+                    } finally {
+                        task.endTime = System.currentTimeMillis();
+                    }
+                }
+            }));
+        }
+    }
+
+    /**
+     * wait until all tasks of the current phase are done; the next submitted tasks start a new phase
+     * @return true if all tasks of the phase finished successfully; false if a task failed or was skipped,
+     *   or if the waiting was interrupted; then the postprocessing is not complete
+     */
+    public boolean awaitPhase() {
+        final List<Future<?>> futures;
+        final List<Task> phaseTasks;
+        synchronized (this.phase) {
+            futures = new ArrayList<Future<?>>(this.phase);
+            phaseTasks = new ArrayList<Task>(this.phaseTasks);
+            this.phase.clear();
+            this.phaseTasks.clear();
+        }
+        boolean failed = false, interrupted = false;
+        for (final Future<?> future: futures) {
+            try {
+                future.get();
+            } catch (final InterruptedException e) {
+                this.terminated = true;
+                interrupted = true;
+                failed = true;
+            } catch (final ExecutionException e) {
+                log.warn("postprocessing task failed: " + e.getMessage(), e);
+                failed = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        for (final Task task: phaseTasks) if (task.state != State.finished) failed = true;
+        if (failed) this.complete = false;
+        return !failed;
+    }
+
+    /**
+     * shut down the pool; if all tasks have been finished successfully then the checkpoint file is deleted
+     */
+    public void close() {
+        awaitPhase();
+        this.executor.shutdown();
+        running.remove(this);
+        latestClosed = this;
+        synchronized (this.completed) {
+            if (this.checkpoint != null) try {this.checkpoint.close();} catch (final IOException e) {}
+            this.checkpoint = null;
+        }
+        if (this.complete && !this.terminated) {
+            if (this.checkpointFile.exists() && !this.checkpointFile.delete()) log.warn("cannot delete postprocessing checkpoint " + this.checkpointFile.toString());
+        } else {
+            log.info("postprocessing is not complete, " + this.completed.size() + " completed partitions are stored in " + this.checkpointFile.toString());
+        }
+    }
+
+    private void complete(final String partition) {
+        synchronized (this.completed) {
+            this.completed.add(partition);
+            if (this.checkpoint == null) return;
+            try {
+                this.checkpoint.write(partition);
+                this.checkpoint.write('\n');
+                this.checkpoint.flush();
+            } catch (final IOException e) {
+                log.warn("cannot write postprocessing checkpoint " + this.checkpointFile.toString() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private List<Task> copyTasks() {
+        synchronized (this.tasks) {
+            return new ArrayList<Task>(this.tasks);
+        }
+    }
+
+    private void removeFinished() {
+        synchronized (this.tasks) {
+            final Iterator<Task> i = this.tasks.iterator();
+            while (i.hasNext() && this.tasks.size() >= MAX_REPORTED_TASKS) {
+                final State state = i.next().state;
+                if (state == State.finished || state == State.skipped) i.remove();
+            }
+        }
+    }
+}
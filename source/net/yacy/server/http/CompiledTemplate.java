@@ -0,0 +1,475 @@
+// CompiledTemplate.java
+// -------------------------------------
+// (C) 2026 by agent
+// first published 17.10.2026 on http://yacy.net
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.server.http;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.util.ByteBuffer;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.server.serverObjects;
+
+/**
+ * A template which is parsed once into a tree of literal byte slices and placeholder nodes.
+ * Rendering the tree produces the same output as the TemplateEngine does for the template file,
+ * but without tokenizing the file again for every request. Compiled templates are cached per file;
+ * localized templates are different files, so the cache holds one template per file and locale.
+ * A cached template is compiled again if the modification time or the length of its file changes.
+ */
+public final class CompiledTemplate {
+
+    private final static byte hashChar = (byte)'#';
+    private final static byte[] mClose = {(byte)'}', hashChar};
+    private final static byte[] aClose = {(byte)')', hashChar};
+    private final static byte[] pClose = {(byte)']', hashChar};
+    private final static byte[] iClose = {(byte)'%', hashChar};
+    private final static byte[] dpdpa = "::".getBytes();
+    private final static byte[] PP = "%%".getBytes();
+    private final static byte[] SSI = "<!--#include virtual=\"".getBytes();
+
+    // caches of compiled templates, the includes are read line by line and have normalized line endings
+    private final static Map<String, CompiledTemplate> templates = new ConcurrentHashMap<String, CompiledTemplate>();
+    private final static Map<String, CompiledTemplate> includes = new ConcurrentHashMap<String, CompiledTemplate>();
+
+    private final String name;
+    private final long lastModified, length;
+    private final byte[] source;
+    private final Node[] nodes;
+    private final boolean ssi;
+
+    private CompiledTemplate(final String name, final long lastModified, final long length, final byte[] source) {
+        this.name = name;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.source = source;
+        this.nodes = parse(name, source, 0, source.length);
+        this.ssi = indexOf(source, SSI, 0, source.length) >= 0;
+    }
+
+    /**
+     * compile a template from its source
+     * @param name the name of the template which is used in log messages
+     * @param source the template bytes
+     * @return the compiled template
+     */
+    public static CompiledTemplate compile(final String name, final byte[] source) {
+        return new CompiledTemplate(name, 0, source.length, truncate(source));
+    }
+
+    /**
+     * get a compiled template for a file from the cache or compile the file
+     * @param file the template file
+     * @return the compiled template
+     * @throws IOException if the file cannot be read
+     */
+    public static CompiledTemplate get(final File file) throws IOException {
+        final String key = file.getAbsolutePath();
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        CompiledTemplate template = templates.get(key);
+        if (template != null && template.lastModified == lastModified && template.length == length) return template;
+        template = new CompiledTemplate(file.getName(), lastModified, length, truncate(FileUtils.read(file)));
+        templates.put(key, template);
+        return template;
+    }
+
+    private static CompiledTemplate getInclude(final File file) throws IOException {
+        final String key = file.getAbsolutePath();
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        CompiledTemplate template = includes.get(key);
+        if (template != null && template.lastModified == lastModified && template.length == length) return template;
+        final ByteBuffer include = new ByteBuffer();
+        BufferedReader br = null;
+        try {
+            br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+            String line = "";
+            while ((line = br.readLine()) != null) {
+                include.append(UTF8.getBytes(line)).append(ASCII.getBytes(net.yacy.server.serverCore.CRLF_STRING));
+            }
+        } finally {
+            if (br != null) try {br.close();} catch (final IOException e) {
+                ConcurrentLog.warn("FILEHANDLER","Could not close buffered reader on file " + file);
+            }
+        }
+        template = new CompiledTemplate(file.getName(), lastModified, length, truncate(include.getBytes()));
+        include.close();
+        includes.put(key, template);
+        return template;
+    }
+
+    public static void clearCache() {
+        templates.clear();
+        includes.clear();
+    }
+
+    // the TemplateEngine stops reading a template at the first zero byte
+    private static byte[] truncate(final byte[] b) {
+        for (int i = 0; i < b.length; i++) if (b[i] == 0) return Arrays.copyOf(b, i);
+        return b;
+    }
+
+    /**
+     * write the template with the replaced patterns to an output stream
+     * @param out the output stream
+     * @param pattern the replacement values; if null, the template is written unchanged
+     * @throws IOException
+     */
+    public void write(final OutputStream out, final serverObjects pattern) throws IOException {
+        if (pattern == null) {
+            out.write(this.source);
+        } else {
+            write(this.nodes, out, pattern, "");
+        }
+    }
+
+    /**
+     * Check if the output of this template may contain server side includes. The values of the patterns
+     * are not checked; server side include directives are only taken from the template files.
+     * @param pattern the replacement values, used to find the localized include files
+     * @return true if the output must be processed for server side includes
+     */
+    public boolean hasSSI(final serverObjects pattern) {
+        return hasSSI(pattern, 0);
+    }
+
+    private boolean hasSSI(final serverObjects pattern, final int depth) {
+        if (this.ssi) return true;
+        if (depth > 10) return true; // recursive includes; be careful
+        return hasSSI(this.nodes, pattern, depth);
+    }
+
+    private static boolean hasSSI(final Node[] nodes, final serverObjects pattern, final int depth) {
+        for (final Node node: nodes) {
+            if (node instanceof Include) {
+                final Include include = (Include) node;
+                if (include.dynamic) return true;
+                try {
+                    if (getInclude(HTTPDFileHandler.getLocalizedFile(include.key, pattern.get("clientlanguage"))).hasSSI(pattern, depth + 1)) return true;
+                } catch (final IOException e) {
+                    // the include is not written
+                }
+            } else if (node instanceof Multi) {
+                if (hasSSI(((Multi) node).body, pattern, depth)) return true;
+            } else if (node instanceof Alternative) {
+                // alternatives selected by name are parsed when they are written
+                if (((Alternative) node).hasInclude) return true;
+                for (final Node[] segment: ((Alternative) node).segments) if (hasSSI(segment, pattern, depth)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static void write(final Node[] nodes, final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+        for (final Node node: nodes) node.write(out, pattern, prefix);
+    }
+
+    private interface Node {
+        public void write(OutputStream out, serverObjects pattern, String prefix) throws IOException;
+    }
+
+    private static final class Literal implements Node {
+        private final byte[] b;
+        private final int offset;
+        private int length;
+        private Literal(final byte[] b, final int offset, final int length) {
+            this.b = b;
+            this.offset = offset;
+            this.length = length;
+        }
+        @Override
+        public void write(final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+            out.write(this.b, this.offset, this.length);
+        }
+    }
+
+    // #[key]#
+    private static final class Normal implements Node {
+        private final String key;
+        private Normal(final String key) {
+            this.key = key;
+        }
+        @Override
+        public void write(final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+            out.write(TemplateEngine.replacePattern(prefix + this.key, pattern));
+        }
+    }
+
+    // #{key}# ... #{/key}#
+    private static final class Multi implements Node {
+        private final String key;
+        private final Node[] body;
+        private Multi(final String key, final Node[] body) {
+            this.key = key;
+            this.body = body;
+        }
+        @Override
+        public void write(final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+            final String patternKey = prefix + this.key;
+            final String value = pattern.get(patternKey);
+            int num = 0;
+            if (value != null && !value.isEmpty()) {
+                try {
+                    num = Integer.parseInt(value); // Key contains the iteration number as string
+                } catch (final NumberFormatException e) {
+                    ConcurrentLog.logException(e);
+                    num = 0;
+                }
+            }
+            for (int i = 0; i < num; i++) {
+                CompiledTemplate.write(this.body, out, pattern, prefix + this.key + "_" + i + "_");
+            }
+        }
+    }
+
+    // #(key)# ... :: ... #(/key)#
+    private static final class Alternative implements Node {
+        private final String name, key;
+        private final Node[][] segments;
+        private final byte[] text;
+        private final boolean hasInclude;
+        private final Map<String, Node[]> named;
+        private Alternative(final String name, final String key, final Node[][] segments, final byte[] text) {
+            this.name = name;
+            this.key = key;
+            this.segments = segments;
+            this.text = text;
+            this.hasInclude = indexOf(text, iClose, 0, text.length) >= 0;
+            this.named = new ConcurrentHashMap<String, Node[]>();
+        }
+        @Override
+        public void write(final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+            final String patternKey = prefix + this.key;
+            final String patternId = pattern.get(patternKey);
+            int which = 0;
+            // lazy parsing of pattern value; numeric values, "true", "false" and no value allowed
+            if (patternId != null) {
+                if ("true".equals(patternId)) {
+                    which = 1;
+                } else if ("false".equals(patternId)) {
+                    which = 0;
+                } else try {
+                    which = Integer.parseInt(patternId); //index
+                } catch (final NumberFormatException e) {
+                    final Node[] segment = named(patternId);
+                    if (segment == null) {
+                        ConcurrentLog.severe("TEMPLATE", "Bad Key-Value pair in #()# construct: key=\"" + patternKey + "\", value=\"" + patternId + "\" in " + this.name);
+                    } else {
+                        CompiledTemplate.write(segment, out, pattern, patternKey + "_");
+                    }
+                    return;
+                }
+            }
+            // a value which does not select an alternative selects the last alternative
+            final Node[] segment = which >= 0 && which < this.segments.length ? this.segments[which] : this.segments[this.segments.length - 1];
+            CompiledTemplate.write(segment, out, pattern, patternKey + "_");
+        }
+        // the alternative which follows the %%name mark up to the next ::
+        private Node[] named(final String id) {
+            Node[] segment = this.named.get(id);
+            if (segment != null) return segment;
+            final byte[] mark = append(PP, UTF8.getBytes(id), null);
+            int p = indexOf(this.text, mark, 0, this.text.length);
+            if (p < 0) return null;
+            p += mark.length;
+            int end = indexOf(this.text, dpdpa, p, this.text.length);
+            if (end < 0) end = this.text.length;
+            segment = parse(this.name, this.text, p, end);
+            if (this.named.size() < 100) this.named.put(id, segment);
+            return segment;
+        }
+    }
+
+    // #%file%# or #%[key]%#
+    private static final class Include implements Node {
+        private final String name, key;
+        private final boolean dynamic;
+        private Include(final String name, final String key, final boolean dynamic) {
+            this.name = name;
+            this.key = key;
+            this.dynamic = dynamic;
+        }
+        @Override
+        public void write(final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+            final byte[] filename = this.dynamic ? TemplateEngine.replacePattern(prefix + this.key, pattern) : UTF8.getBytes(this.key);
+            if (filename.length == 0 || Arrays.equals(filename, TemplateEngine.UNRESOLVED_PATTERN)) return;
+            final CompiledTemplate include;
+            try {
+                include = getInclude(HTTPDFileHandler.getLocalizedFile(UTF8.String(filename), pattern.get("clientlanguage")));
+            } catch (final IOException e) {
+                //file not found?
+                ConcurrentLog.severe("FILEHANDLER","Include Error with file " + UTF8.String(filename) + " in " + this.name + ": " + e.getMessage());
+                return;
+            }
+            CompiledTemplate.write(include.nodes, out, pattern, ""); //clear pattern prefix for include
+        }
+    }
+
+    /**
+     * parse a part of a template; this follows the parser of the TemplateEngine
+     */
+    private static Node[] parse(final String name, final byte[] b, final int start, final int end) {
+        final List<Node> nodes = new ArrayList<Node>();
+        int p = start;
+        parse: while (p < end) {
+            final int hash = indexOf(b, hashChar, p, end);
+            if (hash < 0) {
+                literal(nodes, b, p, end);
+                break;
+            }
+            literal(nodes, b, p, hash);
+            p = hash + 1;
+            if (p >= end) {
+                literal(nodes, b, hash, end);
+                break;
+            }
+            final byte bb = b[p++];
+            if (bb == '{') { //multi
+                final int close = indexOf(b, mClose, p, end);
+                if (close < 0) break parse;
+                final byte[] key = Arrays.copyOfRange(b, p, close);
+                p = close + mClose.length;
+                if (p < end && b[p] == 10) p++; //kill newline
+                final byte[] endTag = append("#{/".getBytes(), key, mClose);
+                final int bodyEnd = indexOf(b, endTag, p, end);
+                if (bodyEnd < 0) {
+                    ConcurrentLog.severe("TEMPLATE", "No Close Key found for #{" + UTF8.String(key) + "}#" + " in " + name);
+                    break parse;
+                }
+                nodes.add(new Multi(UTF8.String(key), parse(name, b, p, bodyEnd)));
+                p = bodyEnd + endTag.length;
+                if (p < end && b[p] == 10) p++; //kill newline
+            } else if (bb == '(') { //alternative
+                final int close = indexOf(b, aClose, p, end);
+                if (close < 0) break parse;
+                final byte[] key = Arrays.copyOfRange(b, p, close);
+                final byte[] endKey = append("/".getBytes(), key, null);
+                p = close + aClose.length;
+                final int textStart = p;
+                int textEnd = end;
+                final List<Node[]> segments = new ArrayList<Node[]>();
+                int segment = p;
+                int others = 0;
+                scan: while (true) {
+                    if (p >= end) {
+                        ConcurrentLog.severe("TEMPLATE", "No Close Key found for #(" + UTF8.String(key) + ")# in " + name);
+                        segments.add(parse(name, b, segment, end));
+                        break scan;
+                    }
+                    final byte c = b[p++];
+                    if (c == hashChar) {
+                        if (p < end && b[p] == '(') {
+                            final int tokenStart = p - 1;
+                            int tokenEnd = indexOf(b, aClose, p + 1, end);
+                            if (tokenEnd < 0) tokenEnd = end;
+                            final byte[] token = Arrays.copyOfRange(b, p + 1, tokenEnd);
+                            p = Math.min(end, tokenEnd + aClose.length);
+                            if (Arrays.equals(token, endKey)) {
+                                //reached the end
+                                segments.add(parse(name, b, segment, tokenStart));
+                                textEnd = tokenStart;
+                                break scan;
+                            } else if (others > 0 && token.length > 0 && token[0] == '/') { //close nested
+                                others--;
+                            } else { //nested
+                                others++;
+                            }
+                        }
+                    } else if (c == ':' && others == 0) { //ignore :: in nested Expressions
+                        if (p < end && b[p] == ':') {
+                            segments.add(parse(name, b, segment, p - 1));
+                            segment = ++p;
+                        } else {
+                            p++; // the next byte belongs to the text
+                        }
+                    }
+                }
+                nodes.add(new Alternative(name, UTF8.String(key), segments.toArray(new Node[segments.size()][]), Arrays.copyOfRange(b, textStart, textEnd)));
+            } else if (bb == '[') { //normal
+                final int close = indexOf(b, pClose, p, end);
+                if (close < 0) break parse; // inconsistency, simply finalize this
+                nodes.add(new Normal(UTF8.String(b, p, close - p)));
+                p = close + pClose.length;
+            } else if (bb == '%') { //include
+                final int close = indexOf(b, iClose, p, end);
+                if (close < 0) break parse;
+                final byte[] filename = Arrays.copyOfRange(b, p, close);
+                p = close + iClose.length;
+                if (filename.length == 0) continue parse;
+                if (filename.length > 1 && filename[0] == '[' && filename[filename.length - 1] == ']') { //simple pattern for filename
+                    nodes.add(new Include(name, UTF8.String(filename, 1, filename.length - 2), true));
+                } else {
+                    nodes.add(new Include(name, UTF8.String(filename), false));
+                }
+            } else { //no match, but a single hash
+                literal(nodes, b, hash, p);
+            }
+        }
+        return nodes.toArray(new Node[nodes.size()]);
+    }
+
+    private static void literal(final List<Node> nodes, final byte[] b, final int start, final int end) {
+        if (end <= start) return;
+        if (!nodes.isEmpty()) {
+            final Node last = nodes.get(nodes.size() - 1);
+            if (last instanceof Literal && ((Literal) last).b == b && ((Literal) last).offset + ((Literal) last).length == start) {
+                ((Literal) last).length += end - start;
+                return;
+            }
+        }
+        nodes.add(new Literal(b, start, end - start));
+    }
+
+    private static int indexOf(final byte[] b, final byte c, final int start, final int end) {
+        for (int i = start; i < end; i++) if (b[i] == c) return i;
+        return -1;
+    }
+
+    private static int indexOf(final byte[] b, final byte[] pattern, final int start, final int end) {
+        final int last = end - pattern.length;
+        search: for (int i = start; i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) if (b[i + j] != pattern[j]) continue search;
+            return i;
+        }
+        return -1;
+    }
+
+    private static byte[] append(final byte[] b1, final byte[] b2, final byte[] b3) {
+        final byte[] b = new byte[b1.length + b2.length + (b3 == null ? 0 : b3.length)];
+        System.arraycopy(b1, 0, b, 0, b1.length);
+        System.arraycopy(b2, 0, b, b1.length, b2.length);
+        if (b3 != null) System.arraycopy(b3, 0, b, b1.length + b2.length, b3.length);
+        return b;
+    }
+
+}
@@ -156,7 +156,7 @@ public final class TemplateEngine {
     private final static byte[] hash_brackopen_slash = "#(/".getBytes();
     private final static byte[] brackclose_hash = ")#".getBytes();
 
-    private final static byte[] UNRESOLVED_PATTERN = "-UNRESOLVED_PATTERN-".getBytes();
+    final static byte[] UNRESOLVED_PATTERN = "-UNRESOLVED_PATTERN-".getBytes();
 
     /**
      * transfer until a specified pattern is found; everything but the pattern is transfered so far
@@ -449,7 +449,7 @@ public final class TemplateEngine {
         return sb;
     }
 
-    private final static byte[] replacePattern(final String key, final serverObjects pattern) {
+    final static byte[] replacePattern(final String key, final serverObjects pattern) {
         byte[] replacement;
         Object value;
         if (pattern.containsKey(key)) {
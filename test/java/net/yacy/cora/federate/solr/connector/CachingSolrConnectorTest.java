@@ -0,0 +1,213 @@
+package net.yacy.cora.federate.solr.connector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.storage.WeightedARC;
+
+public class CachingSolrConnectorTest {
+
+    /**
+     * a connector which answers every query with one document and counts the queries
+     */
+    private static class CountingSolrConnector extends AbstractSolrConnector {
+
+        private final AtomicInteger queries = new AtomicInteger(0);
+
+        private SolrDocumentList result(final ModifiableSolrParams params) {
+            this.queries.incrementAndGet();
+            final SolrDocumentList list = new SolrDocumentList();
+            final SolrDocument doc = new SolrDocument();
+            doc.setField("id", "AAAAAAAAAAAA");
+            doc.setField("q", params.get(CommonParams.Q));
+            list.add(doc);
+            list.setNumFound(1);
+            return list;
+        }
+
+        @Override
+        public QueryResponse getResponseByParams(final ModifiableSolrParams params) throws IOException {
+            final NamedList<Object> nl = new NamedList<Object>();
+            nl.add("response", result(params));
+            return new QueryResponse(nl, null);
+        }
+
+        @Override
+        public SolrDocumentList getDocumentListByParams(final ModifiableSolrParams params) throws IOException {
+            return result(params);
+        }
+
+        @Override
+        public void clearCaches() {}
+        @Override
+        public int bufferSize() {return 0;}
+        @Override
+        public long getSize() {return 1;}
+        @Override
+        public void commit(final boolean softCommit) {}
+        @Override
+        public void optimize(final int maxSegments) {}
+        @Override
+        public int getSegmentCount() {return 1;}
+        @Override
+        public boolean isClosed() {return false;}
+        @Override
+        public void close() {}
+        @Override
+        public void clear() throws IOException {}
+        @Override
+        public void deleteById(final String id) throws IOException {}
+        @Override
+        public void deleteByIds(final Collection<String> ids) throws IOException {}
+        @Override
+        public void deleteByQuery(final String querystring) throws IOException {}
+        @Override
+        public void add(final SolrInputDocument solrdoc) throws IOException, SolrException {}
+        @Override
+        public void add(final Collection<SolrInputDocument> solrdoc) throws IOException, SolrException {}
+    }
+
+    private CountingSolrConnector solr;
+    private CachingSolrConnector cache;
+
+    @Before
+    public void setUp() {
+        this.solr = new CountingSolrConnector();
+        this.cache = new CachingSolrConnector("test", this.solr, 1024 * 1024, 60000);
+    }
+
+    @After
+    public void tearDown() {
+        this.cache.close();
+    }
+
+    private static ModifiableSolrParams params(final String q, final String ... fq) {
+        final ModifiableSolrParams params = new ModifiableSolrParams();
+        params.set(CommonParams.Q, q);
+        params.set(CommonParams.FQ, fq);
+        params.set(CommonParams.ROWS, 10);
+        return params;
+    }
+
+    /**
+     * Test that the key does not depend on the order of the parameters and filter queries
+     */
+    @Test
+    public void testKey() {
+        final ModifiableSolrParams p1 = new ModifiableSolrParams();
+        p1.set(CommonParams.Q, "a");
+        p1.set(CommonParams.FQ, "x:1", "y:2");
+        p1.set(CommonParams.ROWS, 10);
+        final ModifiableSolrParams p2 = new ModifiableSolrParams();
+        p2.set(CommonParams.ROWS, 10);
+        p2.set(CommonParams.FQ, "y:2", "x:1");
+        p2.set(CommonParams.Q, "a");
+        assertEquals(CachingSolrConnector.key('l', p1), CachingSolrConnector.key('l', p2));
+        p2.set(CommonParams.ROWS, 20);
+        assertNotEquals(CachingSolrConnector.key('l', p1), CachingSolrConnector.key('l', p2));
+        p2.set(CommonParams.Q, "{!cache=false}a");
+        assertNull(CachingSolrConnector.key('l', p2));
+    }
+
+    /**
+     * Test of hits, copies of the results and the invalidation by writes
+     */
+    @Test
+    public void testCache() throws IOException {
+        SolrDocumentList list = this.cache.getDocumentListByParams(params("a", "x:1", "y:2"));
+        assertEquals(1, this.solr.queries.get());
+        list.get(0).setField("q", "changed");
+        list = this.cache.getDocumentListByParams(params("a", "y:2", "x:1"));
+        assertEquals(1, this.solr.queries.get());
+        assertEquals("a", list.get(0).getFieldValue("q"));
+        assertEquals(1, this.cache.getHits());
+
+        QueryResponse rsp = this.cache.getResponseByParams(params("b"));
+        rsp = this.cache.getResponseByParams(params("b"));
+        assertEquals(2, this.solr.queries.get());
+        assertNotNull(rsp.getResults());
+        assertEquals("b", rsp.getResults().get(0).getFieldValue("q"));
+
+        assertEquals(1, this.cache.getCountByQuery("c"));
+        assertEquals(1, this.cache.getCountByQuery("c"));
+        assertEquals(3, this.solr.queries.get());
+
+        // a write outdates the results and no results are stored until the written documents are visible
+        this.cache.deleteById("AAAAAAAAAAAA");
+        this.cache.getDocumentListByParams(params("a", "x:1", "y:2"));
+        this.cache.getDocumentListByParams(params("a", "x:1", "y:2"));
+        assertEquals(5, this.solr.queries.get());
+
+        // a commit removes the outdated results
+        assertEquals(2, this.cache.getEntries());
+        this.cache.commit(true);
+        assertEquals(0, this.cache.getEntries());
+    }
+
+    /**
+     * Test that results which are bound to a searcher version survive writes and are dropped by a new searcher
+     */
+    @Test
+    public void testSearcherVersion() throws IOException {
+        final AtomicLong version = new AtomicLong(1);
+        final CachingSolrConnector cache = new CachingSolrConnector("test", this.solr, 1024 * 1024, 60000, version::get);
+        try {
+            cache.getDocumentListByParams(params("a"));
+            cache.getCountByQuery("c");
+            cache.deleteById("AAAAAAAAAAAA");
+            cache.getDocumentListByParams(params("a"));
+            cache.getCountByQuery("c");
+            assertEquals(2, this.solr.queries.get());
+            assertEquals(2, cache.getHits());
+
+            // a new searcher outdates the results; a commit removes them
+            version.incrementAndGet();
+            cache.getDocumentListByParams(params("a"));
+            assertEquals(3, this.solr.queries.get());
+            assertEquals(2, cache.getEntries());
+            cache.commit(true);
+            assertEquals(1, cache.getEntries());
+            cache.getDocumentListByParams(params("a"));
+            assertEquals(3, this.solr.queries.get());
+        } finally {
+            cache.release();
+        }
+    }
+
+    /**
+     * Test that the weighted ARC is bounded by the weight and keeps frequently used entries during a scan
+     */
+    @Test
+    public void testWeightedARC() {
+        final WeightedARC<Integer, String> arc = new WeightedARC<Integer, String>(1000);
+        for (int i = 0; i < 5; i++) arc.put(i, "f" + i, 100);
+        for (int i = 0; i < 5; i++) assertEquals("f" + i, arc.get(i)); // now in the frequency level
+        for (int i = 100; i < 200; i++) {
+            arc.put(i, "s" + i, 50);
+            assertEquals(true, arc.weight() <= 1000);
+        }
+        for (int i = 0; i < 5; i++) assertEquals("f" + i, arc.get(i));
+        arc.put(1000, "heavy", 2000);
+        assertNull(arc.get(1000));
+    }
+
+}
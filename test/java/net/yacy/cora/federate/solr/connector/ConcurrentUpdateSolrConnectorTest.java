@@ -0,0 +1,298 @@
+package net.yacy.cora.federate.solr.connector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.junit.Test;
+
+import net.yacy.search.schema.CollectionSchema;
+
+public class ConcurrentUpdateSolrConnectorTest {
+
+    /**
+     * a connector which stores the documents in a map and records the size of each written batch
+     */
+    private static class MapSolrConnector extends AbstractSolrConnector {
+
+        private final Map<String, SolrInputDocument> docs = new ConcurrentHashMap<String, SolrInputDocument>();
+        private final List<Integer> batches = new ArrayList<Integer>();
+        private volatile CountDownLatch block = null;
+        private volatile long delay = 0;
+
+        private void await() {
+            final CountDownLatch b = this.block;
+            if (b != null) try {b.await(10, TimeUnit.SECONDS);} catch (final InterruptedException e) {}
+            if (this.delay > 0) try {Thread.sleep(this.delay);} catch (final InterruptedException e) {}
+        }
+
+        @Override
+        public void add(final SolrInputDocument solrdoc) throws IOException, SolrException {
+            await();
+            this.docs.put((String) solrdoc.getFieldValue(CollectionSchema.id.getSolrFieldName()), solrdoc);
+        }
+
+        @Override
+        public void add(final Collection<SolrInputDocument> solrdocs) throws IOException, SolrException {
+            await();
+            synchronized (this.batches) {this.batches.add(solrdocs.size());}
+            for (final SolrInputDocument doc: solrdocs) this.docs.put((String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName()), doc);
+        }
+
+        @Override
+        public void update(final Collection<SolrInputDocument> solrdocs) throws IOException, SolrException {
+            await();
+            for (final SolrInputDocument doc: solrdocs) {
+                final SolrInputDocument d = this.docs.get(doc.getFieldValue(CollectionSchema.id.getSolrFieldName()));
+                if (d != null) for (final SolrInputField field: doc) d.setField(field.getName(), field.getValue());
+            }
+        }
+
+        @Override
+        public SolrDocument getDocumentById(final String id, final String ... fields) throws IOException {
+            final SolrInputDocument doc = this.docs.get(id);
+            if (doc == null) return null;
+            final SolrDocument sd = new SolrDocument();
+            for (final SolrInputField field: doc) sd.setField(field.getName(), field.getValue());
+            return sd;
+        }
+
+        @Override
+        public void deleteById(final String id) throws IOException {
+            this.docs.remove(id);
+        }
+
+        @Override
+        public QueryResponse getResponseByParams(final ModifiableSolrParams query) throws IOException {return new QueryResponse();}
+        @Override
+        public SolrDocumentList getDocumentListByParams(final ModifiableSolrParams params) throws IOException {return new SolrDocumentList();}
+        @Override
+        public void clearCaches() {}
+        @Override
+        public int bufferSize() {return 0;}
+        @Override
+        public long getSize() {return this.docs.size();}
+        @Override
+        public void commit(final boolean softCommit) {}
+        @Override
+        public void optimize(final int maxSegments) {}
+        @Override
+        public int getSegmentCount() {return 1;}
+        @Override
+        public boolean isClosed() {return false;}
+        @Override
+        public void close() {}
+        @Override
+        public void clear() throws IOException {this.docs.clear();}
+        @Override
+        public void deleteByIds(final Collection<String> ids) throws IOException {for (final String id: ids) this.docs.remove(id);}
+        @Override
+        public void deleteByQuery(final String querystring) throws IOException {}
+    }
+
+    private static SolrInputDocument doc(final int i, final String title) {
+        final SolrInputDocument doc = new SolrInputDocument();
+        doc.setField(CollectionSchema.id.getSolrFieldName(), String.format("%012d", i));
+        doc.setField(CollectionSchema.title.getSolrFieldName(), title);
+        return doc;
+    }
+
+    private static String id(final int i) {
+        return String.format("%012d", i);
+    }
+
+    private static SolrInputDocument update(final int i, final String title) {
+        final SolrInputDocument doc = new SolrInputDocument();
+        doc.setField(CollectionSchema.id.getSolrFieldName(), id(i));
+        doc.setField(CollectionSchema.title.getSolrFieldName(), title);
+        return doc;
+    }
+
+    private static String title(final SolrDocument doc) {
+        return (String) doc.getFieldValue(CollectionSchema.title.getSolrFieldName());
+    }
+
+    /**
+     * Test that documents are written in batches, coalesced and visible before they are written
+     */
+    @Test
+    public void testBatches() throws IOException {
+        final MapSolrConnector solr = new MapSolrConnector();
+        final ConcurrentUpdateSolrConnector connector = new ConcurrentUpdateSolrConnector("test", solr, 10, 60000, 100);
+        try {
+            for (int i = 0; i < 5; i++) connector.add(doc(i, "first"));
+            connector.add(doc(3, "second"));
+            connector.update(update(4, "updated"));
+
+            // nothing is written before the batch is full or the delay is over
+            assertEquals(0, solr.docs.size());
+            assertEquals(5, connector.bufferSize());
+            assertEquals(2, connector.getCoalesced());
+            assertEquals("second", title(connector.getDocumentById(id(3))));
+            assertEquals("updated", title(connector.getDocumentById(id(4), CollectionSchema.title.getSolrFieldName())));
+            assertNull(connector.getDocumentById(id(99)));
+
+            connector.commit(true);
+            assertEquals(5, solr.docs.size());
+            assertEquals(0, connector.bufferSize());
+            assertEquals(1, solr.batches.size());
+            assertEquals(5, solr.batches.get(0).intValue());
+            assertEquals("updated", title(solr.getDocumentById(id(4))));
+
+            // a buffered partial update is applied to the document in the index
+            connector.update(update(2, "partial"));
+            assertEquals("partial", title(connector.getDocumentById(id(2))));
+            assertEquals("first", title(solr.getDocumentById(id(2))));
+
+            // full batches are written without a commit, the last document waits for the maximum delay
+            for (int i = 10; i < 30; i++) connector.add(doc(i, "batch"));
+            final long timeout = System.currentTimeMillis() + 10000;
+            while (solr.docs.size() < 24 && System.currentTimeMillis() < timeout) Thread.yield();
+            assertEquals(24, solr.docs.size());
+        } finally {
+            connector.close();
+        }
+        // closing writes the remaining documents
+        assertEquals(25, solr.docs.size());
+        assertEquals("partial", title(solr.getDocumentById(id(2))));
+    }
+
+    /**
+     * Test that a single document is written after the maximum delay without a flush or commit
+     */
+    @Test
+    public void testMaxDelay() throws Exception {
+        final MapSolrConnector solr = new MapSolrConnector();
+        final ConcurrentUpdateSolrConnector connector = new ConcurrentUpdateSolrConnector("test", solr, 10, 200, 100);
+        try {
+            // let the flush thread wait for the first document
+            Thread.sleep(100);
+            connector.add(doc(1, "single"));
+            assertEquals(0, solr.docs.size());
+            Thread.sleep(1000);
+            assertEquals(1, solr.docs.size());
+            assertEquals(0, connector.bufferSize());
+            assertEquals("single", title(solr.getDocumentById(id(1))));
+        } finally {
+            connector.close();
+        }
+    }
+
+    /**
+     * Test that a delete is not overwritten by a buffered document
+     */
+    @Test
+    public void testDelete() throws IOException {
+        final MapSolrConnector solr = new MapSolrConnector();
+        final ConcurrentUpdateSolrConnector connector = new ConcurrentUpdateSolrConnector("test", solr, 10, 60000, 100);
+        try {
+            connector.add(doc(1, "deleted"));
+            connector.add(doc(2, "kept"));
+            connector.deleteById(id(1));
+            assertNull(connector.getDocumentById(id(1)));
+            connector.commit(true);
+            assertNull(solr.getDocumentById(id(1)));
+            assertNotNull(solr.getDocumentById(id(2)));
+        } finally {
+            connector.close();
+        }
+    }
+
+    /**
+     * Test that writers wait if the buffer is full and that documents are written after the maximum delay
+     */
+    @Test
+    public void testBackPressure() throws Exception {
+        final MapSolrConnector solr = new MapSolrConnector();
+        solr.block = new CountDownLatch(1);
+        final ConcurrentUpdateSolrConnector connector = new ConcurrentUpdateSolrConnector("test", solr, 2, 10, 4);
+        try {
+            final Thread writer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 10; i++) connector.add(doc(i, "t"));
+                    } catch (final IOException e) {}
+                }
+            };
+            writer.start();
+            writer.join(500);
+            // the flush thread is blocked with one batch, the buffer is full
+            assertTrue(writer.isAlive());
+            assertEquals(6, connector.bufferSize());
+            solr.block.countDown();
+            writer.join(10000);
+            assertTrue(!writer.isAlive());
+            // the last documents are written after the maximum delay
+            final long timeout = System.currentTimeMillis() + 10000;
+            while (solr.docs.size() < 10 && System.currentTimeMillis() < timeout) Thread.sleep(10);
+            assertEquals(10, solr.docs.size());
+        } finally {
+            connector.close();
+        }
+    }
+
+    /**
+     * Test that flush and delete end while other threads write continuously
+     */
+    @Test
+    public void testFlushWithContinuousWriters() throws Exception {
+        final MapSolrConnector solr = new MapSolrConnector();
+        solr.delay = 5;
+        final ConcurrentUpdateSolrConnector connector = new ConcurrentUpdateSolrConnector("test", solr, 2, 0, 4);
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final Thread[] writers = new Thread[4];
+        try {
+            for (int w = 0; w < writers.length; w++) {
+                final int offset = (w + 1) * 1000000;
+                writers[w] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; !stop.get(); i++) connector.add(doc(offset + i % 1000, "c"));
+                        } catch (final IOException e) {}
+                    }
+                };
+                writers[w].start();
+            }
+            for (int i = 0; i < 5; i++) connector.add(doc(i, "flushed"));
+            final Thread flusher = new Thread() {
+                @Override
+                public void run() {
+                    connector.flush();
+                    try {
+                        connector.deleteById(id(0));
+                    } catch (final IOException e) {}
+                }
+            };
+            flusher.start();
+            flusher.join(10000);
+            assertTrue(!flusher.isAlive());
+            for (int i = 1; i < 5; i++) assertEquals("flushed", title(solr.getDocumentById(id(i))));
+            assertNull(solr.getDocumentById(id(0)));
+        } finally {
+            stop.set(true);
+            for (final Thread writer: writers) writer.join(10000);
+            connector.close();
+        }
+    }
+
+}
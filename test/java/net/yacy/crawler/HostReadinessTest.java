@@ -0,0 +1,98 @@
+// HostReadinessTest.java
+// -----------------------
+// part of YaCy
+// Copyright 2026 by agent
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.crawler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+
+public class HostReadinessTest {
+
+    /**
+     * Test of the order of the schedule and of taking and re-scheduling hosts
+     */
+    @Test
+    public void testSchedule() {
+        final HostReadiness readiness = new HostReadiness();
+        readiness.schedule("host3", 3000);
+        readiness.schedule("host1", 1000);
+        readiness.schedule("host2", 2000);
+        readiness.schedule("host4", 1000); // same time as host1, scheduled later
+        assertEquals(4, readiness.size());
+        assertEquals(1000, readiness.nextDue());
+
+        // moving a scheduled host
+        assertTrue(readiness.reschedule("host3", 500));
+        assertEquals("host3", readiness.poll());
+
+        // a taken host is not scheduled by a latency update
+        assertFalse(readiness.reschedule("host3", 100));
+        assertFalse(readiness.isScheduled("host3"));
+
+        assertEquals("host1", readiness.poll());
+        assertEquals("host4", readiness.poll());
+        readiness.remove("host2");
+        assertNull(readiness.poll());
+        assertEquals(Long.MAX_VALUE, readiness.nextDue());
+        assertEquals(0, readiness.size());
+    }
+
+    /**
+     * Test that concurrent threads never take the same host at the same time
+     */
+    @Test
+    public void testConcurrentPoll() throws Exception {
+        final HostReadiness readiness = new HostReadiness();
+        for (int i = 0; i < 100; i++) readiness.schedule("host" + i, i);
+        final Set<String> taken = ConcurrentHashMap.newKeySet();
+        final AtomicInteger pops = new AtomicInteger(0);
+        final boolean[] failed = new boolean[1];
+        final Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 2000; i++) {
+                        final String host = readiness.poll();
+                        if (host == null) continue;
+                        if (!taken.add(host)) failed[0] = true;
+                        readiness.reschedule(host, 0); // a latency update while the host is taken
+                        pops.incrementAndGet();
+                        taken.remove(host);
+                        readiness.schedule(host, System.nanoTime());
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (final Thread thread: threads) thread.join();
+        assertFalse(failed[0]);
+        assertTrue(pops.get() > 0);
+        assertEquals(100, readiness.size());
+    }
+}
@@ -56,4 +56,20 @@ public class TokenizerTest {
             assertEquals("Tokenizer.RESULT_NUMB_SENTENCES", 5, t.RESULT_NUMB_SENTENCES);
         }
     }
+
+    /**
+     * Test that the words carry the word hash computed by the tokenizer
+     */
+    @Test
+    public void testWordHashes() {
+        String text = "Größere Mengen: Straße, STRASSE und straße. Ünïcödé words and words again.";
+        Tokenizer t = new Tokenizer(null, text, new WordCache(null), false, null);
+        assertFalse(t.words.isEmpty());
+        for (Map.Entry<String, Word> entry : t.words.entrySet()) {
+            assertNotNull(entry.getKey(), entry.getValue().hash);
+            assertArrayEquals(entry.getKey(), Word.word2hash(entry.getKey()), entry.getValue().hash);
+        }
+        assertEquals("occurence of 'straße' ", 2, t.words.get("straße").occurrences());
+        assertEquals("occurence of 'words' ", 2, t.words.get("words").occurrences());
+    }
 }
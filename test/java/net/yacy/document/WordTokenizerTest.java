@@ -1,5 +1,13 @@
 package net.yacy.document;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import net.yacy.kelondro.data.word.Word;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -34,4 +42,100 @@ public class WordTokenizerTest {
         }
     }
 
+    private static List<String> legacyTokens(final String text) {
+        final List<String> tokens = new ArrayList<>();
+        final WordTokenizer wt = new WordTokenizer(new SentenceReader(text), null);
+        while (wt.hasMoreElements()) tokens.add(wt.nextElement().toString());
+        wt.close();
+        return tokens;
+    }
+
+    private static List<String> scannerTokens(final TokenScanner scanner, final String text) {
+        final List<String> tokens = new ArrayList<>();
+        scanner.reset(text);
+        while (scanner.next()) {
+            tokens.add(scanner.toString());
+            assertEquals(scanner.toString().length() == 1 && SentenceReader.punctuation(scanner.toString().charAt(0)), scanner.isPunctuation());
+            final int length = scanner.toLowerCase();
+            assertEquals(scanner.toString().toLowerCase(Locale.ENGLISH), new String(scanner.lowerCaseChars(), 0, length));
+        }
+        return tokens;
+    }
+
+    /**
+     * Test that the TokenScanner produces the same tokens as the WordTokenizer
+     */
+    @Test
+    public void testTokenScanner() {
+        final String[] texts = new String[]{
+            "",
+            "   ",
+            "One word is not a sentence because words are just words.",
+            "  word word..... (word) [word] . 'word word' \"word word\" word ?  word! ",
+            "word-word word . word.word@word.word ....word... word,word ",
+            "!!! ! ! ! Sentence One. Sentence two. Sentence 3? Sentence 4! Sentence 5 ! ! ! !!!",
+            "Zeile eins\r\nZeile zwei\n\nZeile drei\ttab",
+            "before the NUL\u0000after the NUL",
+            "a sentence. \u0000 the text ends at an empty sentence",
+            "ÄÖÜ straße İstanbul ΟΔΟΣ Σ ΣΑ \ud801\udc00\ud801\udc28 日本語のテキスト。句読点",
+            "x.y ! ? .a b. c"
+        };
+        final TokenScanner scanner = new TokenScanner();
+        for (final String text: texts) {
+            assertEquals(text, legacyTokens(text), scannerTokens(scanner, text));
+        }
+
+        // random texts of words, punctuation, white space and control characters
+        final char[] alphabet = "aB9ä İΣ.!?,-\t\r\n\u0000\u0001\u00a0\ud801\udc00".toCharArray();
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            final char[] c = new char[random.nextInt(40)];
+            for (int j = 0; j < c.length; j++) c[j] = alphabet[random.nextInt(alphabet.length)];
+            final String text = new String(c);
+            assertEquals(Arrays.toString(c), legacyTokens(text), scannerTokens(scanner, text));
+        }
+    }
+
+    /**
+     * Test the pre mode of the TokenScanner: line breaks end sentences, but unlike with the SentenceReader an empty
+     * line or a CRLF line break does not end the text
+     */
+    @Test
+    public void testTokenScannerPre() {
+        final String text = "first line\r\nsecond line\n\nthird line";
+        final List<String> legacy = new ArrayList<>();
+        final WordTokenizer wt = new WordTokenizer(new SentenceReader(text, true), null);
+        while (wt.hasMoreElements()) legacy.add(wt.nextElement().toString());
+        wt.close();
+        assertEquals(Arrays.asList("first", "line"), legacy);
+
+        final TokenScanner scanner = new TokenScanner(text);
+        scanner.pre(true);
+        final List<String> tokens = new ArrayList<>();
+        while (scanner.next()) tokens.add(scanner.toString());
+        assertEquals(Arrays.asList("first", "line", "second", "line", "third", "line"), tokens);
+    }
+
+    /**
+     * Test that word hashes computed from char slices are equal to the hashes of the words
+     */
+    @Test
+    public void testWord2hashSlice() {
+        for (final String word: new String[]{"word", "straße", "i\u0307stanbul", "日本語", "\ud801\udc28x", "a", ""}) {
+            final char[] c = ("--" + word + "--").toCharArray();
+            assertArrayEquals(word, Word.word2hash(word), Word.word2hash(c, 2, word.length()));
+        }
+    }
+
+    /**
+     * Test that the static helpers produce the same maps as before with the WordTokenizer
+     */
+    @Test
+    public void testTokenizeSentence() {
+        final String sentence = "The quick Brown fox. jumps over the brown DOG!";
+        assertEquals("{!=47, .=20, brown=10, dog=43, fox=16, jumps=22, over=28, quick=4, the=0}", WordTokenizer.tokenizeSentence(sentence, 100).toString());
+        assertEquals(Integer.valueOf(10), WordTokenizer.hashSentence(sentence, 100).get(Word.word2hash("brown")));
+        assertEquals(2, WordTokenizer.tokenizeSentence(sentence, 2).size());
+    }
+
 }
@@ -0,0 +1,146 @@
+package net.yacy.document.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.kelondro.util.FileUtils;
+
+public class SplitLineReaderTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = File.createTempFile("SplitLineReaderTest", "");
+        FileUtils.deletedelete(this.dir);
+        this.dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deletedelete(this.dir);
+    }
+
+    private static List<String> lines(final int count, final long seed) {
+        final Random random = new Random(seed);
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append("{\"id\":").append(i).append(",\"text_t\":\"");
+            final int l = random.nextInt(i % 50 == 0 ? 100000 : 200);
+            for (int j = 0; j < l; j++) sb.append("aäß€ \\".charAt(random.nextInt(6)));
+            sb.append("\"}");
+            lines.add(sb.toString());
+        }
+        return lines;
+    }
+
+    private File write(final String name, final List<String> lines, final String terminator, final boolean last) throws IOException {
+        final File file = new File(this.dir, name);
+        try (final OutputStream os = new FileOutputStream(file)) {
+            for (int i = 0; i < lines.size(); i++) {
+                os.write(lines.get(i).getBytes(StandardCharsets.UTF_8));
+                if (last || i < lines.size() - 1) os.write(terminator.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return file;
+    }
+
+    private static List<String> read(final File file, final long[] boundaries) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < boundaries.length - 1; i++) {
+            try (final SplitLineReader reader = new SplitLineReader(file, boundaries[i], boundaries[i + 1])) {
+                String line;
+                while ((line = reader.readLine()) != null) lines.add(line);
+                assertEquals(boundaries[i + 1], reader.position());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Test that the ranges of a split file contain all lines
+     */
+    @Test
+    public void testSplit() throws IOException {
+        final List<String> lines = lines(1000, 0);
+        for (final String terminator: new String[]{"\n", "\r\n"}) {
+            for (final boolean last: new boolean[]{true, false}) {
+                final File file = write("test.jsonlist", lines, terminator, last);
+                for (final int parts: new int[]{1, 2, 3, 7, 16, 5000}) {
+                    final long[] boundaries = SplitLineReader.split(file, parts);
+                    assertTrue(boundaries.length >= 2 && boundaries.length <= Math.min(parts, lines.size()) + 1);
+                    assertEquals(0, boundaries[0]);
+                    assertEquals(file.length(), boundaries[boundaries.length - 1]);
+                    assertEquals(parts + " parts", lines, read(file, boundaries));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that an interrupted import is resumed at the stored positions
+     */
+    @Test
+    public void testCheckpoint() throws IOException {
+        final List<String> lines = lines(500, 1);
+        final File file = write("test.flatjson", lines, "\n", true);
+        SurrogateCheckpoint checkpoint = SurrogateCheckpoint.open(file, 4);
+        assertEquals(4, checkpoint.ranges());
+        final List<String> imported = new ArrayList<>();
+
+        // read the first three lines of each range
+        for (int r = 0; r < checkpoint.ranges(); r++) {
+            try (final SplitLineReader reader = new SplitLineReader(file, checkpoint.position(r), checkpoint.end(r))) {
+                for (int i = 0; i < 3; i++) {
+                    imported.add(reader.readLine());
+                    checkpoint.update(r, reader.position());
+                }
+            }
+        }
+        assertFalse(checkpoint.isComplete());
+        checkpoint.store();
+
+        // resume with a different number of parts
+        checkpoint = SurrogateCheckpoint.open(file, 2);
+        assertEquals(4, checkpoint.ranges());
+        for (int r = 0; r < checkpoint.ranges(); r++) {
+            try (final SplitLineReader reader = new SplitLineReader(file, checkpoint.position(r), checkpoint.end(r))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    imported.add(line);
+                    checkpoint.update(r, reader.position());
+                }
+            }
+        }
+        assertTrue(checkpoint.isComplete());
+        assertEquals(lines.size(), imported.size());
+        assertEquals(new HashSet<>(lines), new HashSet<>(imported));
+        checkpoint.delete();
+        assertFalse(new File(this.dir, file.getName() + SurrogateCheckpoint.EXTENSION).exists());
+
+        // a checkpoint of a changed file is ignored
+        checkpoint = SurrogateCheckpoint.open(file, 2);
+        checkpoint.update(0, checkpoint.end(0));
+        checkpoint.store();
+        write("test.flatjson", lines.subList(0, 100), "\n", true);
+        checkpoint = SurrogateCheckpoint.open(file, 1);
+        assertEquals(1, checkpoint.ranges());
+        assertEquals(0, checkpoint.position(0));
+    }
+}
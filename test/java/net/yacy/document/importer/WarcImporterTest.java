@@ -0,0 +1,117 @@
+package net.yacy.document.importer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.protocol.ResponseHeader;
+import net.yacy.cora.util.ConcurrentLog;
+
+public class WarcImporterTest {
+
+    /**
+     * An importer which records the indexed responses instead of adding them to the index of a switchboard.
+     * The response of the url failure.html throws an Error in the indexer.
+     */
+    private static class RecordingImporter extends WarcImporter {
+
+        private final Map<String, String> indexed = new ConcurrentHashMap<>();
+
+        public RecordingImporter(final int workers) {
+            super(null, workers);
+        }
+
+        @Override
+        protected boolean toIndexer(final DigestURL location, final ResponseHeader responseHeader, final byte[] content) {
+            if (location.getFileName().equals("failure.html")) throw new Error("indexer failure");
+            this.indexed.put(location.toNormalform(true), responseHeader.getContentType() + " " + new String(content, StandardCharsets.UTF_8));
+            return true;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        ConcurrentLog.shutdown();
+    }
+
+    private static void record(final ByteArrayOutputStream warc, final String type, final String uri, final String contentType, final String block) throws IOException {
+        final byte[] content = block.getBytes(StandardCharsets.UTF_8);
+        final StringBuilder header = new StringBuilder();
+        header.append("WARC/1.0\r\n");
+        header.append("WARC-Type: ").append(type).append("\r\n");
+        if (uri != null) header.append("WARC-Target-URI: ").append(uri).append("\r\n");
+        header.append("WARC-Date: 2017-01-01T00:00:00Z\r\n");
+        header.append("WARC-Record-ID: <urn:uuid:").append(UUID.nameUUIDFromBytes(content)).append(">\r\n");
+        header.append("Content-Type: ").append(contentType).append("\r\n");
+        header.append("Content-Length: ").append(content.length).append("\r\n\r\n");
+        warc.write(header.toString().getBytes(StandardCharsets.UTF_8));
+        warc.write(content);
+        warc.write("\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void response(final ByteArrayOutputStream warc, final String uri, final String http) throws IOException {
+        record(warc, "response", uri, "application/http; msgtype=response", http);
+    }
+
+    /**
+     * @param failure true if the archive contains a response which fails in the indexer
+     * @return a small archive with responses which are indexed and records which are skipped
+     */
+    private static byte[] archive(final boolean failure) throws IOException {
+        final ByteArrayOutputStream warc = new ByteArrayOutputStream();
+        record(warc, "warcinfo", null, "application/warc-fields", "software: WarcImporterTest\r\n");
+        if (failure) response(warc, "http://yacy.net/failure.html", "HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nContent-Length: 6\r\n\r\n<html>");
+        for (int i = 0; i < 10; i++) {
+            final String html = "<html><body>page " + i + "</body></html>";
+            response(warc, "http://yacy.net/page" + i + ".html",
+                    "HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nContent-Length: " + html.length() + "\r\n\r\n" + html);
+        }
+        response(warc, "http://yacy.net/chunked.txt",
+                "HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nHello\r\n6\r\n World\r\n0\r\n\r\n");
+        response(warc, "http://yacy.net/missing.html", "HTTP/1.1 404 Not Found\r\nContent-Type: text/html\r\nContent-Length: 9\r\n\r\nnot found");
+        record(warc, "request", "http://yacy.net/page0.html", "application/http; msgtype=request", "GET /page0.html HTTP/1.1\r\nHost: yacy.net\r\n\r\n");
+        return warc.toByteArray();
+    }
+
+    private static Map<String, String> expected() {
+        final Map<String, String> expected = new TreeMap<>();
+        for (int i = 0; i < 10; i++) expected.put("http://yacy.net/page" + i + ".html", "text/html <html><body>page " + i + "</body></html>");
+        expected.put("http://yacy.net/chunked.txt", "text/plain Hello World");
+        return expected;
+    }
+
+    /**
+     * Test that the workers index the responses with status 200, decode chunked payloads
+     * and survive an Error thrown by the indexer
+     */
+    @Test
+    public void testWorkers() throws IOException {
+        final RecordingImporter importer = new RecordingImporter(2);
+        importer.indexWarcRecords(new ByteArrayInputStream(archive(true)));
+        assertEquals(expected(), new TreeMap<>(importer.indexed));
+        assertEquals(11, importer.count());
+    }
+
+    /**
+     * Test that the importer thread indexes the responses itself without workers
+     */
+    @Test
+    public void testWithoutWorkers() throws IOException {
+        final RecordingImporter importer = new RecordingImporter(0);
+        importer.indexWarcRecords(new ByteArrayInputStream(archive(false)));
+        assertEquals(expected(), new TreeMap<>(importer.indexed));
+        assertEquals(11, importer.count());
+    }
+
+}
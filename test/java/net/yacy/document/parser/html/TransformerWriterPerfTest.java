@@ -0,0 +1,76 @@
+// TransformerWriterPerfTest.java
+// -----------------------
+// part of YaCy
+// Copyright 2026 by agent
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.document.parser.html;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.document.VocabularyScraper;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * Comparing the character mode of the TransformerWriter with its bulk mode, scraping a html document
+ * with a ContentScraper as in the htmlParser. The document is repeated to a size of about one megabyte.
+ */
+public class TransformerWriterPerfTest {
+
+    private static long scrape(final char[] html, final boolean bulk, final int count) throws Exception {
+        final DigestURL root = new DigestURL("http://localhost/test.html");
+        final long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            final ContentScraper scraper = new ContentScraper(root, 10000, new HashSet<String>(), new VocabularyScraper(), 0);
+            final TransformerWriter writer = new TransformerWriter(null, null, scraper, false, 4096, bulk);
+            for (int pos = 0; pos < html.length; pos += 8192) writer.write(html, pos, Math.min(8192, html.length - pos));
+            writer.close();
+            scraper.close();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @param args [html file] [number of scrapings]
+     */
+    public static void main(final String[] args) throws Exception {
+        final File file = new File(args.length > 0 ? args[0] : "test/parsertest/umlaute_html_utf8.html");
+        final int count = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        try {
+            final String page = new String(FileUtils.read(file), StandardCharsets.UTF_8);
+            final StringBuilder sb = new StringBuilder();
+            while (sb.length() < 1024 * 1024) sb.append(page);
+            final char[] html = sb.toString().toCharArray();
+            final double mb = (double) html.length * count / 1024 / 1024;
+            for (int round = 0; round < 3; round++) { // the first rounds warm up the jit compiler
+                final long charTime = scrape(html, false, count);
+                final long bulkTime = scrape(html, true, count);
+                System.out.println("round " + round + ": character mode " + TimeUnit.NANOSECONDS.toMillis(charTime) + " ms, "
+                        + String.format("%.1f", mb * 1e9 / charTime) + " MB/s; bulk mode " + TimeUnit.NANOSECONDS.toMillis(bulkTime) + " ms, "
+                        + String.format("%.1f", mb * 1e9 / bulkTime) + " MB/s");
+            }
+        } finally {
+            ConcurrentLog.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+package net.yacy.document.parser.html;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.document.VocabularyScraper;
+import net.yacy.kelondro.io.CharBuffer;
+import net.yacy.kelondro.util.FileUtils;
+
+public class TransformerWriterTest {
+
+    private static final String[] PIECES = {
+        "<html>", "</html>", "<HEAD>", "</head>", "<title>", "</TITLE>", "<body class=\"main\">", "</body>",
+        "<a href=\"http://yacy.net/a.html\" title='A link'>", "<A HREF=relative.html>", "</a>", "</A>",
+        "<img src=\"/image.png\" alt=\"an image\" width=10 height = 20>", "<img src= >", "<br/>", "<br>",
+        "<div class='c1 c2'>", "</div>", "<p>", "</p>", "<h1>", "</h1>", "<h2 id=x>", "</h2>", "<span>", "</span>",
+        "<meta name=\"description\" content=\"a &amp; b\">", "<meta property='og:title' content='T'>",
+        "<!-- a comment -->", "<!-- <a href=\"x\"> -->", "<!DOCTYPE html>", "<script>if (a<b && c>d) x = '<p>';</script>",
+        "<style>p {color: red}</style>", "<iframe src=\"f.html\"></iframe>", "<link rel=\"canonical\" href=\"/c\">",
+        "text", "Some more text. ", "Umlaute äöü ß € ", "&amp;", "&lt;", "&auml;", "&#228;", " & ", "\n", "\r\n", "\t",
+        "  ", "<", ">", "'", "\"", "-", "--", "=", "<p", "<a href=\"unterminated", "</", "< p>", "<!", "<!-", "\u0007"
+    };
+
+    /**
+     * A scraper which records all calls.
+     */
+    private static class RecordingScraper extends ContentScraper {
+
+        private final List<String> calls = new ArrayList<>();
+
+        public RecordingScraper() throws IOException {
+            super(new DigestURL("http://localhost/test.html"), 1000, new HashSet<String>(), new VocabularyScraper(), 0);
+        }
+
+        private static String tag(final Tag tag) {
+            return tag == null ? "null" : tag.name + new TreeMap<>(tag.opts) + tag.content.toString();
+        }
+
+        @Override
+        public void scrapeText(final char[] text, final Tag insideTag) {
+            super.scrapeText(text, insideTag);
+            this.calls.add("text " + new String(text) + " in " + tag(insideTag));
+        }
+
+        @Override
+        public void scrapeTag0(final Tag tag) {
+            super.scrapeTag0(tag);
+            this.calls.add("tag0 " + tag(tag));
+        }
+
+        @Override
+        public void scrapeTag1(final Tag tag) {
+            super.scrapeTag1(tag);
+            this.calls.add("tag1 " + tag(tag));
+        }
+
+        @Override
+        public void scrapeComment(final char[] comment) {
+            super.scrapeComment(comment);
+            this.calls.add("comment " + new String(comment));
+        }
+    }
+
+    /**
+     * scrape a text with random write chunks
+     * @return the calls of the scraper, its results and the output of the writer
+     */
+    private static List<String> scrape(final String html, final boolean bulk, final boolean output, final long seed) throws IOException {
+        final RecordingScraper scraper = new RecordingScraper();
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final TransformerWriter writer = new TransformerWriter(output ? os : null, StandardCharsets.UTF_8, scraper, false, 64, bulk);
+        final char[] chars = html.toCharArray();
+        final Random random = new Random(seed);
+        int pos = 0;
+        while (pos < chars.length) {
+            final int n = Math.min(chars.length - pos, random.nextInt(3) == 0 ? 1 : random.nextInt(200));
+            if (n == 1) writer.write(chars[pos]); else writer.write(chars, pos, n);
+            pos += n;
+        }
+        writer.close();
+        final List<String> result = scraper.calls;
+        result.add("text: " + scraper.getText());
+        result.add("title: " + scraper.getTitles());
+        result.add("anchors: " + scraper.getAnchors());
+        result.add("images: " + scraper.getImages());
+        result.add("metas: " + new TreeMap<>(scraper.getMetas()));
+        result.add("output: " + new String(os.toByteArray(), StandardCharsets.UTF_8));
+        scraper.close();
+        return result;
+    }
+
+    private static void assertEquivalent(final String html, final long seed) throws IOException {
+        for (final boolean output: new boolean[]{false, true}) {
+            assertEquals(scrape(html, false, output, seed), scrape(html, true, output, seed));
+        }
+    }
+
+    /**
+     * Test that the bulk mode calls the scraper in the same way as the character mode
+     */
+    @Test
+    public void testBulkModeEquivalence() throws IOException {
+        final File[] files = new File("test/parsertest").listFiles();
+        if (files != null) for (final File file: files) {
+            if (!file.getName().endsWith(".html") && !file.getName().endsWith(".htm")) continue;
+            assertEquivalent(new String(FileUtils.read(file), StandardCharsets.ISO_8859_1), file.getName().hashCode());
+        }
+
+        final Random random = new Random(0);
+        for (int i = 0; i < 500; i++) {
+            final StringBuilder html = new StringBuilder();
+            final int n = random.nextInt(200);
+            for (int j = 0; j < n; j++) html.append(PIECES[random.nextInt(PIECES.length)]);
+            assertEquivalent(html.toString(), i);
+        }
+    }
+
+    /**
+     * Test that the tag attributes are the same as the properties of the CharBuffer parser
+     */
+    @Test
+    public void testTagAttributes() {
+        final List<String> opts = new ArrayList<>();
+        opts.add("");
+        opts.add(" href=\"http://yacy.net\" title='a \"title\"'");
+        opts.add(" HREF = x.html  Class=\" a b \" ");
+        opts.add(" checked disabled value=1");
+        opts.add(" a=1 a=2 A=3");
+        opts.add(" src=");
+        opts.add(" title=\"unterminated");
+        opts.add(" =x b=y");
+        opts.add("\talt=\n'x'\r\n/");
+        final Random random = new Random(1);
+        final String alphabet = "aB =\"' \t-/x";
+        for (int i = 0; i < 1000; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int n = random.nextInt(30);
+            for (int j = 0; j < n; j++) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            opts.add(sb.toString());
+        }
+        for (final String o: opts) {
+            final char[] chars = ("<tag" + o + ">").toCharArray();
+            final CharBuffer cb = new CharBuffer(ContentScraper.MAX_DOCSIZE, o.toCharArray());
+            final Properties expected = cb.propParser();
+            cb.close();
+            // lookups before the properties are filled
+            TagAttributes attributes = new TagAttributes(chars, 4, o.length());
+            for (final String key: expected.stringPropertyNames()) {
+                assertEquals(o, expected.getProperty(key), attributes.getProperty(key));
+            }
+            assertEquals(o, null, attributes.getProperty("missing"));
+            assertEquals(o, "default", attributes.getProperty("missing", "default"));
+            // the filled properties
+            attributes = new TagAttributes(chars, 4, o.length());
+            assertEquals(o, expected, attributes);
+            assertEquals(o, new String(TransformerWriter.genOpts(expected, '"')), new String(TransformerWriter.genOpts(attributes, '"')));
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package net.yacy.kelondro.blob;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.NaturalOrder;
+
+
+public class HeapModifierTest {
+
+    private static File writeHeap(final String name, final int count) throws Exception {
+        final File dir = new File(System.getProperty("java.io.tmpdir"), "HeapModifierTest");
+        dir.mkdirs();
+        final File heapFile = new File(dir, name + ".blob");
+        final File tmpFile = new File(dir, name + ".blob.prt");
+        HeapWriter.delete(heapFile);
+        final HeapWriter writer = new HeapWriter(tmpFile, heapFile, 12, NaturalOrder.naturalOrder, 1024);
+        for (int i = 0; i < count; i++) {
+            writer.add(ASCII.getBytes(key(i)), ASCII.getBytes("value" + i));
+        }
+        writer.close(true);
+        return heapFile;
+    }
+
+    private static String key(final int i) {
+        return String.format("key%09d", i);
+    }
+
+    /**
+     * Test of the memory-mapped read access, which must return the same results as the synchronized access
+     */
+    @Test
+    public void testMappedRead() throws Exception {
+        final File heapFile = writeHeap("mapped", 100);
+        final HeapModifier heap = new HeapModifier(heapFile, 12, NaturalOrder.naturalOrder, true);
+        try {
+            assertTrue(heap.isMapped());
+            for (int i = 0; i < 100; i++) {
+                final byte[] key = ASCII.getBytes(key(i));
+                assertTrue(heap.containsKey(key));
+                assertArrayEquals(ASCII.getBytes("value" + i), heap.get(key));
+                assertEquals(("value" + i).length(), heap.length(key));
+            }
+            assertNull(heap.get(ASCII.getBytes(key(100))));
+            assertEquals(-1, heap.length(ASCII.getBytes(key(100))));
+
+            // a modification releases the mapping; reading goes on synchronized
+            heap.delete(ASCII.getBytes(key(7)));
+            assertFalse(heap.isMapped());
+            assertNull(heap.get(ASCII.getBytes(key(7))));
+            assertArrayEquals(ASCII.getBytes("value8"), heap.get(ASCII.getBytes(key(8))));
+        } finally {
+            heap.close(false);
+            HeapWriter.delete(heapFile);
+        }
+    }
+
+    /**
+     * Test of the key filter: it must never hide an existing key and must be re-used from its dump
+     */
+    @Test
+    public void testKeyFilter() throws Exception {
+        final File heapFile = writeHeap("filter", 1000);
+        HeapModifier heap = new HeapModifier(heapFile, 12, NaturalOrder.naturalOrder);
+        try {
+            heap.useKeyFilter();
+            assertTrue(heap.hasKeyFilter());
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(heap.containsKey(ASCII.getBytes(key(i))));
+            }
+            assertEquals(0, heap.getFilterHits());
+            for (int i = 1000; i < 2000; i++) {
+                assertFalse(heap.containsKey(ASCII.getBytes(key(i))));
+                assertNull(heap.get(ASCII.getBytes(key(i))));
+            }
+            // with 10 bits per key the filter rules out nearly all missing keys
+            assertEquals(2000, heap.getFilterHits() + heap.getFilterFalsePositives());
+            assertTrue(heap.getFilterHits() > 1900);
+
+            // a deleted key may still pass the filter, but is not found
+            heap.delete(ASCII.getBytes(key(3)));
+            assertFalse(heap.containsKey(ASCII.getBytes(key(3))));
+        } finally {
+            heap.close(true);
+        }
+
+        // the filter is read from the dump which was written on close
+        final File[] dumps = heapFile.getParentFile().listFiles();
+        boolean found = false;
+        for (final File f: dumps) if (f.getName().startsWith(heapFile.getName() + ".") && f.getName().endsWith(".bloom")) found = true;
+        assertTrue(found);
+        heap = new HeapModifier(heapFile, 12, NaturalOrder.naturalOrder);
+        try {
+            heap.useKeyFilter();
+            for (int i = 4; i < 1000; i++) {
+                assertArrayEquals(ASCII.getBytes("value" + i), heap.get(ASCII.getBytes(key(i))));
+            }
+        } finally {
+            heap.close(false);
+            HeapWriter.delete(heapFile);
+        }
+    }
+
+    /**
+     * Test of concurrent lock-free reads on a mapped heap
+     */
+    @Test
+    public void testMappedConcurrentRead() throws Exception {
+        final File heapFile = writeHeap("concurrent", 1000);
+        final HeapModifier heap = new HeapModifier(heapFile, 12, NaturalOrder.naturalOrder, true);
+        try {
+            final Thread[] threads = new Thread[4];
+            final boolean[] failed = new boolean[1];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < 1000; i++) {
+                                final byte[] value = heap.get(ASCII.getBytes(key(i)));
+                                if (value == null || !ASCII.String(value).equals("value" + i)) failed[0] = true;
+                            }
+                        } catch (final Exception e) {
+                            failed[0] = true;
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            for (final Thread thread : threads) thread.join();
+            assertFalse(failed[0]);
+        } finally {
+            heap.close(false);
+            HeapWriter.delete(heapFile);
+        }
+    }
+
+    /**
+     * Test that reads on a mapped heap which is closed concurrently answer "not found" instead of failing
+     */
+    @Test
+    public void testMappedReadDuringClose() throws Exception {
+        final File heapFile = writeHeap("closing", 1000);
+        final HeapModifier heap = new HeapModifier(heapFile, 12, NaturalOrder.naturalOrder, true);
+        try {
+            final Thread[] threads = new Thread[4];
+            final boolean[] failed = new boolean[1];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int round = 0; round < 100; round++) {
+                                for (int i = 0; i < 1000; i++) {
+                                    final byte[] key = ASCII.getBytes(key(i));
+                                    // every read answers the stored value or "not found", also while and after the heap is closed
+                                    heap.containsKey(key);
+                                    final long length = heap.length(key);
+                                    if (length != -1 && length != ("value" + i).length()) failed[0] = true;
+                                    final byte[] value = heap.get(key);
+                                    if (value != null && !ASCII.String(value).equals("value" + i)) failed[0] = true;
+                                }
+                            }
+                        } catch (final Throwable e) {
+                            failed[0] = true;
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            Thread.sleep(10);
+            heap.close(false);
+            for (final Thread thread : threads) thread.join();
+            assertFalse(failed[0]);
+            final byte[] key = ASCII.getBytes(key(1));
+            assertFalse(heap.containsKey(key));
+            assertEquals(-1, heap.length(key));
+            assertNull(heap.get(key));
+        } finally {
+            heap.close(false);
+            HeapWriter.delete(heapFile);
+        }
+    }
+
+    /**
+     * Test that a mapped heap is shrunk by the gaps at the end of the file when it is closed
+     */
+    @Test
+    public void testShrinkMappedOnClose() throws Exception {
+        final File heapFile = writeHeap("shrink", 100);
+        final long length = heapFile.length();
+        HeapModifier heap = new HeapModifier(heapFile, 12, NaturalOrder.naturalOrder, true);
+        try {
+            assertArrayEquals(ASCII.getBytes("value99"), heap.get(ASCII.getBytes(key(99))));
+            heap.delete(ASCII.getBytes(key(99)));
+            heap.close(true);
+            assertTrue(heapFile.length() < length);
+            heap = new HeapModifier(heapFile, 12, NaturalOrder.naturalOrder, true);
+            assertEquals(99, heap.size());
+            assertNull(heap.get(ASCII.getBytes(key(99))));
+            assertArrayEquals(ASCII.getBytes("value98"), heap.get(ASCII.getBytes(key(98))));
+        } finally {
+            heap.close(false);
+            HeapWriter.delete(heapFile);
+        }
+    }
+
+    /**
+     * Test of reduce with records which do not fit into their old place: they are moved to the end of the file
+     */
+    @Test
+    public void testReduceMove() throws Exception {
+        final File heapFile = writeHeap("reduce", 100);
+        HeapModifier heap = new HeapModifier(heapFile, 12, NaturalOrder.naturalOrder);
+        try {
+            // a shorter record, a record of the same size, a record which is shorter by less than 4 bytes and a larger record
+            assertEquals(4, heap.reduce(ASCII.getBytes(key(1)), b -> ASCII.getBytes("v1")));
+            assertEquals(0, heap.reduce(ASCII.getBytes(key(2)), b -> ASCII.getBytes("VALUE2")));
+            try {
+                heap.reduce(ASCII.getBytes(key(3)), b -> ASCII.getBytes("val3"));
+                fail("a record which is shorter by less than 4 bytes cannot be replaced");
+            } catch (final IOException e) {
+                // expected
+            }
+            assertEquals(-14, heap.reduce(ASCII.getBytes(key(4)), b -> ASCII.getBytes("a much longer value4")));
+            heap.close(true);
+            heap = new HeapModifier(heapFile, 12, NaturalOrder.naturalOrder);
+            assertEquals(100, heap.size());
+            assertArrayEquals(ASCII.getBytes("v1"), heap.get(ASCII.getBytes(key(1))));
+            assertArrayEquals(ASCII.getBytes("VALUE2"), heap.get(ASCII.getBytes(key(2))));
+            assertArrayEquals(ASCII.getBytes("value3"), heap.get(ASCII.getBytes(key(3))));
+            assertArrayEquals(ASCII.getBytes("a much longer value4"), heap.get(ASCII.getBytes(key(4))));
+            for (int i = 5; i < 100; i++) assertArrayEquals(ASCII.getBytes("value" + i), heap.get(ASCII.getBytes(key(i))));
+        } finally {
+            heap.close(false);
+            HeapWriter.delete(heapFile);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package net.yacy.kelondro.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.NaturalOrder;
+
+
+public class OffHeapHandleMapTest {
+
+    private static byte[] key(final int i) {
+        return ASCII.getBytes(String.format("key%09d", i));
+    }
+
+    /**
+     * Test of put, get, add and remove while the table grows and deleted slots are re-used
+     */
+    @Test
+    public void testPutGetRemove() throws Exception {
+        final OffHeapHandleMap map = new OffHeapHandleMap(12, NaturalOrder.naturalOrder, 8, 10, "test");
+        for (int i = 0; i < 10000; i++) assertEquals(-1, map.put(key(i), i));
+        assertEquals(10000, map.size());
+        for (int i = 0; i < 10000; i++) assertEquals(i, map.get(key(i)));
+        assertEquals(-1, map.get(key(10000)));
+
+        for (int i = 0; i < 10000; i += 2) assertEquals(i, map.remove(key(i)));
+        assertEquals(5000, map.size());
+        for (int i = 0; i < 10000; i++) assertEquals(i % 2 == 0 ? -1 : i, map.get(key(i)));
+
+        for (int i = 0; i < 10000; i += 2) map.putUnique(key(i), i * 2);
+        assertEquals(10000, map.size());
+        assertEquals(8, map.put(key(4), 5));
+        assertEquals(6, map.inc(key(4)));
+        assertEquals(3, map.add(key(20000), 3));
+        map.close();
+    }
+
+    /**
+     * Test that a closed map answers lookups as an empty map and refuses modifications
+     */
+    @Test
+    public void testAfterClose() throws Exception {
+        final OffHeapHandleMap map = new OffHeapHandleMap(12, NaturalOrder.naturalOrder, 8, 10, "test");
+        for (int i = 0; i < 100; i++) map.put(key(i), i);
+        map.close();
+        assertEquals(-1, map.get(key(1)));
+        assertFalse(map.has(key(1)));
+        assertEquals(-1, map.remove(key(1)));
+        assertEquals(-1, map.removeone());
+        assertEquals(0, map.size());
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.mem());
+        assertFalse(map.keys(true, null).hasNext());
+        assertFalse(map.iterator().hasNext());
+        assertTrue(map.top(10).isEmpty());
+        assertNull(map.smallestKey());
+        try {
+            map.put(key(1), 1);
+            fail("put on a closed map");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test of the sorted key iteration
+     */
+    @Test
+    public void testKeys() throws Exception {
+        final OffHeapHandleMap map = new OffHeapHandleMap(12, NaturalOrder.naturalOrder, 4, 100, "test");
+        for (int i = 99; i >= 0; i--) map.put(key(i), i);
+        final Iterator<byte[]> up = map.keys(true, key(50));
+        for (int i = 50; i < 100; i++) assertEquals(ASCII.String(key(i)), ASCII.String(up.next()));
+        assertFalse(up.hasNext());
+        assertEquals(ASCII.String(key(0)), ASCII.String(map.smallestKey()));
+        assertEquals(ASCII.String(key(99)), ASCII.String(map.largestKey()));
+        map.close();
+    }
+
+    /**
+     * Test of the memory image dump and of reading a RowHandleMap dump
+     */
+    @Test
+    public void testDump() throws Exception {
+        final File dir = new File(System.getProperty("java.io.tmpdir"), "OffHeapHandleMapTest");
+        dir.mkdirs();
+        final File image = new File(dir, "test.ohi");
+        final File rows = new File(dir, "test.idx");
+
+        final OffHeapHandleMap map = new OffHeapHandleMap(12, NaturalOrder.naturalOrder, 8, 100, "test");
+        for (int i = 0; i < 5000; i++) map.put(key(i), 1000L * i);
+        map.remove(key(7));
+        map.dumpImage(image);
+        assertEquals(4999, map.dump(rows));
+        map.close();
+
+        final OffHeapHandleMap fromImage = new OffHeapHandleMap(12, NaturalOrder.naturalOrder, 8, image);
+        assertEquals(4999, fromImage.size());
+        for (int i = 0; i < 5000; i++) assertEquals(i == 7 ? -1 : 1000L * i, fromImage.get(key(i)));
+        fromImage.close();
+
+        // the row dump has the format of a RowHandleMap and can be read by both implementations
+        final RowHandleMap rowMap = new RowHandleMap(12, NaturalOrder.naturalOrder, 8, rows);
+        assertEquals(4999, rowMap.size());
+        assertEquals(1000L * 4711, rowMap.get(key(4711)));
+        rowMap.close();
+        final OffHeapHandleMap fromRows = new OffHeapHandleMap(12, NaturalOrder.naturalOrder, 8, rows);
+        assertEquals(4999, fromRows.size());
+        assertTrue(fromRows.has(key(4711)));
+        assertEquals(1000L * 4711, fromRows.get(key(4711)));
+        fromRows.close();
+
+        image.delete();
+        rows.delete();
+    }
+}
@@ -0,0 +1,91 @@
+package net.yacy.kelondro.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.kelondro.util.FileUtils;
+
+
+public class PooledOpenFileIndexTest {
+
+    private static final Row row = new Row("byte[] key-12, byte[] value-8", NaturalOrder.naturalOrder);
+
+    private File path;
+    private final List<PooledOpenFileIndex> indexes = new ArrayList<PooledOpenFileIndex>();
+
+    @Before
+    public void setUp() {
+        this.path = new File(System.getProperty("java.io.tmpdir"), "PooledOpenFileIndexTest");
+        FileUtils.deletedelete(this.path);
+        this.path.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        for (final PooledOpenFileIndex index: this.indexes) index.close();
+        FileUtils.deletedelete(this.path);
+        PooledOpenFileIndex.setMaxOpen(1000);
+    }
+
+    private static byte[] key(final int i, final int j) {
+        return ASCII.getBytes(String.format("%06d%06d", i, j));
+    }
+
+    /**
+     * Test that the pool keeps the number of open files within its limit and that
+     * closed tables are opened again with their content
+     */
+    @Test
+    public void testMaxOpen() throws Exception {
+        final int maxOpen = 3, count = 10, entries = 20;
+        PooledOpenFileIndex.setMaxOpen(maxOpen);
+        final int openBefore = PooledOpenFileIndex.openFiles();
+        final long openedBefore = PooledOpenFileIndex.openedFiles();
+
+        for (int i = 0; i < count; i++) {
+            this.indexes.add(new PooledOpenFileIndex(new File(this.path, i + ".stack"), row, false));
+        }
+        for (int j = 0; j < entries; j++) {
+            for (int i = 0; i < count; i++) {
+                final Row.Entry entry = row.newEntry();
+                entry.setCol(0, key(i, j));
+                entry.setCol(1, ASCII.getBytes("v" + j));
+                this.indexes.get(i).put(entry);
+                assertTrue(PooledOpenFileIndex.openFiles() <= Math.max(maxOpen, openBefore));
+            }
+        }
+        // every access to a table which was evicted opened the table again
+        assertTrue(PooledOpenFileIndex.openedFiles() - openedBefore > count);
+
+        for (int i = 0; i < count; i++) {
+            final PooledOpenFileIndex index = this.indexes.get(i);
+            assertEquals(entries, index.size());
+            for (int j = 0; j < entries; j++) {
+                final Row.Entry entry = index.get(key(i, j), false);
+                assertNotNull(entry);
+                assertEquals("v" + j, entry.getColASCII(1));
+            }
+            assertTrue(PooledOpenFileIndex.openFiles() <= Math.max(maxOpen, openBefore));
+        }
+
+        // removal and size after reopening
+        for (int i = 0; i < count; i++) {
+            final PooledOpenFileIndex index = this.indexes.get(i);
+            assertNotNull(index.removeOne());
+            index.close();
+            assertEquals(entries - 1, index.size());
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package net.yacy.kelondro.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+
+
+public class PostingBlocksTest {
+
+    private static final Row row = WordReferenceRow.urlEntryRow;
+
+    /**
+     * @param count the number of references
+     * @param range the range of the cardinal values; 0 for the full range of each column
+     */
+    private static RowSet references(final int count, final int range) throws Exception {
+        final Random random = new Random(count);
+        final RowSet set = new RowSet(row, count);
+        for (int i = 0; i < count; i++) {
+            final Row.Entry entry = row.newEntry();
+            entry.setCol(0, Word.word2hash("url" + i));
+            for (int col = 1; col < row.columns(); col++) {
+                final Column column = row.column(col);
+                if (column.celltype == Column.celltype_cardinal) {
+                    entry.setCol(col, random.nextInt(range > 0 ? range : 1 << (8 * column.cellwidth)));
+                } else {
+                    final byte[] b = new byte[column.cellwidth];
+                    for (int j = 0; j < b.length; j++) b[j] = (byte) ('a' + random.nextInt(26));
+                    entry.setCol(col, b);
+                }
+            }
+            set.addUnique(entry);
+        }
+        set.sort();
+        return set;
+    }
+
+    /**
+     * Test of the encoding and decoding of containers with a full and a partial last block
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (final int count: new int[]{1, PostingBlocks.BLOCK_SIZE, 1000}) for (final int range: new int[]{0, 8}) {
+            final byte[] export = references(count, range).exportCollection();
+            assertFalse(PostingBlocks.isBlockCoded(export));
+            final byte[] blocks = PostingBlocks.encode(export, row);
+            assertTrue(PostingBlocks.isBlockCoded(blocks));
+            if (range > 0 && count > 1) assertTrue(blocks.length < export.length);
+            assertEquals(count, PostingBlocks.count(blocks, row));
+            assertEquals(count, PostingBlocks.count(export, row));
+            assertEquals(count, PostingBlocks.countHead(Arrays.copyOf(blocks, PostingBlocks.HEAD_SIZE)));
+            assertEquals(count, PostingBlocks.countHead(Arrays.copyOf(export, Math.min(export.length, PostingBlocks.HEAD_SIZE))));
+            assertEquals((count + PostingBlocks.BLOCK_SIZE - 1) / PostingBlocks.BLOCK_SIZE, PostingBlocks.blocks(blocks));
+
+            final RowSet decoded = PostingBlocks.importRowSet(blocks, row);
+            final RowSet legacy = PostingBlocks.importRowSet(export, row);
+            assertEquals(count, decoded.size());
+            for (int i = 0; i < count; i++) {
+                assertArrayEquals(legacy.get(i, false).bytes(), decoded.get(i, false).bytes());
+            }
+        }
+    }
+
+    /**
+     * Test of the selection of single references in both formats
+     */
+    @Test
+    public void testSelect() throws Exception {
+        final byte[] export = references(1000, 0).exportCollection();
+        final byte[] blocks = PostingBlocks.encode(export, row);
+        final HandleSet selection = new RowHandleSet(Word.commonHashLength, row.objectOrder, 10);
+        selection.put(Word.word2hash("url7"));
+        selection.put(Word.word2hash("url500"));
+        selection.put(Word.word2hash("url999"));
+        selection.put(Word.word2hash("none"));
+        for (final byte[] b: new byte[][]{export, blocks}) {
+            final RowSet selected = PostingBlocks.select(b, row, selection);
+            assertEquals(3, selected.size());
+            assertTrue(selected.has(Word.word2hash("url500")));
+            assertNull(selected.get(Word.word2hash("none"), false));
+            assertEquals(ASCII.String(Word.word2hash("url999")), ASCII.String(selected.get(Word.word2hash("url999"), false).getPrimaryKeyBytes()));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package net.yacy.kelondro.rwi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.kelondro.data.citation.CitationReference;
+import net.yacy.kelondro.data.citation.CitationReferenceFactory;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.index.PostingBlocks;
+import net.yacy.kelondro.index.RowHandleSet;
+import net.yacy.kelondro.util.FileUtils;
+
+
+public class ReferenceContainerArrayTest {
+
+    private static final ReferenceFactory<CitationReference> factory = new CitationReferenceFactory();
+
+    private static File dir(final String name) {
+        return new File(System.getProperty("java.io.tmpdir"), "ReferenceContainerArrayTest-" + name);
+    }
+
+    private static ReferenceContainerArray<CitationReference> createArray(final String name, final int generations) throws Exception {
+        final File dir = dir(name);
+        if (dir.exists()) FileUtils.deletedelete(dir);
+        dir.mkdirs();
+        final ReferenceContainerArray<CitationReference> array = new ReferenceContainerArray<CitationReference>(
+                dir, "test", factory, Base64Order.enhancedCoder, Word.commonHashLength, false);
+        // generation g holds every (g + 1)th term
+        for (int g = 0; g < generations; g++) {
+            final ReferenceContainerCache<CitationReference> cache = new ReferenceContainerCache<CitationReference>(factory, Base64Order.enhancedCoder, Word.commonHashLength);
+            for (int i = 0; i < 200; i += g + 1) {
+                cache.add(Word.word2hash("term" + i), new CitationReference(Word.word2hash("url" + g + "-" + i), 0));
+            }
+            final File f = array.newContainerBLOBFile();
+            cache.dump(f, 1024 * 1024, true);
+            array.mountBLOBFile(f);
+        }
+        return array;
+    }
+
+    private static void assertMerged(final ReferenceContainerArray<CitationReference> array, final int generations) throws Exception {
+        for (int i = 0; i < 200; i++) {
+            int expected = 0;
+            for (int g = 0; g < generations; g++) if (i % (g + 1) == 0) expected++;
+            assertEquals("term" + i, expected, array.get(Word.word2hash("term" + i)).size());
+        }
+        assertNull(array.get(Word.word2hash("term200")));
+    }
+
+    /**
+     * Test of the size-tiered merge: all generations are merged in one pass without losing references
+     */
+    @Test
+    public void testShrinkTiered() throws Exception {
+        final ReferenceContainerArray<CitationReference> array = createArray("tiered", 5);
+        try {
+            assertEquals(5, array.entries());
+            // the dispatcher is not started, so the merge is done at once
+            final IODispatcher merger = new IODispatcher(1, 1, 1024 * 1024);
+            assertTrue(array.shrinkTiered(merger, 1024 * 1024, 1024 * 1024 * 1024));
+            assertEquals(1, array.entries());
+            assertMerged(array, 5);
+            assertFalse(array.shrinkTiered(merger, 1024 * 1024, 1024 * 1024 * 1024));
+        } finally {
+            array.close();
+        }
+    }
+
+    /**
+     * Test of the conversion of generations to the block-coded format in a merge
+     */
+    @Test
+    public void testShrinkToBlocks() throws Exception {
+        final ReferenceContainerArray<CitationReference> array = createArray("blocks", 5);
+        PostingBlocks.writeBlocks = true;
+        try {
+            final IODispatcher merger = new IODispatcher(1, 1, 1024 * 1024);
+            assertTrue(array.shrinkTiered(merger, 1024 * 1024, 1024 * 1024 * 1024));
+            assertEquals(1, array.entries());
+            assertMerged(array, 5);
+            assertEquals(5, array.count(Word.word2hash("term0")));
+            final HandleSet urls = new RowHandleSet(Word.commonHashLength, Base64Order.enhancedCoder, 1);
+            urls.put(Word.word2hash("url2-0"));
+            assertEquals(1, array.get(Word.word2hash("term0"), urls).size());
+
+            // deletions in block-coded containers are kept even if the container grows
+            for (int g = 0; g < 5; g += 2) {
+                final byte[] url = Word.word2hash("url" + g + "-0");
+                array.reduce(Word.word2hash("term0"), container -> {
+                    container.removeReference(url);
+                    return container;
+                });
+            }
+            assertEquals(2, array.get(Word.word2hash("term0")).size());
+            assertEquals(2, array.count(Word.word2hash("term0")));
+
+            // the count does not depend on the format which is written
+            PostingBlocks.writeBlocks = false;
+            assertEquals(2, array.count(Word.word2hash("term0")));
+            assertEquals(3, array.count(Word.word2hash("term6")));
+        } finally {
+            PostingBlocks.writeBlocks = false;
+            array.close();
+        }
+    }
+
+    /**
+     * Test that a lookup with an exhausted time budget still returns references
+     */
+    @Test
+    public void testExhaustedBudget() throws Exception {
+        final ReferenceContainerArray<CitationReference> array = createArray("budget", 4);
+        try {
+            for (final boolean concurrent: new boolean[]{false, true}) {
+                array.setConcurrentLookup(concurrent);
+                for (final long maxtime: new long[]{0, -100}) {
+                    final ReferenceContainer<CitationReference> c = array.get(Word.word2hash("term12"), null, maxtime);
+                    assertTrue(concurrent + " " + maxtime, c != null && c.size() > 0);
+                    final HandleSet urls = new RowHandleSet(Word.commonHashLength, Word.commonHashOrder, 1);
+                    urls.put(Word.word2hash("url0-12"));
+                    assertEquals(1, array.get(Word.word2hash("term12"), urls, maxtime).size());
+                }
+            }
+            assertNull(array.get(Word.word2hash("term200"), null, 0));
+        } finally {
+            array.close();
+        }
+    }
+
+    /**
+     * Test of the leveled merge: small files are only merged when there are enough of them
+     * and are then merged together with the next larger file
+     */
+    @Test
+    public void testShrinkLeveled() throws Exception {
+        final ReferenceContainerArray<CitationReference> array = createArray("leveled", 5);
+        try {
+            long smallest = Long.MAX_VALUE, largest = 0;
+            for (final File f: dir("leveled").listFiles()) {
+                if (!f.getName().endsWith(".blob")) continue;
+                smallest = Math.min(smallest, f.length());
+                largest = Math.max(largest, f.length());
+            }
+            final IODispatcher merger = new IODispatcher(1, 1, 1024 * 1024);
+            // no file is below the level size
+            assertFalse(array.shrinkLeveled(merger, smallest, 1024 * 1024 * 1024));
+            assertEquals(5, array.entries());
+            // four small files and the largest one
+            assertTrue(array.shrinkLeveled(merger, largest, 1024 * 1024 * 1024));
+            assertEquals(1, array.entries());
+            assertMerged(array, 5);
+        } finally {
+            array.close();
+        }
+    }
+}
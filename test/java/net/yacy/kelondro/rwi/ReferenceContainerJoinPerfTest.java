@@ -0,0 +1,103 @@
+// ReferenceContainerJoinPerfTest.java
+// -----------------------
+// part of YaCy
+// Copyright 2026 by agent
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.rwi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+
+/**
+ * Comparing the pairwise join of ReferenceContainer.joinContainers and excludeContainers with the
+ * adaptive join of ReferenceContainer.joinAdaptive on synthetic containers. The container sizes follow
+ * a Zipf distribution over the terms, so that queries combine rare and frequent terms as in a real index.
+ */
+public class ReferenceContainerJoinPerfTest {
+
+    private static final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+
+    private static ReferenceContainer<WordReference> container(final Random random, final int term, final int universe, final int size) throws Exception {
+        final ReferenceContainer<WordReference> rc = new ReferenceContainer<WordReference>(factory, Word.word2hash("term" + term), size);
+        // every document is taken with the same probability, so each document appears only once
+        for (int doc = 0; doc < universe; doc++) {
+            if (random.nextInt(universe) < size) rc.add(new WordReferenceRow(Word.word2hash("doc" + doc), 20, 2, 0, 100, 10, 0, 0, null, Response.DT_TEXT, 0, 0));
+        }
+        rc.sort();
+        return rc;
+    }
+
+    /**
+     * @param args [universe size] [number of terms] [number of queries] [terms per query]
+     */
+    public static void main(final String[] args) throws Exception {
+        final int universe = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final int terms = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        final int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        final int termsPerQuery = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        final Random random = new Random(1);
+
+        try {
+            // the term of rank r appears in about universe / r documents
+            final List<ReferenceContainer<WordReference>> containers = new ArrayList<ReferenceContainer<WordReference>>(terms);
+            for (int r = 1; r <= terms; r++) containers.add(container(random, r, universe, Math.max(1, universe / r)));
+            System.out.println(terms + " containers generated, largest " + containers.get(0).size() + ", smallest " + containers.get(terms - 1).size());
+
+            // each query has terms of random rank and one exclusion term
+            final List<List<ReferenceContainer<WordReference>>> includes = new ArrayList<List<ReferenceContainer<WordReference>>>(queries);
+            final List<List<ReferenceContainer<WordReference>>> excludes = new ArrayList<List<ReferenceContainer<WordReference>>>(queries);
+            for (int q = 0; q < queries; q++) {
+                final List<ReferenceContainer<WordReference>> include = new ArrayList<ReferenceContainer<WordReference>>(termsPerQuery);
+                for (int t = 0; t < termsPerQuery; t++) include.add(containers.get(random.nextInt(terms)));
+                includes.add(include);
+                final List<ReferenceContainer<WordReference>> exclude = new ArrayList<ReferenceContainer<WordReference>>(1);
+                exclude.add(containers.get(random.nextInt(terms)));
+                excludes.add(exclude);
+            }
+
+            for (int round = 0; round < 3; round++) { // the first rounds warm up the jit compiler
+                long pairwiseTime = 0, adaptiveTime = 0, pairwiseCount = 0, adaptiveCount = 0;
+                for (int q = 0; q < queries; q++) {
+                    long start = System.nanoTime();
+                    final ReferenceContainer<WordReference> pairwise = ReferenceContainer.joinContainers(factory, includes.get(q), Integer.MAX_VALUE);
+                    if (pairwise != null) ReferenceContainer.excludeContainers(factory, pairwise, excludes.get(q));
+                    pairwiseTime += System.nanoTime() - start;
+                    if (pairwise != null) pairwiseCount += pairwise.size();
+
+                    start = System.nanoTime();
+                    final ReferenceContainer<WordReference> adaptive = ReferenceContainer.joinAdaptive(factory, includes.get(q), excludes.get(q), Integer.MAX_VALUE);
+                    adaptiveTime += System.nanoTime() - start;
+                    if (adaptive != null) adaptiveCount += adaptive.size();
+                }
+                System.out.println("round " + round + ": pairwise join " + TimeUnit.NANOSECONDS.toMillis(pairwiseTime) + " ms, " + pairwiseCount + " results; adaptive join "
+                        + TimeUnit.NANOSECONDS.toMillis(adaptiveTime) + " ms, " + adaptiveCount + " results");
+            }
+        } finally {
+            ConcurrentLog.shutdown();
+        }
+    }
+
+}
@@ -21,19 +21,28 @@ package net.yacy.kelondro.rwi;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import org.junit.Test;
 
+import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.document.id.MultiProtocolURL;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.data.word.WordReference;
 import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
 import net.yacy.kelondro.data.word.WordReferenceVars;
 import net.yacy.kelondro.util.Bitfield;
 
@@ -99,4 +108,93 @@ public class ReferenceContainerTest {
         assertEquals("distance()", wentry.distance(), wc.distance());
     }
 
+    private static ReferenceContainer<WordReference> container(final ReferenceFactory<WordReference> factory, final String term, final int[] docs) throws Exception {
+        final ReferenceContainer<WordReference> rc = new ReferenceContainer<WordReference>(factory, Word.word2hash(term), docs.length);
+        for (final int doc: docs) {
+            rc.add(new WordReferenceRow(Word.word2hash("doc" + doc), 20, 2, 0, 100, 10, 0, 0, null, Response.DT_TEXT, 0, 0));
+        }
+        return rc;
+    }
+
+    private static int[] docs(final Random random, final int universe, final int count) {
+        // every document is taken with the same probability, so each document appears only once
+        final List<Integer> docs = new ArrayList<Integer>(count);
+        for (int doc = 0; doc < universe; doc++) if (random.nextInt(universe) < count) docs.add(doc);
+        final int[] a = new int[docs.size()];
+        for (int i = 0; i < a.length; i++) a[i] = docs.get(i);
+        return a;
+    }
+
+    private static Set<String> urls(final ReferenceContainer<WordReference> rc) {
+        final Set<String> urls = new HashSet<String>();
+        if (rc == null) return urls;
+        final Iterator<WordReference> i = rc.entries();
+        while (i.hasNext()) urls.add(ASCII.String(i.next().urlhash()));
+        return urls;
+    }
+
+    /**
+     * Test of the adaptive join against the pairwise join and exclusion for containers of very different sizes
+     */
+    @Test
+    public void testJoinAdaptive() throws Exception {
+        final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+        final Random random = new Random(42);
+        for (final int[] sizes: new int[][]{{50, 20000}, {300, 3000, 20000}, {1000, 1000}, {5, 5}}) {
+            final List<ReferenceContainer<WordReference>> include = new ArrayList<ReferenceContainer<WordReference>>();
+            for (int t = 0; t < sizes.length; t++) include.add(container(factory, "term" + t, docs(random, 30000, sizes[t])));
+            final List<ReferenceContainer<WordReference>> exclude = new ArrayList<ReferenceContainer<WordReference>>();
+            exclude.add(container(factory, "exclude", docs(random, 30000, 5000)));
+
+            final ReferenceContainer<WordReference> pairwise = ReferenceContainer.joinContainers(factory, include, Integer.MAX_VALUE);
+            if (pairwise != null) ReferenceContainer.excludeContainers(factory, pairwise, exclude);
+            final ReferenceContainer<WordReference> adaptive = ReferenceContainer.joinAdaptive(factory, include, exclude, Integer.MAX_VALUE);
+            assertEquals(urls(pairwise), urls(adaptive));
+            assertEquals(pairwise == null ? 0 : pairwise.size(), adaptive == null ? 0 : adaptive.size());
+        }
+        // a missing term makes the conjunction empty
+        final List<ReferenceContainer<WordReference>> include = new ArrayList<ReferenceContainer<WordReference>>();
+        include.add(container(factory, "term", new int[]{1, 2, 3}));
+        include.add(new ReferenceContainer<WordReference>(factory, Word.word2hash("none")));
+        assertNull(ReferenceContainer.joinAdaptive(factory, include, null, Integer.MAX_VALUE));
+    }
+
+    private static WordReferenceVars reference(final int doc, final int posintext) {
+        final Queue<Integer> positions = new LinkedBlockingQueue<Integer>();
+        positions.add(posintext);
+        return new WordReferenceVars(Word.word2hash("doc" + doc), 20, 2, 0, 1, 100, 10, posintext, positions, 1, 1, 0,
+                "en", Response.DT_TEXT, 0, 0, new Bitfield(4), 0.0d);
+    }
+
+    /**
+     * Test that the adaptive and the pairwise join drop the references where the words are farther apart than maxDistance
+     */
+    @Test
+    public void testJoinMaxDistance() throws Exception {
+        final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+        final int[] gaps = new int[]{1, 5, 6, 20}; // the word distance in the documents 0..3
+        final List<ReferenceContainer<WordReference>> include = new ArrayList<ReferenceContainer<WordReference>>();
+        final ReferenceContainer<WordReference> alpha = new ReferenceContainer<WordReference>(factory, Word.word2hash("alpha"));
+        final ReferenceContainer<WordReference> beta = new ReferenceContainer<WordReference>(factory, Word.word2hash("beta"));
+        for (int doc = 0; doc < gaps.length; doc++) {
+            alpha.add(reference(doc, 10));
+            beta.add(reference(doc, 10 + gaps[doc]));
+        }
+        include.add(alpha);
+        include.add(beta);
+
+        final Set<String> near = new HashSet<String>();
+        near.add(ASCII.String(Word.word2hash("doc0")));
+        near.add(ASCII.String(Word.word2hash("doc1")));
+        final ReferenceContainer<WordReference> adaptive = ReferenceContainer.joinAdaptive(factory, include, null, 5);
+        assertEquals(near, urls(adaptive));
+        assertEquals(near, urls(ReferenceContainer.joinContainers(factory, include, 5)));
+        final Iterator<WordReference> i = adaptive.entries();
+        while (i.hasNext()) assertTrue(i.next().distance() <= 5);
+
+        // all references are joined without a distance limit, none if the words must be closer than in any document
+        assertEquals(gaps.length, ReferenceContainer.joinAdaptive(factory, include, null, Integer.MAX_VALUE).size());
+        assertNull(ReferenceContainer.joinAdaptive(factory, include, null, 0));
+    }
+
 }
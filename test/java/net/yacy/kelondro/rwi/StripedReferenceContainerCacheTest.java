@@ -0,0 +1,80 @@
+package net.yacy.kelondro.rwi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.kelondro.data.citation.CitationReference;
+import net.yacy.kelondro.data.citation.CitationReferenceFactory;
+import net.yacy.kelondro.data.word.Word;
+
+
+public class StripedReferenceContainerCacheTest {
+
+    private static final ReferenceFactory<CitationReference> factory = new CitationReferenceFactory();
+
+    private static byte[] hash(final String s) {
+        return Word.word2hash(s);
+    }
+
+    /**
+     * Test of concurrent adds from several threads while stripes are swapped
+     */
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        final StripedReferenceContainerCache<CitationReference> cache =
+                new StripedReferenceContainerCache<CitationReference>(factory, Base64Order.enhancedCoder, Word.commonHashLength, 8);
+        assertEquals(8, cache.stripes());
+        final Thread[] threads = new Thread[4];
+        final boolean[] failed = new boolean[1];
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 500; i++) {
+                            cache.add(hash("term" + i), new CitationReference(hash("url" + thread + "-" + i), 0));
+                        }
+                    } catch (final Exception e) {
+                        failed[0] = true;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (final Thread thread : threads) thread.join();
+        assertFalse(failed[0]);
+        assertEquals(500, cache.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(threads.length, cache.count(hash("term" + i)));
+        }
+
+        // the iterator returns the terms of all stripes in term order
+        final Iterator<ReferenceContainer<CitationReference>> it = cache.referenceContainerIterator(null, false, false);
+        byte[] last = null;
+        int count = 0;
+        while (it.hasNext()) {
+            final byte[] term = it.next().getTermHash();
+            if (last != null) assertTrue(ASCII.String(last) + " < " + ASCII.String(term), Base64Order.enhancedCoder.compare(last, term) < 0);
+            last = term;
+            count++;
+        }
+        assertEquals(500, count);
+
+        // a swapped stripe holds all terms of its range, the cache keeps the others
+        final byte[] term = hash("term7");
+        final int stripe = cache.stripeOf(term);
+        final ReferenceContainerCache<CitationReference> swapped = cache.swap(stripe);
+        assertTrue(swapped.has(term));
+        assertFalse(cache.has(term));
+        assertEquals(500, swapped.size() + cache.size());
+        cache.close();
+    }
+}
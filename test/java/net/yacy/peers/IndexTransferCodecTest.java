@@ -0,0 +1,122 @@
+package net.yacy.peers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.ReferenceFactory;
+
+public class IndexTransferCodecTest {
+
+    private static final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+
+    private static ReferenceContainer<WordReference> container(final String term, final int docs) throws Exception {
+        final ReferenceContainer<WordReference> rc = new ReferenceContainer<WordReference>(factory, Word.word2hash(term), docs);
+        for (int doc = docs - 1; doc >= 0; doc--) {
+            rc.add(new WordReferenceRow(Word.word2hash("doc" + doc), 20 + doc, 2, 0, 100 + doc, 10, 0, 0, null, 't', doc, 0));
+        }
+        return rc;
+    }
+
+    /**
+     * Test that containers and metadata are decoded as they have been encoded
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final ReferenceContainer<WordReference> a = container("alpha", 200);
+        final ReferenceContainer<WordReference> b = container("beta", 3);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final IndexTransferCodec.Writer writer = new IndexTransferCodec.Writer(bytes);
+        writer.write(a);
+        writer.write(b);
+        writer.writeMetadata("{hash=AAAAAAAAAAAA,url=http://yacy.net/}");
+        writer.writeMetadata("{hash=BBBBBBBBBBBB,url=http://täst.net/}");
+        assertEquals(203, writer.references());
+        assertEquals(2, writer.metadata());
+        writer.close();
+
+        // the binary format is smaller than the text lines of the legacy transfer
+        int legacy = 0;
+        for (final ReferenceContainer<WordReference> rc: new ReferenceContainer[]{a, b}) {
+            for (int i = 0; i < rc.size(); i++) legacy += 12 + rc.getReference(i).toPropertyForm().length() + 2;
+        }
+        assertTrue(bytes.size() + " < " + legacy, bytes.size() < legacy / 4);
+
+        final IndexTransferCodec.Reader reader = new IndexTransferCodec.Reader(new ByteArrayInputStream(bytes.toByteArray()));
+        for (final ReferenceContainer<WordReference> expected: new ReferenceContainer[]{a, b}) {
+            final ReferenceContainer<WordReference> rc = reader.next();
+            assertArrayEquals(expected.getTermHash(), rc.getTermHash());
+            assertEquals(expected.size(), rc.size());
+            for (int i = 0; i < expected.size(); i++) {
+                final WordReference e = expected.getReference(i);
+                final WordReference r = rc.getReference(e.urlhash());
+                assertEquals(ASCII.String(e.urlhash()), e.toPropertyForm(), r.toPropertyForm());
+            }
+        }
+        assertNull(reader.next());
+        assertEquals("{hash=AAAAAAAAAAAA,url=http://yacy.net/}", reader.nextMetadata());
+        assertEquals("{hash=BBBBBBBBBBBB,url=http://täst.net/}", reader.nextMetadata());
+        assertNull(reader.nextMetadata());
+        reader.close();
+    }
+
+    /**
+     * Test that a transfer with too many references is rejected
+     */
+    @Test
+    public void testFlooding() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final IndexTransferCodec.Writer writer = new IndexTransferCodec.Writer(bytes);
+        writer.write(container("alpha", 100));
+        writer.write(container("beta", 1));
+        writer.close();
+        final IndexTransferCodec.Reader reader = new IndexTransferCodec.Reader(new ByteArrayInputStream(bytes.toByteArray()), 100);
+        assertEquals(100, reader.next().size());
+        try {
+            reader.next();
+            fail("too many references must be rejected");
+        } catch (final IOException e) {
+            // expected
+        }
+        reader.close();
+    }
+
+    /**
+     * Test that a truncated transfer delivers the complete containers before the break and then fails with an IOException,
+     * which the receiver answers with the decode error result
+     */
+    @Test
+    public void testTruncated() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final IndexTransferCodec.Writer writer = new IndexTransferCodec.Writer(bytes);
+        for (int t = 0; t < 200; t++) writer.write(container("term" + t, 100));
+        writer.close();
+        final byte[] truncated = new byte[bytes.size() * 3 / 4];
+        System.arraycopy(bytes.toByteArray(), 0, truncated, 0, truncated.length);
+        final IndexTransferCodec.Reader reader = new IndexTransferCodec.Reader(new ByteArrayInputStream(truncated));
+        int containers = 0;
+        try {
+            while (reader.next() != null) containers++;
+            fail("a truncated transfer must be rejected");
+        } catch (final IOException e) {
+            // expected
+        }
+        assertTrue(Integer.toString(containers), containers > 0 && containers < 200);
+        reader.close();
+    }
+
+}
@@ -0,0 +1,87 @@
+package net.yacy.peers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+public class PeerLatencyTest {
+
+    private static Seed seed(final String hash) {
+        return new Seed(hash, new ConcurrentHashMap<String, String>());
+    }
+
+    /**
+     * Test the percentile of the response times, which is only known after enough responses
+     */
+    @Test
+    public void testPercentile() {
+        final PeerLatency latency = new PeerLatency();
+        for (int i = 1; i <= 5; i++) latency.update("AAAAAAAAAAAA", i * 100, true);
+        assertEquals(-1, latency.percentile(90));
+        for (int i = 6; i <= 100; i++) latency.update("BBBBBBBBBBBB", i * 100, true);
+        assertEquals(9100, latency.percentile(90));
+
+        // failed requests are not response times
+        for (int i = 0; i < 100; i++) latency.update("CCCCCCCCCCCC", 100000, false);
+        assertEquals(9100, latency.percentile(90));
+    }
+
+    /**
+     * Test that fast and reliable peers are ranked first and preferred by the weighted random choice,
+     * and that peers which fail are ranked after peers without statistic
+     */
+    @Test
+    public void testRankAndPick() {
+        final PeerLatency latency = new PeerLatency();
+        final Seed fast = seed("AAAAAAAAAAAA");
+        final Seed slow = seed("BBBBBBBBBBBB");
+        final Seed failing = seed("CCCCCCCCCCCC");
+        final Seed unknown = seed("DDDDDDDDDDDD");
+        for (int i = 0; i < 10; i++) {
+            latency.update(fast.hash, 200, true);
+            latency.update(slow.hash, 5000, true);
+            latency.update(failing.hash, 200, i == 0);
+        }
+        final List<Seed> seeds = new ArrayList<Seed>();
+        seeds.add(unknown);
+        seeds.add(failing);
+        seeds.add(slow);
+        seeds.add(fast);
+        final List<Seed> ranked = latency.rank(seeds);
+        assertEquals(fast, ranked.get(0));
+        assertEquals(unknown, ranked.get(1));
+        assertEquals(slow, ranked.get(2));
+        assertEquals(failing, ranked.get(3));
+
+        final Random random = new Random(0);
+        int fastPicks = 0;
+        for (int i = 0; i < 1000; i++) {
+            final List<Seed> candidates = new ArrayList<Seed>(seeds);
+            final Seed picked = latency.pick(candidates, random);
+            assertEquals(3, candidates.size());
+            if (picked == fast) fastPicks++;
+        }
+        assertTrue(fastPicks > 500);
+        assertTrue(fastPicks < 1000);
+    }
+
+    /**
+     * Test that a peer which always fails quickly is ranked after a peer without statistic
+     */
+    @Test
+    public void testFastFailures() {
+        final PeerLatency latency = new PeerLatency();
+        final Seed failing = seed("AAAAAAAAAAAA");
+        final Seed unknown = seed("BBBBBBBBBBBB");
+        latency.update(failing.hash, 10, false);
+        assertEquals(PeerLatency.FAILURE_LATENCY, latency.get(failing.hash).getLatency());
+        assertTrue(latency.score(failing) > latency.score(unknown));
+    }
+
+}
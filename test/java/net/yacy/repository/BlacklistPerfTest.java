@@ -0,0 +1,119 @@
+/**
+ *  BlacklistPerfTest
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.repository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the performance of the blacklist lookup with the blacklist maps, as done by Blacklist.isListed(),
+ * with the lookup in the compiled {@link BlacklistMatcher}, on a generated blacklist.
+ */
+public class BlacklistPerfTest {
+
+    private static final String[] TLDS = {"com", "net", "org", "de", "fr", "info"};
+    private static final String[] PATHS = {"", "/", "/index.html", "/ads/banner.gif", "/data/js/123.js",
+            "/search?q=yacy", "/a/b/c/d/e/f/g/file.html", "/member/profile"};
+
+    private static String host(final Random random) {
+        return "www.host" + random.nextInt(100000) + ".example" + random.nextInt(10) + "." + TLDS[random.nextInt(TLDS.length)];
+    }
+
+    /**
+     * @param args the number of blacklist entries (default 10000) and the number of lookups (default 1000000)
+     */
+    public static void main(final String[] args) {
+        final int entries = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        final Random random = new Random(0);
+
+        // generate a blacklist with the different kinds of host keys
+        final Map<String, Set<Pattern>> blacklistMapMatched = new HashMap<>();
+        final Map<String, Set<Pattern>> blacklistMapNotMatched = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            final String host = host(random);
+            final Set<Pattern> patterns = new HashSet<>();
+            switch (i % 4) {
+            case 0:
+                patterns.add(Pattern.compile(".*", Pattern.CASE_INSENSITIVE));
+                blacklistMapMatched.put(host, patterns);
+                break;
+            case 1:
+                patterns.add(Pattern.compile("ads/.*", Pattern.CASE_INSENSITIVE));
+                patterns.add(Pattern.compile("(.*/|)member/.*", Pattern.CASE_INSENSITIVE));
+                patterns.add(Pattern.compile("data/js/\\d*\\.js", Pattern.CASE_INSENSITIVE));
+                blacklistMapMatched.put("*." + host.substring(4), patterns);
+                break;
+            case 2:
+                patterns.add(Pattern.compile(".*\\.gif", Pattern.CASE_INSENSITIVE));
+                blacklistMapMatched.put(host.substring(0, host.lastIndexOf('.')) + ".*", patterns);
+                break;
+            default:
+                patterns.add(Pattern.compile("(.*/|)search.*", Pattern.CASE_INSENSITIVE));
+                blacklistMapMatched.put(host.substring(4), patterns);
+            }
+        }
+        for (int i = 0; i < 20; i++) {
+            final Set<Pattern> patterns = new HashSet<>();
+            patterns.add(Pattern.compile(".*banner" + i + ".*", Pattern.CASE_INSENSITIVE));
+            blacklistMapNotMatched.put("ads" + i + "\\..*", patterns);
+        }
+
+        long start = System.nanoTime();
+        final BlacklistMatcher matcher = new BlacklistMatcher(blacklistMapMatched, blacklistMapNotMatched);
+        System.out.println("Compiled " + entries + " blacklist entries in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+
+        // the same hosts and paths for both lookups
+        final String[] hosts = new String[4096];
+        final String[] paths = new String[hosts.length];
+        for (int i = 0; i < hosts.length; i++) {
+            hosts[i] = host(random);
+            paths[i] = PATHS[random.nextInt(PATHS.length)];
+        }
+
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            int listed = 0;
+            for (int i = 0; i < lookups; i++) {
+                final int j = i & (hosts.length - 1);
+                if (Blacklist.isListed(hosts[j], paths[j], blacklistMapMatched, blacklistMapNotMatched)) listed++;
+            }
+            final long mapsTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int compiledListed = 0;
+            for (int i = 0; i < lookups; i++) {
+                final int j = i & (hosts.length - 1);
+                if (matcher.isListed(hosts[j], paths[j])) compiledListed++;
+            }
+            final long compiledTime = System.nanoTime() - start;
+
+            System.out.println("Round " + round + ": " + lookups + " lookups, listed " + listed + "/" + compiledListed);
+            System.out.println("  blacklist maps   : " + (mapsTime / lookups) + " ns/lookup");
+            System.out.println("  compiled matcher : " + (compiledTime / lookups) + " ns/lookup");
+        }
+    }
+}
@@ -119,4 +119,50 @@ public class BlacklistTest {
     	Assert.assertFalse(Blacklist.isListed("fr.notblacklisted.org", "/path/with/many/segments/e/f/g/h/i/j/k/l/m/n/o/p/q/r/s/t/u/v/w/x/y/z/file.html", blacklistMapMatched, blacklistMapNotMatched));
     }
 
+    /**
+     * Tests that the compiled {@link BlacklistMatcher} gives the same answers as the static Blacklist.isListed()
+     * function for all combinations of some host keys, hosts and paths.
+     */
+    @Test
+    public void testMatcherIsListed() {
+        final String[] matchedKeys = {"example.com", "*.example.com", "ftp.*", "ftp.example.*", "www.example", "www.example.*",
+                "*.org", "net", "*.", ".dot.org", "*.sub.blacklisted.net", "a..b"};
+        final String[] notMatchedKeys = {"mobil\\..*", ".*samples.fr", "[invalid"};
+        final String[] hosts = {"example.com", "www.example.com", "a.b.example.com", "example.com.evil.net", "notexample.com",
+                "ftp.gnu.org", "ftp.example.de", "ftp", "www.example", "www.example.org", "www.examples.org", "org", "yacy.net",
+                "net", "trailing.dot.", ".dot.org", "x.sub.blacklisted.net", "sub.blacklisted.net", "a..b", "x.a..b",
+                "mobil.news.fr", "www.samples.fr", "", "."};
+        final String[] paths = {"", "/", "/index.html", "/data/js/12.js", "/ads/banner.gif", "/search?q=yacy"};
+        final Pattern[] pathPatterns = {Pattern.compile(".*"), Pattern.compile("data/js/\\d*\\.js"),
+                Pattern.compile("ads/.*", Pattern.CASE_INSENSITIVE), Pattern.compile("(.*/|)search.*"), Pattern.compile("index\\.html")};
+
+        final Map<String, Set<Pattern>> blacklistMapMatched = new HashMap<>();
+        final Map<String, Set<Pattern>> blacklistMapNotMatched = new HashMap<>();
+        for (int i = 0; i < matchedKeys.length; i++) {
+            final Set<Pattern> patterns = new HashSet<>();
+            patterns.add(pathPatterns[i % pathPatterns.length]);
+            if (i % 3 == 0) patterns.add(pathPatterns[(i + 2) % pathPatterns.length]);
+            blacklistMapMatched.put(matchedKeys[i], patterns);
+        }
+        for (int i = 0; i < notMatchedKeys.length; i++) {
+            final Set<Pattern> patterns = new HashSet<>();
+            patterns.add(pathPatterns[(i + 1) % pathPatterns.length]);
+            blacklistMapNotMatched.put(notMatchedKeys[i], patterns);
+        }
+
+        final BlacklistMatcher matcher = new BlacklistMatcher(blacklistMapMatched, blacklistMapNotMatched);
+        int listed = 0;
+        for (final String host: hosts) {
+            for (final String path: paths) {
+                final boolean expected = Blacklist.isListed(host, path, blacklistMapMatched, blacklistMapNotMatched);
+                assertEquals(host + path, expected, matcher.isListed(host, path));
+                if (expected) listed++;
+            }
+        }
+        assertTrue(listed > 0 && listed < hosts.length * paths.length);
+
+        // an empty blacklist does not list anything
+        assertFalse(new BlacklistMatcher(new HashMap<String, Set<Pattern>>(), new HashMap<String, Set<Pattern>>()).isListed("yacy.net", "/"));
+    }
+
 }
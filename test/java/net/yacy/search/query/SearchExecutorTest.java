@@ -0,0 +1,213 @@
+package net.yacy.search.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.yacy.cora.util.ConcurrentLog;
+
+public class SearchExecutorTest {
+
+    @After
+    public void tearDown() {
+        ConcurrentLog.shutdown();
+    }
+
+    private static Runnable block(final CountDownLatch started, final CountDownLatch release, final AtomicBoolean interrupted) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    interrupted.set(true);
+                }
+            }
+        };
+    }
+
+    /**
+     * Test that a task which is queued in a saturated pool is executed by the joining thread
+     * and that an interrupt removes a queued task and interrupts a running task
+     */
+    @Test
+    public void testPool() throws InterruptedException {
+        final SearchExecutor executor = new SearchExecutor(SearchExecutor.MODE_POOL, 1);
+        assertFalse(executor.isVirtual());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+        final SearchExecutor.Task blocking = executor.execute("blocking", block(started, release, interrupted));
+        started.await();
+        assertTrue(blocking.isAlive());
+
+        // the pool is saturated, the next tasks are queued
+        final AtomicInteger counter = new AtomicInteger(0);
+        final Runnable count = new Runnable() {
+            @Override
+            public void run() {
+                counter.incrementAndGet();
+            }
+        };
+        final SearchExecutor.Task queued = executor.execute("queued", count);
+        final SearchExecutor.Task cancelled = executor.execute("cancelled", count);
+        assertEquals(2, executor.getQueued());
+        queued.join(10);
+        assertTrue(queued.isAlive());
+        queued.join();
+        assertFalse(queued.isAlive());
+        assertEquals(1, counter.get());
+        cancelled.interrupt();
+        assertFalse(cancelled.isAlive());
+        assertEquals(1, executor.getCancelled());
+
+        blocking.interrupt();
+        blocking.join();
+        assertTrue(interrupted.get());
+        assertEquals(1, counter.get());
+        assertEquals(3, executor.getSubmitted());
+        assertEquals(2, executor.getCompleted());
+        assertEquals(0, executor.getRunning());
+        assertEquals(0, executor.getQueued());
+        assertEquals(2, executor.getPeakRunning());
+        executor.shutdown();
+    }
+
+    /**
+     * Test that a task which does not fit into the bounded queue of a saturated pool runs in an own thread
+     * and that cancelled tasks free their slot in the queue
+     */
+    @Test
+    public void testQueueOverflow() throws InterruptedException {
+        final SearchExecutor executor = new SearchExecutor(SearchExecutor.MODE_POOL, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+        final SearchExecutor.Task blocking = executor.execute("blocking", block(started, release, interrupted));
+        started.await();
+
+        // fill the queue and cancel the queued tasks again
+        final AtomicInteger counter = new AtomicInteger(0);
+        final Runnable count = new Runnable() {
+            @Override
+            public void run() {
+                counter.incrementAndGet();
+            }
+        };
+        for (int i = 0; i < 10; i++) executor.execute("cancelled", count).interrupt();
+        assertEquals(10, executor.getCancelled());
+
+        // the queue has free slots again, a queued task is not started while the pool is saturated
+        final SearchExecutor.Task[] queued = new SearchExecutor.Task[10];
+        for (int i = 0; i < queued.length; i++) queued[i] = executor.execute("queued", count);
+        assertEquals(10, executor.getQueued());
+
+        // the queue is full, the next task runs in an own thread without a join
+        final SearchExecutor.Task overflow = executor.execute("overflow", count);
+        final long timeout = System.currentTimeMillis() + 10000;
+        while (counter.get() == 0 && System.currentTimeMillis() < timeout) Thread.sleep(1);
+        assertEquals(1, counter.get());
+        overflow.join();
+        assertFalse(overflow.isAlive());
+
+        release.countDown();
+        blocking.join();
+        for (final SearchExecutor.Task task: queued) task.join();
+        assertEquals(11, counter.get());
+        assertFalse(interrupted.get());
+        executor.shutdown();
+    }
+
+    /**
+     * Test that an isolated task is not queued in a saturated pool and not executed by the joining thread
+     */
+    @Test
+    public void testIsolated() throws InterruptedException {
+        final SearchExecutor executor = new SearchExecutor(SearchExecutor.MODE_POOL, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+        final SearchExecutor.Task blocking = executor.execute("blocking", block(started, release, interrupted));
+        started.await();
+
+        final Thread joining = Thread.currentThread();
+        final AtomicBoolean otherThread = new AtomicBoolean(false);
+        final SearchExecutor.Task isolated = executor.execute("isolated", new Runnable() {
+            @Override
+            public void run() {
+                otherThread.set(Thread.currentThread() != joining);
+            }
+        }, true);
+        isolated.join();
+        assertTrue(otherThread.get());
+        release.countDown();
+        blocking.join();
+        assertFalse(interrupted.get());
+        executor.shutdown();
+    }
+
+    /**
+     * Test that a scheduled task starts after its delay and that a queued task has no start time
+     */
+    @Test
+    public void testSchedule() throws InterruptedException {
+        final SearchExecutor executor = new SearchExecutor(SearchExecutor.MODE_POOL, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+        final long start = System.currentTimeMillis();
+        executor.schedule("scheduled", block(started, release, interrupted), 200);
+        started.await();
+        assertTrue(System.currentTimeMillis() - start >= 200);
+
+        final SearchExecutor.Task queued = executor.execute("queued", new Runnable() {
+            @Override
+            public void run() {}
+        });
+        assertEquals(0, queued.getStartTime());
+        release.countDown();
+        queued.join(10000);
+        assertFalse(queued.isAlive());
+        assertTrue(queued.getStartTime() >= start);
+        executor.shutdown();
+    }
+
+    /**
+     * Test that the virtual mode falls back to the pool if the JVM has no virtual threads
+     */
+    @Test
+    public void testVirtual() throws InterruptedException {
+        boolean virtualThreads;
+        try {
+            Thread.class.getMethod("ofVirtual");
+            virtualThreads = true;
+        } catch (final NoSuchMethodException e) {
+            virtualThreads = false;
+        }
+        final SearchExecutor executor = new SearchExecutor(SearchExecutor.MODE_VIRTUAL, 4);
+        assertEquals(virtualThreads, executor.isVirtual());
+        final AtomicInteger counter = new AtomicInteger(0);
+        final SearchExecutor.Task[] tasks = new SearchExecutor.Task[100];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = executor.execute("task " + i, new Runnable() {
+                @Override
+                public void run() {
+                    counter.incrementAndGet();
+                }
+            });
+        }
+        for (final SearchExecutor.Task task: tasks) task.join();
+        assertEquals(100, counter.get());
+        assertEquals(100, executor.getCompleted());
+        executor.shutdown();
+    }
+
+}
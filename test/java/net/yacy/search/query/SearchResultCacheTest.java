@@ -0,0 +1,117 @@
+package net.yacy.search.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.sorting.ConcurrentScoreMap;
+import net.yacy.cora.sorting.ScoreMap;
+import net.yacy.cora.sorting.WeakPriorityBlockingQueue.Element;
+import net.yacy.cora.sorting.WeakPriorityBlockingQueue.ReverseElement;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.data.meta.URIMetadataNode;
+import net.yacy.search.snippet.TextSnippet;
+
+public class SearchResultCacheTest {
+
+    private File location;
+
+    @Before
+    public void setUp() throws IOException {
+        this.location = File.createTempFile("searchResultCache", ".heap");
+        this.location.delete();
+    }
+
+    @After
+    public void tearDown() {
+        this.location.delete();
+        ConcurrentLog.shutdown();
+    }
+
+    private static List<Element<URIMetadataNode>> results(final String... urls) throws MalformedURLException {
+        final List<Element<URIMetadataNode>> results = new ArrayList<Element<URIMetadataNode>>();
+        long weight = 1000;
+        for (final String url: urls) {
+            final DigestURL digestURL = new DigestURL(url);
+            final URIMetadataNode node = new URIMetadataNode(digestURL);
+            node.makeResultEntry(null, null, new TextSnippet(digestURL, "snippet of " + url, true, TextSnippet.ResultClass.SOURCE_CACHE, ""));
+            results.add(new ReverseElement<URIMetadataNode>(node, weight--));
+        }
+        return results;
+    }
+
+    private static Map<String, ScoreMap<String>> navigators() {
+        final Map<String, ScoreMap<String>> navigators = new HashMap<String, ScoreMap<String>>();
+        final ScoreMap<String> protocol = new ConcurrentScoreMap<String>();
+        protocol.inc("http", 2);
+        protocol.inc("https", 1);
+        navigators.put("protocol", protocol);
+        return navigators;
+    }
+
+    /**
+     * Test that the stored results, snippets and navigators are restored after a restart
+     */
+    @Test
+    public void testPutGet() throws IOException {
+        SearchResultCache cache = new SearchResultCache(this.location, 10, 100, 60000);
+        cache.put("q1", 42, results("http://yacy.net/", "http://yacy.net/a.html", "https://yacy.net/b.html"), navigators());
+        assertEquals(1, cache.size());
+        assertNull(cache.get("q2"));
+        cache.close();
+
+        cache = new SearchResultCache(this.location, 10, 100, 60000);
+        final SearchResultCache.Entry entry = cache.get("q1");
+        cache.close();
+        assertNotNull(entry);
+        assertEquals(42, entry.getResultCount());
+        assertEquals(3, entry.size());
+        assertEquals("http://yacy.net/a.html", new URIMetadataNode(entry.getDocument(1)).url().toNormalform(true));
+        assertEquals(999, entry.getWeight(1));
+        assertEquals("snippet of https://yacy.net/b.html", entry.getSnippet(2));
+        assertTrue(entry.isMarked(2));
+        assertEquals(2, entry.getNavigators().get("protocol").get("http").intValue());
+        assertEquals(1, entry.getNavigators().get("protocol").get("https").intValue());
+    }
+
+    /**
+     * Test the eviction of the oldest entries, the expiration and the deletion of a result
+     */
+    @Test
+    public void testEviction() throws IOException, InterruptedException {
+        SearchResultCache cache = new SearchResultCache(this.location, 2, 100, 60000);
+        cache.put("q1", 1, results("http://yacy.net/1.html"), navigators());
+        cache.put("q2", 1, results("http://yacy.net/2.html"), navigators());
+        cache.put("q3", 1, results("http://yacy.net/3.html"), navigators());
+        assertEquals(2, cache.size());
+        assertNull(cache.get("q1"));
+        assertNotNull(cache.get("q2"));
+
+        cache.delete(new DigestURL("http://yacy.net/3.html").hash());
+        assertNull(cache.get("q3"));
+        assertEquals(1, cache.size());
+        cache.close();
+
+        cache = new SearchResultCache(this.location, 2, 100, 1);
+        Thread.sleep(10);
+        assertNull(cache.get("q2"));
+        assertFalse(cache.getMisses() == 0);
+        cache.close();
+    }
+
+}
@@ -0,0 +1,86 @@
+package net.yacy.search.ranking;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CitationRankGraphTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Test the ranks of a small graph: a node which is referenced by all other nodes has the highest rank
+     */
+    @Test
+    public void testRank() {
+        final CitationRankGraph.Builder builder = new CitationRankGraph.Builder(4);
+        for (int i = 0; i < 4; i++) builder.addNode(1);
+        builder.addLink(1, 0);
+        builder.addLink(2, 0);
+        builder.addLink(3, 0);
+        builder.addLink(0, 1);
+        builder.addLink(1, 0); // a double link is counted once
+        final CitationRankGraph graph = builder.build();
+        assertEquals(4, graph.size());
+        assertEquals(4, graph.links());
+
+        final double[] cr = graph.rank(0.85d, 6, 100, pool);
+        assertTrue(graph.steps() < 100);
+        assertTrue(cr[0] > cr[1]);
+        assertTrue(cr[1] > cr[2]);
+        assertEquals(cr[2], cr[3], 1e-12);
+        // nodes without incoming links keep the damping part only
+        assertEquals(0.15d / 4, cr[2], 1e-12);
+        // the fixpoint of node 0 and 1
+        assertEquals(0.15d / 4 + 0.85d * (cr[1] + cr[2] + cr[3]), cr[0], 1e-5);
+        assertEquals(0.15d / 4 + 0.85d * cr[0], cr[1], 1e-5);
+    }
+
+    /**
+     * Test that a graph which is computed in many tasks has the same ranks as a sequential computation
+     */
+    @Test
+    public void testParallel() {
+        final int n = 20000;
+        final Random random = new Random(1);
+        final CitationRankGraph.Builder builder = new CitationRankGraph.Builder(16);
+        final int[] links = new int[n];
+        for (int i = 0; i < n; i++) links[i] = random.nextInt(5);
+        for (int i = 0; i < n; i++) builder.addNode(links[i]);
+        for (int i = 0; i < n; i++) for (int l = 0; l < links[i]; l++) builder.addLink(i, random.nextInt(n));
+        final CitationRankGraph graph = builder.build();
+
+        final double[] parallel = graph.rank(0.85d, 6, 30, pool);
+        final ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            final double[] sequential = graph.rank(0.85d, 6, 30, single);
+            for (int i = 0; i < n; i++) assertEquals(sequential[i], parallel[i], 0.0d);
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        final CitationRankGraph graph = new CitationRankGraph.Builder(0).build();
+        assertEquals(0, graph.rank(0.85d, 6, 30, pool).length);
+        assertEquals(0, graph.steps());
+    }
+
+}
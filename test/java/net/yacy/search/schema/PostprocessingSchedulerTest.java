@@ -0,0 +1,119 @@
+package net.yacy.search.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.util.ConcurrentLog;
+
+public class PostprocessingSchedulerTest {
+
+    private File checkpoint;
+
+    @Before
+    public void setUp() throws IOException {
+        this.checkpoint = File.createTempFile("postprocessing", ".checkpoint");
+        this.checkpoint.delete();
+    }
+
+    @After
+    public void tearDown() {
+        this.checkpoint.delete();
+        ConcurrentLog.shutdown();
+    }
+
+    private static PostprocessingScheduler.Work work(final AtomicInteger counter, final boolean fail) {
+        return new PostprocessingScheduler.Work() {
+            @Override
+            public int process() throws Exception {
+                counter.incrementAndGet();
+                if (fail) throw new IOException("test failure");
+                return 1;
+            }
+        };
+    }
+
+    /**
+     * Test that an interrupted postprocessing resumes with the partitions which are not completed
+     */
+    @Test
+    public void testResume() {
+        final AtomicInteger counter = new AtomicInteger(0);
+        PostprocessingScheduler scheduler = new PostprocessingScheduler(this.checkpoint, 2);
+        for (int i = 0; i < 10; i++) {
+            scheduler.submit("p" + i, Collections.singletonList("p" + i), work(counter, i == 3));
+        }
+        assertFalse(scheduler.awaitPhase());
+        scheduler.close();
+        assertEquals(10, counter.get());
+        assertTrue(this.checkpoint.exists());
+
+        // the next postprocessing repeats only the failed partition
+        counter.set(0);
+        scheduler = new PostprocessingScheduler(this.checkpoint, 2);
+        for (int i = 0; i < 10; i++) {
+            if (scheduler.isCompleted("p" + i)) continue;
+            scheduler.submit("p" + i, Collections.singletonList("p" + i), work(counter, false));
+        }
+        assertTrue(scheduler.awaitPhase());
+        scheduler.close();
+        assertEquals(1, counter.get());
+        assertFalse(this.checkpoint.exists());
+        assertEquals(1, PostprocessingScheduler.getTasks().size());
+        assertEquals(PostprocessingScheduler.State.finished, PostprocessingScheduler.getTasks().get(0).getState());
+    }
+
+    /**
+     * Test that terminated tasks are not executed and the checkpoint is kept
+     */
+    @Test
+    public void testTerminate() {
+        final AtomicInteger counter = new AtomicInteger(0);
+        final PostprocessingScheduler scheduler = new PostprocessingScheduler(this.checkpoint, 1);
+        scheduler.submit("p0", Collections.singletonList("p0"), work(counter, false));
+        assertTrue(scheduler.awaitPhase());
+        scheduler.terminate();
+        scheduler.submit("p1", Collections.singletonList("p1"), work(counter, false));
+        assertFalse(scheduler.awaitPhase());
+        scheduler.close();
+        assertEquals(1, counter.get());
+        assertTrue(this.checkpoint.exists());
+        final PostprocessingScheduler resumed = new PostprocessingScheduler(this.checkpoint, 1);
+        assertTrue(resumed.isCompleted("p0"));
+        assertFalse(resumed.isCompleted("p1"));
+        resumed.close();
+    }
+
+    /**
+     * Test that a new postprocessing does not remove the tasks of a running postprocessing
+     */
+    @Test
+    public void testConcurrentSchedulers() throws IOException {
+        final AtomicInteger counter = new AtomicInteger(0);
+        final File otherCheckpoint = File.createTempFile("postprocessing", ".checkpoint");
+        otherCheckpoint.delete();
+        final PostprocessingScheduler first = new PostprocessingScheduler(this.checkpoint, 1);
+        first.submit("a0", Collections.singletonList("a0"), work(counter, false));
+        final PostprocessingScheduler second = new PostprocessingScheduler(otherCheckpoint, 1);
+        second.submit("b0", Collections.singletonList("b0"), work(counter, false));
+        assertTrue(first.awaitPhase());
+        assertTrue(second.awaitPhase());
+        assertEquals(2, PostprocessingScheduler.getTasks().size());
+        first.close();
+        second.close();
+        assertEquals(1, PostprocessingScheduler.getTasks().size());
+        assertEquals("b0", PostprocessingScheduler.getTasks().get(0).getName());
+        assertFalse(this.checkpoint.exists());
+        assertFalse(otherCheckpoint.exists());
+    }
+
+}
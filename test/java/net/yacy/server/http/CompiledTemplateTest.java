@@ -0,0 +1,102 @@
+package net.yacy.server.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.server.serverObjects;
+
+
+public class CompiledTemplateTest {
+
+    private static String engine(final byte[] template, final serverObjects pattern) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TemplateEngine.writeTemplate("test", new ByteArrayInputStream(template), out, pattern);
+        return UTF8.String(out.toByteArray());
+    }
+
+    private static String compiled(final byte[] template, final serverObjects pattern) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompiledTemplate.compile("test", template).write(out, pattern);
+        return UTF8.String(out.toByteArray());
+    }
+
+    private static void assertSameOutput(final String template, final serverObjects pattern) throws IOException {
+        final byte[] b = UTF8.getBytes(template);
+        assertEquals(engine(b, pattern), compiled(b, pattern));
+    }
+
+    /**
+     * Test of the output of all template types compared to the TemplateEngine
+     */
+    @Test
+    public void testPatterns() throws IOException {
+        final serverObjects pattern = new serverObjects();
+        pattern.put("name", "John Connor");
+        pattern.put("times", 3);
+        for (int i = 0; i < 3; i++) {
+            pattern.put("times_" + i + "_daytime", i);
+            pattern.put("times_" + i + "_num", i + 1);
+            pattern.put("times_" + i + "_daytime_inner", "x" + i);
+        }
+        pattern.put("flag", "true");
+        pattern.put("byname", "b");
+        pattern.put("byname_value", "v");
+
+        final String[] templates = new String[] {
+            "plain text without templates",
+            "Hello #[name]#, #[unknown]#!",
+            "#{times}#\nGood #(daytime)#morning::evening::night #[inner]##(/daytime)#, #[name]#! (#[num]#. Greeting)<br>\n#{/times}#\nend",
+            "#(flag)#no::yes#(/flag)# #(missing)#zero::one#(/missing)#",
+            "#(flag)#a#(inner)#b::c#(/inner)#::d#(inner2)#e::f#(/inner2)#g#(/flag)#",
+            "#(byname)#%%a first::%%b second #[value]#::%%c third#(/byname)# after",
+            "a single # hash, a ## double hash and a #x",
+            "#{times}#[#[num]#]#{/times}# end",
+            "#{empty}#never#{/empty}#after empty",
+            "unclosed #[name",
+            "#(times_0_daytime)#one:two::three#(/times_0_daytime)#",
+        };
+        for (final String template: templates) {
+            assertSameOutput(template, pattern);
+        }
+    }
+
+    /**
+     * Test of the output of the htroot templates without includes compared to the TemplateEngine
+     */
+    @Test
+    public void testHtroot() throws IOException {
+        final File[] files = new File("htroot").listFiles();
+        if (files == null) return;
+        final serverObjects pattern = new serverObjects();
+        int count = 0;
+        for (final File file: files) {
+            if (!file.getName().endsWith(".html")) continue;
+            final byte[] b = FileUtils.read(file);
+            if (UTF8.String(b).contains("#%")) continue; // the includes need the switchboard
+            assertEquals(file.getName(), engine(b, pattern), compiled(b, pattern));
+            count++;
+        }
+        assertTrue(count > 0);
+    }
+
+    /**
+     * Test of the detection of server side includes
+     */
+    @Test
+    public void testSSI() {
+        final serverObjects pattern = new serverObjects();
+        assertTrue(CompiledTemplate.compile("test", UTF8.getBytes("a <!--#include virtual=\"b.html\" --> c")).hasSSI(pattern));
+        assertFalse(CompiledTemplate.compile("test", UTF8.getBytes("a #[b]# c")).hasSSI(pattern));
+        assertTrue(CompiledTemplate.compile("test", UTF8.getBytes("a #%[b]%# c")).hasSSI(pattern));
+    }
+}
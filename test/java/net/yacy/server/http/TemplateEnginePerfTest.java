@@ -0,0 +1,84 @@
+// TemplateEnginePerfTest.java
+// -----------------------
+// part of YaCy
+// Copyright 2026 by agent
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.server.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.server.serverObjects;
+
+/**
+ * Comparing the TemplateEngine, which parses a template with every request, with the rendering
+ * of a CompiledTemplate. The template is a search result item with typical values.
+ */
+public class TemplateEnginePerfTest {
+
+    /**
+     * @param args [template file] [number of renderings]
+     */
+    public static void main(final String[] args) throws Exception {
+        final File file = new File(args.length > 0 ? args[0] : "htroot/yacysearchitem.html");
+        final int count = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        try {
+            final byte[] template = FileUtils.read(file);
+            final serverObjects pattern = new serverObjects();
+            pattern.put("content", 1);
+            pattern.put("content_authorized", 1);
+            pattern.put("content_item", 0);
+            pattern.put("content_title", "YaCy - Decentralized Search Engine");
+            pattern.put("content_link", "https://yacy.net/");
+            pattern.put("content_urlname", "https://yacy.net/");
+            pattern.put("content_description", "YaCy is a free search engine software and a decentralized search network for everyone.");
+            pattern.put("content_date", "Thu, 17 Oct 2019");
+            pattern.put("content_size", "42 kbyte");
+            pattern.put("content_showKeywords", 1);
+            pattern.put("content_showKeywords_keywords", "search, peer-to-peer, index");
+
+            final CompiledTemplate compiled = CompiledTemplate.compile(file.getName(), template);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(template.length * 2);
+            for (int round = 0; round < 3; round++) { // the first rounds warm up the jit compiler
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    out.reset();
+                    TemplateEngine.writeTemplate(file.getName(), new ByteArrayInputStream(template), out, pattern);
+                }
+                final long engineTime = System.nanoTime() - start;
+                final int engineSize = out.size();
+
+                start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    out.reset();
+                    compiled.write(out, pattern);
+                }
+                final long compiledTime = System.nanoTime() - start;
+                System.out.println("round " + round + ": template engine " + TimeUnit.NANOSECONDS.toMillis(engineTime) + " ms, " + engineSize + " bytes; compiled template "
+                        + TimeUnit.NANOSECONDS.toMillis(compiledTime) + " ms, " + out.size() + " bytes");
+            }
+        } finally {
+            ConcurrentLog.shutdown();
+        }
+    }
+
+}